@@ -0,0 +1,42 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius;
+
+import com.spotify.mobius.functions.BatchConsumer;
+
+/**
+ * A {@link Connection} that can receive several values in a single call.
+ *
+ * <p>When the connection of a loop's effect handler implements this interface, the loop passes all
+ * the effects from one {@link Update} or {@link Init} to {@link #acceptAll(Iterable)} in a single
+ * call on the effect runner, instead of posting each effect to the effect runner separately. This
+ * lets effect handlers batch their writes to downstream systems.
+ */
+public interface BatchConnection<I> extends Connection<I>, BatchConsumer<I> {
+
+  /**
+   * Send several values to this connection. Implementations may receive values from different
+   * threads and are thus expected to be thread-safe.
+   *
+   * @param values the values that should be sent to the connection
+   */
+  @Override
+  void acceptAll(Iterable<I> values);
+}
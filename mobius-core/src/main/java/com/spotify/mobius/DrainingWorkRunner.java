@@ -0,0 +1,61 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius;
+
+import com.spotify.mobius.runners.WorkRunner;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link WorkRunner} that queues posted runnables until {@link #runAll()} executes them on the
+ * calling thread. Used to run loops to completion without any thread handoffs.
+ */
+final class DrainingWorkRunner implements WorkRunner {
+
+  private final Queue<Runnable> queue = new ArrayDeque<>();
+  private boolean disposed;
+
+  @Override
+  public synchronized void post(Runnable runnable) {
+    if (disposed) return;
+
+    queue.add(runnable);
+  }
+
+  /** Run queued runnables, including ones posted while doing so, until none remain. */
+  void runAll() {
+    Runnable next;
+    while ((next = poll()) != null) {
+      next.run();
+    }
+  }
+
+  @Nullable
+  private synchronized Runnable poll() {
+    return disposed ? null : queue.poll();
+  }
+
+  @Override
+  public synchronized void dispose() {
+    disposed = true;
+    queue.clear();
+  }
+}
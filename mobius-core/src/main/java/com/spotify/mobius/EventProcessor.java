@@ -21,9 +21,12 @@ package com.spotify.mobius;
 
 import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
 
+import com.spotify.mobius.functions.BatchConsumer;
 import com.spotify.mobius.functions.Consumer;
 import java.util.ArrayList;
 import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Processes events and emits effects and models as a result of that.
@@ -34,6 +37,8 @@ import java.util.List;
  */
 class EventProcessor<M, E, F> {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(EventProcessor.class);
+
   private final MobiusStore<M, E, F> store;
   private final Consumer<F> effectConsumer;
   private final Consumer<M> modelConsumer;
@@ -84,11 +89,43 @@ class EventProcessor<M, E, F> {
     dispatchEffects(next.effects());
   }
 
+  /**
+   * Process a batch of events without letting other events interleave. If processing an event
+   * throws, the remaining events are still processed and the first exception is rethrown
+   * afterwards; any further exceptions are logged.
+   */
+  synchronized void updateAll(Iterable<E> events) {
+    RuntimeException failure = null;
+
+    for (E event : events) {
+      try {
+        update(event);
+      } catch (RuntimeException e) {
+        if (failure == null) {
+          failure = e;
+        } else {
+          // Throwable.addSuppressed isn't available on all the Android versions we support
+          LOGGER.error(
+              "Exception processing event {} after an earlier event in the batch failed", event, e);
+        }
+      }
+    }
+
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
   private void dispatchModel(M model) {
     modelConsumer.accept(model);
   }
 
   private void dispatchEffects(Iterable<F> effects) {
+    if (effectConsumer instanceof BatchConsumer) {
+      ((BatchConsumer<F>) effectConsumer).acceptAll(effects);
+      return;
+    }
+
     for (F effect : effects) {
       effectConsumer.accept(effect);
     }
@@ -24,13 +24,26 @@ import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
 import com.spotify.mobius.disposables.Disposable;
 import com.spotify.mobius.functions.Consumer;
 import com.spotify.mobius.runners.WorkRunner;
+import com.spotify.mobius.tracing.Span;
+import com.spotify.mobius.tracing.SpanKind;
+import com.spotify.mobius.tracing.TraceContext;
+import com.spotify.mobius.tracing.Tracer;
+import java.util.List;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Dispatches messages to a given runner.
  *
+ * <p>If created with a {@link Tracer}, each message records a span for the time it waits on the
+ * runner and another for the time it is processed, with the span that dispatched the message as
+ * parent. Processing happens with the processing span as the current {@link TraceContext}, so that
+ * messages dispatched in turn become its children. A dispatcher created without a queued span kind
+ * only records processing spans, which suits runners that run messages immediately. Exceptions
+ * thrown by the tracer are logged, like those thrown by the consumer.
+ *
  * @param <M> message type (typically a model, event, or effect descriptor type)
  */
 class MessageDispatcher<M> implements Consumer<M>, Disposable {
@@ -39,29 +52,107 @@ class MessageDispatcher<M> implements Consumer<M>, Disposable {
 
   @Nonnull private final WorkRunner runner;
   @Nonnull private final Consumer<M> consumer;
+  @Nullable private final Tracer tracer;
+  @Nullable private final SpanKind queuedKind;
+  @Nullable private final SpanKind processingKind;
 
   MessageDispatcher(WorkRunner runner, Consumer<M> consumer) {
     this.runner = checkNotNull(runner);
     this.consumer = checkNotNull(consumer);
+    this.tracer = null;
+    this.queuedKind = null;
+    this.processingKind = null;
+  }
+
+  MessageDispatcher(
+      WorkRunner runner,
+      Consumer<M> consumer,
+      Tracer tracer,
+      @Nullable SpanKind queuedKind,
+      SpanKind processingKind) {
+    this.runner = checkNotNull(runner);
+    this.consumer = checkNotNull(consumer);
+    this.tracer = checkNotNull(tracer);
+    this.queuedKind = queuedKind;
+    this.processingKind = checkNotNull(processingKind);
   }
 
   @Override
   public void accept(final M message) {
+    if (tracer != null) {
+      acceptTraced(message, tracer);
+      return;
+    }
+
     runner.post(
         new Runnable() {
           @Override
           public void run() {
-            try {
-              consumer.accept(message);
+            deliver(message);
+          }
+        });
+  }
+
+  private void acceptTraced(final M message, final Tracer tracer) {
+    final TraceContext queued = TraceContext.childOfCurrent();
+    final long postedAt = System.nanoTime();
 
-            } catch (Throwable throwable) {
-              LOGGER.error(
-                  "Consumer threw an exception when accepting message: {}", message, throwable);
+    runner.post(
+        new Runnable() {
+          @Override
+          public void run() {
+            final long startedAt = System.nanoTime();
+            final String name = describe(message);
+
+            final TraceContext processing;
+            if (queuedKind != null) {
+              record(tracer, Span.create(queued, queuedKind, name, postedAt, startedAt));
+              processing = queued.child();
+            } else {
+              processing = queued;
             }
+
+            TraceContext.runWith(
+                processing,
+                new Runnable() {
+                  @Override
+                  public void run() {
+                    deliver(message);
+                  }
+                });
+            record(
+                tracer,
+                Span.create(processing, processingKind, name, startedAt, System.nanoTime()));
           }
         });
   }
 
+  private static void record(Tracer tracer, Span span) {
+    try {
+      tracer.record(span);
+
+    } catch (Throwable throwable) {
+      LOGGER.error("Tracer threw an exception when recording span: {}", span, throwable);
+    }
+  }
+
+  private void deliver(M message) {
+    try {
+      consumer.accept(message);
+
+    } catch (Throwable throwable) {
+      LOGGER.error("Consumer threw an exception when accepting message: {}", message, throwable);
+    }
+  }
+
+  private static String describe(Object message) {
+    if (message instanceof List) {
+      return "batch of " + ((List<?>) message).size();
+    }
+
+    return message.getClass().getName();
+  }
+
   @Override
   public void dispose() {
     runner.dispose();
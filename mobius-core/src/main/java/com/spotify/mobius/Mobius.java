@@ -23,14 +23,17 @@ import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
 
 import com.spotify.mobius.disposables.Disposable;
 import com.spotify.mobius.functions.Consumer;
+import com.spotify.mobius.functions.Predicate;
 import com.spotify.mobius.functions.Producer;
 import com.spotify.mobius.runners.WorkRunner;
 import com.spotify.mobius.runners.WorkRunners;
+import com.spotify.mobius.tracing.Tracer;
 import java.util.Locale;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 public final class Mobius {
   private Mobius() {
@@ -58,6 +61,15 @@ public final class Mobius {
         }
       };
 
+  private static final Predicate<?> NO_INLINE_EFFECTS =
+      new Predicate<Object>() {
+        @Override
+        public boolean test(Object effect) {
+          return false;
+        }
+      };
+
+  // shared by all loops and stores without a logger of their own, which skip tracing updates
   private static final MobiusLoop.Logger<?, ?, ?> NOOP_LOGGER =
       new MobiusLoop.Logger<Object, Object, Object>() {
         @Override
@@ -94,6 +106,11 @@ public final class Mobius {
         }
       };
 
+  @SuppressWarnings("unchecked")
+  static <M, E, F> MobiusLoop.Logger<M, E, F> noopLogger() {
+    return (MobiusLoop.Logger<M, E, F>) NOOP_LOGGER;
+  }
+
   /**
    * Create a {@link MobiusLoop.Builder} to help you configure a MobiusLoop before starting it.
    *
@@ -107,6 +124,22 @@ public final class Mobius {
    */
   public static <M, E, F> MobiusLoop.Builder<M, E, F> loop(
       Update<M, E, F> update, Connectable<F, E> effectHandler) {
+    return builder(update, effectHandler);
+  }
+
+  /**
+   * Create a {@link Builder} to help you configure a MobiusLoop before starting it.
+   *
+   * <p>This is the same as {@link #loop(Update, Connectable)}, but the returned builder also
+   * exposes options that are not part of the {@link MobiusLoop.Builder} interface, such as inline
+   * effects, tracing and running a loop to completion.
+   *
+   * @param update the {@link Update} function of the loop
+   * @param effectHandler the {@link Connectable} effect handler of the loop
+   * @return a {@link Builder} instance that you can further configure before starting the loop
+   */
+  public static <M, E, F> Builder<M, E, F> builder(
+      Update<M, E, F> update, Connectable<F, E> effectHandler) {
 
     //noinspection unchecked
     return new Builder<>(
@@ -114,7 +147,7 @@ public final class Mobius {
         effectHandler,
         (Init<M, F>) NOOP_INIT,
         (EventSource<E>) NOOP_EVENT_SOURCE,
-        (MobiusLoop.Logger<M, E, F>) NOOP_LOGGER,
+        Mobius.<M, E, F>noopLogger(),
         new Producer<WorkRunner>() {
           @Nonnull
           @Override
@@ -128,7 +161,9 @@ public final class Mobius {
           public WorkRunner get() {
             return WorkRunners.from(Executors.newCachedThreadPool(Builder.THREAD_FACTORY));
           }
-        });
+        },
+        (Predicate<F>) NO_INLINE_EFFECTS,
+        null);
   }
 
   /**
@@ -156,7 +191,12 @@ public final class Mobius {
     return new MobiusLoopController<>(loopFactory, defaultModel, modelRunner);
   }
 
-  private static final class Builder<M, E, F> implements MobiusLoop.Builder<M, E, F> {
+  /**
+   * The {@link MobiusLoop.Builder} returned by {@link #builder(Update, Connectable)}. Besides the
+   * interface methods, it lets you configure inline effects and tracing, and run a loop to
+   * completion on the calling thread.
+   */
+  public static final class Builder<M, E, F> implements MobiusLoop.Builder<M, E, F> {
 
     private static final MyThreadFactory THREAD_FACTORY = new MyThreadFactory();
 
@@ -167,6 +207,8 @@ public final class Mobius {
     private final Producer<WorkRunner> eventRunner;
     private final Producer<WorkRunner> effectRunner;
     private final MobiusLoop.Logger<M, E, F> logger;
+    private final Predicate<F> inlineEffects;
+    @Nullable private final Tracer tracer;
 
     private Builder(
         Update<M, E, F> update,
@@ -175,7 +217,9 @@ public final class Mobius {
         EventSource<E> eventSource,
         MobiusLoop.Logger<M, E, F> logger,
         Producer<WorkRunner> eventRunner,
-        Producer<WorkRunner> effectRunner) {
+        Producer<WorkRunner> effectRunner,
+        Predicate<F> inlineEffects,
+        @Nullable Tracer tracer) {
       this.update = checkNotNull(update);
       this.effectHandler = checkNotNull(effectHandler);
       this.init = checkNotNull(init);
@@ -183,64 +227,217 @@ public final class Mobius {
       this.eventRunner = checkNotNull(eventRunner);
       this.effectRunner = checkNotNull(effectRunner);
       this.logger = checkNotNull(logger);
+      this.inlineEffects = checkNotNull(inlineEffects);
+      this.tracer = tracer;
     }
 
     @Override
     @Nonnull
-    public MobiusLoop.Builder<M, E, F> init(Init<M, F> init) {
+    public Builder<M, E, F> init(Init<M, F> init) {
       return new Builder<>(
-          update, effectHandler, init, eventSource, logger, eventRunner, effectRunner);
+          update,
+          effectHandler,
+          init,
+          eventSource,
+          logger,
+          eventRunner,
+          effectRunner,
+          inlineEffects,
+          tracer);
     }
 
     @Override
     @Nonnull
-    public MobiusLoop.Builder<M, E, F> eventSource(EventSource<E> eventSource) {
+    public Builder<M, E, F> eventSource(EventSource<E> eventSource) {
       return new Builder<>(
-          update, effectHandler, init, eventSource, logger, eventRunner, effectRunner);
+          update,
+          effectHandler,
+          init,
+          eventSource,
+          logger,
+          eventRunner,
+          effectRunner,
+          inlineEffects,
+          tracer);
     }
 
     @Nonnull
     @Override
-    public MobiusLoop.Builder<M, E, F> eventSources(
+    public Builder<M, E, F> eventSources(
         EventSource<E> eventSource, EventSource<E>... eventSources) {
       EventSource<E> mergedSource = MergedEventSource.from(eventSource, eventSources);
       return new Builder<>(
-          update, effectHandler, init, mergedSource, logger, eventRunner, effectRunner);
+          update,
+          effectHandler,
+          init,
+          mergedSource,
+          logger,
+          eventRunner,
+          effectRunner,
+          inlineEffects,
+          tracer);
     }
 
     @Override
     @Nonnull
-    public MobiusLoop.Builder<M, E, F> logger(MobiusLoop.Logger<M, E, F> logger) {
+    public Builder<M, E, F> logger(MobiusLoop.Logger<M, E, F> logger) {
       return new Builder<>(
-          update, effectHandler, init, eventSource, logger, eventRunner, effectRunner);
+          update,
+          effectHandler,
+          init,
+          eventSource,
+          logger,
+          eventRunner,
+          effectRunner,
+          inlineEffects,
+          tracer);
     }
 
     @Override
     @Nonnull
-    public MobiusLoop.Builder<M, E, F> eventRunner(Producer<WorkRunner> eventRunner) {
+    public Builder<M, E, F> eventRunner(Producer<WorkRunner> eventRunner) {
       return new Builder<>(
-          update, effectHandler, init, eventSource, logger, eventRunner, effectRunner);
+          update,
+          effectHandler,
+          init,
+          eventSource,
+          logger,
+          eventRunner,
+          effectRunner,
+          inlineEffects,
+          tracer);
     }
 
     @Override
     @Nonnull
-    public MobiusLoop.Builder<M, E, F> effectRunner(Producer<WorkRunner> effectRunner) {
+    public Builder<M, E, F> effectRunner(Producer<WorkRunner> effectRunner) {
+      return new Builder<>(
+          update,
+          effectHandler,
+          init,
+          eventSource,
+          logger,
+          eventRunner,
+          effectRunner,
+          inlineEffects,
+          tracer);
+    }
+
+    /**
+     * @return a new {@link Builder} that runs effects for which the supplied predicate holds
+     *     inline, and the same values as the current one for the other fields. Inline effects are
+     *     passed to the effect handler on the event runner, directly after the update or init that
+     *     produced them, instead of being posted to the effect runner. This saves a thread handoff
+     *     for cheap effects that don't block; events that they produce are queued on the event
+     *     runner as usual.
+     */
+    @Nonnull
+    public Builder<M, E, F> inlineEffects(Predicate<F> inlineEffects) {
+      return new Builder<>(
+          update,
+          effectHandler,
+          init,
+          eventSource,
+          logger,
+          eventRunner,
+          effectRunner,
+          inlineEffects,
+          tracer);
+    }
+
+    /**
+     * @return a new {@link Builder} that records causality spans to the supplied tracer, and the
+     *     same values as the current one for the other fields. Every event and effect records a
+     *     span for the time it waits on its runner and another for the time it is processed; the
+     *     effects of an update and the events that an effect handler emits synchronously are
+     *     recorded as children of the span that dispatched them, so the path from a user action to
+     *     its final update can be reconstructed. See {@link com.spotify.mobius.tracing}.
+     */
+    @Nonnull
+    public Builder<M, E, F> tracer(Tracer tracer) {
       return new Builder<>(
-          update, effectHandler, init, eventSource, logger, eventRunner, effectRunner);
+          update,
+          effectHandler,
+          init,
+          eventSource,
+          logger,
+          eventRunner,
+          effectRunner,
+          inlineEffects,
+          checkNotNull(tracer));
     }
 
     @Override
     @Nonnull
     public MobiusLoop<M, E, F> startFrom(M startModel) {
+      return create(startModel, checkNotNull(eventRunner.get()), checkNotNull(effectRunner.get()));
+    }
+
+    /**
+     * Run a loop to completion on the calling thread and return its final model.
+     *
+     * <p>The loop is started from the supplied model and the supplied events are dispatched to it.
+     * Init, update and effect handlers are then run inline, with no thread handoffs, until there is
+     * no more work to do or the supplied predicate holds for a model. The configured event and
+     * effect runners are not used, so effect handlers should dispatch their events synchronously;
+     * events dispatched after this method returns are not processed. The loop is disposed before
+     * returning.
+     *
+     * @param startModel the model that the loop should start from
+     * @param events the events to dispatch to the loop after starting it
+     * @param until a predicate that stops the loop early when it holds for a model
+     * @return the most recent model of the loop when it stopped
+     */
+    @Nonnull
+    public M runToCompletion(M startModel, Iterable<E> events, final Predicate<M> until) {
+      checkNotNull(events);
+      checkNotNull(until);
+
+      final DrainingWorkRunner runner = new DrainingWorkRunner();
+      MobiusLoop<M, E, F> loop = create(startModel, runner, runner);
+
+      try {
+        loop.observe(
+            new Consumer<M>() {
+              @Override
+              public void accept(M model) {
+                if (until.test(model)) {
+                  // drops any remaining work
+                  runner.dispose();
+                }
+              }
+            });
+
+        for (E event : events) {
+          loop.dispatchEvent(event);
+        }
+
+        runner.runAll();
+
+        M model = loop.getMostRecentModel();
+        return model != null ? model : startModel;
+
+      } finally {
+        loop.dispose();
+      }
+    }
+
+    private MobiusLoop<M, E, F> create(
+        M startModel, WorkRunner eventRunner, WorkRunner effectRunner) {
       LoggingInit<M, F> loggingInit = new LoggingInit<>(init, logger);
-      LoggingUpdate<M, E, F> loggingUpdate = new LoggingUpdate<>(update, logger);
+
+      // Update logging is fused into the store; with the default logger there is nothing to trace,
+      // so the per-event before/after callbacks are skipped and only exceptions are reported.
+      boolean traceUpdates = logger != NOOP_LOGGER;
 
       return MobiusLoop.create(
-          MobiusStore.create(loggingInit, loggingUpdate, checkNotNull(startModel)),
+          MobiusStore.create(loggingInit, update, checkNotNull(startModel), logger, traceUpdates),
           effectHandler,
           eventSource,
-          checkNotNull(eventRunner.get()),
-          checkNotNull(effectRunner.get()));
+          eventRunner,
+          effectRunner,
+          inlineEffects,
+          tracer);
     }
 
     private static class MyThreadFactory implements ThreadFactory {
@@ -22,9 +22,15 @@ package com.spotify.mobius;
 import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
 
 import com.spotify.mobius.disposables.Disposable;
+import com.spotify.mobius.functions.BatchConsumer;
 import com.spotify.mobius.functions.Consumer;
+import com.spotify.mobius.functions.Predicate;
 import com.spotify.mobius.functions.Producer;
 import com.spotify.mobius.runners.WorkRunner;
+import com.spotify.mobius.runners.WorkRunners;
+import com.spotify.mobius.tracing.SpanKind;
+import com.spotify.mobius.tracing.Tracer;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
@@ -40,7 +46,10 @@ import javax.annotation.Nullable;
 public class MobiusLoop<M, E, F> implements Disposable {
 
   @Nonnull private final MessageDispatcher<E> eventDispatcher;
+  @Nonnull private final MessageDispatcher<List<E>> eventBatchDispatcher;
   @Nonnull private final MessageDispatcher<F> effectDispatcher;
+  @Nonnull private final MessageDispatcher<List<F>> effectBatchDispatcher;
+  @Nonnull private final MessageDispatcher<F> inlineEffectDispatcher;
 
   @Nonnull private final EventProcessor<M, E, F> eventProcessor;
   @Nonnull private final Connection<F> effectConsumer;
@@ -61,12 +70,49 @@ public class MobiusLoop<M, E, F> implements Disposable {
       WorkRunner eventRunner,
       WorkRunner effectRunner) {
 
+    return create(
+        store,
+        effectHandler,
+        eventSource,
+        eventRunner,
+        effectRunner,
+        new Predicate<F>() {
+          @Override
+          public boolean test(F effect) {
+            return false;
+          }
+        });
+  }
+
+  static <M, E, F> MobiusLoop<M, E, F> create(
+      MobiusStore<M, E, F> store,
+      Connectable<F, E> effectHandler,
+      EventSource<E> eventSource,
+      WorkRunner eventRunner,
+      WorkRunner effectRunner,
+      Predicate<F> inlineEffects) {
+
+    return create(
+        store, effectHandler, eventSource, eventRunner, effectRunner, inlineEffects, null);
+  }
+
+  static <M, E, F> MobiusLoop<M, E, F> create(
+      MobiusStore<M, E, F> store,
+      Connectable<F, E> effectHandler,
+      EventSource<E> eventSource,
+      WorkRunner eventRunner,
+      WorkRunner effectRunner,
+      Predicate<F> inlineEffects,
+      @Nullable Tracer tracer) {
+
     return new MobiusLoop<>(
         new EventProcessor.Factory<>(checkNotNull(store)),
         checkNotNull(effectHandler),
         checkNotNull(eventSource),
         checkNotNull(eventRunner),
-        checkNotNull(effectRunner));
+        checkNotNull(effectRunner),
+        checkNotNull(inlineEffects),
+        tracer);
   }
 
   private MobiusLoop(
@@ -74,7 +120,9 @@ public class MobiusLoop<M, E, F> implements Disposable {
       Connectable<F, E> effectHandler,
       EventSource<E> eventSource,
       WorkRunner eventRunner,
-      WorkRunner effectRunner) {
+      WorkRunner effectRunner,
+      final Predicate<F> inlineEffects,
+      @Nullable Tracer tracer) {
 
     Consumer<E> onEventReceived =
         new Consumer<E>() {
@@ -84,6 +132,14 @@ public class MobiusLoop<M, E, F> implements Disposable {
           }
         };
 
+    Consumer<List<E>> onEventBatchReceived =
+        new Consumer<List<E>>() {
+          @Override
+          public void accept(List<E> events) {
+            eventProcessor.updateAll(events);
+          }
+        };
+
     Consumer<F> onEffectReceived =
         new Consumer<F>() {
           @Override
@@ -96,6 +152,18 @@ public class MobiusLoop<M, E, F> implements Disposable {
           }
         };
 
+    Consumer<List<F>> onEffectBatchReceived =
+        new Consumer<List<F>>() {
+          @Override
+          public void accept(List<F> effects) {
+            try {
+              ((BatchConnection<F>) effectConsumer).acceptAll(effects);
+            } catch (Throwable t) {
+              throw new ConnectionException(effects, t);
+            }
+          }
+        };
+
     Consumer<M> onModelChanged =
         new Consumer<M>() {
           @Override
@@ -109,17 +177,62 @@ public class MobiusLoop<M, E, F> implements Disposable {
           }
         };
 
-    this.eventDispatcher = new MessageDispatcher<>(eventRunner, onEventReceived);
-    this.effectDispatcher = new MessageDispatcher<>(effectRunner, onEffectReceived);
+    this.eventDispatcher = eventDispatcher(eventRunner, onEventReceived, tracer);
+    // shares the event runner, so it is disposed along with the event dispatcher
+    this.eventBatchDispatcher = eventDispatcher(eventRunner, onEventBatchReceived, tracer);
+    this.effectDispatcher = effectDispatcher(effectRunner, onEffectReceived, tracer);
+    // shares the effect runner, so it is disposed along with the effect dispatcher
+    this.effectBatchDispatcher = effectDispatcher(effectRunner, onEffectBatchReceived, tracer);
+    this.inlineEffectDispatcher = inlineEffectDispatcher(onEffectReceived, tracer);
+
+    Consumer<F> effectRouter =
+        new BatchConsumer<F>() {
+          @Override
+          public void accept(F effect) {
+            if (inlineEffects.test(effect)) {
+              inlineEffectDispatcher.accept(effect);
+            } else {
+              effectDispatcher.accept(effect);
+            }
+          }
+
+          @Override
+          public void acceptAll(Iterable<F> effects) {
+            if (!(effectConsumer instanceof BatchConnection)) {
+              for (F effect : effects) {
+                accept(effect);
+              }
+              return;
+            }
+
+            List<F> batch = new ArrayList<>();
+            for (F effect : effects) {
+              if (inlineEffects.test(effect)) {
+                inlineEffectDispatcher.accept(effect);
+              } else {
+                batch.add(effect);
+              }
+            }
+
+            if (!batch.isEmpty()) {
+              effectBatchDispatcher.accept(batch);
+            }
+          }
+        };
 
-    this.eventProcessor = eventProcessorFactory.create(effectDispatcher, onModelChanged);
+    this.eventProcessor = eventProcessorFactory.create(effectRouter, onModelChanged);
 
     Consumer<E> eventConsumer =
-        new Consumer<E>() {
+        new BatchConsumer<E>() {
           @Override
           public void accept(E event) {
             dispatchEvent(event);
           }
+
+          @Override
+          public void acceptAll(Iterable<E> events) {
+            dispatchEvents(events);
+          }
         };
 
     this.effectConsumer = effectHandler.connect(eventConsumer);
@@ -134,6 +247,37 @@ public class MobiusLoop<M, E, F> implements Disposable {
         });
   }
 
+  private static <T> MessageDispatcher<T> eventDispatcher(
+      WorkRunner runner, Consumer<T> consumer, @Nullable Tracer tracer) {
+    if (tracer == null) {
+      return new MessageDispatcher<>(runner, consumer);
+    }
+
+    return new MessageDispatcher<>(
+        runner, consumer, tracer, SpanKind.EVENT_QUEUED, SpanKind.UPDATE);
+  }
+
+  private static <T> MessageDispatcher<T> effectDispatcher(
+      WorkRunner runner, Consumer<T> consumer, @Nullable Tracer tracer) {
+    if (tracer == null) {
+      return new MessageDispatcher<>(runner, consumer);
+    }
+
+    return new MessageDispatcher<>(
+        runner, consumer, tracer, SpanKind.EFFECT_QUEUED, SpanKind.EFFECT);
+  }
+
+  // inline effects don't wait on a runner, so only their processing is traced
+  private static <T> MessageDispatcher<T> inlineEffectDispatcher(
+      Consumer<T> consumer, @Nullable Tracer tracer) {
+    if (tracer == null) {
+      return new MessageDispatcher<>(WorkRunners.immediate(), consumer);
+    }
+
+    return new MessageDispatcher<>(
+        WorkRunners.immediate(), consumer, tracer, null, SpanKind.EFFECT);
+  }
+
   public void dispatchEvent(E event) {
     if (disposed)
       throw new IllegalStateException(
@@ -141,6 +285,29 @@ public class MobiusLoop<M, E, F> implements Disposable {
     eventDispatcher.accept(checkNotNull(event));
   }
 
+  /**
+   * Dispatch a batch of events to this loop. The batch is posted to the event runner as a single
+   * unit of work, and the events are processed in order without being interleaved with other
+   * events.
+   *
+   * @param events the events to dispatch; none of them may be null
+   * @throws IllegalStateException if the loop has been disposed
+   */
+  public void dispatchEvents(Iterable<E> events) {
+    if (disposed)
+      throw new IllegalStateException(
+          "This loop has already been disposed. You cannot dispatch events after disposal");
+
+    List<E> batch = new ArrayList<>();
+    for (E event : events) {
+      batch.add(checkNotNull(event));
+    }
+
+    if (!batch.isEmpty()) {
+      eventBatchDispatcher.accept(batch);
+    }
+  }
+
   @Nullable
   public M getMostRecentModel() {
     return mostRecentModel;
@@ -187,6 +354,7 @@ public class MobiusLoop<M, E, F> implements Disposable {
     synchronized (modelObservers) {
       eventDispatcher.dispose();
       effectDispatcher.dispose();
+      inlineEffectDispatcher.dispose();
       effectConsumer.dispose();
       eventSourceDisposable.dispose();
       modelObservers.clear();
@@ -21,26 +21,58 @@ package com.spotify.mobius;
 
 import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
 
+import com.spotify.mobius.internal_util.Throwables;
 import javax.annotation.Nonnull;
 
-/** Responsible for holding and updating the current model. */
+/**
+ * Responsible for holding and updating the current model.
+ *
+ * <p>Update logging is fused into the store rather than layered on as a wrapping {@link Update}:
+ * the decision whether to call {@link MobiusLoop.Logger#beforeUpdate(Object, Object)} and {@link
+ * MobiusLoop.Logger#afterUpdate(Object, Object, Next)} is made once, when the store is created, so
+ * a loop without a logger pays nothing per event beyond the update function itself. Exceptions
+ * thrown by the update function are always reported to the logger before being propagated.
+ */
 class MobiusStore<M, E, F> {
 
   @Nonnull private final Init<M, F> init;
   @Nonnull private final Update<M, E, F> update;
+  @Nonnull private final MobiusLoop.Logger<M, E, F> logger;
+  private final boolean traceUpdates;
 
   @Nonnull private volatile M currentModel;
 
-  private MobiusStore(Init<M, F> init, Update<M, E, F> update, M startModel) {
+  private MobiusStore(
+      Init<M, F> init,
+      Update<M, E, F> update,
+      M startModel,
+      MobiusLoop.Logger<M, E, F> logger,
+      boolean traceUpdates) {
     this.init = checkNotNull(init);
     this.update = checkNotNull(update);
     this.currentModel = checkNotNull(startModel);
+    this.logger = checkNotNull(logger);
+    this.traceUpdates = traceUpdates;
   }
 
   @Nonnull
   public static <M, E, F> MobiusStore<M, E, F> create(
       Init<M, F> init, Update<M, E, F> update, M startModel) {
-    return new MobiusStore<>(init, update, startModel);
+    return new MobiusStore<>(init, update, startModel, Mobius.<M, E, F>noopLogger(), false);
+  }
+
+  /**
+   * Create a store that reports update exceptions to the given logger, and that also calls its
+   * before/after update methods if {@code traceUpdates} is true.
+   */
+  @Nonnull
+  public static <M, E, F> MobiusStore<M, E, F> create(
+      Init<M, F> init,
+      Update<M, E, F> update,
+      M startModel,
+      MobiusLoop.Logger<M, E, F> logger,
+      boolean traceUpdates) {
+    return new MobiusStore<>(init, update, startModel, logger, traceUpdates);
   }
 
   @Nonnull
@@ -52,8 +84,26 @@ class MobiusStore<M, E, F> {
 
   @Nonnull
   synchronized Next<M, F> update(E event) {
-    Next<M, F> next = update.update(currentModel, checkNotNull(event));
-    currentModel = next.modelOrElse(currentModel);
+    final M model = currentModel;
+    checkNotNull(event);
+
+    if (traceUpdates) {
+      logger.beforeUpdate(model, event);
+    }
+
+    final Next<M, F> next;
+    try {
+      next = update.update(model, event);
+    } catch (Exception e) {
+      logger.exceptionDuringUpdate(model, event, e);
+      throw Throwables.propagate(e);
+    }
+
+    if (traceUpdates) {
+      logger.afterUpdate(model, event, next);
+    }
+
+    currentModel = next.modelOrElse(model);
     return next;
   }
 }
@@ -39,6 +39,10 @@ import javax.annotation.Nullable;
 @AutoValue
 public abstract class Next<M, F> {
 
+  // immutable and without type-dependent state, so a single instance can be shared
+  private static final Next<Object, Object> NO_CHANGE =
+      new AutoValue_Next<>(null, ImmutableUtil.emptySet());
+
   protected Next() {}
 
   /** Get the model of this Next, if it has one. Might return null. */
@@ -127,7 +131,8 @@ public abstract class Next<M, F> {
 
   /** Create an empty Next that doesn't update the model or dispatch effects. */
   @Nonnull
+  @SuppressWarnings("unchecked")
   public static <M, F> Next<M, F> noChange() {
-    return new AutoValue_Next<>(null, ImmutableUtil.<F>emptySet());
+    return (Next<M, F>) NO_CHANGE;
   }
 }
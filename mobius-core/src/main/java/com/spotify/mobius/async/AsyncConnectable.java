@@ -0,0 +1,131 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.async;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.Connectable;
+import com.spotify.mobius.Connection;
+import com.spotify.mobius.ConnectionException;
+import com.spotify.mobius.functions.Consumer;
+import java.util.HashSet;
+import java.util.Set;
+import javax.annotation.Nonnull;
+
+/**
+ * A {@link Connectable} that handles effects with an {@link AsyncEffectHandler}.
+ *
+ * <p>The event of each promise is dispatched to the loop when the promise succeeds, so no thread is
+ * held while the work is in progress. Pending promises are cancelled when the connection is
+ * disposed, and their results are dropped. A failed promise is a programmer error - the handler is
+ * expected to turn failures into events - and is reported as a {@link ConnectionException} to the
+ * uncaught exception handler of the thread that completed it.
+ *
+ * @param <F> the effect type
+ * @param <E> the event type
+ */
+public final class AsyncConnectable<F, E> implements Connectable<F, E> {
+
+  private final AsyncEffectHandler<F, E> handler;
+
+  private AsyncConnectable(AsyncEffectHandler<F, E> handler) {
+    this.handler = checkNotNull(handler);
+  }
+
+  public static <F, E> AsyncConnectable<F, E> create(AsyncEffectHandler<F, E> handler) {
+    return new AsyncConnectable<>(handler);
+  }
+
+  @Nonnull
+  @Override
+  public Connection<F> connect(Consumer<E> output) {
+    return new AsyncConnection(checkNotNull(output));
+  }
+
+  private final class AsyncConnection implements Connection<F> {
+
+    private final Consumer<E> output;
+
+    // guarded by 'this'
+    private final Set<Promise<E>> pending = new HashSet<>();
+    private boolean disposed;
+
+    private AsyncConnection(Consumer<E> output) {
+      this.output = output;
+    }
+
+    @Override
+    public void accept(final F effect) {
+      synchronized (this) {
+        if (disposed) {
+          return;
+        }
+      }
+
+      final Promise<E> promise = checkNotNull(handler.handle(effect));
+
+      synchronized (this) {
+        if (disposed) {
+          promise.cancel();
+          return;
+        }
+        pending.add(promise);
+      }
+
+      promise.whenDone(
+          new Promise.Callback<E>() {
+            @Override
+            public void onSuccess(E value) {
+              if (remove(promise)) {
+                output.accept(value);
+              }
+            }
+
+            @Override
+            public void onFailure(Throwable error) {
+              if (remove(promise)) {
+                Thread thread = Thread.currentThread();
+                thread
+                    .getUncaughtExceptionHandler()
+                    .uncaughtException(thread, new ConnectionException(effect, error));
+              }
+            }
+          });
+    }
+
+    private synchronized boolean remove(Promise<E> promise) {
+      return pending.remove(promise) && !disposed;
+    }
+
+    @Override
+    public void dispose() {
+      Promise<?>[] toCancel;
+      synchronized (this) {
+        disposed = true;
+        toCancel = pending.toArray(new Promise<?>[0]);
+        pending.clear();
+      }
+
+      for (Promise<?> promise : toCancel) {
+        promise.cancel();
+      }
+    }
+  }
+}
@@ -0,0 +1,42 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.async;
+
+/**
+ * An effect handler that performs asynchronous work without blocking the thread it is invoked on.
+ *
+ * <p>Implementations should start the work and return a pending {@link Promise} immediately; the
+ * effect runner thread is released as soon as this method returns. Use {@link
+ * AsyncConnectable#create(AsyncEffectHandler)} to turn a handler into a {@link
+ * com.spotify.mobius.Connectable}.
+ *
+ * @param <F> the effect type
+ * @param <E> the event type
+ */
+public interface AsyncEffectHandler<F, E> {
+
+  /**
+   * Start handling an effect.
+   *
+   * @param effect the effect to handle
+   * @return a promise of the resulting event
+   */
+  Promise<E> handle(F effect);
+}
@@ -0,0 +1,225 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.async;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.disposables.Disposable;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * The eventual result of an asynchronous operation, for code that can't use {@code
+ * CompletionStage}.
+ *
+ * <p>A promise is completed at most once, either by {@link #succeed(Object)}, {@link
+ * #fail(Throwable)} or {@link #cancel()}. Callbacks registered with {@link #whenDone(Callback)} are
+ * invoked on the thread that completes the promise, or immediately if it is already complete; they
+ * are not invoked if the promise is cancelled. The code performing the operation can use {@link
+ * #whenCancelled(Disposable)} to stop it when the result is no longer needed.
+ *
+ * @param <V> the type of the result
+ */
+public final class Promise<V> {
+
+  private enum State {
+    PENDING,
+    SUCCEEDED,
+    FAILED,
+    CANCELLED
+  }
+
+  // all fields guarded by 'this'
+  private State state = State.PENDING;
+  @Nullable private V value;
+  @Nullable private Throwable error;
+  @Nullable private List<Callback<? super V>> callbacks = new ArrayList<>(1);
+  @Nullable private List<Disposable> cancelListeners = new ArrayList<>(1);
+
+  private Promise() {}
+
+  /** Create a pending promise. */
+  public static <V> Promise<V> create() {
+    return new Promise<>();
+  }
+
+  /** Create a promise that has already succeeded with a value. */
+  public static <V> Promise<V> succeeded(V value) {
+    Promise<V> promise = create();
+    promise.succeed(value);
+    return promise;
+  }
+
+  /** Create a promise that has already failed with an error. */
+  public static <V> Promise<V> failed(Throwable error) {
+    Promise<V> promise = create();
+    promise.fail(error);
+    return promise;
+  }
+
+  /**
+   * Complete this promise with a value.
+   *
+   * @return true if the promise was completed by this call, false if it was already complete
+   */
+  public boolean succeed(V value) {
+    checkNotNull(value);
+
+    List<Callback<? super V>> toNotify;
+    synchronized (this) {
+      if (state != State.PENDING) {
+        return false;
+      }
+      state = State.SUCCEEDED;
+      this.value = value;
+      toNotify = callbacks;
+      callbacks = null;
+      cancelListeners = null;
+    }
+
+    //noinspection ConstantConditions
+    for (Callback<? super V> callback : toNotify) {
+      callback.onSuccess(value);
+    }
+    return true;
+  }
+
+  /**
+   * Complete this promise with an error.
+   *
+   * @return true if the promise was completed by this call, false if it was already complete
+   */
+  public boolean fail(Throwable error) {
+    checkNotNull(error);
+
+    List<Callback<? super V>> toNotify;
+    synchronized (this) {
+      if (state != State.PENDING) {
+        return false;
+      }
+      state = State.FAILED;
+      this.error = error;
+      toNotify = callbacks;
+      callbacks = null;
+      cancelListeners = null;
+    }
+
+    //noinspection ConstantConditions
+    for (Callback<? super V> callback : toNotify) {
+      callback.onFailure(error);
+    }
+    return true;
+  }
+
+  /**
+   * Cancel this promise, disposing everything registered with {@link #whenCancelled(Disposable)}.
+   *
+   * @return true if the promise was cancelled by this call, false if it was already complete
+   */
+  public boolean cancel() {
+    List<Disposable> toDispose;
+    synchronized (this) {
+      if (state != State.PENDING) {
+        return false;
+      }
+      state = State.CANCELLED;
+      toDispose = cancelListeners;
+      callbacks = null;
+      cancelListeners = null;
+    }
+
+    //noinspection ConstantConditions
+    for (Disposable disposable : toDispose) {
+      disposable.dispose();
+    }
+    return true;
+  }
+
+  /** @return true if this promise has succeeded, failed or been cancelled */
+  public synchronized boolean isDone() {
+    return state != State.PENDING;
+  }
+
+  /** @return true if this promise has been cancelled */
+  public synchronized boolean isCancelled() {
+    return state == State.CANCELLED;
+  }
+
+  /**
+   * Register a callback for the result of this promise. If the promise has already succeeded or
+   * failed, the callback is invoked immediately.
+   */
+  public void whenDone(Callback<? super V> callback) {
+    checkNotNull(callback);
+
+    State current;
+    synchronized (this) {
+      current = state;
+      if (current == State.PENDING) {
+        //noinspection ConstantConditions
+        callbacks.add(callback);
+        return;
+      }
+    }
+
+    if (current == State.SUCCEEDED) {
+      //noinspection ConstantConditions
+      callback.onSuccess(value);
+    } else if (current == State.FAILED) {
+      //noinspection ConstantConditions
+      callback.onFailure(error);
+    }
+  }
+
+  /**
+   * Register a {@link Disposable} to be disposed if this promise is cancelled, for instance to
+   * abort the request producing its result. If the promise has already been cancelled, it is
+   * disposed immediately.
+   */
+  public void whenCancelled(Disposable disposable) {
+    checkNotNull(disposable);
+
+    synchronized (this) {
+      if (state == State.PENDING) {
+        //noinspection ConstantConditions
+        cancelListeners.add(disposable);
+        return;
+      }
+      if (state != State.CANCELLED) {
+        return;
+      }
+    }
+
+    disposable.dispose();
+  }
+
+  /**
+   * Receives the result of a {@link Promise}.
+   *
+   * @param <V> the type of the result
+   */
+  public interface Callback<V> {
+
+    void onSuccess(V value);
+
+    void onFailure(Throwable error);
+  }
+}
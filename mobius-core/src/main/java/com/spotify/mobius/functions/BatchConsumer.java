@@ -0,0 +1,31 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.functions;
+
+/**
+ * Interface for consuming values that can also accept several values at once.
+ *
+ * <p>The event consumers that a {@link com.spotify.mobius.MobiusLoop} passes to event sources and
+ * effect handlers implement this interface. An event source that receives events in batches can
+ * check for it and dispatch each batch with a single call to {@link #acceptAll(Iterable)}.
+ */
+public interface BatchConsumer<V> extends Consumer<V> {
+  void acceptAll(Iterable<V> values);
+}
@@ -30,6 +30,8 @@ import java.util.Set;
  */
 public final class ImmutableUtil {
 
+  private static final Class<?> SINGLETON_SET_CLASS = Collections.singleton("").getClass();
+
   private ImmutableUtil() {}
 
   public static <T> Set<T> emptySet() {
@@ -46,10 +48,23 @@ public final class ImmutableUtil {
     return Collections.unmodifiableSet(result);
   }
 
+  @SuppressWarnings("unchecked")
   public static <T> Set<T> immutableSet(Set<? extends T> set) {
-    Preconditions.checkIterableNoNulls(set);
-    Set<T> result = new HashSet<>(set);
-    return Collections.unmodifiableSet(result);
+    // most update functions produce zero or one effects, so avoid copying those sets into a new
+    // HashSet; Collections.singleton() is immutable, so it can be passed through as is
+    switch (set.size()) {
+      case 0:
+        return emptySet();
+      case 1:
+        if (set.getClass() == SINGLETON_SET_CLASS) {
+          return (Set<T>) Preconditions.checkIterableNoNulls(set);
+        }
+        return Collections.<T>singleton(Preconditions.checkNotNull(set.iterator().next()));
+      default:
+        Preconditions.checkIterableNoNulls(set);
+        Set<T> result = new HashSet<>(set);
+        return Collections.unmodifiableSet(result);
+    }
   }
 
   @SafeVarargs
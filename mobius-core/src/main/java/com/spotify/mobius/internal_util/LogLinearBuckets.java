@@ -0,0 +1,66 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.internal_util;
+
+/**
+ * Maps non-negative values to log-linear buckets: each power of two is divided into {@code 2^bits}
+ * equally wide sub-buckets, so the width of a bucket is at most 1/{@code 2^bits} of the values in
+ * it. Used by latency histograms to give bounded relative error with a fixed number of buckets.
+ */
+public final class LogLinearBuckets {
+
+  private final int subBucketBits;
+  private final int subBuckets;
+
+  public LogLinearBuckets(int subBucketBits) {
+    if (subBucketBits < 0 || subBucketBits > 16) {
+      throw new IllegalArgumentException("subBucketBits must be in [0, 16]: " + subBucketBits);
+    }
+    this.subBucketBits = subBucketBits;
+    this.subBuckets = 1 << subBucketBits;
+  }
+
+  /** @return the number of buckets needed to hold any non-negative long */
+  public int bucketCount() {
+    return (64 - subBucketBits) * subBuckets;
+  }
+
+  /** @return the index of the bucket holding the supplied non-negative value */
+  public int indexOf(long value) {
+    if (value < subBuckets) {
+      return (int) value;
+    }
+    int magnitude = 63 - Long.numberOfLeadingZeros(value) - subBucketBits;
+    int subBucket = (int) (value >>> magnitude) - subBuckets;
+    return (magnitude + 1) * subBuckets + subBucket;
+  }
+
+  /** @return the highest value held by the bucket with the supplied index */
+  public long highestValueIn(int index) {
+    if (index < subBuckets) {
+      return index;
+    }
+    int magnitude = index / subBuckets - 1;
+    long subBucket = index % subBuckets + subBuckets;
+    long bound = ((subBucket + 1) << magnitude) - 1;
+    // the top bucket would overflow
+    return bound < 0 ? Long.MAX_VALUE : bound;
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.runners;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link WorkRunner} that invokes the {@link Runnable} you post on the thread you posted from,
+ * like {@link ImmediateWorkRunner}, but without nesting calls.
+ *
+ * <p>If a runnable is posted while another runnable posted to any trampolining runner is executing
+ * on the same thread, it is put on a thread-local queue instead of being run immediately. The
+ * outermost call to {@link #post(Runnable)} then drains the queue in order before returning. This
+ * means that a loop where effect handlers dispatch events synchronously can run entirely on the
+ * caller's thread without its stack growing for each event and effect.
+ *
+ * <p>If a runnable throws, the remaining queued runnables are still executed, and the exception is
+ * then rethrown from the outermost call to {@link #post(Runnable)}; any further exceptions are
+ * logged.
+ */
+public class TrampoliningWorkRunner implements WorkRunner {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(TrampoliningWorkRunner.class);
+
+  private static final ThreadLocal<Trampoline> TRAMPOLINE =
+      new ThreadLocal<Trampoline>() {
+        @Override
+        protected Trampoline initialValue() {
+          return new Trampoline();
+        }
+      };
+
+  private volatile boolean disposed;
+
+  @Override
+  public void post(Runnable runnable) {
+    if (disposed) return;
+
+    TRAMPOLINE.get().post(this, runnable);
+  }
+
+  private synchronized void execute(Runnable runnable) {
+    if (disposed) return;
+
+    runnable.run();
+  }
+
+  @Override
+  public synchronized void dispose() {
+    disposed = true;
+  }
+
+  private static class Trampoline {
+    // the two queues are kept in lockstep to avoid allocating a pair for each posted runnable
+    private final Queue<TrampoliningWorkRunner> runners = new ArrayDeque<>();
+    private final Queue<Runnable> runnables = new ArrayDeque<>();
+    private boolean draining;
+
+    void post(TrampoliningWorkRunner runner, Runnable runnable) {
+      runners.add(runner);
+      runnables.add(runnable);
+
+      if (draining) return;
+
+      draining = true;
+      Throwable failure = null;
+
+      try {
+        while (!runnables.isEmpty()) {
+          TrampoliningWorkRunner next = runners.remove();
+          try {
+            next.execute(runnables.remove());
+          } catch (RuntimeException | Error e) {
+            if (failure == null) {
+              failure = e;
+            } else {
+              // Throwable.addSuppressed isn't available on all the Android versions we support
+              LOGGER.error("Exception in runnable after an earlier runnable failed", e);
+            }
+          }
+        }
+      } finally {
+        draining = false;
+      }
+
+      if (failure instanceof RuntimeException) {
+        throw (RuntimeException) failure;
+      }
+      if (failure != null) {
+        throw (Error) failure;
+      }
+    }
+  }
+}
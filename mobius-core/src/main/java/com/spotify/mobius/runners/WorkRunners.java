@@ -37,6 +37,11 @@ public class WorkRunners {
     return new ImmediateWorkRunner();
   }
 
+  @Nonnull
+  public static WorkRunner trampolining() {
+    return new TrampoliningWorkRunner();
+  }
+
   @Nonnull
   public static WorkRunner singleThread() {
     return from(Executors.newSingleThreadExecutor());
@@ -0,0 +1,76 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.tracing;
+
+import com.google.auto.value.AutoValue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nonnull;
+
+/**
+ * The chain of spans leading from the root of a trace to the span that ended last. This is what
+ * determined the end-to-end latency of the trace; for example, for a user action, the events,
+ * updates and effects that had to happen one after the other before the final update.
+ */
+@AutoValue
+public abstract class CriticalPath {
+
+  /** @return the spans of the path, from the root of the trace to the span that ended last */
+  @Nonnull
+  public abstract List<Span> spans();
+
+  /** @return the time from the start of the root span until the end of the last span */
+  public final long latencyNanos() {
+    List<Span> spans = spans();
+    if (spans.isEmpty()) {
+      return 0;
+    }
+
+    return spans.get(spans.size() - 1).endNanos() - spans.get(0).startNanos();
+  }
+
+  /**
+   * Find the critical path of the supplied spans of a trace. If spans are missing from the trace,
+   * for instance because they were evicted from a bounded tracer, the path starts at the first span
+   * whose parent is missing.
+   */
+  public static CriticalPath of(Iterable<Span> trace) {
+    Map<Long, Span> spansById = new HashMap<>();
+    Span last = null;
+
+    for (Span span : trace) {
+      spansById.put(span.context().spanId(), span);
+      if (last == null || span.endNanos() > last.endNanos()) {
+        last = span;
+      }
+    }
+
+    List<Span> path = new ArrayList<>();
+    for (Span span = last; span != null; span = spansById.get(span.context().parentSpanId())) {
+      path.add(span);
+    }
+    Collections.reverse(path);
+
+    return new AutoValue_CriticalPath(Collections.unmodifiableList(path));
+  }
+}
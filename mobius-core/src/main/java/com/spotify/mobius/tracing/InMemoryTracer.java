@@ -0,0 +1,82 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.tracing;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link Tracer} that keeps the most recently recorded spans in memory, evicting the oldest ones
+ * once it holds as many as its capacity.
+ */
+public class InMemoryTracer implements Tracer {
+
+  private final int capacity;
+  private final ArrayDeque<Span> spans;
+
+  private InMemoryTracer(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive: " + capacity);
+    }
+
+    this.capacity = capacity;
+    this.spans = new ArrayDeque<>();
+  }
+
+  public static InMemoryTracer create(int capacity) {
+    return new InMemoryTracer(capacity);
+  }
+
+  @Override
+  public synchronized void record(Span span) {
+    if (spans.size() == capacity) {
+      spans.removeFirst();
+    }
+    spans.addLast(span);
+  }
+
+  /** @return the spans held, in the order they ended */
+  public synchronized List<Span> spans() {
+    return new ArrayList<>(spans);
+  }
+
+  /**
+   * @return the spans held that belong to the trace with the supplied id, in the order they ended
+   */
+  public synchronized List<Span> trace(long traceId) {
+    List<Span> trace = new ArrayList<>();
+    for (Span span : spans) {
+      if (span.context().traceId() == traceId) {
+        trace.add(span);
+      }
+    }
+    return trace;
+  }
+
+  /** @return the critical path of the trace with the supplied id, as far as its spans are held */
+  public CriticalPath criticalPath(long traceId) {
+    return CriticalPath.of(trace(traceId));
+  }
+
+  public synchronized void clear() {
+    spans.clear();
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.tracing;
+
+import com.google.auto.value.AutoValue;
+import javax.annotation.Nonnull;
+
+/** A timed hop of a message through a loop, identified by a {@link TraceContext}. */
+@AutoValue
+public abstract class Span {
+
+  /** @return the trace and position in the trace of this span */
+  @Nonnull
+  public abstract TraceContext context();
+
+  /** @return which hop this span records */
+  @Nonnull
+  public abstract SpanKind kind();
+
+  /** @return a description of the message, usually its class name */
+  @Nonnull
+  public abstract String name();
+
+  /** @return when the span started, as per {@link System#nanoTime()} */
+  public abstract long startNanos();
+
+  /** @return when the span ended, as per {@link System#nanoTime()} */
+  public abstract long endNanos();
+
+  public final long durationNanos() {
+    return endNanos() - startNanos();
+  }
+
+  public static Span create(
+      TraceContext context, SpanKind kind, String name, long startNanos, long endNanos) {
+    return new AutoValue_Span(context, kind, name, startNanos, endNanos);
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.tracing;
+
+/** The hops that a message makes through a loop, each of which is recorded as a {@link Span}. */
+public enum SpanKind {
+  /**
+   * An event waiting on the event runner, from being dispatched until it starts being processed.
+   */
+  EVENT_QUEUED,
+
+  /** An event being processed: the update function, and dispatching the model and effects. */
+  UPDATE,
+
+  /**
+   * An effect waiting on the effect runner, from being dispatched until it reaches the handler. Not
+   * recorded for inline effects, which don't wait on a runner.
+   */
+  EFFECT_QUEUED,
+
+  /** An effect being handled, until the effect handler's connection returns. */
+  EFFECT,
+}
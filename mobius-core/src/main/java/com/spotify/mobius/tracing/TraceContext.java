@@ -0,0 +1,93 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.tracing;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.google.auto.value.AutoValue;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+
+/**
+ * Identifies a span within a trace. The context of the span being processed is current on the
+ * processing thread, so that messages dispatched from it - effects from an update, or events from
+ * an effect handler - become its children, even if they are dispatched to another loop.
+ *
+ * <p>Effect handlers that emit events from a different thread than the one they were called on can
+ * keep the trace intact by capturing {@link #current()} when called, and emitting their events
+ * inside {@link #runWith(TraceContext, Runnable)}.
+ */
+@AutoValue
+public abstract class TraceContext {
+
+  private static final AtomicLong IDS = new AtomicLong();
+
+  private static final ThreadLocal<TraceContext> CURRENT = new ThreadLocal<>();
+
+  /** @return the id of the trace, which is the id of its root span */
+  public abstract long traceId();
+
+  /** @return the id of the span */
+  public abstract long spanId();
+
+  /** @return the id of the parent span, or 0 if this is the root span of its trace */
+  public abstract long parentSpanId();
+
+  /** @return a new context for a span that is a child of this one */
+  public TraceContext child() {
+    return new AutoValue_TraceContext(traceId(), IDS.incrementAndGet(), spanId());
+  }
+
+  /** @return the context of the span being processed on the calling thread, if any */
+  @Nullable
+  public static TraceContext current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * @return a new context for a child of the current span, or for the root of a new trace if there
+   *     is no current span
+   */
+  public static TraceContext childOfCurrent() {
+    TraceContext current = CURRENT.get();
+    if (current != null) {
+      return current.child();
+    }
+
+    long id = IDS.incrementAndGet();
+    return new AutoValue_TraceContext(id, id, 0);
+  }
+
+  /**
+   * Run the supplied runnable with the supplied context as the current one, restoring the previous
+   * context afterwards. A null context runs the runnable outside of any trace.
+   */
+  public static void runWith(@Nullable TraceContext context, Runnable runnable) {
+    checkNotNull(runnable);
+
+    TraceContext previous = CURRENT.get();
+    CURRENT.set(context);
+    try {
+      runnable.run();
+    } finally {
+      CURRENT.set(previous);
+    }
+  }
+}
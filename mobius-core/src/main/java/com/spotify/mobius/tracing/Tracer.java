@@ -0,0 +1,32 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.tracing;
+
+/**
+ * Receives the spans recorded by a loop, as they end. Spans from different loop threads may be
+ * recorded concurrently, so implementations must be thread safe. They should also be fast and not
+ * throw, since they are called while dispatching messages.
+ *
+ * <p>{@link InMemoryTracer} keeps recent spans in memory so that traces can be inspected in
+ * process; other implementations can export spans to a tracing system.
+ */
+public interface Tracer {
+  void record(Span span);
+}
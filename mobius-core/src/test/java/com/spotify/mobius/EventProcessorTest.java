@@ -24,6 +24,7 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import com.google.common.collect.Sets;
 import com.spotify.mobius.internal_util.ImmutableUtil;
 import com.spotify.mobius.test.RecordingConsumer;
+import java.util.Arrays;
 import java.util.Set;
 import javax.annotation.Nonnull;
 import org.junit.Before;
@@ -96,6 +97,33 @@ public class EventProcessorTest {
     stateConsumer.assertValues("init!", "init!->1", "init!->1->2", "init!->1->2->3");
   }
 
+  @Test
+  public void shouldProcessBatchOfEventsInOrder() throws Exception {
+    underTest.updateAll(Arrays.asList(1, 0, 2));
+
+    stateConsumer.assertValues("init!", "init!->1", "init!->1->2");
+  }
+
+  @Test
+  public void shouldProcessRestOfBatchWhenEventFails() throws Exception {
+    assertThatThrownBy(() -> underTest.updateAll(Arrays.asList(1, -1, 2, -2)))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("negative event: -1");
+
+    stateConsumer.assertValues("init!", "init!->1", "init!->1->2");
+  }
+
+  @Test
+  public void shouldQueueBatchesReceivedBeforeInit() throws Exception {
+    stateConsumer.clearValues();
+    underTest = new EventProcessor<>(createStore(), effectConsumer, stateConsumer);
+
+    underTest.updateAll(Arrays.asList(1, 2));
+    underTest.init();
+
+    stateConsumer.assertValues("init!", "init!->1", "init!->1->2");
+  }
+
   @Test
   public void shouldDisallowDuplicateInitialisation() throws Exception {
     assertThatThrownBy(() -> underTest.init()).isInstanceOf(IllegalStateException.class);
@@ -117,6 +145,9 @@ public class EventProcessorTest {
             if (event == 0) {
               return Next.noChange();
             }
+            if (event < 0) {
+              throw new IllegalArgumentException("negative event: " + event);
+            }
 
             Set<Long> effects = Sets.newHashSet();
             for (int i = 0; i < event; i++) {
@@ -20,11 +20,13 @@
 package com.spotify.mobius;
 
 import static com.spotify.mobius.Effects.effects;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.awaitility.Awaitility.await;
 
 import com.google.common.util.concurrent.SettableFuture;
 import com.spotify.mobius.disposables.Disposable;
+import com.spotify.mobius.functions.BatchConsumer;
 import com.spotify.mobius.functions.Consumer;
 import com.spotify.mobius.runners.ExecutorServiceWorkRunner;
 import com.spotify.mobius.runners.ImmediateWorkRunner;
@@ -32,8 +34,13 @@ import com.spotify.mobius.runners.WorkRunner;
 import com.spotify.mobius.test.RecordingModelObserver;
 import com.spotify.mobius.test.SimpleConnection;
 import com.spotify.mobius.test.TestWorkRunner;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.annotation.Nonnull;
 import org.awaitility.Duration;
 import org.junit.Before;
@@ -261,6 +268,102 @@ public class MobiusLoopTest {
     observer.assertStates("init", "init->effectfrominit");
   }
 
+  @Test
+  public void shouldProcessBatchOfEventsInOrder() throws Exception {
+    mobiusLoop.dispatchEvents(Arrays.asList(new TestEvent("first"), new TestEvent("second")));
+
+    observer.assertStates("init", "init->first", "init->first->second");
+  }
+
+  @Test
+  public void shouldPostBatchOfEventsOnce() throws Exception {
+    AtomicInteger posts = new AtomicInteger();
+    WorkRunner countingRunner =
+        new ImmediateWorkRunner() {
+          @Override
+          public synchronized void post(Runnable runnable) {
+            posts.incrementAndGet();
+            super.post(runnable);
+          }
+        };
+
+    mobiusLoop =
+        MobiusLoop.create(mobiusStore, effectHandler, eventSource, countingRunner, immediateRunner);
+    posts.set(0);
+
+    mobiusLoop.dispatchEvents(
+        Arrays.asList(new TestEvent("1"), new TestEvent("2"), new TestEvent("3")));
+
+    assertThat(posts.get()).isEqualTo(1);
+    assertThat(mobiusLoop.getMostRecentModel()).isEqualTo("init->1->2->3");
+  }
+
+  @Test
+  public void shouldLetEventSourcesDispatchBatches() throws Exception {
+    AtomicReference<Consumer<TestEvent>> consumer = new AtomicReference<>();
+    EventSource<TestEvent> batchingSource =
+        eventConsumer -> {
+          consumer.set(eventConsumer);
+          return () -> {};
+        };
+
+    mobiusLoop =
+        MobiusLoop.create(
+            mobiusStore, effectHandler, batchingSource, immediateRunner, immediateRunner);
+    observer = new RecordingModelObserver<>();
+    mobiusLoop.observe(observer);
+
+    assertThat(consumer.get()).isInstanceOf(BatchConsumer.class);
+    ((BatchConsumer<TestEvent>) consumer.get())
+        .acceptAll(Arrays.asList(new TestEvent("a"), new TestEvent("b")));
+
+    observer.assertStates("init", "init->a", "init->a->b");
+  }
+
+  @Test
+  public void shouldPassAllEffectsFromOneUpdateToBatchConnection() throws Exception {
+    mobiusStore =
+        MobiusStore.create(
+            First::first,
+            (model, event) ->
+                Next.next(model + "->" + event, effects(new SafeEffect("a"), new SafeEffect("b"))),
+            "init");
+    List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+    setupWithEffects(
+        eventConsumer ->
+            new BatchConnection<TestEffect>() {
+              @Override
+              public void acceptAll(Iterable<TestEffect> values) {
+                int size = 0;
+                for (TestEffect value : values) {
+                  size++;
+                }
+                batchSizes.add(size);
+              }
+
+              @Override
+              public void accept(TestEffect value) {
+                batchSizes.add(1);
+              }
+
+              @Override
+              public void dispose() {}
+            },
+        immediateRunner);
+
+    mobiusLoop.dispatchEvent(new TestEvent("1"));
+    mobiusLoop.dispatchEvent(new TestEvent("2"));
+
+    assertThat(batchSizes).containsExactly(2, 2);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void dispatchingBatchAfterDisposalThrowsException() throws Exception {
+    mobiusLoop.dispose();
+    mobiusLoop.dispatchEvents(Arrays.asList(new TestEvent("2")));
+  }
+
   @Test(expected = IllegalStateException.class)
   public void dispatchingEventsAfterDisposalThrowsException() throws Exception {
     mobiusLoop.dispose();
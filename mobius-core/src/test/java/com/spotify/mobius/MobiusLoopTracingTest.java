@@ -0,0 +1,228 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius;
+
+import static com.spotify.mobius.Effects.effects;
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import com.spotify.mobius.functions.Consumer;
+import com.spotify.mobius.runners.WorkRunners;
+import com.spotify.mobius.tracing.CriticalPath;
+import com.spotify.mobius.tracing.InMemoryTracer;
+import com.spotify.mobius.tracing.Span;
+import com.spotify.mobius.tracing.SpanKind;
+import com.spotify.mobius.tracing.TraceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MobiusLoopTracingTest {
+
+  private static final Update<Integer, String, String> UPDATE =
+      new Update<Integer, String, String>() {
+        @Nonnull
+        @Override
+        public Next<Integer, String> update(Integer model, String event) {
+          if (event.equals("click")) {
+            return Next.next(model + 1, effects("load"));
+          }
+
+          return Next.next(model + 10);
+        }
+      };
+
+  private InMemoryTracer tracer;
+  private MobiusLoop<Integer, String, String> loop;
+
+  @Before
+  public void setUp() throws Exception {
+    tracer = InMemoryTracer.create(100);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (loop != null) {
+      loop.dispose();
+    }
+  }
+
+  @Test
+  public void shouldTraceFromEventThroughEffectToNextEvent() throws Exception {
+    // running effects on the event thread guarantees that the update of the resulting event is the
+    // last span to end, so that it is where the critical path ends
+    startLoop(builder(synchronousHandler()).effectRunner(WorkRunners::immediate));
+
+    loop.dispatchEvent("click");
+    awaitSpans(6);
+
+    List<Span> spans = tracer.spans();
+    long traceId = spans.get(0).context().traceId();
+    assertThat(tracer.trace(traceId), hasSize(6));
+
+    CriticalPath path = tracer.criticalPath(traceId);
+    assertThat(
+        kinds(path.spans()),
+        contains(
+            SpanKind.EVENT_QUEUED,
+            SpanKind.UPDATE,
+            SpanKind.EFFECT_QUEUED,
+            SpanKind.EFFECT,
+            SpanKind.EVENT_QUEUED,
+            SpanKind.UPDATE));
+    assertThat(path.spans().get(0).context().parentSpanId(), is(0L));
+    assertThat(path.latencyNanos(), greaterThanOrEqualTo(0L));
+  }
+
+  @Test
+  public void shouldStartNewTraceForEachDispatchFromOutsideTheLoop() throws Exception {
+    startLoop(synchronousHandler());
+
+    loop.dispatchEvent("click");
+    awaitSpans(6);
+    loop.dispatchEvent("click");
+    awaitSpans(12);
+
+    List<Span> spans = tracer.spans();
+    long firstTrace = spans.get(0).context().traceId();
+    long secondTrace = spans.get(11).context().traceId();
+
+    assertThat(secondTrace, is(not(firstTrace)));
+    assertThat(tracer.trace(firstTrace), hasSize(6));
+    assertThat(tracer.trace(secondTrace), hasSize(6));
+  }
+
+  @Test
+  public void shouldKeepTraceForEventsEmittedFromOtherThreadsWithCapturedContext()
+      throws Exception {
+    startLoop(
+        new Connectable<String, String>() {
+          @Nonnull
+          @Override
+          public Connection<String> connect(final Consumer<String> output) {
+            return new Connection<String>() {
+              @Override
+              public void accept(String value) {
+                final TraceContext context = TraceContext.current();
+                new Thread(() -> TraceContext.runWith(context, () -> output.accept(value + "ed")))
+                    .start();
+              }
+
+              @Override
+              public void dispose() {}
+            };
+          }
+        });
+
+    loop.dispatchEvent("click");
+    awaitSpans(6);
+
+    long traceId = tracer.spans().get(0).context().traceId();
+    assertThat(tracer.trace(traceId), hasSize(6));
+  }
+
+  @Test
+  public void shouldNotRecordQueuedSpansForInlineEffects() throws Exception {
+    startLoop(builder(synchronousHandler()).inlineEffects(effect -> true));
+
+    loop.dispatchEvent("click");
+    awaitSpans(5);
+
+    long traceId = tracer.spans().get(0).context().traceId();
+    assertThat(
+        kinds(tracer.criticalPath(traceId).spans()),
+        contains(
+            SpanKind.EVENT_QUEUED,
+            SpanKind.UPDATE,
+            SpanKind.EFFECT,
+            SpanKind.EVENT_QUEUED,
+            SpanKind.UPDATE));
+    assertThat(tracer.trace(traceId), hasSize(5));
+  }
+
+  @Test
+  public void shouldKeepRunningWhenTracerThrows() throws Exception {
+    startLoop(
+        builder(synchronousHandler())
+            .tracer(
+                span -> {
+                  throw new RuntimeException("expected");
+                }));
+
+    loop.dispatchEvent("click");
+
+    await().atMost(5, TimeUnit.SECONDS).until(() -> loop.getMostRecentModel() == 11);
+  }
+
+  private void startLoop(Connectable<String, String> effectHandler) {
+    startLoop(builder(effectHandler));
+  }
+
+  private void startLoop(Mobius.Builder<Integer, String, String> builder) {
+    loop = builder.startFrom(0);
+  }
+
+  private Mobius.Builder<Integer, String, String> builder(
+      Connectable<String, String> effectHandler) {
+    return Mobius.builder(UPDATE, effectHandler)
+        .eventRunner(WorkRunners::singleThread)
+        .effectRunner(WorkRunners::singleThread)
+        .tracer(tracer);
+  }
+
+  private void awaitSpans(int count) {
+    await().atMost(5, TimeUnit.SECONDS).until(() -> tracer.spans().size() >= count);
+  }
+
+  private static Connectable<String, String> synchronousHandler() {
+    return new Connectable<String, String>() {
+      @Nonnull
+      @Override
+      public Connection<String> connect(final Consumer<String> output) {
+        return new Connection<String>() {
+          @Override
+          public void accept(String value) {
+            output.accept(value + "ed");
+          }
+
+          @Override
+          public void dispose() {}
+        };
+      }
+    };
+  }
+
+  private static List<SpanKind> kinds(List<Span> spans) {
+    List<SpanKind> kinds = new ArrayList<>();
+    for (Span span : spans) {
+      kinds.add(span.kind());
+    }
+    return kinds;
+  }
+}
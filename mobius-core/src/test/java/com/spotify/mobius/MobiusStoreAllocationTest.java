@@ -0,0 +1,62 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius;
+
+import static com.spotify.mobius.test.AllocationMeter.bytesPerRun;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+
+import org.junit.Test;
+
+/**
+ * Measures the bytes allocated per event by a {@link MobiusStore} that doesn't trace updates,
+ * comparing it with calling the update function directly. With update logging fused into the store,
+ * a loop without a logger should allocate nothing beyond what the update function does.
+ */
+public class MobiusStoreAllocationTest {
+
+  private static final Integer EVENT = 1;
+
+  private static final Update<Long, Integer, Integer> UPDATE =
+      (model, event) -> Next.next(model + event);
+
+  private Long model = 0L;
+
+  // the direct baseline publishes each result, like the store does, so that the JIT can't
+  // scalar-replace allocations there that it can't in the store
+  private volatile Next<Long, Integer> lastNext;
+
+  @Test
+  public void shouldNotAllocateMoreThanUpdateWhenNotTracing() throws Exception {
+    double direct =
+        bytesPerRun(
+            () -> {
+              lastNext = UPDATE.update(model, EVENT);
+              model = lastNext.modelUnsafe();
+            });
+
+    MobiusStore<Long, Integer, Integer> store =
+        MobiusStore.create(First::first, UPDATE, 0L, new CapturingLogger<>(), false);
+    double inStore = bytesPerRun(() -> store.update(EVENT));
+
+    // allow a little slack for measurement noise, but not a single extra object per event
+    assertThat(inStore, lessThan(direct + 4));
+  }
+}
@@ -0,0 +1,216 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius;
+
+import static com.spotify.mobius.Effects.effects;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nonnull;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MobiusStoreTest {
+
+  private static final RuntimeException EXPECTED = new RuntimeException("expected");
+
+  private static final Update<String, Integer, Boolean> UPDATE =
+      new Update<String, Integer, Boolean>() {
+        @Nonnull
+        @Override
+        public Next<String, Boolean> update(String model, Integer event) {
+          return Next.next(model + "-", effects(event % 2 == 0));
+        }
+      };
+
+  private static final Update<String, Integer, Boolean> FAILING_UPDATE =
+      new Update<String, Integer, Boolean>() {
+        @Nonnull
+        @Override
+        public Next<String, Boolean> update(String model, Integer event) {
+          throw EXPECTED;
+        }
+      };
+
+  private CapturingLogger<String, Integer, Boolean> logger;
+
+  @Before
+  public void setUp() throws Exception {
+    logger = new CapturingLogger<>();
+  }
+
+  @Test
+  public void shouldLogBeforeUpdate() throws Exception {
+    createStore(UPDATE, "mah model", true).update(1);
+
+    assertThat(
+        logger.beforeUpdate, contains(CapturingLogger.BeforeUpdateArgs.create("mah model", 1)));
+  }
+
+  @Test
+  public void shouldLogAfterUpdate() throws Exception {
+    createStore(UPDATE, "mah model", true).update(1);
+
+    assertThat(
+        logger.afterUpdate,
+        contains(
+            CapturingLogger.AfterUpdateArgs.create(
+                "mah model", 1, Next.next("mah model-", effects(false)))));
+  }
+
+  @Test
+  public void shouldLogBeforeAndAfterRunningUpdate() throws Exception {
+    List<String> calls = new ArrayList<>();
+    logger = new OrderRecordingLogger(calls);
+
+    createStore(recordingUpdate(calls, UPDATE), "mah model", true).update(1);
+
+    assertThat(calls, contains("beforeUpdate", "update", "afterUpdate"));
+  }
+
+  @Test
+  public void shouldNotLogBeforeOrAfterUpdateWhenNotTracing() throws Exception {
+    createStore(UPDATE, "mah model", false).update(1);
+
+    assertThat(logger.beforeUpdate, empty());
+    assertThat(logger.afterUpdate, empty());
+  }
+
+  @Test
+  public void shouldReportExceptions() throws Exception {
+    MobiusStore<String, Integer, Boolean> store = createStore(FAILING_UPDATE, "log this plx", true);
+
+    try {
+      store.update(13);
+    } catch (Exception e) {
+      // ignore
+    }
+
+    //noinspection unchecked
+    assertThat(
+        logger.updateErrors,
+        contains(CapturingLogger.UpdateErrorArgs.create("log this plx", 13, EXPECTED)));
+  }
+
+  @Test
+  public void shouldReportExceptionsWhenNotTracing() throws Exception {
+    MobiusStore<String, Integer, Boolean> store =
+        createStore(FAILING_UPDATE, "log this plx", false);
+
+    try {
+      store.update(13);
+    } catch (Exception e) {
+      // ignore
+    }
+
+    //noinspection unchecked
+    assertThat(
+        logger.updateErrors,
+        contains(CapturingLogger.UpdateErrorArgs.create("log this plx", 13, EXPECTED)));
+  }
+
+  @Test
+  public void shouldReportExceptionsBeforePropagatingThem() throws Exception {
+    List<String> calls = new ArrayList<>();
+    logger = new OrderRecordingLogger(calls);
+    MobiusStore<String, Integer, Boolean> store =
+        createStore(recordingUpdate(calls, FAILING_UPDATE), "log this plx", true);
+
+    try {
+      store.update(13);
+    } catch (Exception e) {
+      calls.add("caught");
+    }
+
+    assertThat(calls, contains("beforeUpdate", "update", "exceptionDuringUpdate", "caught"));
+  }
+
+  @Test
+  public void shouldPropagateExceptions() throws Exception {
+    MobiusStore<String, Integer, Boolean> store = createStore(FAILING_UPDATE, "hi", true);
+
+    assertThatThrownBy(() -> store.update(7)).isEqualTo(EXPECTED);
+  }
+
+  @Test
+  public void shouldKeepModelAfterException() throws Exception {
+    MobiusStore<String, Integer, Boolean> store = createStore(FAILING_UPDATE, "hi", true);
+
+    try {
+      store.update(7);
+    } catch (Exception e) {
+      // ignore
+    }
+
+    assertThat(store.init().model(), is("hi"));
+  }
+
+  private static Update<String, Integer, Boolean> recordingUpdate(
+      List<String> calls, Update<String, Integer, Boolean> update) {
+    return (model, event) -> {
+      calls.add("update");
+      return update.update(model, event);
+    };
+  }
+
+  private MobiusStore<String, Integer, Boolean> createStore(
+      Update<String, Integer, Boolean> update, String startModel, boolean traceUpdates) {
+    return MobiusStore.create(
+        new Init<String, Boolean>() {
+          @Nonnull
+          @Override
+          public First<String, Boolean> init(String model) {
+            return First.first(model);
+          }
+        },
+        update,
+        startModel,
+        logger,
+        traceUpdates);
+  }
+
+  private static class OrderRecordingLogger extends CapturingLogger<String, Integer, Boolean> {
+    private final List<String> calls;
+
+    OrderRecordingLogger(List<String> calls) {
+      this.calls = calls;
+    }
+
+    @Override
+    public void beforeUpdate(String model, Integer event) {
+      calls.add("beforeUpdate");
+    }
+
+    @Override
+    public void afterUpdate(String model, Integer event, Next<String, Boolean> result) {
+      calls.add("afterUpdate");
+    }
+
+    @Override
+    public void exceptionDuringUpdate(String model, Integer event, Throwable exception) {
+      calls.add("exceptionDuringUpdate");
+    }
+  }
+}
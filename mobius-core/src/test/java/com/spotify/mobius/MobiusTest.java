@@ -29,9 +29,13 @@ import com.spotify.mobius.disposables.Disposable;
 import com.spotify.mobius.functions.Consumer;
 import com.spotify.mobius.runners.ImmediateWorkRunner;
 import com.spotify.mobius.runners.WorkRunner;
+import com.spotify.mobius.runners.WorkRunners;
 import com.spotify.mobius.test.SimpleConnection;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -178,6 +182,82 @@ public class MobiusTest {
     await().atMost(Duration.ONE_SECOND).until(() -> loop.getMostRecentModel(), is("second97"));
   }
 
+  @Test
+  public void shouldRunToCompletionOnCallingThread() throws Exception {
+    String model =
+        Mobius.builder(UPDATE, HANDLER).runToCompletion(MY_MODEL, Arrays.asList(8, 5), m -> false);
+
+    // the event from the effect of 8 is queued after the already dispatched 5
+    assertThat(model, is("start853"));
+  }
+
+  @Test
+  public void shouldRunInitEffectsWhenRunningToCompletion() throws Exception {
+    String model =
+        Mobius.builder(UPDATE, HANDLER)
+            .init(m -> First.first(m, effects(true)))
+            .runToCompletion(MY_MODEL, Collections.emptyList(), m -> false);
+
+    assertThat(model, is("start3"));
+  }
+
+  @Test
+  public void shouldStopRunningToCompletionWhenPredicateHolds() throws Exception {
+    String model =
+        Mobius.builder(UPDATE, HANDLER)
+            .runToCompletion(MY_MODEL, Arrays.asList(2, 4), m -> m.endsWith("2"));
+
+    assertThat(model, is("start2"));
+  }
+
+  @Test
+  public void shouldNotUseConfiguredRunnersWhenRunningToCompletion() throws Exception {
+    TestableWorkRunner runner = new TestableWorkRunner();
+
+    String model =
+        Mobius.builder(UPDATE, HANDLER)
+            .eventRunner(() -> runner)
+            .effectRunner(() -> runner)
+            .runToCompletion(MY_MODEL, Arrays.asList(1), m -> false);
+
+    assertThat(model, is("start1"));
+    assertThat(runner.runCounter.get(), is(0));
+  }
+
+  @Test
+  public void shouldRunInlineEffectsOnEventRunner() throws Exception {
+    TestableWorkRunner effectRunner = new TestableWorkRunner();
+    List<String> inlineEffectThreads = new CopyOnWriteArrayList<>();
+
+    Connectable<Boolean, Integer> handler =
+        output ->
+            new SimpleConnection<Boolean>() {
+              @Override
+              public void accept(Boolean value) {
+                if (value) {
+                  inlineEffectThreads.add(Thread.currentThread().getName());
+                  output.accept(3);
+                }
+              }
+            };
+
+    loop =
+        Mobius.builder(UPDATE, handler)
+            .eventRunner(
+                () ->
+                    WorkRunners.from(
+                        Executors.newSingleThreadExecutor(r -> new Thread(r, "event-thread"))))
+            .effectRunner(() -> effectRunner)
+            .inlineEffects(effect -> effect)
+            .startFrom(MY_MODEL);
+
+    loop.dispatchEvent(8);
+
+    await().atMost(Duration.ONE_SECOND).until(() -> loop.getMostRecentModel(), is("start83"));
+    await().atMost(Duration.ONE_SECOND).until(() -> effectRunner.runCounter.get() == 1);
+    assertThat(inlineEffectThreads, contains("event-thread"));
+  }
+
   private static class TestableWorkRunner implements WorkRunner {
 
     private final AtomicInteger runCounter = new AtomicInteger();
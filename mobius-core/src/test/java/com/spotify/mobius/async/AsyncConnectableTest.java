@@ -0,0 +1,108 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.async;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.spotify.mobius.Connection;
+import com.spotify.mobius.ConnectionException;
+import com.spotify.mobius.test.RecordingConsumer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsyncConnectableTest {
+
+  private Map<String, Promise<String>> promises;
+  private RecordingConsumer<String> output;
+  private Connection<String> connection;
+
+  @Before
+  public void setUp() throws Exception {
+    promises = new HashMap<>();
+    output = new RecordingConsumer<>();
+
+    connection =
+        AsyncConnectable.<String, String>create(
+                effect -> {
+                  Promise<String> promise = Promise.create();
+                  promises.put(effect, promise);
+                  return promise;
+                })
+            .connect(output);
+  }
+
+  @Test
+  public void shouldDispatchEventsWhenPromisesSucceed() throws Exception {
+    connection.accept("load 1");
+    connection.accept("load 2");
+
+    output.assertValues();
+
+    promises.get("load 2").succeed("loaded 2");
+    promises.get("load 1").succeed("loaded 1");
+
+    output.assertValues("loaded 2", "loaded 1");
+  }
+
+  @Test
+  public void shouldCancelPendingPromisesOnDispose() throws Exception {
+    connection.accept("load 1");
+    connection.accept("load 2");
+    promises.get("load 1").succeed("loaded 1");
+
+    connection.dispose();
+
+    assertThat(promises.get("load 2").isCancelled(), is(true));
+    promises.get("load 2").succeed("loaded 2");
+    output.assertValues("loaded 1");
+  }
+
+  @Test
+  public void shouldIgnoreEffectsAfterDispose() throws Exception {
+    connection.dispose();
+    connection.accept("load 1");
+
+    assertThat(promises.isEmpty(), is(true));
+  }
+
+  @Test
+  public void shouldReportFailedPromisesAsUncaughtExceptions() throws Exception {
+    AtomicReference<Throwable> uncaught = new AtomicReference<>();
+    Thread thread =
+        new Thread(
+            () -> {
+              connection.accept("load 1");
+              promises.get("load 1").fail(new RuntimeException("oops"));
+            });
+    thread.setUncaughtExceptionHandler((t, e) -> uncaught.set(e));
+
+    thread.start();
+    thread.join();
+
+    assertThat(uncaught.get(), is(instanceOf(ConnectionException.class)));
+    assertThat(uncaught.get().getCause().getMessage(), is("oops"));
+    output.assertValues();
+  }
+}
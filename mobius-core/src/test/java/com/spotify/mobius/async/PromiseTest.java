@@ -0,0 +1,120 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.async;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PromiseTest {
+
+  private List<String> results;
+  private Promise.Callback<String> callback;
+
+  @Before
+  public void setUp() throws Exception {
+    results = new ArrayList<>();
+    callback =
+        new Promise.Callback<String>() {
+          @Override
+          public void onSuccess(String value) {
+            results.add("success: " + value);
+          }
+
+          @Override
+          public void onFailure(Throwable error) {
+            results.add("failure: " + error.getMessage());
+          }
+        };
+  }
+
+  @Test
+  public void shouldNotifyCallbacksOnSuccess() throws Exception {
+    Promise<String> promise = Promise.create();
+    promise.whenDone(callback);
+
+    assertThat(promise.succeed("hi"), is(true));
+
+    assertThat(results, contains("success: hi"));
+    assertThat(promise.isDone(), is(true));
+  }
+
+  @Test
+  public void shouldNotifyCallbacksOnFailure() throws Exception {
+    Promise<String> promise = Promise.create();
+    promise.whenDone(callback);
+
+    assertThat(promise.fail(new RuntimeException("oops")), is(true));
+
+    assertThat(results, contains("failure: oops"));
+  }
+
+  @Test
+  public void shouldNotifyCallbacksRegisteredAfterCompletion() throws Exception {
+    Promise.succeeded("hi").whenDone(callback);
+    Promise.<String>failed(new RuntimeException("oops")).whenDone(callback);
+
+    assertThat(results, contains("success: hi", "failure: oops"));
+  }
+
+  @Test
+  public void shouldOnlyCompleteOnce() throws Exception {
+    Promise<String> promise = Promise.create();
+    promise.whenDone(callback);
+
+    promise.succeed("first");
+
+    assertThat(promise.succeed("second"), is(false));
+    assertThat(promise.fail(new RuntimeException("oops")), is(false));
+    assertThat(promise.cancel(), is(false));
+    assertThat(results, contains("success: first"));
+  }
+
+  @Test
+  public void shouldDisposeCancelListenersAndSkipCallbacksOnCancel() throws Exception {
+    Promise<String> promise = Promise.create();
+    promise.whenDone(callback);
+    promise.whenCancelled(() -> results.add("cancelled"));
+
+    assertThat(promise.cancel(), is(true));
+    promise.succeed("late");
+    promise.whenCancelled(() -> results.add("cancelled again"));
+
+    assertThat(results, contains("cancelled", "cancelled again"));
+    assertThat(promise.isCancelled(), is(true));
+  }
+
+  @Test
+  public void shouldNotDisposeCancelListenersAfterCompletion() throws Exception {
+    Promise<String> promise = Promise.create();
+    promise.whenCancelled(() -> results.add("cancelled"));
+
+    promise.succeed("hi");
+    promise.cancel();
+
+    assertThat(results, is(empty()));
+  }
+}
@@ -19,12 +19,16 @@
  */
 package com.spotify.mobius.internal_util;
 
+import static com.spotify.mobius.internal_util.ImmutableUtil.immutableSet;
 import static com.spotify.mobius.internal_util.ImmutableUtil.setOf;
 import static com.spotify.mobius.internal_util.ImmutableUtil.unionSets;
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
 
 import com.google.common.collect.Sets;
+import java.util.Collections;
+import java.util.Set;
 import org.junit.Test;
 
 public class ImmutableUtilTest {
@@ -34,4 +38,26 @@ public class ImmutableUtilTest {
         unionSets(Sets.newHashSet("e1", "e2"), setOf("e3", "e4")),
         equalTo(setOf("e1", "e2", "e3", "e4")));
   }
+
+  @Test
+  public void shouldPassThroughImmutableSingletonSets() throws Exception {
+    Set<String> singleton = Collections.singleton("e1");
+
+    assertThat(immutableSet(singleton), sameInstance(singleton));
+  }
+
+  @Test
+  public void shouldCopyMutableSingletonSets() throws Exception {
+    Set<String> mutable = Sets.newHashSet("e1");
+
+    Set<String> copy = immutableSet(mutable);
+    mutable.add("e2");
+
+    assertThat(copy, equalTo(Collections.singleton("e1")));
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void shouldRejectNullsInSingletonSets() throws Exception {
+    immutableSet(Collections.<String>singleton(null));
+  }
 }
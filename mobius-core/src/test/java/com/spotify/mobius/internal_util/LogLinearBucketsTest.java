@@ -0,0 +1,68 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.internal_util;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class LogLinearBucketsTest {
+
+  private static final long[] VALUES = {
+    0, 1, 7, 8, 9, 31, 32, 33, 100, 1023, 1024, 123_456_789, Long.MAX_VALUE
+  };
+
+  @Test
+  public void highestValueShouldCoverBucketContents() throws Exception {
+    for (int bits : new int[] {0, 3, 5}) {
+      LogLinearBuckets buckets = new LogLinearBuckets(bits);
+      for (long value : VALUES) {
+        assertThat(buckets.highestValueIn(buckets.indexOf(value)), is(greaterThanOrEqualTo(value)));
+      }
+    }
+  }
+
+  @Test
+  public void indexShouldFitInBucketCount() throws Exception {
+    for (int bits : new int[] {0, 3, 5}) {
+      LogLinearBuckets buckets = new LogLinearBuckets(bits);
+      for (long value : VALUES) {
+        assertThat(buckets.indexOf(value), is(lessThan(buckets.bucketCount())));
+      }
+    }
+  }
+
+  @Test
+  public void bucketsShouldBeNarrowRelativeToTheirValues() throws Exception {
+    LogLinearBuckets buckets = new LogLinearBuckets(3);
+
+    // values of 8 and above are in buckets at most 1/8 of their lowest value wide
+    assertThat(buckets.highestValueIn(buckets.indexOf(1000)), is(lessThan(1000L + 1000 / 8 + 1)));
+  }
+
+  @Test
+  public void shouldRejectInvalidSubBucketBits() throws Exception {
+    assertThatThrownBy(() -> new LogLinearBuckets(-1)).isInstanceOf(IllegalArgumentException.class);
+  }
+}
@@ -0,0 +1,204 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.runners;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import com.spotify.mobius.Connection;
+import com.spotify.mobius.Mobius;
+import com.spotify.mobius.MobiusLoop;
+import com.spotify.mobius.Next;
+import com.spotify.mobius.functions.Consumer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TrampoliningWorkRunnerTest {
+
+  private TrampoliningWorkRunner underTest;
+  private List<String> executed;
+
+  @Before
+  public void setUp() throws Exception {
+    underTest = new TrampoliningWorkRunner();
+    executed = new ArrayList<>();
+  }
+
+  @Test
+  public void shouldRunOnCallerThread() throws Exception {
+    final Thread caller = Thread.currentThread();
+
+    underTest.post(
+        new Runnable() {
+          @Override
+          public void run() {
+            executed.add(Thread.currentThread() == caller ? "same thread" : "other thread");
+          }
+        });
+
+    assertThat(executed, contains("same thread"));
+  }
+
+  @Test
+  public void shouldRunNestedPostsAfterCurrentRunnable() throws Exception {
+    final TrampoliningWorkRunner other = new TrampoliningWorkRunner();
+
+    underTest.post(
+        new Runnable() {
+          @Override
+          public void run() {
+            underTest.post(record("nested 1"));
+            other.post(record("nested 2"));
+            executed.add("outer");
+          }
+        });
+
+    assertThat(executed, contains("outer", "nested 1", "nested 2"));
+  }
+
+  @Test
+  public void shouldNotRunAfterDispose() throws Exception {
+    underTest.dispose();
+    underTest.post(
+        new Runnable() {
+          @Override
+          public void run() {
+            throw new AssertionError("should not execute runnables after dispose");
+          }
+        });
+  }
+
+  @Test
+  public void shouldNotRunQueuedRunnablesAfterDispose() throws Exception {
+    underTest.post(
+        new Runnable() {
+          @Override
+          public void run() {
+            underTest.post(record("nested"));
+            underTest.dispose();
+          }
+        });
+
+    assertThat(executed, is(Collections.<String>emptyList()));
+  }
+
+  @Test
+  public void shouldRunRemainingRunnablesAndRethrowWhenRunnableThrows() throws Exception {
+    final RuntimeException exception = new RuntimeException("expected");
+
+    try {
+      underTest.post(
+          new Runnable() {
+            @Override
+            public void run() {
+              underTest.post(
+                  new Runnable() {
+                    @Override
+                    public void run() {
+                      throw exception;
+                    }
+                  });
+              underTest.post(record("after failure"));
+            }
+          });
+      fail("expected exception");
+    } catch (RuntimeException e) {
+      assertThat(e, is(exception));
+    }
+
+    assertThat(executed, contains("after failure"));
+
+    underTest.post(record("next post"));
+    assertThat(executed, contains("after failure", "next post"));
+  }
+
+  @Test
+  public void shouldRethrowFirstExceptionWhenSeveralRunnablesThrow() throws Exception {
+    final RuntimeException first = new RuntimeException("first");
+    final RuntimeException second = new RuntimeException("second");
+
+    try {
+      underTest.post(
+          new Runnable() {
+            @Override
+            public void run() {
+              underTest.post(throwing(second));
+              throw first;
+            }
+          });
+      fail("expected exception");
+    } catch (RuntimeException e) {
+      assertThat(e, is(first));
+      assertThat(e.getSuppressed().length, is(0));
+    }
+  }
+
+  @Test
+  public void shouldSupportLongSynchronousEventEffectChains() throws Exception {
+    final int hops = 100_000;
+
+    MobiusLoop<Integer, Integer, Integer> loop =
+        Mobius.<Integer, Integer, Integer>loop(
+                (model, event) -> Next.next(event, Collections.singleton(event)),
+                (Consumer<Integer> eventConsumer) ->
+                    new Connection<Integer>() {
+                      @Override
+                      public void accept(Integer effect) {
+                        if (effect < hops) {
+                          eventConsumer.accept(effect + 1);
+                        }
+                      }
+
+                      @Override
+                      public void dispose() {}
+                    })
+            .eventRunner(WorkRunners::trampolining)
+            .effectRunner(WorkRunners::trampolining)
+            .startFrom(0);
+
+    loop.dispatchEvent(1);
+
+    assertThat(loop.getMostRecentModel(), is(hops));
+    loop.dispose();
+  }
+
+  private Runnable record(final String value) {
+    return new Runnable() {
+      @Override
+      public void run() {
+        executed.add(value);
+      }
+    };
+  }
+
+  private Runnable throwing(final RuntimeException exception) {
+    return new Runnable() {
+      @Override
+      public void run() {
+        throw exception;
+      }
+    };
+  }
+}
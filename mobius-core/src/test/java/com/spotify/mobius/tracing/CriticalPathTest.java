@@ -0,0 +1,75 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.tracing;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+
+public class CriticalPathTest {
+
+  @Test
+  public void shouldFollowParentsFromSpanThatEndedLast() throws Exception {
+    TraceContext eventQueued = TraceContext.childOfCurrent();
+    TraceContext update = eventQueued.child();
+    TraceContext fastEffect = update.child();
+    TraceContext slowEffect = update.child();
+    TraceContext nextUpdate = slowEffect.child();
+
+    Span a = Span.create(eventQueued, SpanKind.EVENT_QUEUED, "click", 0, 5);
+    Span b = Span.create(update, SpanKind.UPDATE, "click", 5, 10);
+    Span c = Span.create(fastEffect, SpanKind.EFFECT, "log", 10, 12);
+    Span d = Span.create(slowEffect, SpanKind.EFFECT, "load", 10, 40);
+    Span e = Span.create(nextUpdate, SpanKind.UPDATE, "loaded", 40, 45);
+
+    CriticalPath path = CriticalPath.of(Arrays.asList(c, e, a, d, b));
+
+    assertThat(path.spans(), contains(a, b, d, e));
+    assertThat(path.latencyNanos(), is(45L));
+  }
+
+  @Test
+  public void shouldStartAtFirstSpanWithMissingParent() throws Exception {
+    TraceContext root = TraceContext.childOfCurrent();
+    TraceContext child = root.child();
+    TraceContext grandChild = child.child();
+
+    Span b = Span.create(child, SpanKind.UPDATE, "click", 5, 10);
+    Span c = Span.create(grandChild, SpanKind.EFFECT, "load", 10, 20);
+
+    CriticalPath path = CriticalPath.of(Arrays.asList(b, c));
+
+    assertThat(path.spans(), contains(b, c));
+    assertThat(path.latencyNanos(), is(15L));
+  }
+
+  @Test
+  public void shouldBeEmptyForEmptyTrace() throws Exception {
+    CriticalPath path = CriticalPath.of(Collections.<Span>emptyList());
+
+    assertThat(path.spans(), empty());
+    assertThat(path.latencyNanos(), is(0L));
+  }
+}
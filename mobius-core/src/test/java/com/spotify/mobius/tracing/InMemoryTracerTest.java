@@ -0,0 +1,99 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.tracing;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class InMemoryTracerTest {
+
+  private InMemoryTracer underTest;
+  private TraceContext root;
+
+  @Before
+  public void setUp() throws Exception {
+    underTest = InMemoryTracer.create(3);
+    root = TraceContext.childOfCurrent();
+  }
+
+  @Test
+  public void shouldKeepSpansInOrderRecorded() throws Exception {
+    Span first = span(root, 0, 10);
+    Span second = span(root.child(), 10, 20);
+
+    underTest.record(first);
+    underTest.record(second);
+
+    assertThat(underTest.spans(), contains(first, second));
+  }
+
+  @Test
+  public void shouldEvictOldestSpansBeyondCapacity() throws Exception {
+    Span first = span(root, 0, 10);
+    Span second = span(root.child(), 10, 20);
+    Span third = span(root.child(), 20, 30);
+    Span fourth = span(root.child(), 30, 40);
+
+    underTest.record(first);
+    underTest.record(second);
+    underTest.record(third);
+    underTest.record(fourth);
+
+    assertThat(underTest.spans(), contains(second, third, fourth));
+  }
+
+  @Test
+  public void shouldFilterSpansByTrace() throws Exception {
+    TraceContext otherRoot = TraceContext.childOfCurrent();
+    Span mine = span(root, 0, 10);
+    Span other = span(otherRoot, 5, 15);
+    Span myChild = span(root.child(), 10, 20);
+
+    underTest.record(mine);
+    underTest.record(other);
+    underTest.record(myChild);
+
+    assertThat(underTest.trace(root.traceId()), contains(mine, myChild));
+    assertThat(underTest.trace(otherRoot.traceId()), contains(other));
+  }
+
+  @Test
+  public void shouldClearSpans() throws Exception {
+    underTest.record(span(root, 0, 10));
+
+    underTest.clear();
+
+    assertThat(underTest.spans(), empty());
+  }
+
+  @Test
+  public void shouldRejectNonPositiveCapacity() throws Exception {
+    assertThatThrownBy(() -> InMemoryTracer.create(0)).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static Span span(TraceContext context, long start, long end) {
+    return Span.create(context, SpanKind.UPDATE, "event", start, end);
+  }
+}
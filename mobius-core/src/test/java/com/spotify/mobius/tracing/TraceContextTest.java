@@ -0,0 +1,84 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.tracing;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+public class TraceContextTest {
+
+  @Test
+  public void shouldStartNewTraceWithoutCurrentContext() throws Exception {
+    TraceContext root = TraceContext.childOfCurrent();
+
+    assertThat(root.traceId(), is(root.spanId()));
+    assertThat(root.parentSpanId(), is(0L));
+  }
+
+  @Test
+  public void shouldCreateChildOfCurrentContext() throws Exception {
+    final TraceContext root = TraceContext.childOfCurrent();
+    final AtomicReference<TraceContext> child = new AtomicReference<>();
+
+    TraceContext.runWith(root, () -> child.set(TraceContext.childOfCurrent()));
+
+    assertThat(child.get().traceId(), is(root.traceId()));
+    assertThat(child.get().parentSpanId(), is(root.spanId()));
+    assertThat(child.get().spanId(), is(not(root.spanId())));
+  }
+
+  @Test
+  public void shouldRestorePreviousContextAfterRunWith() throws Exception {
+    final TraceContext outer = TraceContext.childOfCurrent();
+    final TraceContext inner = outer.child();
+    final AtomicReference<TraceContext> seen = new AtomicReference<>();
+
+    TraceContext.runWith(
+        outer,
+        () -> {
+          TraceContext.runWith(inner, () -> seen.set(TraceContext.current()));
+          assertThat(TraceContext.current(), is(sameInstance(outer)));
+        });
+
+    assertThat(seen.get(), is(sameInstance(inner)));
+    assertThat(TraceContext.current(), is(nullValue()));
+  }
+
+  @Test
+  public void shouldRestorePreviousContextWhenRunnableThrows() throws Exception {
+    try {
+      TraceContext.runWith(
+          TraceContext.childOfCurrent(),
+          () -> {
+            throw new RuntimeException("expected");
+          });
+    } catch (RuntimeException e) {
+      // ignore
+    }
+
+    assertThat(TraceContext.current(), is(nullValue()));
+  }
+}
@@ -0,0 +1,508 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.First;
+import com.spotify.mobius.MobiusLoop;
+import com.spotify.mobius.Next;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link MobiusLoop.Logger} that moves logging off the loop's thread.
+ *
+ * <p>On the loop's thread, calls are only recorded as references to their arguments in a bounded
+ * ring buffer, without formatting anything or allocating per call. The recorded calls are passed to
+ * a delegate logger, such as {@link SLF4JLogger}, on a background executor, so formatting and I/O
+ * don't slow down the update function. Since the models, events and effects passed to a logger are
+ * immutable, it is safe to format them later.
+ *
+ * <p>Updates can be sampled: with a sample rate of N, only every Nth event is logged (its {@code
+ * beforeUpdate} and {@code afterUpdate} calls both). Rates can be set per event type. Init calls
+ * and exceptions are never sampled.
+ *
+ * <p>If the buffer is full, calls are dropped and counted; the number of dropped calls is available
+ * from {@link #droppedCount()}, and is also logged as a warning by the background executor.
+ *
+ * <p>A {@code beforeUpdate} call is only recorded once the update has finished, together with the
+ * matching {@code afterUpdate} or {@code exceptionDuringUpdate} call, so the two are kept or
+ * dropped together. Since no state is kept between the calls, one logger can be shared by all the
+ * loops of a factory, even if they run on different threads.
+ *
+ * <p>Exceptions are never dropped. An eighth of the buffer, and at least one slot, is reserved for
+ * them, and if that is full too, they are queued separately and passed to the delegate after the
+ * buffered calls. The delegate is only ever called from the executor, never from the loop's thread.
+ *
+ * @param <M> The loop's Model type
+ * @param <E> The loop's Event type
+ * @param <F> The loop's Effect type
+ */
+public final class AsyncLogger<M, E, F> implements MobiusLoop.Logger<M, E, F> {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AsyncLogger.class);
+
+  private static final int BEFORE_INIT = 0;
+  private static final int AFTER_INIT = 1;
+  private static final int EXCEPTION_DURING_INIT = 2;
+  private static final int BEFORE_UPDATE = 3;
+  private static final int AFTER_UPDATE = 4;
+  private static final int EXCEPTION_DURING_UPDATE = 5;
+
+  private final MobiusLoop.Logger<M, E, F> delegate;
+  private final Executor executor;
+  private final Slot[] slots;
+  private final int mask;
+  private final int reserve;
+
+  // exceptions that didn't fit in the buffer; passed on after the buffered calls
+  private final ConcurrentLinkedQueue<Slot> overflow = new ConcurrentLinkedQueue<>();
+
+  private final Sampler defaultSampler;
+  private final Map<Class<?>, Sampler> configuredSamplers;
+  private final ConcurrentMap<Class<?>, Sampler> samplers = new ConcurrentHashMap<>();
+
+  // the next sequence number to claim; only advanced if the slot for it is free
+  private final AtomicLong head = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+  private final AtomicInteger wip = new AtomicInteger();
+
+  // accessed by the draining task only; the executor guarantees visibility between runs
+  private long tail;
+  private long reportedDropped;
+
+  private final Runnable drain =
+      new Runnable() {
+        @Override
+        public void run() {
+          drainLoop();
+        }
+      };
+
+  private AsyncLogger(Builder<M, E, F> builder) {
+    this.delegate = builder.delegate;
+    this.executor = builder.executor != null ? builder.executor : DefaultExecutor.INSTANCE;
+
+    int capacity = Integer.highestOneBit(builder.capacity - 1) << 1;
+    this.slots = new Slot[capacity];
+    this.mask = capacity - 1;
+    this.reserve = Math.max(1, capacity >> 3);
+    for (int i = 0; i < capacity; i++) {
+      slots[i] = new Slot(i);
+    }
+
+    this.defaultSampler = new Sampler(builder.sampleRate);
+    this.configuredSamplers = new LinkedHashMap<>();
+    for (Map.Entry<Class<?>, Integer> entry : builder.sampleRates.entrySet()) {
+      configuredSamplers.put(entry.getKey(), new Sampler(entry.getValue()));
+    }
+  }
+
+  /** Create a builder for an async logger that passes calls on to {@code delegate}. */
+  public static <M, E, F> Builder<M, E, F> builder(MobiusLoop.Logger<M, E, F> delegate) {
+    return new Builder<>(delegate);
+  }
+
+  /** The number of calls that were dropped because the buffer was full. */
+  public long droppedCount() {
+    return dropped.get();
+  }
+
+  @Override
+  public void beforeInit(M model) {
+    record(BEFORE_INIT, model, null, null);
+  }
+
+  @Override
+  public void afterInit(M model, First<M, F> result) {
+    record(AFTER_INIT, model, null, result);
+  }
+
+  @Override
+  public void exceptionDuringInit(M model, Throwable exception) {
+    recordException(EXCEPTION_DURING_INIT, model, null, exception);
+  }
+
+  @Override
+  public void beforeUpdate(M model, E event) {
+    // recorded with afterUpdate or exceptionDuringUpdate, which get the same model and event
+  }
+
+  @Override
+  public void afterUpdate(M model, E event, Next<M, F> result) {
+    if (!samplerFor(event).sample()) {
+      return;
+    }
+
+    long sequence = claim(2, reserve);
+
+    if (sequence < 0) {
+      dropped.addAndGet(2);
+      scheduleDrain();
+      return;
+    }
+
+    publish(sequence, BEFORE_UPDATE, model, event, null, null);
+    publish(sequence + 1, AFTER_UPDATE, model, event, result, null);
+    scheduleDrain();
+  }
+
+  @Override
+  public void exceptionDuringUpdate(M model, E event, Throwable exception) {
+    long sequence = claim(2, 0);
+
+    if (sequence < 0) {
+      // keep the exception, even if there's no room for the beforeUpdate call
+      dropped.incrementAndGet();
+      recordException(EXCEPTION_DURING_UPDATE, model, event, exception);
+      return;
+    }
+
+    publish(sequence, BEFORE_UPDATE, model, event, null, null);
+    publish(sequence + 1, EXCEPTION_DURING_UPDATE, model, event, null, exception);
+    scheduleDrain();
+  }
+
+  private Sampler samplerFor(E event) {
+    if (configuredSamplers.isEmpty()) {
+      return defaultSampler;
+    }
+
+    Class<?> type = event.getClass();
+    Sampler sampler = samplers.get(type);
+
+    if (sampler == null) {
+      sampler = defaultSampler;
+      for (Map.Entry<Class<?>, Sampler> entry : configuredSamplers.entrySet()) {
+        if (entry.getKey().isAssignableFrom(type)) {
+          sampler = entry.getValue();
+          break;
+        }
+      }
+      samplers.put(type, sampler);
+    }
+
+    return sampler;
+  }
+
+  private void record(int kind, Object model, @Nullable Object event, @Nullable Object result) {
+    long sequence = claim(1, reserve);
+
+    if (sequence < 0) {
+      dropped.incrementAndGet();
+      scheduleDrain();
+      return;
+    }
+
+    publish(sequence, kind, model, event, result, null);
+    scheduleDrain();
+  }
+
+  private void recordException(
+      int kind, Object model, @Nullable Object event, Throwable exception) {
+    long sequence = claim(1, 0);
+
+    if (sequence < 0) {
+      Slot call = new Slot(sequence);
+      call.set(kind, model, event, null, exception);
+      overflow.offer(call);
+      scheduleDrain();
+      return;
+    }
+
+    publish(sequence, kind, model, event, null, exception);
+    scheduleDrain();
+  }
+
+  /**
+   * Claims {@code n} consecutive slots, provided that at least {@code reserve} further slots stay
+   * free. Returns the sequence number of the first claimed slot, or -1 if there isn't enough room.
+   */
+  private long claim(int n, int reserve) {
+    while (true) {
+      long sequence = head.get();
+      long last = sequence + n + reserve - 1;
+
+      // slots are consumed in order, so if the last one is free, all the ones before it are too
+      if (slots[(int) last & mask].sequence != last) {
+        if (head.get() == sequence) {
+          // the drainer hasn't consumed the slots from the previous lap yet
+          return -1;
+        }
+        continue;
+      }
+
+      if (head.compareAndSet(sequence, sequence + n)) {
+        return sequence;
+      }
+    }
+  }
+
+  private void publish(
+      long sequence,
+      int kind,
+      @Nullable Object model,
+      @Nullable Object event,
+      @Nullable Object result,
+      @Nullable Throwable exception) {
+    Slot slot = slots[(int) sequence & mask];
+
+    slot.set(kind, model, event, result, exception);
+    slot.sequence = sequence + 1;
+  }
+
+  private void scheduleDrain() {
+    if (wip.getAndIncrement() != 0) {
+      return;
+    }
+
+    try {
+      executor.execute(drain);
+    } catch (RejectedExecutionException e) {
+      wip.set(0);
+      LOGGER.warn("Async logging executor rejected the drain task; log calls will be delayed", e);
+    }
+  }
+
+  private void drainLoop() {
+    int missed = 1;
+
+    do {
+      drainAvailable();
+      drainOverflow();
+      reportDropped();
+      missed = wip.addAndGet(-missed);
+    } while (missed != 0);
+  }
+
+  private void drainAvailable() {
+    while (true) {
+      Slot slot = slots[(int) tail & mask];
+
+      if (slot.sequence != tail + 1) {
+        return;
+      }
+
+      int kind = slot.kind;
+      Object model = slot.model;
+      Object event = slot.event;
+      Object result = slot.result;
+      Throwable exception = slot.exception;
+
+      slot.model = null;
+      slot.event = null;
+      slot.result = null;
+      slot.exception = null;
+      slot.sequence = tail + slots.length;
+      tail++;
+
+      dispatch(kind, model, event, result, exception);
+    }
+  }
+
+  private void drainOverflow() {
+    Slot call;
+
+    while ((call = overflow.poll()) != null) {
+      dispatch(call.kind, call.model, call.event, call.result, call.exception);
+    }
+  }
+
+  private void dispatch(
+      int kind,
+      @Nullable Object model,
+      @Nullable Object event,
+      @Nullable Object result,
+      @Nullable Throwable exception) {
+    try {
+      dispatchUnsafe(kind, model, event, result, exception);
+    } catch (RuntimeException e) {
+      LOGGER.warn("Exception in delegate logger", e);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void dispatchUnsafe(
+      int kind,
+      @Nullable Object model,
+      @Nullable Object event,
+      @Nullable Object result,
+      @Nullable Throwable exception) {
+    switch (kind) {
+      case BEFORE_INIT:
+        delegate.beforeInit((M) model);
+        break;
+      case AFTER_INIT:
+        delegate.afterInit((M) model, (First<M, F>) result);
+        break;
+      case EXCEPTION_DURING_INIT:
+        delegate.exceptionDuringInit((M) model, checkNotNull(exception));
+        break;
+      case BEFORE_UPDATE:
+        delegate.beforeUpdate((M) model, (E) event);
+        break;
+      case AFTER_UPDATE:
+        delegate.afterUpdate((M) model, (E) event, (Next<M, F>) result);
+        break;
+      case EXCEPTION_DURING_UPDATE:
+        delegate.exceptionDuringUpdate((M) model, (E) event, checkNotNull(exception));
+        break;
+      default:
+        throw new IllegalStateException("unknown log call: " + kind);
+    }
+  }
+
+  private void reportDropped() {
+    long total = dropped.get();
+
+    if (total != reportedDropped) {
+      LOGGER.warn("Dropped {} log calls because the buffer was full", total - reportedDropped);
+      reportedDropped = total;
+    }
+  }
+
+  private static final class Slot {
+    // equal to the slot's position when free, and to position + 1 when holding a call
+    volatile long sequence;
+
+    int kind;
+    @Nullable Object model;
+    @Nullable Object event;
+    @Nullable Object result;
+    @Nullable Throwable exception;
+
+    Slot(long sequence) {
+      this.sequence = sequence;
+    }
+
+    void set(
+        int kind,
+        @Nullable Object model,
+        @Nullable Object event,
+        @Nullable Object result,
+        @Nullable Throwable exception) {
+      this.kind = kind;
+      this.model = model;
+      this.event = event;
+      this.result = result;
+      this.exception = exception;
+    }
+  }
+
+  private static final class Sampler {
+    private final int rate;
+    private final AtomicLong count = new AtomicLong();
+
+    Sampler(int rate) {
+      this.rate = rate;
+    }
+
+    boolean sample() {
+      return rate == 1 || count.getAndIncrement() % rate == 0;
+    }
+  }
+
+  private static final class DefaultExecutor {
+    static final ExecutorService INSTANCE =
+        Executors.newSingleThreadExecutor(
+            new ThreadFactory() {
+              @Override
+              public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "mobius-async-logger");
+                thread.setDaemon(true);
+                return thread;
+              }
+            });
+  }
+
+  /** Builder for {@link AsyncLogger}. */
+  public static final class Builder<M, E, F> {
+    private final MobiusLoop.Logger<M, E, F> delegate;
+    @Nullable private Executor executor;
+    private int capacity = 1024;
+    private int sampleRate = 1;
+    private final Map<Class<?>, Integer> sampleRates = new LinkedHashMap<>();
+
+    private Builder(MobiusLoop.Logger<M, E, F> delegate) {
+      this.delegate = checkNotNull(delegate);
+    }
+
+    /**
+     * The executor that calls the delegate logger. Defaults to a single daemon thread shared by all
+     * async loggers. Calls are never passed to the delegate concurrently.
+     */
+    public Builder<M, E, F> executor(Executor executor) {
+      this.executor = checkNotNull(executor);
+      return this;
+    }
+
+    /**
+     * The number of calls that can be buffered, rounded up to a power of two, including the eighth
+     * that is reserved for exceptions. Defaults to 1024.
+     */
+    public Builder<M, E, F> capacity(int capacity) {
+      if (capacity < 4 || capacity > 1 << 30) {
+        throw new IllegalArgumentException("capacity must be between 4 and 2^30: " + capacity);
+      }
+      this.capacity = capacity;
+      return this;
+    }
+
+    /** Log only every Nth event. Defaults to 1, logging every event. */
+    public Builder<M, E, F> sampleEvery(int n) {
+      this.sampleRate = checkRate(n);
+      return this;
+    }
+
+    /**
+     * Log only every Nth event of the given type, overriding the default rate. If an event matches
+     * several types, the rate of the first matching type that was configured applies.
+     */
+    public Builder<M, E, F> sampleEvery(Class<? extends E> eventType, int n) {
+      sampleRates.put(checkNotNull(eventType), checkRate(n));
+      return this;
+    }
+
+    public AsyncLogger<M, E, F> build() {
+      return new AsyncLogger<>(this);
+    }
+
+    private static int checkRate(int n) {
+      if (n < 1) {
+        throw new IllegalArgumentException("sample rate must be at least 1: " + n);
+      }
+      return n;
+    }
+  }
+}
@@ -0,0 +1,41 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras;
+
+import com.spotify.mobius.functions.Consumer;
+import java.util.List;
+
+/**
+ * Handles a batch of effects, for instance by writing them to a database in a single operation.
+ *
+ * @param <F> the effect type
+ * @param <E> the event type
+ */
+public interface BatchHandler<F, E> {
+
+  /**
+   * Handle a batch of effects. This is never called with an empty batch, and never concurrently for
+   * the same connection.
+   *
+   * @param effects the effects to handle
+   * @param output a consumer for events resulting from handling the effects
+   */
+  void handle(List<F> effects, Consumer<E> output);
+}
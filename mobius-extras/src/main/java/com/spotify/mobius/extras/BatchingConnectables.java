@@ -0,0 +1,332 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.BatchConnection;
+import com.spotify.mobius.Connectable;
+import com.spotify.mobius.Connection;
+import com.spotify.mobius.functions.Consumer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Contains utility functions for creating effect handlers that handle effects in batches.
+ *
+ * <p>The connections created by these effect handlers are {@link BatchConnection}s, so a {@link
+ * com.spotify.mobius.MobiusLoop} passes them all the effects from one update at once. Effects are
+ * buffered until a batch is full or, if a linger time is configured, until the oldest buffered
+ * effect has waited for that long. This trades some latency for fewer, larger writes.
+ *
+ * <p>Batches are handled one at a time and in the order they were formed. The handler isn't called
+ * while holding any lock: while one thread is handling batches, other threads, including the linger
+ * timer, only queue their batches for it and return without waiting. Effects that are still
+ * buffered when a connection is disposed are dropped without being handled, just like effects that
+ * are still queued on the effect runner when a loop is disposed.
+ */
+public final class BatchingConnectables {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BatchingConnectables.class);
+
+  private BatchingConnectables() {
+    // prevent instantiation
+  }
+
+  /**
+   * Create an effect handler that passes the effects it receives in each call to the supplied
+   * handler, split into batches of at most {@code maxBatchSize} effects. Effects are never held
+   * back waiting for more effects to arrive.
+   *
+   * @param handler the handler for batches of effects
+   * @param maxBatchSize the maximum number of effects in a batch
+   */
+  @Nonnull
+  public static <F, E> Connectable<F, E> batching(BatchHandler<F, E> handler, int maxBatchSize) {
+    return create(handler, maxBatchSize, 0, null);
+  }
+
+  /**
+   * Create an effect handler that buffers effects and passes them to the supplied handler when
+   * {@code maxBatchSize} effects have been buffered, or when the oldest buffered effect has waited
+   * for {@code maxLinger}, whichever happens first. Each connection uses a timer thread of its own,
+   * which is stopped when the connection is disposed.
+   *
+   * @param handler the handler for batches of effects
+   * @param maxBatchSize the maximum number of effects in a batch
+   * @param maxLinger the maximum time to hold on to an effect before handling it
+   * @param unit the unit of {@code maxLinger}
+   */
+  @Nonnull
+  public static <F, E> Connectable<F, E> batching(
+      BatchHandler<F, E> handler, int maxBatchSize, long maxLinger, TimeUnit unit) {
+    return create(handler, maxBatchSize, unit.toNanos(maxLinger), null);
+  }
+
+  /**
+   * Create an effect handler like {@link #batching(BatchHandler, int, long, TimeUnit)}, but using
+   * the supplied scheduler for handling batches whose linger time has expired. The scheduler is not
+   * shut down when connections are disposed.
+   *
+   * @param handler the handler for batches of effects
+   * @param maxBatchSize the maximum number of effects in a batch
+   * @param maxLinger the maximum time to hold on to an effect before handling it
+   * @param unit the unit of {@code maxLinger}
+   * @param scheduler the scheduler to use for handling lingering batches
+   */
+  @Nonnull
+  public static <F, E> Connectable<F, E> batching(
+      BatchHandler<F, E> handler,
+      int maxBatchSize,
+      long maxLinger,
+      TimeUnit unit,
+      ScheduledExecutorService scheduler) {
+    return create(handler, maxBatchSize, unit.toNanos(maxLinger), checkNotNull(scheduler));
+  }
+
+  private static <F, E> Connectable<F, E> create(
+      final BatchHandler<F, E> handler,
+      final int maxBatchSize,
+      final long maxLingerNanos,
+      @Nullable final ScheduledExecutorService scheduler) {
+    checkNotNull(handler);
+    if (maxBatchSize < 1) {
+      throw new IllegalArgumentException("maxBatchSize must be positive: " + maxBatchSize);
+    }
+    if (maxLingerNanos < 0) {
+      throw new IllegalArgumentException("maxLinger must not be negative");
+    }
+
+    return new Connectable<F, E>() {
+      @Nonnull
+      @Override
+      public Connection<F> connect(Consumer<E> output) {
+        if (maxLingerNanos == 0) {
+          return new BatchingConnection<>(handler, output, maxBatchSize, 0, null, false);
+        }
+        if (scheduler == null) {
+          return new BatchingConnection<>(
+              handler,
+              output,
+              maxBatchSize,
+              maxLingerNanos,
+              Executors.newSingleThreadScheduledExecutor(),
+              true);
+        }
+        return new BatchingConnection<>(
+            handler, output, maxBatchSize, maxLingerNanos, scheduler, false);
+      }
+    };
+  }
+
+  private static class BatchingConnection<F, E> implements BatchConnection<F> {
+
+    private final BatchHandler<F, E> handler;
+    private final Consumer<E> output;
+    private final int maxBatchSize;
+    private final long maxLingerNanos;
+    @Nullable private final ScheduledExecutorService scheduler;
+    private final boolean ownsScheduler;
+
+    // concurrency note: the fields below are guarded by 'this'. Batches are handled outside of it,
+    // by a single draining thread at a time, so that they are handled in the order in which they
+    // were taken even if the handler synchronously causes more effects to be accepted.
+    private List<F> buffer = new ArrayList<>();
+    private final Queue<List<F>> ready = new ArrayDeque<>();
+    @Nullable private Thread drainer;
+    @Nullable private ScheduledFuture<?> lingerTimer;
+    private boolean disposed;
+
+    BatchingConnection(
+        BatchHandler<F, E> handler,
+        Consumer<E> output,
+        int maxBatchSize,
+        long maxLingerNanos,
+        @Nullable ScheduledExecutorService scheduler,
+        boolean ownsScheduler) {
+      this.handler = handler;
+      this.output = output;
+      this.maxBatchSize = maxBatchSize;
+      this.maxLingerNanos = maxLingerNanos;
+      this.scheduler = scheduler;
+      this.ownsScheduler = ownsScheduler;
+    }
+
+    @Override
+    public void accept(F value) {
+      acceptAll(Collections.singletonList(value));
+    }
+
+    @Override
+    public void acceptAll(Iterable<F> values) {
+      synchronized (this) {
+        if (disposed) {
+          return;
+        }
+
+        for (F value : values) {
+          buffer.add(checkNotNull(value));
+          if (buffer.size() >= maxBatchSize) {
+            ready.add(takeBuffer());
+          }
+        }
+
+        if (!buffer.isEmpty()) {
+          if (scheduler == null) {
+            ready.add(takeBuffer());
+          } else if (lingerTimer == null) {
+            lingerTimer =
+                scheduler.schedule(
+                    new Runnable() {
+                      @Override
+                      public void run() {
+                        flushLingering();
+                      }
+                    },
+                    maxLingerNanos,
+                    TimeUnit.NANOSECONDS);
+          }
+        }
+      }
+
+      drain();
+    }
+
+    private void flushLingering() {
+      synchronized (this) {
+        lingerTimer = null;
+        if (disposed || buffer.isEmpty()) {
+          return;
+        }
+
+        ready.add(takeBuffer());
+      }
+
+      try {
+        drain();
+      } catch (RuntimeException e) {
+        LOGGER.error("Batch handler threw an exception when handling lingering effects", e);
+      }
+    }
+
+    // must be called without holding the lock; if the handler throws, the remaining batches are
+    // handled by the next drain
+    private void drain() {
+      synchronized (this) {
+        if (drainer != null) {
+          return;
+        }
+        drainer = Thread.currentThread();
+      }
+
+      boolean drained = false;
+      try {
+        while (true) {
+          List<F> batch;
+          synchronized (this) {
+            batch = disposed ? null : ready.poll();
+            if (batch == null) {
+              // released together with the check, so no batch is left behind for a drain that
+              // saw this thread as the drainer
+              releaseDrainer();
+              drained = true;
+              return;
+            }
+          }
+
+          handler.handle(batch, output);
+        }
+      } finally {
+        if (!drained) {
+          synchronized (this) {
+            releaseDrainer();
+          }
+        }
+      }
+    }
+
+    // must be called while holding the lock
+    private void releaseDrainer() {
+      drainer = null;
+      notifyAll();
+    }
+
+    // must be called while holding the lock; a handler disposing its own connection doesn't wait
+    private void awaitDrainer() {
+      while (drainer != null && drainer != Thread.currentThread()) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+
+    // must be called while holding the lock
+    private List<F> takeBuffer() {
+      List<F> batch = buffer;
+      buffer = new ArrayList<>();
+
+      if (lingerTimer != null) {
+        lingerTimer.cancel(false);
+        lingerTimer = null;
+      }
+
+      return batch;
+    }
+
+    // waits for a batch that is being handled on another thread, so that none is handled once this
+    // has returned
+    @Override
+    public void dispose() {
+      synchronized (this) {
+        if (disposed) {
+          return;
+        }
+        disposed = true;
+        buffer = new ArrayList<>();
+        ready.clear();
+
+        if (lingerTimer != null) {
+          lingerTimer.cancel(false);
+          lingerTimer = null;
+        }
+
+        awaitDrainer();
+      }
+
+      if (ownsScheduler) {
+        scheduler.shutdown();
+      }
+    }
+  }
+}
@@ -25,6 +25,7 @@ import com.spotify.mobius.First;
 import com.spotify.mobius.MobiusLoop.Logger;
 import com.spotify.mobius.Next;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -32,6 +33,9 @@ import java.util.List;
  * different types of loggers that you would like to us simultaneously while maintaining single
  * responsibility per logger implementation
  *
+ * <p>Nested composites are flattened when created, so any combination of composite loggers makes a
+ * single pass over one array per call.
+ *
  * @param <M> The loop's Model type
  * @param <E> The loop's Event type
  * @param <F> The loop's Effect type
@@ -41,17 +45,27 @@ public class CompositeLogger<M, E, F> implements Logger<M, E, F> {
   @SafeVarargs
   public static <M, E, F> Logger<M, E, F> from(Logger<M, E, F> logger, Logger<M, E, F>... loggers) {
     List<Logger<M, E, F>> allLoggers = new ArrayList<>();
-    allLoggers.add(checkNotNull(logger));
+    addFlattened(allLoggers, checkNotNull(logger));
     for (Logger<M, E, F> lg : loggers) {
-      allLoggers.add(checkNotNull(lg));
+      addFlattened(allLoggers, checkNotNull(lg));
     }
     return new CompositeLogger<>(allLoggers);
   }
 
-  private final List<Logger<M, E, F>> loggers;
+  private static <M, E, F> void addFlattened(
+      List<Logger<M, E, F>> allLoggers, Logger<M, E, F> logger) {
+    if (logger instanceof CompositeLogger) {
+      Collections.addAll(allLoggers, ((CompositeLogger<M, E, F>) logger).loggers);
+    } else {
+      allLoggers.add(logger);
+    }
+  }
+
+  private final Logger<M, E, F>[] loggers;
 
+  @SuppressWarnings("unchecked")
   private CompositeLogger(List<Logger<M, E, F>> loggers) {
-    this.loggers = loggers;
+    this.loggers = loggers.toArray(new Logger[loggers.size()]);
   }
 
   @Override
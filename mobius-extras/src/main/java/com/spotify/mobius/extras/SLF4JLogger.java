@@ -47,6 +47,10 @@ public class SLF4JLogger<M, E, F> implements MobiusLoop.Logger<M, E, F> {
 
   @Override
   public void afterInit(M model, First<M, F> result) {
+    if (!LOGGER.isDebugEnabled()) {
+      return;
+    }
+
     LOGGER.debug(
         LOGGING_PREFIX + "Loop initialized, starting from model: {}", loggingTag, result.model());
 
@@ -67,6 +71,10 @@ public class SLF4JLogger<M, E, F> implements MobiusLoop.Logger<M, E, F> {
 
   @Override
   public void afterUpdate(M model, E event, Next<M, F> result) {
+    if (!LOGGER.isDebugEnabled()) {
+      return;
+    }
+
     if (result.hasModel()) {
       LOGGER.debug(LOGGING_PREFIX + "Model updated: {}", loggingTag, result.modelUnsafe());
     }
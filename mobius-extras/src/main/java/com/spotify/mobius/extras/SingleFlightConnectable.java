@@ -0,0 +1,295 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.Connectable;
+import com.spotify.mobius.Connection;
+import com.spotify.mobius.functions.Consumer;
+import com.spotify.mobius.functions.Producer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An effect handler that collapses identical effects from many loops into a single call to a {@link
+ * Handler}, and fans the resulting event out to every loop that is waiting for it.
+ *
+ * <p>A single instance is meant to be shared between loops, for instance by connecting it to the
+ * effect handlers of all loops created from a {@link com.spotify.mobius.MobiusLoop.Factory}. Two
+ * effects are identical if they are {@link Object#equals(Object) equal}. While a call for an effect
+ * is in flight, further identical effects don't cause new calls, but wait for the result of the
+ * ongoing one. This is only correct for idempotent effects, such as loading data, so only effects
+ * of that kind should be routed to this handler.
+ *
+ * <p>Optionally, results can be cached for a fixed time after they arrive. The cache is bounded,
+ * evicting the least recently used result when it is full.
+ *
+ * @param <F> the effect type
+ * @param <E> the event type
+ */
+public final class SingleFlightConnectable<F, E> implements Connectable<F, E> {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(SingleFlightConnectable.class);
+
+  private static final Producer<Long> SYSTEM_NANO_TIME =
+      new Producer<Long>() {
+        @Nonnull
+        @Override
+        public Long get() {
+          return System.nanoTime();
+        }
+      };
+
+  private final Handler<F, E> handler;
+  private final long ttlNanos;
+  private final Producer<Long> nanoTime;
+
+  // concurrency note: the maps are guarded by 'lock'
+  private final Object lock = new Object();
+  private final Map<F, InFlight> inFlight = new HashMap<>();
+  private final LinkedHashMap<F, Cached<E>> cache;
+
+  SingleFlightConnectable(
+      Handler<F, E> handler, long ttlNanos, final int maxCacheSize, Producer<Long> nanoTime) {
+    this.handler = checkNotNull(handler);
+    this.ttlNanos = ttlNanos;
+    this.nanoTime = checkNotNull(nanoTime);
+    this.cache =
+        new LinkedHashMap<F, Cached<E>>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<F, Cached<E>> eldest) {
+            return size() > maxCacheSize;
+          }
+        };
+  }
+
+  /**
+   * Create an effect handler that collapses identical in-flight effects, without caching results.
+   *
+   * @param handler the handler that performs the collapsed calls
+   */
+  public static <F, E> SingleFlightConnectable<F, E> create(Handler<F, E> handler) {
+    return new SingleFlightConnectable<>(handler, 0, 0, SYSTEM_NANO_TIME);
+  }
+
+  /**
+   * Create an effect handler that collapses identical in-flight effects, and caches results for the
+   * supplied time.
+   *
+   * @param handler the handler that performs the collapsed calls
+   * @param ttl the time to cache each result for
+   * @param unit the unit of {@code ttl}
+   * @param maxCacheSize the maximum number of cached results
+   */
+  public static <F, E> SingleFlightConnectable<F, E> create(
+      Handler<F, E> handler, long ttl, TimeUnit unit, int maxCacheSize) {
+    if (ttl < 0) {
+      throw new IllegalArgumentException("ttl must not be negative: " + ttl);
+    }
+    if (maxCacheSize < 0) {
+      throw new IllegalArgumentException("maxCacheSize must not be negative: " + maxCacheSize);
+    }
+    return new SingleFlightConnectable<>(
+        handler, unit.toNanos(ttl), maxCacheSize, SYSTEM_NANO_TIME);
+  }
+
+  @Nonnull
+  @Override
+  public Connection<F> connect(Consumer<E> output) {
+    return new SingleFlightConnection(checkNotNull(output));
+  }
+
+  /** @return the number of distinct effects currently in flight */
+  public int inFlightCount() {
+    synchronized (lock) {
+      return inFlight.size();
+    }
+  }
+
+  /** Remove all cached results, so that the next effect of each kind causes a new call. */
+  public void invalidateAll() {
+    synchronized (lock) {
+      cache.clear();
+    }
+  }
+
+  private void complete(F effect, InFlight flight, E event) {
+    List<SingleFlightConnection> waiters;
+
+    synchronized (lock) {
+      if (flight.completed) {
+        LOGGER.warn("Ignoring duplicate result for effect {}: {}", effect, event);
+        return;
+      }
+      flight.completed = true;
+      inFlight.remove(effect);
+
+      if (ttlNanos > 0) {
+        cache.put(effect, new Cached<>(event, nanoTime.get() + ttlNanos));
+      }
+
+      waiters = flight.waiters;
+    }
+
+    for (SingleFlightConnection waiter : waiters) {
+      waiter.deliver(event);
+    }
+  }
+
+  private void abort(F effect, InFlight flight) {
+    int abandoned;
+
+    synchronized (lock) {
+      if (flight.completed) {
+        return;
+      }
+      flight.completed = true;
+      inFlight.remove(effect);
+      abandoned = flight.waiters.size() - 1;
+    }
+
+    if (abandoned > 0) {
+      LOGGER.error(
+          "Handler threw for effect {}; {} other waiting connection(s) won't get an event",
+          effect,
+          abandoned);
+    }
+  }
+
+  /**
+   * Performs the calls for collapsed effects.
+   *
+   * @param <F> the effect type
+   * @param <E> the event type
+   */
+  public interface Handler<F, E> {
+
+    /**
+     * Perform the call for an effect. The handler must call {@code callback} exactly once with the
+     * resulting event, either synchronously or from another thread. Failures should be reported as
+     * events rather than by throwing.
+     *
+     * @param effect the effect to handle
+     * @param callback the consumer for the resulting event
+     */
+    void handle(F effect, Consumer<E> callback);
+  }
+
+  private final class SingleFlightConnection implements Connection<F> {
+
+    private final Consumer<E> output;
+    private volatile boolean disposed;
+
+    private SingleFlightConnection(Consumer<E> output) {
+      this.output = output;
+    }
+
+    @Override
+    public void accept(final F effect) {
+      E cached = null;
+      InFlight flight;
+      boolean leader = false;
+
+      synchronized (lock) {
+        if (disposed) {
+          return;
+        }
+
+        Cached<E> entry = cache.get(effect);
+        if (entry != null) {
+          if (entry.expiresAt - nanoTime.get() > 0) {
+            cached = entry.event;
+          } else {
+            cache.remove(effect);
+          }
+        }
+
+        flight = inFlight.get(effect);
+        if (cached == null) {
+          if (flight == null) {
+            flight = new InFlight();
+            inFlight.put(effect, flight);
+            leader = true;
+          }
+          flight.waiters.add(this);
+        }
+      }
+
+      if (cached != null) {
+        output.accept(cached);
+        return;
+      }
+
+      if (!leader) {
+        return;
+      }
+
+      final InFlight leaderFlight = flight;
+      try {
+        handler.handle(
+            effect,
+            new Consumer<E>() {
+              @Override
+              public void accept(E event) {
+                complete(effect, leaderFlight, checkNotNull(event));
+              }
+            });
+      } catch (RuntimeException e) {
+        abort(effect, leaderFlight);
+        throw e;
+      }
+    }
+
+    private void deliver(E event) {
+      if (!disposed) {
+        output.accept(event);
+      }
+    }
+
+    @Override
+    public void dispose() {
+      disposed = true;
+    }
+  }
+
+  // concurrency note: fields are guarded by 'lock'
+  private final class InFlight {
+    private final List<SingleFlightConnection> waiters = new ArrayList<>();
+    private boolean completed;
+  }
+
+  private static final class Cached<E> {
+    private final E event;
+    private final long expiresAt;
+
+    private Cached(E event, long expiresAt) {
+      this.event = event;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
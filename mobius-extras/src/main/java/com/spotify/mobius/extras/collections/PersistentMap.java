@@ -0,0 +1,459 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.collections;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.functions.Function;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * An immutable map that supports efficient updates through structural sharing, intended for use in
+ * Mobius models that hold large maps.
+ *
+ * <p>Entries are stored in a hash array mapped trie (HAMT): each level of the trie consumes five
+ * bits of the key's hash code, and nodes only allocate space for the children that are present. As
+ * a result, {@link #get(Object)}, {@link #plus(Object, Object)} and {@link #minus(Object)} take
+ * O(log32 n) time, and an update only copies the nodes on the path to the changed entry. Keys with
+ * colliding hash codes are kept in a list at the bottom of the trie.
+ *
+ * <p>The mutating methods of {@link Map} throw {@link UnsupportedOperationException}. Null keys and
+ * values are not permitted. Iteration order is unspecified.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public final class PersistentMap<K, V> extends AbstractMap<K, V> {
+
+  private static final int BITS = 5;
+  private static final int MASK = (1 << BITS) - 1;
+
+  private static final PersistentMap<Object, Object> EMPTY = new PersistentMap<>(0, null);
+
+  private final int size;
+  @Nullable private final Node root;
+
+  private PersistentMap(int size, @Nullable Node root) {
+    this.size = size;
+    this.root = root;
+  }
+
+  /** Returns the empty map. */
+  @SuppressWarnings("unchecked")
+  public static <K, V> PersistentMap<K, V> empty() {
+    return (PersistentMap<K, V>) EMPTY;
+  }
+
+  /** Returns a map containing the entries of the given map. */
+  @SuppressWarnings("unchecked")
+  public static <K, V> PersistentMap<K, V> copyOf(Map<? extends K, ? extends V> map) {
+    if (map instanceof PersistentMap) {
+      return (PersistentMap<K, V>) map;
+    }
+
+    PersistentMap<K, V> result = empty();
+    for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+      result = result.plus(entry.getKey(), entry.getValue());
+    }
+    return result;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return get(key) != null;
+  }
+
+  @Override
+  @Nullable
+  @SuppressWarnings("unchecked")
+  public V get(@Nullable Object key) {
+    if (key == null || root == null) {
+      return null;
+    }
+
+    return (V) root.find(0, key.hashCode(), key);
+  }
+
+  /**
+   * Returns a map with the given entry added, or replacing the existing entry for the key. If the
+   * key is already mapped to the same value instance, this map is returned.
+   */
+  public PersistentMap<K, V> plus(K key, V value) {
+    checkNotNull(key);
+    checkNotNull(value);
+
+    boolean[] added = new boolean[1];
+    Node node = root != null ? root : BitmapNode.EMPTY;
+    Node newRoot = node.assoc(0, key.hashCode(), key, value, added);
+
+    if (newRoot == root) {
+      return this;
+    }
+
+    return new PersistentMap<>(added[0] ? size + 1 : size, newRoot);
+  }
+
+  /** Returns a map without the entry for the given key, or this map if there is no such entry. */
+  public PersistentMap<K, V> minus(K key) {
+    checkNotNull(key);
+
+    if (root == null) {
+      return this;
+    }
+
+    Node newRoot = root.without(0, key.hashCode(), key);
+
+    if (newRoot == root) {
+      return this;
+    }
+
+    return newRoot == null
+        ? PersistentMap.<K, V>empty()
+        : new PersistentMap<K, V>(size - 1, newRoot);
+  }
+
+  /**
+   * Returns a map where the value for {@code key} is replaced by the result of applying {@code
+   * function} to it.
+   *
+   * @throws IllegalArgumentException if there is no entry for the key
+   */
+  public PersistentMap<K, V> update(K key, Function<V, V> function) {
+    V value = get(key);
+
+    if (value == null) {
+      throw new IllegalArgumentException("No entry for key: " + key);
+    }
+
+    return plus(key, checkNotNull(function.apply(value)));
+  }
+
+  @Override
+  public Set<Entry<K, V>> entrySet() {
+    return new AbstractSet<Entry<K, V>>() {
+      @Override
+      public Iterator<Entry<K, V>> iterator() {
+        return new EntryIterator<>(root);
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  private static int bit(int hash, int shift) {
+    return 1 << ((hash >>> shift) & MASK);
+  }
+
+  /**
+   * A trie node. The entries of a node are stored as consecutive key/value pairs in {@link #array};
+   * a null key means that the value is a child node.
+   */
+  private abstract static class Node {
+    final Object[] array;
+
+    Node(Object[] array) {
+      this.array = array;
+    }
+
+    @Nullable
+    abstract Object find(int shift, int hash, Object key);
+
+    abstract Node assoc(int shift, int hash, Object key, Object value, boolean[] added);
+
+    /** Returns this node if the key is absent, and null if the node becomes empty. */
+    @Nullable
+    abstract Node without(int shift, int hash, Object key);
+  }
+
+  private static final class BitmapNode extends Node {
+    static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+    // one bit for each of the 32 possible children that is present
+    private final int bitmap;
+
+    BitmapNode(int bitmap, Object[] array) {
+      super(array);
+      this.bitmap = bitmap;
+    }
+
+    @Nullable
+    @Override
+    Object find(int shift, int hash, Object key) {
+      int bit = bit(hash, shift);
+      if ((bitmap & bit) == 0) {
+        return null;
+      }
+
+      int index = index(bit);
+      Object k = array[2 * index];
+      Object v = array[2 * index + 1];
+
+      if (k == null) {
+        return ((Node) v).find(shift + BITS, hash, key);
+      }
+
+      return key.equals(k) ? v : null;
+    }
+
+    @Override
+    Node assoc(int shift, int hash, Object key, Object value, boolean[] added) {
+      int bit = bit(hash, shift);
+      int index = index(bit);
+
+      if ((bitmap & bit) == 0) {
+        int count = Integer.bitCount(bitmap);
+        Object[] newArray = new Object[2 * (count + 1)];
+        System.arraycopy(array, 0, newArray, 0, 2 * index);
+        newArray[2 * index] = key;
+        newArray[2 * index + 1] = value;
+        System.arraycopy(array, 2 * index, newArray, 2 * (index + 1), 2 * (count - index));
+        added[0] = true;
+        return new BitmapNode(bitmap | bit, newArray);
+      }
+
+      Object k = array[2 * index];
+      Object v = array[2 * index + 1];
+
+      if (k == null) {
+        Node child = ((Node) v).assoc(shift + BITS, hash, key, value, added);
+        return child == v ? this : new BitmapNode(bitmap, with(array, 2 * index + 1, child));
+      }
+
+      if (key.equals(k)) {
+        return value == v ? this : new BitmapNode(bitmap, with(array, 2 * index + 1, value));
+      }
+
+      // two different keys in the same slot: move both into a child node
+      added[0] = true;
+      Object[] newArray = with(array, 2 * index, null);
+      newArray[2 * index + 1] = createNode(shift + BITS, k, v, hash, key, value);
+      return new BitmapNode(bitmap, newArray);
+    }
+
+    @Nullable
+    @Override
+    Node without(int shift, int hash, Object key) {
+      int bit = bit(hash, shift);
+      if ((bitmap & bit) == 0) {
+        return this;
+      }
+
+      int index = index(bit);
+      Object k = array[2 * index];
+      Object v = array[2 * index + 1];
+
+      if (k == null) {
+        Node child = ((Node) v).without(shift + BITS, hash, key);
+        if (child == v) {
+          return this;
+        }
+        if (child != null) {
+          return new BitmapNode(bitmap, with(array, 2 * index + 1, child));
+        }
+      } else if (!key.equals(k)) {
+        return this;
+      }
+
+      if (bitmap == bit) {
+        return null;
+      }
+
+      return new BitmapNode(bitmap ^ bit, withoutPair(array, index));
+    }
+
+    private int index(int bit) {
+      return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    private static Node createNode(
+        int shift, Object key1, Object value1, int hash2, Object key2, Object value2) {
+      int hash1 = key1.hashCode();
+
+      if (hash1 == hash2) {
+        return new CollisionNode(hash1, new Object[] {key1, value1, key2, value2});
+      }
+
+      boolean[] added = new boolean[1];
+      return EMPTY
+          .assoc(shift, hash1, key1, value1, added)
+          .assoc(shift, hash2, key2, value2, added);
+    }
+  }
+
+  private static final class CollisionNode extends Node {
+    private final int hash;
+
+    CollisionNode(int hash, Object[] array) {
+      super(array);
+      this.hash = hash;
+    }
+
+    @Nullable
+    @Override
+    Object find(int shift, int hash, Object key) {
+      int index = indexOf(key);
+      return index < 0 ? null : array[index + 1];
+    }
+
+    @Override
+    Node assoc(int shift, int hash, Object key, Object value, boolean[] added) {
+      if (hash != this.hash) {
+        // nest this node in a bitmap node, so that the new key can be placed next to it
+        return new BitmapNode(bit(this.hash, shift), new Object[] {null, this})
+            .assoc(shift, hash, key, value, added);
+      }
+
+      int index = indexOf(key);
+
+      if (index >= 0) {
+        return array[index + 1] == value
+            ? this
+            : new CollisionNode(hash, with(array, index + 1, value));
+      }
+
+      Object[] newArray = new Object[array.length + 2];
+      System.arraycopy(array, 0, newArray, 0, array.length);
+      newArray[array.length] = key;
+      newArray[array.length + 1] = value;
+      added[0] = true;
+      return new CollisionNode(hash, newArray);
+    }
+
+    @Nullable
+    @Override
+    Node without(int shift, int hash, Object key) {
+      int index = indexOf(key);
+
+      if (index < 0) {
+        return this;
+      }
+
+      if (array.length == 2) {
+        return null;
+      }
+
+      return new CollisionNode(this.hash, withoutPair(array, index / 2));
+    }
+
+    private int indexOf(Object key) {
+      for (int i = 0; i < array.length; i += 2) {
+        if (key.equals(array[i])) {
+          return i;
+        }
+      }
+      return -1;
+    }
+  }
+
+  private static Object[] with(Object[] array, int index, @Nullable Object value) {
+    Object[] result = array.clone();
+    result[index] = value;
+    return result;
+  }
+
+  private static Object[] withoutPair(Object[] array, int pair) {
+    Object[] result = new Object[array.length - 2];
+    System.arraycopy(array, 0, result, 0, 2 * pair);
+    System.arraycopy(array, 2 * (pair + 1), result, 2 * pair, result.length - 2 * pair);
+    return result;
+  }
+
+  private static final class EntryIterator<K, V> implements Iterator<Entry<K, V>> {
+    // one level per five bits of hash code, plus one for collision nodes
+    private final Object[][] arrays = new Object[8][];
+    private final int[] positions = new int[8];
+    private int depth = -1;
+
+    @Nullable private Entry<K, V> next;
+
+    EntryIterator(@Nullable Node root) {
+      if (root != null) {
+        push(root);
+        advance();
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public Entry<K, V> next() {
+      Entry<K, V> result = next;
+      if (result == null) {
+        throw new NoSuchElementException();
+      }
+      advance();
+      return result;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    private void push(Node node) {
+      depth++;
+      arrays[depth] = node.array;
+      positions[depth] = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void advance() {
+      while (depth >= 0) {
+        Object[] array = arrays[depth];
+        int position = positions[depth];
+
+        if (position >= array.length) {
+          arrays[depth--] = null;
+          continue;
+        }
+
+        positions[depth] = position + 2;
+        Object key = array[position];
+        Object value = array[position + 1];
+
+        if (key == null) {
+          push((Node) value);
+        } else {
+          next = new SimpleImmutableEntry<>((K) key, (V) value);
+          return;
+        }
+      }
+
+      next = null;
+    }
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.collections;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * An immutable set that supports efficient updates through structural sharing, intended for use in
+ * Mobius models that hold large sets. It is backed by a {@link PersistentMap}, and has the same
+ * performance characteristics.
+ *
+ * <p>The mutating methods of {@link java.util.Set} throw {@link UnsupportedOperationException}.
+ * Null elements are not permitted. Iteration order is unspecified.
+ *
+ * @param <T> the element type
+ */
+public final class PersistentSet<T> extends AbstractSet<T> {
+
+  private static final PersistentSet<Object> EMPTY =
+      new PersistentSet<>(PersistentMap.<Object, Boolean>empty());
+
+  private final PersistentMap<T, Boolean> map;
+
+  private PersistentSet(PersistentMap<T, Boolean> map) {
+    this.map = map;
+  }
+
+  /** Returns the empty set. */
+  @SuppressWarnings("unchecked")
+  public static <T> PersistentSet<T> empty() {
+    return (PersistentSet<T>) EMPTY;
+  }
+
+  /** Returns a set containing the given elements. */
+  @SafeVarargs
+  public static <T> PersistentSet<T> of(T... elements) {
+    return copyOf(Arrays.asList(elements));
+  }
+
+  /** Returns a set containing the given elements. */
+  @SuppressWarnings("unchecked")
+  public static <T> PersistentSet<T> copyOf(Iterable<? extends T> elements) {
+    if (elements instanceof PersistentSet) {
+      return (PersistentSet<T>) elements;
+    }
+
+    PersistentSet<T> result = empty();
+    for (T element : elements) {
+      result = result.plus(element);
+    }
+    return result;
+  }
+
+  @Override
+  public int size() {
+    return map.size();
+  }
+
+  @Override
+  public boolean contains(@Nullable Object element) {
+    return map.containsKey(element);
+  }
+
+  /** Returns a set with the element added, or this set if it already contains the element. */
+  public PersistentSet<T> plus(T element) {
+    PersistentMap<T, Boolean> newMap = map.plus(element, Boolean.TRUE);
+    return newMap == map ? this : new PersistentSet<>(newMap);
+  }
+
+  /** Returns a set without the element, or this set if it doesn't contain the element. */
+  public PersistentSet<T> minus(T element) {
+    PersistentMap<T, Boolean> newMap = map.minus(element);
+
+    if (newMap == map) {
+      return this;
+    }
+
+    return newMap.isEmpty() ? PersistentSet.<T>empty() : new PersistentSet<>(newMap);
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    final Iterator<Map.Entry<T, Boolean>> entries = map.entrySet().iterator();
+
+    return new Iterator<T>() {
+      @Override
+      public boolean hasNext() {
+        return entries.hasNext();
+      }
+
+      @Override
+      public T next() {
+        return entries.next().getKey();
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+}
@@ -0,0 +1,321 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.collections;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.functions.Function;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * An immutable list that supports efficient updates through structural sharing, intended for use in
+ * Mobius models that hold large lists.
+ *
+ * <p>Elements are stored in a trie with 32 children per node, so {@link #get(int)}, {@link
+ * #with(int, Object)}, {@link #plus(Object)} and {@link #pop()} take O(log32 n) time, and an update
+ * only copies the nodes on the path to the changed element. The last (up to) 32 elements are kept
+ * in a separate tail array, which makes appending amortized O(1).
+ *
+ * <p>The mutating methods of {@link java.util.List} throw {@link UnsupportedOperationException}.
+ * Null elements are not permitted.
+ *
+ * @param <T> the element type
+ */
+public final class PersistentVector<T> extends AbstractList<T> implements RandomAccess {
+
+  private static final int BITS = 5;
+  private static final int WIDTH = 1 << BITS;
+  private static final int MASK = WIDTH - 1;
+
+  private static final Object[] EMPTY_NODE = new Object[WIDTH];
+  private static final PersistentVector<Object> EMPTY =
+      new PersistentVector<>(0, BITS, EMPTY_NODE, new Object[0]);
+
+  private final int size;
+  private final int shift;
+  private final Object[] root;
+  private final Object[] tail;
+
+  private PersistentVector(int size, int shift, Object[] root, Object[] tail) {
+    this.size = size;
+    this.shift = shift;
+    this.root = root;
+    this.tail = tail;
+  }
+
+  /** Returns the empty vector. */
+  @SuppressWarnings("unchecked")
+  public static <T> PersistentVector<T> empty() {
+    return (PersistentVector<T>) EMPTY;
+  }
+
+  /** Returns a vector containing the given elements, in order. */
+  @SafeVarargs
+  public static <T> PersistentVector<T> of(T... elements) {
+    return copyOf(Arrays.asList(elements));
+  }
+
+  /** Returns a vector containing the given elements, in iteration order. */
+  @SuppressWarnings("unchecked")
+  public static <T> PersistentVector<T> copyOf(Iterable<? extends T> elements) {
+    if (elements instanceof PersistentVector) {
+      return (PersistentVector<T>) elements;
+    }
+
+    PersistentVector<T> result = empty();
+    for (T element : elements) {
+      result = result.plus(element);
+    }
+    return result;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T get(int index) {
+    checkIndex(index, size);
+    return (T) arrayFor(index)[index & MASK];
+  }
+
+  /**
+   * Returns a vector with the element at {@code index} replaced. If {@code index} is equal to the
+   * size of this vector, the element is appended. If the element is the same instance as the
+   * current one, this vector is returned.
+   *
+   * @throws IndexOutOfBoundsException if {@code index} is negative or greater than the size
+   */
+  public PersistentVector<T> with(int index, T element) {
+    checkNotNull(element);
+
+    if (index == size) {
+      return plus(element);
+    }
+
+    checkIndex(index, size);
+
+    if (arrayFor(index)[index & MASK] == element) {
+      return this;
+    }
+
+    if (index >= tailOffset()) {
+      Object[] newTail = tail.clone();
+      newTail[index & MASK] = element;
+      return new PersistentVector<>(size, shift, root, newTail);
+    }
+
+    return new PersistentVector<>(size, shift, assoc(shift, root, index, element), tail);
+  }
+
+  /**
+   * Returns a vector with the element at {@code index} replaced by the result of applying {@code
+   * function} to it.
+   *
+   * @throws IndexOutOfBoundsException if {@code index} is out of range
+   */
+  public PersistentVector<T> update(int index, Function<T, T> function) {
+    return with(index, checkNotNull(function.apply(get(index))));
+  }
+
+  /** Returns a vector with the element appended. */
+  public PersistentVector<T> plus(T element) {
+    checkNotNull(element);
+
+    // room in the tail?
+    if (size - tailOffset() < WIDTH) {
+      Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+      newTail[tail.length] = element;
+      return new PersistentVector<>(size + 1, shift, root, newTail);
+    }
+
+    // the tail is full, so push it into the trie
+    Object[] newRoot;
+    int newShift = shift;
+
+    if ((size >>> BITS) > (1 << shift)) {
+      // the trie is full as well, so add a level
+      newRoot = new Object[WIDTH];
+      newRoot[0] = root;
+      newRoot[1] = newPath(shift, tail);
+      newShift += BITS;
+    } else {
+      newRoot = pushTail(shift, root, tail);
+    }
+
+    return new PersistentVector<>(size + 1, newShift, newRoot, new Object[] {element});
+  }
+
+  /**
+   * Returns a vector with the last element removed.
+   *
+   * @throws IllegalStateException if this vector is empty
+   */
+  public PersistentVector<T> pop() {
+    if (size == 0) {
+      throw new IllegalStateException("Can't pop an empty vector");
+    }
+
+    if (size == 1) {
+      return empty();
+    }
+
+    if (size - tailOffset() > 1) {
+      return new PersistentVector<>(size - 1, shift, root, Arrays.copyOf(tail, tail.length - 1));
+    }
+
+    Object[] newTail = arrayFor(size - 2);
+    Object[] newRoot = popTail(shift, root);
+    int newShift = shift;
+
+    if (newRoot == null) {
+      newRoot = EMPTY_NODE;
+    }
+
+    if (shift > BITS && newRoot[1] == null) {
+      newRoot = (Object[]) newRoot[0];
+      newShift -= BITS;
+    }
+
+    return new PersistentVector<>(size - 1, newShift, newRoot, newTail);
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    return new Iterator<T>() {
+      private int index;
+      private Object[] array = size > 0 ? arrayFor(0) : tail;
+
+      @Override
+      public boolean hasNext() {
+        return index < size;
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public T next() {
+        if (index >= size) {
+          throw new NoSuchElementException();
+        }
+
+        if (index > 0 && (index & MASK) == 0) {
+          array = arrayFor(index);
+        }
+
+        return (T) array[index++ & MASK];
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  private int tailOffset() {
+    return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+  }
+
+  private Object[] arrayFor(int index) {
+    if (index >= tailOffset()) {
+      return tail;
+    }
+
+    Object[] node = root;
+    for (int level = shift; level > 0; level -= BITS) {
+      node = (Object[]) node[(index >>> level) & MASK];
+    }
+    return node;
+  }
+
+  private static Object[] assoc(int level, Object[] node, int index, Object element) {
+    Object[] result = node.clone();
+
+    if (level == 0) {
+      result[index & MASK] = element;
+    } else {
+      int child = (index >>> level) & MASK;
+      result[child] = assoc(level - BITS, (Object[]) node[child], index, element);
+    }
+
+    return result;
+  }
+
+  private Object[] pushTail(int level, Object[] parent, Object[] tailNode) {
+    int child = ((size - 1) >>> level) & MASK;
+    Object[] result = parent.clone();
+
+    if (level == BITS) {
+      result[child] = tailNode;
+    } else {
+      Object[] existing = (Object[]) parent[child];
+      result[child] =
+          existing != null
+              ? pushTail(level - BITS, existing, tailNode)
+              : newPath(level - BITS, tailNode);
+    }
+
+    return result;
+  }
+
+  private static Object[] newPath(int level, Object[] node) {
+    if (level == 0) {
+      return node;
+    }
+
+    Object[] result = new Object[WIDTH];
+    result[0] = newPath(level - BITS, node);
+    return result;
+  }
+
+  private Object[] popTail(int level, Object[] node) {
+    int child = ((size - 2) >>> level) & MASK;
+
+    if (level > BITS) {
+      Object[] newChild = popTail(level - BITS, (Object[]) node[child]);
+      if (newChild == null && child == 0) {
+        return null;
+      }
+      Object[] result = node.clone();
+      result[child] = newChild;
+      return result;
+    }
+
+    if (child == 0) {
+      return null;
+    }
+
+    Object[] result = node.clone();
+    result[child] = null;
+    return result;
+  }
+
+  private static void checkIndex(int index, int size) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+    }
+  }
+}
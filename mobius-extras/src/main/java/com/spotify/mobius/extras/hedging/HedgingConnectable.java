@@ -0,0 +1,277 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.hedging;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.Connectable;
+import com.spotify.mobius.Connection;
+import com.spotify.mobius.disposables.Disposable;
+import com.spotify.mobius.functions.Consumer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nonnull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An effect handler that applies a {@link HedgingPolicy} to asynchronous calls, giving each effect
+ * a deadline and sending hedged calls for slow ones. Only the first result for an effect is turned
+ * into an event; other calls for it are cancelled.
+ *
+ * <p>The handler is a plain {@link Connectable}, so it can be used with any effect handling
+ * library; for instance with RxJava 2, through {@code RxConnectables.toTransformer(connectable)}
+ * and a call that subscribes to a {@code Single} and returns its disposable.
+ *
+ * @param <F> the effect type
+ * @param <E> the event type
+ */
+public final class HedgingConnectable<F, E> implements Connectable<F, E> {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(HedgingConnectable.class);
+
+  private final Call<F, E> call;
+  private final HedgingPolicy<F, E> policy;
+  private final ScheduledExecutorService scheduler;
+
+  private HedgingConnectable(
+      Call<F, E> call, HedgingPolicy<F, E> policy, ScheduledExecutorService scheduler) {
+    this.call = checkNotNull(call);
+    this.policy = checkNotNull(policy);
+    this.scheduler = checkNotNull(scheduler);
+  }
+
+  /**
+   * Create a hedging effect handler.
+   *
+   * @param call starts a call for an effect
+   * @param policy the policy to apply
+   * @param scheduler the scheduler used for deadlines and hedged calls; it is not shut down by the
+   *     handler
+   */
+  public static <F, E> HedgingConnectable<F, E> create(
+      Call<F, E> call, HedgingPolicy<F, E> policy, ScheduledExecutorService scheduler) {
+    return new HedgingConnectable<>(call, policy, scheduler);
+  }
+
+  @Nonnull
+  @Override
+  public Connection<F> connect(Consumer<E> output) {
+    return new HedgingConnection(checkNotNull(output));
+  }
+
+  /**
+   * Starts an asynchronous call for an effect. A call may be started more than once for the same
+   * effect when hedging.
+   *
+   * @param <F> the effect type
+   * @param <E> the event type
+   */
+  public interface Call<F, E> {
+
+    /**
+     * Start a call for an effect.
+     *
+     * @param effect the effect to handle
+     * @param callback the consumer for the resulting event, to be called at most once
+     * @return a {@link Disposable} that cancels the call
+     */
+    Disposable start(F effect, Consumer<E> callback);
+  }
+
+  private final class HedgingConnection implements Connection<F> {
+
+    private final Consumer<E> output;
+    private final Set<Attempts> pending =
+        Collections.newSetFromMap(new ConcurrentHashMap<Attempts, Boolean>());
+    private volatile boolean disposed;
+
+    private HedgingConnection(Consumer<E> output) {
+      this.output = output;
+    }
+
+    @Override
+    public void accept(F effect) {
+      if (disposed) {
+        return;
+      }
+
+      Attempts attempts = new Attempts(this, effect);
+      pending.add(attempts);
+      attempts.start();
+    }
+
+    @Override
+    public void dispose() {
+      disposed = true;
+      for (Attempts attempts : pending) {
+        attempts.cancel();
+      }
+      pending.clear();
+    }
+  }
+
+  /** Tracks the calls, deadline and hedging timer for a single effect. */
+  private final class Attempts {
+
+    private final HedgingConnection connection;
+    private final F effect;
+    private final AtomicBoolean done = new AtomicBoolean();
+
+    // guarded by 'this'
+    private final List<Disposable> disposables = new ArrayList<>(3);
+
+    private Attempts(HedgingConnection connection, F effect) {
+      this.connection = connection;
+      this.effect = effect;
+    }
+
+    void start() {
+      long hedgeDelay = policy.hedgeDelayNanos();
+
+      launchInitial();
+
+      if (hedgeDelay >= 0) {
+        schedule(
+            new Runnable() {
+              @Override
+              public void run() {
+                if (!done.get()) {
+                  launchHedge();
+                }
+              }
+            },
+            hedgeDelay);
+      }
+
+      if (policy.timeoutNanos() > 0) {
+        schedule(
+            new Runnable() {
+              @Override
+              public void run() {
+                if (done.compareAndSet(false, true)) {
+                  // the call took at least this long; leaving it out would bias the percentiles
+                  // low while the service is slow
+                  policy.recordLatency(policy.timeoutNanos());
+                  finish(checkNotNull(policy.timeoutEvent()).apply(effect));
+                }
+              }
+            },
+            policy.timeoutNanos());
+      }
+    }
+
+    /**
+     * Start the first call. It runs on the calling thread before any timer is scheduled, so if it
+     * fails there is nothing else left to complete the effect; it is marked as done and the failure
+     * is propagated to the caller.
+     */
+    private void launchInitial() {
+      try {
+        launch();
+      } catch (RuntimeException e) {
+        if (done.compareAndSet(false, true)) {
+          cancel();
+          connection.pending.remove(this);
+        }
+        throw e;
+      }
+    }
+
+    /**
+     * Start a hedged call on the scheduler thread. The first call and the deadline are still live,
+     * so a failure to start the hedged call is logged and the effect is left to them.
+     */
+    private void launchHedge() {
+      try {
+        launch();
+      } catch (RuntimeException e) {
+        LOGGER.warn("Failed to start hedged call for effect {}", effect, e);
+      }
+    }
+
+    private void launch() {
+      final long started = System.nanoTime();
+
+      add(
+          call.start(
+              effect,
+              new Consumer<E>() {
+                @Override
+                public void accept(E event) {
+                  if (done.compareAndSet(false, true)) {
+                    policy.recordLatency(System.nanoTime() - started);
+                    finish(event);
+                  }
+                }
+              }));
+    }
+
+    private void schedule(Runnable task, long delayNanos) {
+      final ScheduledFuture<?> future = scheduler.schedule(task, delayNanos, TimeUnit.NANOSECONDS);
+      add(
+          new Disposable() {
+            @Override
+            public void dispose() {
+              future.cancel(false);
+            }
+          });
+    }
+
+    private void add(Disposable disposable) {
+      synchronized (this) {
+        if (!done.get()) {
+          disposables.add(disposable);
+          return;
+        }
+      }
+      disposable.dispose();
+    }
+
+    private void finish(E event) {
+      cancel();
+      connection.pending.remove(this);
+      if (!connection.disposed) {
+        connection.output.accept(event);
+      }
+    }
+
+    void cancel() {
+      done.set(true);
+
+      List<Disposable> toDispose;
+      synchronized (this) {
+        toDispose = new ArrayList<>(disposables);
+        disposables.clear();
+      }
+
+      for (Disposable disposable : toDispose) {
+        disposable.dispose();
+      }
+    }
+  }
+}
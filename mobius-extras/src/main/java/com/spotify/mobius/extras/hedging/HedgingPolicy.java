@@ -0,0 +1,126 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.hedging;
+
+import com.google.auto.value.AutoValue;
+import com.spotify.mobius.functions.Function;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Configures deadlines and hedging for effects that call remote services.
+ *
+ * <p>With a timeout, an effect that hasn't produced an event within the deadline produces a timeout
+ * event instead, and its call is cancelled. With hedging, an effect that hasn't produced an event
+ * after a given percentile of recent call latencies gets a second call, and whichever call
+ * completes first wins. The percentile is taken from a {@link LatencyWindow}, so the hedging delay
+ * adapts to the current latency of the service. Hedging only starts once the window contains enough
+ * samples.
+ *
+ * @param <F> the effect type
+ * @param <E> the event type
+ */
+@AutoValue
+public abstract class HedgingPolicy<F, E> {
+
+  /** @return the deadline for each effect in nanoseconds, or 0 for no deadline */
+  public abstract long timeoutNanos();
+
+  /** @return the function creating the event for an effect that missed its deadline */
+  @Nullable
+  public abstract Function<F, E> timeoutEvent();
+
+  /** @return the latency percentile after which to hedge, or 0 for no hedging */
+  public abstract double hedgePercentile();
+
+  /** @return the number of samples required before hedging starts */
+  public abstract int minSamples();
+
+  /** @return the window that call latencies are recorded in */
+  public abstract LatencyWindow latencies();
+
+  /**
+   * @return the delay after which to send a hedged call in nanoseconds, or -1 if no hedged call
+   *     should be sent
+   */
+  public long hedgeDelayNanos() {
+    if (hedgePercentile() == 0 || latencies().count() < minSamples()) {
+      return -1;
+    }
+    return latencies().percentile(hedgePercentile(), TimeUnit.NANOSECONDS);
+  }
+
+  /** Record the latency of a completed call, or the deadline of one that timed out. */
+  public void recordLatency(long nanos) {
+    latencies().record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  public static <F, E> Builder<F, E> builder() {
+    return new AutoValue_HedgingPolicy.Builder<F, E>()
+        .timeoutNanos(0)
+        .hedgePercentile(0)
+        .minSamples(100)
+        .latencies(new LatencyWindow(1, TimeUnit.MINUTES));
+  }
+
+  @AutoValue.Builder
+  public abstract static class Builder<F, E> {
+
+    abstract Builder<F, E> timeoutNanos(long timeoutNanos);
+
+    abstract Builder<F, E> timeoutEvent(Function<F, E> timeoutEvent);
+
+    abstract Builder<F, E> hedgePercentile(double hedgePercentile);
+
+    /**
+     * Give each effect a deadline, after which its call is cancelled and the supplied function is
+     * used to create an event for it instead.
+     */
+    public Builder<F, E> timeout(long timeout, TimeUnit unit, Function<F, E> timeoutEvent) {
+      if (timeout <= 0) {
+        throw new IllegalArgumentException("timeout must be positive: " + timeout);
+      }
+      return timeoutNanos(unit.toNanos(timeout)).timeoutEvent(timeoutEvent);
+    }
+
+    /**
+     * Send a second call for an effect that hasn't completed after the supplied percentile of
+     * recent call latencies, for instance 0.95.
+     */
+    public Builder<F, E> hedgeAfterPercentile(double percentile) {
+      if (percentile <= 0 || percentile >= 1) {
+        throw new IllegalArgumentException(
+            "percentile must be between 0 and 1, exclusive: " + percentile);
+      }
+      return hedgePercentile(percentile);
+    }
+
+    /** The number of samples required before hedging starts; the default is 100. */
+    public abstract Builder<F, E> minSamples(int minSamples);
+
+    /**
+     * The window to record call latencies in; the default is a new one-minute window. Sharing a
+     * window between policies makes them adapt to the same latencies.
+     */
+    public abstract Builder<F, E> latencies(LatencyWindow latencies);
+
+    public abstract HedgingPolicy<F, E> build();
+  }
+}
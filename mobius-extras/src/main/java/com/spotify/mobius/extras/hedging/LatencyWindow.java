@@ -0,0 +1,184 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.hedging;
+
+import com.spotify.mobius.functions.Producer;
+import com.spotify.mobius.internal_util.LogLinearBuckets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.annotation.Nonnull;
+
+/**
+ * A histogram of latencies recorded during a rolling time window, used to derive latency
+ * percentiles that adapt as the latency of a service changes.
+ *
+ * <p>Latencies are counted in logarithmic buckets with 8 sub-buckets per power of two, so
+ * percentiles are accurate to within 12.5%. The window is divided into ten slots; when a slot
+ * expires, the latencies recorded in it are dropped. Recording is lock-free except when a slot is
+ * recycled, and instances are safe to share between threads and effect handlers.
+ */
+public final class LatencyWindow {
+
+  private static final LogLinearBuckets BUCKETING = new LogLinearBuckets(3);
+  private static final int BUCKETS = BUCKETING.bucketCount();
+  private static final int SLOTS = 10;
+
+  private static final Producer<Long> SYSTEM_NANO_TIME =
+      new Producer<Long>() {
+        @Nonnull
+        @Override
+        public Long get() {
+          return System.nanoTime();
+        }
+      };
+
+  private final long slotNanos;
+  private final Producer<Long> nanoTime;
+  private final Slot[] slots = new Slot[SLOTS];
+
+  // the most recently computed percentile, recomputed at most once per slot
+  private volatile CachedPercentile cached;
+
+  /**
+   * @param window the length of the window during which recorded latencies are kept
+   * @param unit the unit of {@code window}
+   */
+  public LatencyWindow(long window, TimeUnit unit) {
+    this(unit.toNanos(window), SYSTEM_NANO_TIME);
+  }
+
+  LatencyWindow(long windowNanos, Producer<Long> nanoTime) {
+    if (windowNanos < SLOTS) {
+      throw new IllegalArgumentException("window is too short: " + windowNanos + "ns");
+    }
+    this.slotNanos = windowNanos / SLOTS;
+    this.nanoTime = nanoTime;
+    for (int i = 0; i < SLOTS; i++) {
+      slots[i] = new Slot();
+    }
+  }
+
+  /** Record a latency. Negative latencies are recorded as zero. */
+  public void record(long latency, TimeUnit unit) {
+    long epoch = currentEpoch();
+    // nanoTime has an arbitrary origin and may be negative, so keep the index non-negative
+    Slot slot = slots[(int) (((epoch % SLOTS) + SLOTS) % SLOTS)];
+
+    if (slot.epoch != epoch) {
+      slot.recycle(epoch);
+    }
+
+    slot.counts.incrementAndGet(BUCKETING.indexOf(Math.max(0, unit.toNanos(latency))));
+    slot.total.incrementAndGet();
+  }
+
+  /**
+   * @return the number of latencies recorded during the window; this only sums a running total per
+   *     slot, so it is cheap enough to call for every effect
+   */
+  public long count() {
+    long minEpoch = currentEpoch() - SLOTS + 1;
+    long count = 0;
+    for (Slot slot : slots) {
+      if (slot.epoch >= minEpoch) {
+        count += slot.total.get();
+      }
+    }
+    return count;
+  }
+
+  /**
+   * @param percentile the percentile to compute, between 0 and 1
+   * @param unit the unit of the result
+   * @return an upper bound for the supplied percentile of the latencies recorded during the window,
+   *     or -1 if no latencies have been recorded
+   */
+  public long percentile(double percentile, TimeUnit unit) {
+    if (percentile < 0 || percentile > 1) {
+      throw new IllegalArgumentException("percentile must be between 0 and 1: " + percentile);
+    }
+
+    long epoch = currentEpoch();
+    CachedPercentile current = cached;
+    if (current == null || current.epoch != epoch || current.percentile != percentile) {
+      current = new CachedPercentile(epoch, percentile, computePercentile(epoch, percentile));
+      cached = current;
+    }
+
+    return current.nanos < 0 ? -1 : unit.convert(current.nanos, TimeUnit.NANOSECONDS);
+  }
+
+  private long computePercentile(long epoch, double percentile) {
+    long minEpoch = epoch - SLOTS + 1;
+    long total = count();
+    if (total == 0) {
+      return -1;
+    }
+
+    long rank = Math.max(1, (long) Math.ceil(percentile * total));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      for (Slot slot : slots) {
+        if (slot.epoch >= minEpoch) {
+          seen += slot.counts.get(i);
+        }
+      }
+      if (seen >= rank) {
+        return BUCKETING.highestValueIn(i);
+      }
+    }
+
+    return BUCKETING.highestValueIn(BUCKETS - 1);
+  }
+
+  private long currentEpoch() {
+    return nanoTime.get() / slotNanos;
+  }
+
+  private static final class Slot {
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private volatile long epoch = Long.MIN_VALUE;
+
+    synchronized void recycle(long newEpoch) {
+      if (epoch == newEpoch) {
+        return;
+      }
+      for (int i = 0; i < BUCKETS; i++) {
+        counts.set(i, 0);
+      }
+      total.set(0);
+      epoch = newEpoch;
+    }
+  }
+
+  private static final class CachedPercentile {
+    private final long epoch;
+    private final double percentile;
+    private final long nanos;
+
+    private CachedPercentile(long epoch, double percentile, long nanos) {
+      this.epoch = epoch;
+      this.percentile = percentile;
+      this.nanos = nanos;
+    }
+  }
+}
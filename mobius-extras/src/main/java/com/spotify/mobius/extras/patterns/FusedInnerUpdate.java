@@ -0,0 +1,149 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.patterns;
+
+import static com.spotify.mobius.extras.patterns.InnerEffectHandlers.mapInnerEffects;
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.Next;
+import com.spotify.mobius.Update;
+import com.spotify.mobius.functions.Function;
+import java.util.Set;
+import javax.annotation.Nonnull;
+
+/**
+ * An inner update that, unlike {@link InnerUpdate}, fuses with inner updates nested inside it.
+ *
+ * <p>Each layer is described by a {@link Lens} for the inner model, a function extracting the inner
+ * event, and a function mapping inner effects to outer effects. When the inner update function of a
+ * layer is itself a {@code FusedInnerUpdate}, {@link #create} composes the two layers into one, so
+ * that an event passes through any number of nested layers as a single step: the model is read and
+ * written through one composed lens, and each effect is mapped once through the composed effect
+ * functions instead of once per layer.
+ *
+ * <p>The behaviour matches an {@link InnerUpdate} with {@link InnerEffectHandlers#mapEffects}: if
+ * the inner update doesn't change the model, neither does the outer one.
+ *
+ * @param <M> the outer model type
+ * @param <E> the outer event type
+ * @param <F> the outer effect type
+ * @param <MI> the inner model type
+ * @param <EI> the inner event type
+ * @param <FI> the inner effect type
+ */
+public final class FusedInnerUpdate<M, E, F, MI, EI, FI> implements Update<M, E, F> {
+
+  private final Update<MI, EI, FI> innerUpdate;
+  private final Lens<M, MI> lens;
+  private final Function<E, EI> eventExtractor;
+  private final Function<FI, F> effectMapper;
+  private final int depth;
+
+  private FusedInnerUpdate(
+      Update<MI, EI, FI> innerUpdate,
+      Lens<M, MI> lens,
+      Function<E, EI> eventExtractor,
+      Function<FI, F> effectMapper,
+      int depth) {
+    this.innerUpdate = innerUpdate;
+    this.lens = lens;
+    this.eventExtractor = eventExtractor;
+    this.effectMapper = effectMapper;
+    this.depth = depth;
+  }
+
+  /**
+   * Create a layer that runs {@code innerUpdate} on the part of the model focused on by {@code
+   * lens}. If {@code innerUpdate} is another {@code FusedInnerUpdate}, the two are fused.
+   *
+   * @param innerUpdate the inner update function
+   * @param lens a lens for the inner model
+   * @param eventExtractor a function that extracts the inner event from an outer event
+   * @param effectMapper a function that maps inner effects to outer effects
+   */
+  public static <M, E, F, MI, EI, FI> Update<M, E, F> create(
+      Update<MI, EI, FI> innerUpdate,
+      Lens<M, MI> lens,
+      Function<E, EI> eventExtractor,
+      Function<FI, F> effectMapper) {
+    checkNotNull(innerUpdate);
+    checkNotNull(lens);
+    checkNotNull(eventExtractor);
+    checkNotNull(effectMapper);
+
+    if (innerUpdate instanceof FusedInnerUpdate) {
+      return fuse(
+          (FusedInnerUpdate<MI, EI, FI, ?, ?, ?>) innerUpdate, lens, eventExtractor, effectMapper);
+    }
+
+    return new FusedInnerUpdate<>(innerUpdate, lens, eventExtractor, effectMapper, 1);
+  }
+
+  private static <M, E, F, MI, EI, FI, MII, EII, FII> FusedInnerUpdate<M, E, F, MII, EII, FII> fuse(
+      FusedInnerUpdate<MI, EI, FI, MII, EII, FII> inner,
+      Lens<M, MI> lens,
+      Function<E, EI> eventExtractor,
+      Function<FI, F> effectMapper) {
+    return new FusedInnerUpdate<>(
+        inner.innerUpdate,
+        lens.andThen(inner.lens),
+        compose(eventExtractor, inner.eventExtractor),
+        compose(inner.effectMapper, effectMapper),
+        inner.depth + 1);
+  }
+
+  @Nonnull
+  @Override
+  public Next<M, F> update(M model, E event) {
+    MI innerModel = lens.get(model);
+    EI innerEvent = checkNotNull(eventExtractor.apply(event));
+
+    Next<MI, FI> innerNext = checkNotNull(innerUpdate.update(innerModel, innerEvent));
+    Set<FI> innerEffects = innerNext.effects();
+
+    if (!innerNext.hasModel()) {
+      return innerEffects.isEmpty()
+          ? Next.<M, F>noChange()
+          : Next.<M, F>dispatch(mapInnerEffects(effectMapper, innerEffects));
+    }
+
+    M newModel = lens.set(model, innerNext.modelUnsafe());
+
+    return innerEffects.isEmpty()
+        ? Next.<M, F>next(newModel)
+        : Next.next(newModel, mapInnerEffects(effectMapper, innerEffects));
+  }
+
+  /** The number of nested layers fused into this update. */
+  int depth() {
+    return depth;
+  }
+
+  private static <A, B, C> Function<A, C> compose(
+      final Function<A, B> first, final Function<B, C> second) {
+    return new Function<A, C>() {
+      @Nonnull
+      @Override
+      public C apply(A value) {
+        return second.apply(checkNotNull(first.apply(value)));
+      }
+    };
+  }
+}
@@ -23,6 +23,7 @@ import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
 
 import com.spotify.mobius.Next;
 import com.spotify.mobius.functions.Function;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 import javax.annotation.Nonnull;
@@ -65,11 +66,7 @@ public class InnerEffectHandlers {
           return modelUpdated ? Next.<M, F>next(model) : Next.<M, F>noChange();
         }
 
-        Set<F> effects = new HashSet<>();
-        for (FI innerEffect : innerEffects) {
-          F outerEffect = checkNotNull(f).apply(innerEffect);
-          effects.add(checkNotNull(outerEffect));
-        }
+        Set<F> effects = mapInnerEffects(f, innerEffects);
 
         if (modelUpdated) {
           return Next.next(model, effects);
@@ -79,4 +76,25 @@ public class InnerEffectHandlers {
       }
     };
   }
+
+  /**
+   * Maps a set of inner effects to outer effects. Empty and singleton sets are mapped without
+   * allocating a HashSet, since they are by far the most common result of an update function.
+   */
+  static <F, FI> Set<F> mapInnerEffects(Function<FI, F> f, Set<FI> innerEffects) {
+    checkNotNull(f);
+
+    switch (innerEffects.size()) {
+      case 0:
+        return Collections.emptySet();
+      case 1:
+        return Collections.singleton(checkNotNull(f.apply(innerEffects.iterator().next())));
+      default:
+        Set<F> effects = new HashSet<>();
+        for (FI innerEffect : innerEffects) {
+          effects.add(checkNotNull(f.apply(innerEffect)));
+        }
+        return effects;
+    }
+  }
 }
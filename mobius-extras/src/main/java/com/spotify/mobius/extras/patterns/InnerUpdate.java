@@ -98,6 +98,15 @@ public abstract class InnerUpdate<M, E, F, MI, EI, FI> implements Update<M, E, F
      */
     public abstract Builder<M, E, F, MI, EI, FI> modelUpdater(BiFunction<M, MI, M> modelUpdater);
 
+    /**
+     * Sets both the model extractor and the model updater from a lens. Using a lens over persistent
+     * collections lets the inner update function work on a single element of a large model without
+     * copying the rest of it.
+     */
+    public Builder<M, E, F, MI, EI, FI> lens(Lens<M, MI> lens) {
+      return modelExtractor(lens.getter()).modelUpdater(lens.setter());
+    }
+
     /**
      * An inner effect handler that decides what to do with inner effects. The function is applied
      * after.
@@ -0,0 +1,147 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.patterns;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.extras.collections.PersistentMap;
+import com.spotify.mobius.extras.collections.PersistentVector;
+import com.spotify.mobius.functions.BiFunction;
+import com.spotify.mobius.functions.Function;
+import javax.annotation.Nonnull;
+
+/**
+ * A getter and setter pair that focuses on a part of an immutable model, for use with {@link
+ * InnerUpdate.Builder#lens(Lens)}.
+ *
+ * <p>Lenses compose with {@link #andThen(Lens)}, which makes it possible to update an element deep
+ * inside a model, such as a single track in a {@link PersistentVector} of a playlist, while only
+ * copying the path to that element. If a setter returns the same instance it was given, the
+ * enclosing structures are not copied either.
+ *
+ * @param <S> the type of the whole
+ * @param <A> the type of the part
+ */
+public final class Lens<S, A> {
+
+  private final Function<S, A> getter;
+  private final BiFunction<S, A, S> setter;
+
+  private Lens(Function<S, A> getter, BiFunction<S, A, S> setter) {
+    this.getter = checkNotNull(getter);
+    this.setter = checkNotNull(setter);
+  }
+
+  /** Creates a lens from a getter and a setter that returns a copy with the part replaced. */
+  public static <S, A> Lens<S, A> of(Function<S, A> getter, BiFunction<S, A, S> setter) {
+    return new Lens<>(getter, setter);
+  }
+
+  /** A lens that focuses on the element at {@code index} of a vector. */
+  public static <T> Lens<PersistentVector<T>, T> vectorElement(final int index) {
+    return of(
+        new Function<PersistentVector<T>, T>() {
+          @Nonnull
+          @Override
+          public T apply(PersistentVector<T> vector) {
+            return vector.get(index);
+          }
+        },
+        new BiFunction<PersistentVector<T>, T, PersistentVector<T>>() {
+          @Nonnull
+          @Override
+          public PersistentVector<T> apply(PersistentVector<T> vector, T element) {
+            return vector.with(index, element);
+          }
+        });
+  }
+
+  /**
+   * A lens that focuses on the value for {@code key} in a map. Getting the value throws an {@link
+   * IllegalArgumentException} if there is no entry for the key.
+   */
+  public static <K, V> Lens<PersistentMap<K, V>, V> mapValue(final K key) {
+    checkNotNull(key);
+
+    return of(
+        new Function<PersistentMap<K, V>, V>() {
+          @Nonnull
+          @Override
+          public V apply(PersistentMap<K, V> map) {
+            V value = map.get(key);
+            if (value == null) {
+              throw new IllegalArgumentException("No entry for key: " + key);
+            }
+            return value;
+          }
+        },
+        new BiFunction<PersistentMap<K, V>, V, PersistentMap<K, V>>() {
+          @Nonnull
+          @Override
+          public PersistentMap<K, V> apply(PersistentMap<K, V> map, V value) {
+            return map.plus(key, value);
+          }
+        });
+  }
+
+  public A get(S whole) {
+    return checkNotNull(getter.apply(whole));
+  }
+
+  public S set(S whole, A part) {
+    return checkNotNull(setter.apply(whole, part));
+  }
+
+  /** Replaces the part with the result of applying {@code function} to it. */
+  public S modify(S whole, Function<A, A> function) {
+    return set(whole, function.apply(get(whole)));
+  }
+
+  /** Returns a lens that focuses on a part of the part that this lens focuses on. */
+  public <B> Lens<S, B> andThen(final Lens<A, B> inner) {
+    checkNotNull(inner);
+
+    return of(
+        new Function<S, B>() {
+          @Nonnull
+          @Override
+          public B apply(S whole) {
+            return inner.get(get(whole));
+          }
+        },
+        new BiFunction<S, B, S>() {
+          @Nonnull
+          @Override
+          public S apply(S whole, B part) {
+            A oldPart = get(whole);
+            A newPart = inner.set(oldPart, part);
+            return newPart == oldPart ? whole : set(whole, newPart);
+          }
+        });
+  }
+
+  public Function<S, A> getter() {
+    return getter;
+  }
+
+  public BiFunction<S, A, S> setter() {
+    return setter;
+  }
+}
@@ -0,0 +1,228 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.patterns;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.google.auto.value.AutoValue;
+import com.spotify.mobius.Next;
+import com.spotify.mobius.Update;
+import com.spotify.mobius.extras.collections.PersistentMap;
+import com.spotify.mobius.functions.Function;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import javax.annotation.Nonnull;
+
+/**
+ * An update function for models made up of many independent sub-models, such as per-tab or per-item
+ * state, kept in a {@link PersistentMap} inside the outer model.
+ *
+ * <p>Each outer event is turned into a list of inner events, and each inner event is routed to the
+ * sub-model for its key. When the events of one outer event touch several partitions, the inner
+ * update function runs for each partition in parallel on a {@link ForkJoinPool}; the events for a
+ * single partition are always applied in order, on one thread. Since update functions must be pure,
+ * this gives the same result as running them serially.
+ *
+ * <p>Results are merged deterministically: partitions are written back to the outer model, and
+ * their effects are passed to the {@link InnerEffectHandler}, in the order in which each partition
+ * was first touched by the inner events.
+ *
+ * @param <M> the outer model type
+ * @param <E> the outer event type
+ * @param <F> the outer effect type
+ * @param <K> the partition key type
+ * @param <MI> the inner model type
+ * @param <EI> the inner event type
+ * @param <FI> the inner effect type
+ */
+@AutoValue
+public abstract class PartitionedUpdate<M, E, F, K, MI, EI, FI> implements Update<M, E, F> {
+
+  protected abstract Update<MI, EI, FI> innerUpdate();
+
+  protected abstract Lens<M, PersistentMap<K, MI>> partitions();
+
+  protected abstract Function<E, List<EI>> eventExtractor();
+
+  protected abstract Function<EI, K> keyExtractor();
+
+  protected abstract InnerEffectHandler<M, F, FI> innerEffectHandler();
+
+  protected abstract ForkJoinPool pool();
+
+  protected abstract int parallelismThreshold();
+
+  @Nonnull
+  @Override
+  public final Next<M, F> update(M model, E event) {
+    PersistentMap<K, MI> partitions = partitions().get(model);
+    List<EI> innerEvents = checkNotNull(eventExtractor().apply(event));
+
+    final List<Partition<K, MI, EI, FI>> touched = partition(partitions, innerEvents);
+
+    if (touched.size() < parallelismThreshold()) {
+      for (Partition<K, MI, EI, FI> partition : touched) {
+        partition.run(innerUpdate());
+      }
+    } else {
+      pool()
+          .invoke(
+              new RecursiveAction() {
+                @Override
+                protected void compute() {
+                  List<RecursiveAction> tasks = new ArrayList<>(touched.size());
+                  for (Partition<K, MI, EI, FI> partition : touched) {
+                    tasks.add(partition.task(innerUpdate()));
+                  }
+                  invokeAll(tasks);
+                }
+              });
+    }
+
+    PersistentMap<K, MI> newPartitions = partitions;
+    Set<FI> effects = new LinkedHashSet<>();
+
+    for (Partition<K, MI, EI, FI> partition : touched) {
+      newPartitions = newPartitions.plus(partition.key, partition.model);
+      effects.addAll(partition.effects);
+    }
+
+    boolean modelUpdated = newPartitions != partitions;
+    M newModel = modelUpdated ? partitions().set(model, newPartitions) : model;
+
+    return checkNotNull(innerEffectHandler().handleInnerEffects(newModel, modelUpdated, effects));
+  }
+
+  private List<Partition<K, MI, EI, FI>> partition(
+      PersistentMap<K, MI> partitions, List<EI> innerEvents) {
+    Map<K, Partition<K, MI, EI, FI>> byKey = new LinkedHashMap<>();
+
+    for (EI innerEvent : innerEvents) {
+      K key = checkNotNull(keyExtractor().apply(checkNotNull(innerEvent)));
+      Partition<K, MI, EI, FI> partition = byKey.get(key);
+
+      if (partition == null) {
+        MI innerModel = partitions.get(key);
+        if (innerModel == null) {
+          throw new IllegalArgumentException("No partition for key: " + key);
+        }
+        partition = new Partition<>(key, innerModel);
+        byKey.put(key, partition);
+      }
+
+      partition.events.add(innerEvent);
+    }
+
+    return new ArrayList<>(byKey.values());
+  }
+
+  public static <M, E, F, K, MI, EI, FI> Builder<M, E, F, K, MI, EI, FI> builder() {
+    return new AutoValue_PartitionedUpdate.Builder<M, E, F, K, MI, EI, FI>()
+        .pool(DefaultPool.INSTANCE)
+        .parallelismThreshold(2);
+  }
+
+  @AutoValue.Builder
+  public abstract static class Builder<M, E, F, K, MI, EI, FI> {
+    /** The update function for a single partition. Must be pure, as it may run concurrently. */
+    public abstract Builder<M, E, F, K, MI, EI, FI> innerUpdate(Update<MI, EI, FI> innerUpdate);
+
+    /** A lens for the map of partitions inside the outer model. */
+    public abstract Builder<M, E, F, K, MI, EI, FI> partitions(
+        Lens<M, PersistentMap<K, MI>> partitions);
+
+    /** A function that extracts the inner events from an outer event. */
+    public abstract Builder<M, E, F, K, MI, EI, FI> eventExtractor(
+        Function<E, List<EI>> eventExtractor);
+
+    /**
+     * A function that returns the key of the partition an inner event belongs to. Events for keys
+     * that have no partition in the model cause an {@link IllegalArgumentException}.
+     */
+    public abstract Builder<M, E, F, K, MI, EI, FI> keyExtractor(Function<EI, K> keyExtractor);
+
+    /** An inner effect handler that decides what to do with the effects of all partitions. */
+    public abstract Builder<M, E, F, K, MI, EI, FI> innerEffectHandler(
+        InnerEffectHandler<M, F, FI> innerEffectHandler);
+
+    /** The pool to run partitions on. Defaults to a pool shared by all partitioned updates. */
+    public abstract Builder<M, E, F, K, MI, EI, FI> pool(ForkJoinPool pool);
+
+    /**
+     * The minimum number of partitions an event has to touch for them to be updated in parallel.
+     * Defaults to 2; for cheap update functions, a higher value avoids paying for the hand-off to
+     * the pool when there's little work to share.
+     */
+    public abstract Builder<M, E, F, K, MI, EI, FI> parallelismThreshold(int threshold);
+
+    abstract PartitionedUpdate<M, E, F, K, MI, EI, FI> autoBuild();
+
+    public PartitionedUpdate<M, E, F, K, MI, EI, FI> build() {
+      PartitionedUpdate<M, E, F, K, MI, EI, FI> update = autoBuild();
+      if (update.parallelismThreshold() < 1) {
+        throw new IllegalArgumentException(
+            "parallelismThreshold must be at least 1: " + update.parallelismThreshold());
+      }
+      return update;
+    }
+  }
+
+  /** The events for one partition, and the result of applying them. */
+  private static final class Partition<K, MI, EI, FI> {
+    final K key;
+    final List<EI> events = new ArrayList<>();
+    final Set<FI> effects = new LinkedHashSet<>();
+    MI model;
+
+    Partition(K key, MI model) {
+      this.key = key;
+      this.model = model;
+    }
+
+    void run(Update<MI, EI, FI> update) {
+      for (EI event : events) {
+        Next<MI, FI> next = checkNotNull(update.update(model, event));
+        if (next.hasModel()) {
+          model = next.modelUnsafe();
+        }
+        effects.addAll(next.effects());
+      }
+    }
+
+    RecursiveAction task(final Update<MI, EI, FI> update) {
+      return new RecursiveAction() {
+        @Override
+        protected void compute() {
+          run(update);
+        }
+      };
+    }
+  }
+
+  private static final class DefaultPool {
+    static final ForkJoinPool INSTANCE = new ForkJoinPool();
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.supervisor;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.runners.WorkRunner;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** A {@link WorkRunner} that keeps track of how many posted runnables haven't completed yet. */
+class CountingWorkRunner implements WorkRunner {
+
+  private final WorkRunner delegate;
+  private final AtomicLong pending = new AtomicLong();
+
+  CountingWorkRunner(WorkRunner delegate) {
+    this.delegate = checkNotNull(delegate);
+  }
+
+  @Override
+  public void post(final Runnable runnable) {
+    pending.incrementAndGet();
+    delegate.post(
+        new Runnable() {
+          @Override
+          public void run() {
+            try {
+              runnable.run();
+            } finally {
+              pending.decrementAndGet();
+            }
+          }
+        });
+  }
+
+  long pending() {
+    return pending.get();
+  }
+
+  @Override
+  public void dispose() {
+    delegate.dispose();
+  }
+}
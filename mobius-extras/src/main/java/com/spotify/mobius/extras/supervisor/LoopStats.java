@@ -0,0 +1,78 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.supervisor;
+
+import com.google.auto.value.AutoValue;
+
+/**
+ * A snapshot of the health and resource usage of a loop managed by a {@link LoopSupervisor}.
+ *
+ * @param <K> the loop key type
+ */
+@AutoValue
+public abstract class LoopStats<K> {
+
+  /** @return the key of the loop */
+  public abstract K key();
+
+  /** @return the number of events and init calls waiting to be processed by the loop */
+  public abstract long queueDepth();
+
+  /** @return the total number of events processed since the loop was first started */
+  public abstract long eventsProcessed();
+
+  /** @return the rate at which events were processed during the last measurement window */
+  public abstract double eventsPerSecond();
+
+  /**
+   * @return the number of bytes estimated by the supervisor's {@link MemoryEstimator}, or used by
+   *     the {@link ModelStore} if the loop is passivated, or a negative number if unknown
+   */
+  public abstract long estimatedMemoryBytes();
+
+  /** @return the time since an event was last dispatched to or processed by the loop */
+  public abstract long idleMillis();
+
+  /** @return the number of times the loop has been restarted after a failure */
+  public abstract int restarts();
+
+  /** @return true if the loop is passivated, meaning only its model is being kept */
+  public abstract boolean passivated();
+
+  static <K> LoopStats<K> create(
+      K key,
+      long queueDepth,
+      long eventsProcessed,
+      double eventsPerSecond,
+      long estimatedMemoryBytes,
+      long idleMillis,
+      int restarts,
+      boolean passivated) {
+    return new AutoValue_LoopStats<>(
+        key,
+        queueDepth,
+        eventsProcessed,
+        eventsPerSecond,
+        estimatedMemoryBytes,
+        idleMillis,
+        restarts,
+        passivated);
+  }
+}
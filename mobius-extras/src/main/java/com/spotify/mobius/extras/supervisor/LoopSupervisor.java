@@ -0,0 +1,1007 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.supervisor;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.First;
+import com.spotify.mobius.MobiusLoop;
+import com.spotify.mobius.Next;
+import com.spotify.mobius.disposables.Disposable;
+import com.spotify.mobius.functions.Consumer;
+import com.spotify.mobius.functions.Producer;
+import com.spotify.mobius.runners.WorkRunner;
+import com.spotify.mobius.runners.WorkRunners;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Manages a set of {@link MobiusLoop}s identified by keys, for instance one loop per session or per
+ * request.
+ *
+ * <p>The supervisor keeps track of the live loops and can report on their health and resource usage
+ * through {@link #stats(Object)}. It bounds the number of live loops, evicting the least recently
+ * used loop when the bound is exceeded, and can evict loops that have been idle for longer than a
+ * timeout through {@link #evictIdle()}. The most recent model of an evicted loop is handed to the
+ * {@link Listener}, so that the loop can be started again from it later.
+ *
+ * <p>To support a large number of mostly idle loops, loops can also be passivated, either when they
+ * have been idle for longer than a timeout through {@link #passivateIdle()}, or when the number of
+ * active loops exceeds a bound. A passivated loop keeps nothing but its model, which is held by a
+ * {@link ModelStore}; its runners, effect handler connection and event source subscription are
+ * disposed. The loop is transparently restarted from the stored model when it next receives an
+ * event, which means that its {@link com.spotify.mobius.Init} function runs again.
+ *
+ * <p>If the {@link com.spotify.mobius.Update} or {@link com.spotify.mobius.Init} function of a loop
+ * throws, the supervisor consults its {@link RestartStrategy}. The loop is then either restarted
+ * from its most recent model, or stopped. Observers registered through {@link #observe(Object,
+ * Consumer)} stay connected across restarts.
+ *
+ * <p>The supervisor replaces the logger, event runner and effect runner of the {@link
+ * MobiusLoop.Builder} it is given in order to instrument the loops; use {@link
+ * Builder#logger(MobiusLoop.Logger)}, {@link Builder#eventRunner(Producer)} and {@link
+ * Builder#effectRunner(Producer)} to configure them instead. A loop only counts as idle when
+ * neither runner has work pending; effect handlers that complete their work asynchronously, off the
+ * effect runner, aren't seen by the supervisor, so such loops may be passivated or evicted while
+ * that work is in flight.
+ *
+ * @param <K> the loop key type
+ * @param <M> the model type
+ * @param <E> the event type
+ * @param <F> the effect type
+ */
+public final class LoopSupervisor<K, M, E, F> implements Disposable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(LoopSupervisor.class);
+
+  private static final long RATE_WINDOW_MILLIS = TimeUnit.SECONDS.toMillis(1);
+
+  private final MobiusLoop.Builder<M, E, F> loopBuilder;
+  @Nullable private final MobiusLoop.Logger<M, E, F> logger;
+  private final Producer<WorkRunner> eventRunner;
+  private final Producer<WorkRunner> effectRunner;
+  private final WorkRunner supervisionRunner;
+  private final int maxLoops;
+  private final long idleTimeoutMillis;
+  private final int maxActiveLoops;
+  private final long passivationTimeoutMillis;
+  private final ModelStore<M> modelStore;
+  private final RestartStrategy restartStrategy;
+  private final Listener<K, M> listener;
+  private final MemoryEstimator<M> memoryEstimator;
+  private final Clock clock;
+
+  // concurrency note: guarded by 'this'. The map is access-ordered, so iteration starts at the
+  // least recently used loop.
+  private final LinkedHashMap<K, Entry> loops = new LinkedHashMap<>(16, 0.75f, true);
+  private final LinkedHashMap<K, Entry> active = new LinkedHashMap<>(16, 0.75f, true);
+  private boolean disposed;
+
+  private LoopSupervisor(Builder<K, M, E, F> builder) {
+    this.loopBuilder = builder.loopBuilder;
+    this.logger = builder.logger;
+    this.eventRunner = builder.eventRunner;
+    this.effectRunner = builder.effectRunner;
+    this.supervisionRunner = builder.supervisionRunner.get();
+    this.maxLoops = builder.maxLoops;
+    this.idleTimeoutMillis = builder.idleTimeoutMillis;
+    this.maxActiveLoops = builder.maxActiveLoops;
+    this.passivationTimeoutMillis = builder.passivationTimeoutMillis;
+    this.modelStore = builder.modelStore;
+    this.restartStrategy = builder.restartStrategy;
+    this.listener = builder.listener;
+    this.memoryEstimator = builder.memoryEstimator;
+    this.clock = builder.clock;
+  }
+
+  /**
+   * Create a {@link Builder} for a supervisor of loops created from the supplied loop builder.
+   *
+   * @param loopBuilder the builder to create loops from
+   */
+  public static <K, M, E, F> Builder<K, M, E, F> builder(MobiusLoop.Builder<M, E, F> loopBuilder) {
+    return new Builder<>(checkNotNull(loopBuilder));
+  }
+
+  /**
+   * Start a loop for the supplied key. If this makes the number of live loops exceed the configured
+   * maximum, the least recently used loop is evicted.
+   *
+   * @param key the key identifying the loop
+   * @param startModel the model to start the loop from
+   * @throws IllegalStateException if a loop is already running for the key, or the supervisor has
+   *     been disposed
+   */
+  public void start(K key, M startModel) {
+    checkNotNull(key);
+    checkNotNull(startModel);
+
+    List<Entry> evicted = new ArrayList<>();
+
+    synchronized (this) {
+      if (disposed) {
+        throw new IllegalStateException("This supervisor has already been disposed");
+      }
+      if (loops.containsKey(key)) {
+        throw new IllegalStateException("A loop is already running for key: " + key);
+      }
+
+      Entry entry = new Entry(key);
+      loops.put(key, entry);
+      active.put(key, entry);
+
+      // the entry can't be locked by anybody else yet, so taking its lock here can't deadlock
+      synchronized (entry) {
+        startLoop(entry, startModel);
+      }
+
+      Iterator<Entry> leastRecentlyUsed = loops.values().iterator();
+      while (loops.size() > maxLoops) {
+        Entry lru = leastRecentlyUsed.next();
+        leastRecentlyUsed.remove();
+        active.remove(lru.key);
+        evicted.add(lru);
+      }
+    }
+
+    evict(evicted);
+    passivateOverflow();
+  }
+
+  /** @return true if a loop is running for the supplied key, whether it is passivated or not */
+  public synchronized boolean isRunning(K key) {
+    return loops.containsKey(key);
+  }
+
+  /** @return true if a loop is running for the supplied key and isn't passivated */
+  public synchronized boolean isActive(K key) {
+    return active.containsKey(key);
+  }
+
+  /** @return the number of live loops, including passivated ones */
+  public synchronized int size() {
+    return loops.size();
+  }
+
+  /** @return the number of live loops that aren't passivated */
+  public synchronized int activeCount() {
+    return active.size();
+  }
+
+  /**
+   * Dispatch an event to the loop for the supplied key. If the loop is passivated, it is first
+   * reactivated from its stored model.
+   *
+   * @throws IllegalArgumentException if no loop is running for the key
+   */
+  public void dispatchEvent(K key, E event) {
+    checkNotNull(event);
+
+    Entry entry = entryFor(key);
+    boolean activated;
+
+    synchronized (entry) {
+      activated = entry.loop == null;
+      MobiusLoop<M, E, F> loop = activeLoop(entry);
+      entry.lastActivity = clock.millis();
+      loop.dispatchEvent(event);
+    }
+
+    if (activated) {
+      passivateOverflow();
+    }
+  }
+
+  /**
+   * Observe the models of the loop for the supplied key. The observer is immediately notified of
+   * the most recent model, if there is one, and stays connected if the loop is restarted or
+   * passivated.
+   *
+   * @return a {@link Disposable} that stops further notifications to the observer
+   * @throws IllegalArgumentException if no loop is running for the key
+   */
+  public Disposable observe(K key, final Consumer<M> observer) {
+    checkNotNull(observer);
+    final Entry entry = entryFor(key);
+
+    synchronized (entry) {
+      entry.observers.add(observer);
+      M current = entry.mostRecentModel();
+      if (current != null) {
+        observer.accept(current);
+      }
+    }
+
+    return new Disposable() {
+      @Override
+      public void dispose() {
+        entry.observers.remove(observer);
+      }
+    };
+  }
+
+  /**
+   * @return the most recent model of the loop for the supplied key, or null if no loop is running
+   *     for the key or it hasn't been initialised yet. The model of a passivated loop is restored
+   *     from the {@link ModelStore} without reactivating the loop.
+   */
+  @Nullable
+  public M getMostRecentModel(K key) {
+    Entry entry;
+    synchronized (this) {
+      entry = loops.get(key);
+    }
+    return entry == null ? null : entry.mostRecentModel();
+  }
+
+  /**
+   * Stop and forget the loop for the supplied key.
+   *
+   * @return the most recent model of the loop, or null if no loop was running for the key or it
+   *     hadn't been initialised yet
+   */
+  @Nullable
+  public M stop(K key) {
+    Entry entry;
+    synchronized (this) {
+      entry = loops.remove(key);
+      active.remove(key);
+    }
+    return entry == null ? null : stopLoop(entry, true);
+  }
+
+  /**
+   * Evict all loops that have been idle for longer than the configured idle timeout and have no
+   * pending work. This should be called periodically if an idle timeout has been configured.
+   *
+   * @return the number of evicted loops
+   */
+  public int evictIdle() {
+    List<Entry> evicted = new ArrayList<>();
+    long now = clock.millis();
+
+    synchronized (this) {
+      Iterator<Entry> iterator = loops.values().iterator();
+      while (iterator.hasNext()) {
+        Entry entry = iterator.next();
+        if (entry.isIdle(now, idleTimeoutMillis)) {
+          iterator.remove();
+          active.remove(entry.key);
+          evicted.add(entry);
+        }
+      }
+    }
+
+    evict(evicted);
+    return evicted.size();
+  }
+
+  /**
+   * Passivate all active loops that have been idle for longer than the configured passivation
+   * timeout and have no pending work. A passivated loop releases its runners, effect handler and
+   * event source, and keeps only its model in the configured {@link ModelStore}; it is reactivated
+   * from that model when it next receives an event. This should be called periodically if a
+   * passivation timeout has been configured.
+   *
+   * @return the number of passivated loops
+   */
+  public int passivateIdle() {
+    List<Entry> candidates;
+    synchronized (this) {
+      candidates = new ArrayList<>(active.values());
+    }
+
+    long now = clock.millis();
+    int passivated = 0;
+    for (Entry entry : candidates) {
+      if (passivate(entry, now, passivationTimeoutMillis)) {
+        passivated++;
+      }
+    }
+    return passivated;
+  }
+
+  /** @return statistics for the loop with the supplied key, or null if no loop is running for it */
+  @Nullable
+  public LoopStats<K> stats(K key) {
+    Entry entry;
+    synchronized (this) {
+      entry = loops.get(key);
+    }
+    return entry == null ? null : entry.stats(clock.millis());
+  }
+
+  /** @return statistics for all live loops, least recently used first */
+  public List<LoopStats<K>> stats() {
+    List<Entry> entries;
+    synchronized (this) {
+      entries = new ArrayList<>(loops.values());
+    }
+
+    long now = clock.millis();
+    List<LoopStats<K>> result = new ArrayList<>(entries.size());
+    for (Entry entry : entries) {
+      result.add(entry.stats(now));
+    }
+    return result;
+  }
+
+  /** Stop all loops and the supervisor. Stopped loops are not reported to the {@link Listener}. */
+  @Override
+  public void dispose() {
+    List<Entry> entries;
+    synchronized (this) {
+      disposed = true;
+      entries = new ArrayList<>(loops.values());
+      loops.clear();
+      active.clear();
+    }
+
+    for (Entry entry : entries) {
+      stopLoop(entry, false);
+    }
+    supervisionRunner.dispose();
+  }
+
+  private synchronized Entry entryFor(K key) {
+    Entry entry = loops.get(checkNotNull(key));
+    if (entry == null) {
+      throw new IllegalArgumentException("No loop is running for key: " + key);
+    }
+    // touch the entry so that it becomes the most recently used active loop
+    active.get(key);
+    return entry;
+  }
+
+  // must be called while holding the entry's lock
+  private MobiusLoop<M, E, F> activeLoop(Entry entry) {
+    if (entry.stopped) {
+      throw new IllegalArgumentException("No loop is running for key: " + entry.key);
+    }
+
+    if (entry.loop == null) {
+      startLoop(entry, entry.stored.restore());
+      entry.stored = null;
+
+      synchronized (this) {
+        active.put(entry.key, entry);
+      }
+    }
+
+    return entry.loop;
+  }
+
+  // must be called while holding the entry's lock
+  private void startLoop(final Entry entry, M model) {
+    final int generation = ++entry.generation;
+
+    MobiusLoop<M, E, F> loop =
+        loopBuilder
+            .logger(new SupervisingLogger(entry, generation))
+            .eventRunner(
+                new Producer<WorkRunner>() {
+                  @Nonnull
+                  @Override
+                  public WorkRunner get() {
+                    CountingWorkRunner runner = new CountingWorkRunner(eventRunner.get());
+                    entry.runner = runner;
+                    return runner;
+                  }
+                })
+            .effectRunner(
+                new Producer<WorkRunner>() {
+                  @Nonnull
+                  @Override
+                  public WorkRunner get() {
+                    CountingWorkRunner runner = new CountingWorkRunner(effectRunner.get());
+                    entry.effectRunner = runner;
+                    return runner;
+                  }
+                })
+            .startFrom(model);
+
+    loop.observe(new Forwarder(entry, generation));
+
+    entry.loop = loop;
+    entry.lastActivity = clock.millis();
+  }
+
+  // must be called without holding the supervisor's lock, since disposing a loop may block briefly
+  @Nullable
+  private M stopLoop(Entry entry, boolean needModel) {
+    synchronized (entry) {
+      entry.stopped = true;
+
+      MobiusLoop<M, E, F> loop = entry.loop;
+      if (loop == null) {
+        return needModel ? entry.stored.restore() : null;
+      }
+
+      M model = loop.getMostRecentModel();
+      loop.dispose();
+      return model;
+    }
+  }
+
+  // must be called without holding the supervisor's lock
+  private boolean passivate(Entry entry, long now, long minIdleMillis) {
+    synchronized (entry) {
+      MobiusLoop<M, E, F> loop = entry.loop;
+      if (entry.stopped
+          || loop == null
+          || loop.getMostRecentModel() == null
+          || !entry.isIdle(now, minIdleMillis)) {
+        return false;
+      }
+
+      // events are only dispatched while holding the entry's lock, so once the loop is disposed,
+      // its most recent model is final.
+      loop.dispose();
+      M model = loop.getMostRecentModel();
+
+      try {
+        entry.stored = modelStore.store(model);
+      } catch (RuntimeException e) {
+        LOGGER.error("Failed to store model of loop {}; keeping it active", entry.key, e);
+        startLoop(entry, model);
+        return false;
+      }
+
+      // bumping the generation makes sure that failures of the old loop are ignored
+      entry.generation++;
+      entry.loop = null;
+      entry.runner = null;
+      entry.effectRunner = null;
+
+      synchronized (this) {
+        if (active.get(entry.key) == entry) {
+          active.remove(entry.key);
+        }
+      }
+      return true;
+    }
+  }
+
+  private void passivateOverflow() {
+    List<Entry> overflow;
+
+    synchronized (this) {
+      int excess = active.size() - maxActiveLoops;
+      if (excess <= 0) {
+        return;
+      }
+
+      overflow = new ArrayList<>(excess);
+      Iterator<Entry> leastRecentlyUsed = active.values().iterator();
+      while (overflow.size() < excess) {
+        overflow.add(leastRecentlyUsed.next());
+      }
+    }
+
+    long now = clock.millis();
+    for (Entry entry : overflow) {
+      passivate(entry, now, 0);
+    }
+  }
+
+  private void evict(List<Entry> entries) {
+    for (Entry entry : entries) {
+      M model = stopLoop(entry, true);
+      if (model != null) {
+        listener.onEvicted(entry.key, model);
+      }
+    }
+  }
+
+  private void onFailure(
+      final Entry entry, final int generation, final M failedModel, final Throwable cause) {
+    // restarting means disposing the failed loop, which mustn't be done from the loop's own event
+    // thread, so the decision is deferred to the supervision runner.
+    supervisionRunner.post(
+        new Runnable() {
+          @Override
+          public void run() {
+            handleFailure(entry, generation, failedModel, cause);
+          }
+        });
+  }
+
+  private void handleFailure(Entry entry, int generation, M failedModel, Throwable cause) {
+    M model;
+    boolean restart;
+    MobiusLoop<M, E, F> failedLoop;
+
+    synchronized (entry) {
+      if (entry.stopped || entry.loop == null || entry.generation != generation) {
+        // already evicted, stopped, passivated or restarted
+        return;
+      }
+
+      M mostRecent = entry.loop.getMostRecentModel();
+      model = mostRecent != null ? mostRecent : failedModel;
+      restart = restartStrategy.shouldRestart(entry.restarts, cause);
+      failedLoop = entry.loop;
+
+      if (restart) {
+        entry.restarts++;
+        startLoop(entry, model);
+      } else {
+        entry.stopped = true;
+        synchronized (this) {
+          if (loops.get(entry.key) == entry) {
+            loops.remove(entry.key);
+            active.remove(entry.key);
+          }
+        }
+      }
+    }
+
+    failedLoop.dispose();
+
+    if (restart) {
+      LOGGER.warn("Restarted loop {} after failure", entry.key, cause);
+      listener.onRestarted(entry.key, model, cause);
+    } else {
+      LOGGER.error("Stopped loop {} after failure", entry.key, cause);
+      listener.onStopped(entry.key, model, cause);
+    }
+  }
+
+  /**
+   * Receives notifications about loops that the supervisor stops of its own accord.
+   *
+   * @param <K> the loop key type
+   * @param <M> the model type
+   */
+  public interface Listener<K, M> {
+
+    /**
+     * Called after a loop has been evicted because it was idle or least recently used.
+     *
+     * @param key the key of the evicted loop
+     * @param model the most recent model of the loop, from which it can later be restarted
+     */
+    void onEvicted(K key, M model);
+
+    /**
+     * Called after a loop has been restarted because its update or init function threw.
+     *
+     * @param key the key of the restarted loop
+     * @param model the model the loop was restarted from
+     * @param cause the exception thrown
+     */
+    void onRestarted(K key, M model, Throwable cause);
+
+    /**
+     * Called after a loop has been stopped because its update or init function threw, and the
+     * {@link RestartStrategy} decided not to restart it.
+     *
+     * @param key the key of the stopped loop
+     * @param model the most recent model of the loop
+     * @param cause the exception thrown
+     */
+    void onStopped(K key, M model, Throwable cause);
+  }
+
+  /**
+   * A builder for {@link LoopSupervisor} instances. Builders are immutable and can be shared
+   * between threads.
+   */
+  public static final class Builder<K, M, E, F> {
+
+    private MobiusLoop.Builder<M, E, F> loopBuilder;
+    @Nullable private MobiusLoop.Logger<M, E, F> logger;
+    private Producer<WorkRunner> eventRunner;
+    private Producer<WorkRunner> effectRunner;
+    private Producer<WorkRunner> supervisionRunner;
+    private int maxLoops;
+    private long idleTimeoutMillis;
+    private int maxActiveLoops;
+    private long passivationTimeoutMillis;
+    private ModelStore<M> modelStore;
+    private RestartStrategy restartStrategy;
+    private Listener<K, M> listener;
+    private MemoryEstimator<M> memoryEstimator;
+    private Clock clock;
+
+    private Builder(MobiusLoop.Builder<M, E, F> loopBuilder) {
+      this.loopBuilder = loopBuilder;
+      this.eventRunner =
+          new Producer<WorkRunner>() {
+            @Nonnull
+            @Override
+            public WorkRunner get() {
+              return WorkRunners.singleThread();
+            }
+          };
+      this.effectRunner =
+          new Producer<WorkRunner>() {
+            @Nonnull
+            @Override
+            public WorkRunner get() {
+              return WorkRunners.cachedThreadPool();
+            }
+          };
+      this.supervisionRunner = eventRunner;
+      this.maxLoops = Integer.MAX_VALUE;
+      this.idleTimeoutMillis = Long.MAX_VALUE;
+      this.maxActiveLoops = Integer.MAX_VALUE;
+      this.passivationTimeoutMillis = Long.MAX_VALUE;
+      this.modelStore = ModelStores.onHeap();
+      this.restartStrategy = RestartStrategies.never();
+      this.listener = new NoopListener<>();
+      this.memoryEstimator =
+          new MemoryEstimator<M>() {
+            @Override
+            public long estimateBytes(M model) {
+              return -1;
+            }
+          };
+      this.clock = Clock.SYSTEM;
+    }
+
+    private Builder(Builder<K, M, E, F> other) {
+      this.loopBuilder = other.loopBuilder;
+      this.logger = other.logger;
+      this.eventRunner = other.eventRunner;
+      this.effectRunner = other.effectRunner;
+      this.supervisionRunner = other.supervisionRunner;
+      this.maxLoops = other.maxLoops;
+      this.idleTimeoutMillis = other.idleTimeoutMillis;
+      this.maxActiveLoops = other.maxActiveLoops;
+      this.passivationTimeoutMillis = other.passivationTimeoutMillis;
+      this.modelStore = other.modelStore;
+      this.restartStrategy = other.restartStrategy;
+      this.listener = other.listener;
+      this.memoryEstimator = other.memoryEstimator;
+      this.clock = other.clock;
+    }
+
+    /** @return a new builder that also logs to the supplied logger */
+    public Builder<K, M, E, F> logger(MobiusLoop.Logger<M, E, F> logger) {
+      Builder<K, M, E, F> result = new Builder<>(this);
+      result.logger = checkNotNull(logger);
+      return result;
+    }
+
+    /**
+     * @return a new builder that uses event runners from the supplied producer; the default is a
+     *     single-threaded runner per loop
+     */
+    public Builder<K, M, E, F> eventRunner(Producer<WorkRunner> eventRunner) {
+      Builder<K, M, E, F> result = new Builder<>(this);
+      result.eventRunner = checkNotNull(eventRunner);
+      return result;
+    }
+
+    /**
+     * @return a new builder that uses effect runners from the supplied producer; the default is a
+     *     cached thread pool per loop
+     */
+    public Builder<K, M, E, F> effectRunner(Producer<WorkRunner> effectRunner) {
+      Builder<K, M, E, F> result = new Builder<>(this);
+      result.effectRunner = checkNotNull(effectRunner);
+      return result;
+    }
+
+    /**
+     * @return a new builder that uses a runner from the supplied producer for restarting failed
+     *     loops; the runner must not be the event runner of a supervised loop
+     */
+    public Builder<K, M, E, F> supervisionRunner(Producer<WorkRunner> supervisionRunner) {
+      Builder<K, M, E, F> result = new Builder<>(this);
+      result.supervisionRunner = checkNotNull(supervisionRunner);
+      return result;
+    }
+
+    /**
+     * @return a new builder that evicts the least recently used loop when more than the supplied
+     *     number of loops are live
+     */
+    public Builder<K, M, E, F> maxLoops(int maxLoops) {
+      if (maxLoops < 1) {
+        throw new IllegalArgumentException("maxLoops must be positive: " + maxLoops);
+      }
+      Builder<K, M, E, F> result = new Builder<>(this);
+      result.maxLoops = maxLoops;
+      return result;
+    }
+
+    /**
+     * @return a new builder where {@link LoopSupervisor#evictIdle()} evicts loops that have been
+     *     idle for at least the supplied time
+     */
+    public Builder<K, M, E, F> idleTimeout(long idleTimeout, TimeUnit unit) {
+      if (idleTimeout < 0) {
+        throw new IllegalArgumentException("idleTimeout must not be negative: " + idleTimeout);
+      }
+      Builder<K, M, E, F> result = new Builder<>(this);
+      result.idleTimeoutMillis = unit.toMillis(idleTimeout);
+      return result;
+    }
+
+    /**
+     * @return a new builder that passivates the least recently used active loop when more than the
+     *     supplied number of loops are active. Loops with pending work are never passivated, so
+     *     this is a soft limit.
+     */
+    public Builder<K, M, E, F> maxActiveLoops(int maxActiveLoops) {
+      if (maxActiveLoops < 1) {
+        throw new IllegalArgumentException("maxActiveLoops must be positive: " + maxActiveLoops);
+      }
+      Builder<K, M, E, F> result = new Builder<>(this);
+      result.maxActiveLoops = maxActiveLoops;
+      return result;
+    }
+
+    /**
+     * @return a new builder where {@link LoopSupervisor#passivateIdle()} passivates loops that have
+     *     been idle for at least the supplied time
+     */
+    public Builder<K, M, E, F> passivateAfter(long passivationTimeout, TimeUnit unit) {
+      if (passivationTimeout < 0) {
+        throw new IllegalArgumentException(
+            "passivationTimeout must not be negative: " + passivationTimeout);
+      }
+      Builder<K, M, E, F> result = new Builder<>(this);
+      result.passivationTimeoutMillis = unit.toMillis(passivationTimeout);
+      return result;
+    }
+
+    /**
+     * @return a new builder that keeps the models of passivated loops in the supplied store; the
+     *     default keeps them {@link ModelStores#onHeap() on the heap}
+     */
+    public Builder<K, M, E, F> modelStore(ModelStore<M> modelStore) {
+      Builder<K, M, E, F> result = new Builder<>(this);
+      result.modelStore = checkNotNull(modelStore);
+      return result;
+    }
+
+    /** @return a new builder with the supplied restart strategy; the default never restarts */
+    public Builder<K, M, E, F> restartStrategy(RestartStrategy restartStrategy) {
+      Builder<K, M, E, F> result = new Builder<>(this);
+      result.restartStrategy = checkNotNull(restartStrategy);
+      return result;
+    }
+
+    /** @return a new builder that notifies the supplied listener of evictions and failures */
+    public Builder<K, M, E, F> listener(Listener<K, M> listener) {
+      Builder<K, M, E, F> result = new Builder<>(this);
+      result.listener = checkNotNull(listener);
+      return result;
+    }
+
+    /** @return a new builder that uses the supplied estimator when reporting memory usage */
+    public Builder<K, M, E, F> memoryEstimator(MemoryEstimator<M> memoryEstimator) {
+      Builder<K, M, E, F> result = new Builder<>(this);
+      result.memoryEstimator = checkNotNull(memoryEstimator);
+      return result;
+    }
+
+    Builder<K, M, E, F> clock(Clock clock) {
+      Builder<K, M, E, F> result = new Builder<>(this);
+      result.clock = checkNotNull(clock);
+      return result;
+    }
+
+    public LoopSupervisor<K, M, E, F> build() {
+      return new LoopSupervisor<>(this);
+    }
+  }
+
+  private final class Entry {
+
+    private final K key;
+    private final List<Consumer<M>> observers = new CopyOnWriteArrayList<>();
+    private final AtomicLong eventsProcessed = new AtomicLong();
+
+    // written while holding the entry's lock
+    private volatile int generation;
+    private int restarts;
+
+    // written while holding the entry's lock; 'loop' is null while the loop is passivated, and
+    // 'stored' is null while it is active
+    @Nullable private volatile MobiusLoop<M, E, F> loop;
+    @Nullable private volatile CountingWorkRunner runner;
+    @Nullable private volatile CountingWorkRunner effectRunner;
+    @Nullable private ModelStore.Stored<M> stored;
+    private boolean stopped;
+    private volatile long lastActivity;
+
+    // guarded by 'this'
+    private long sampleTime;
+    private long sampleCount;
+    private double eventsPerSecond;
+
+    private Entry(K key) {
+      this.key = key;
+      this.sampleTime = clock.millis();
+    }
+
+    void eventProcessed() {
+      eventsProcessed.incrementAndGet();
+      lastActivity = clock.millis();
+    }
+
+    long pending() {
+      CountingWorkRunner current = runner;
+      return current == null ? 0 : current.pending();
+    }
+
+    long pendingEffects() {
+      CountingWorkRunner current = effectRunner;
+      return current == null ? 0 : current.pending();
+    }
+
+    // effects still running may emit events, which would be lost if the loop were disposed
+    boolean isIdle(long now, long minIdleMillis) {
+      return pending() == 0 && pendingEffects() == 0 && now - lastActivity >= minIdleMillis;
+    }
+
+    @Nullable
+    synchronized M mostRecentModel() {
+      if (loop != null) {
+        return loop.getMostRecentModel();
+      }
+      return stored == null ? null : stored.restore();
+    }
+
+    synchronized LoopStats<K> stats(long now) {
+      long memory;
+      if (loop != null) {
+        M model = loop.getMostRecentModel();
+        memory = model == null ? -1 : memoryEstimator.estimateBytes(model);
+      } else if (stored != null && stored.sizeBytes() >= 0) {
+        memory = stored.sizeBytes();
+      } else {
+        M model = mostRecentModel();
+        memory = model == null ? -1 : memoryEstimator.estimateBytes(model);
+      }
+
+      return LoopStats.create(
+          key,
+          pending(),
+          eventsProcessed.get(),
+          eventsPerSecond(now),
+          memory,
+          Math.max(0, now - lastActivity),
+          restarts,
+          loop == null);
+    }
+
+    private synchronized double eventsPerSecond(long now) {
+      long elapsed = now - sampleTime;
+      long count = eventsProcessed.get();
+
+      if (elapsed >= RATE_WINDOW_MILLIS) {
+        eventsPerSecond = (count - sampleCount) * 1000.0 / elapsed;
+        sampleTime = now;
+        sampleCount = count;
+        return eventsPerSecond;
+      }
+
+      if (sampleCount == 0 && elapsed > 0) {
+        // no complete window yet
+        return count * 1000.0 / elapsed;
+      }
+
+      return eventsPerSecond;
+    }
+  }
+
+  private final class SupervisingLogger implements MobiusLoop.Logger<M, E, F> {
+
+    private final Entry entry;
+    private final int generation;
+
+    private SupervisingLogger(Entry entry, int generation) {
+      this.entry = entry;
+      this.generation = generation;
+    }
+
+    @Override
+    public void beforeInit(M model) {
+      if (logger != null) {
+        logger.beforeInit(model);
+      }
+    }
+
+    @Override
+    public void afterInit(M model, First<M, F> result) {
+      if (logger != null) {
+        logger.afterInit(model, result);
+      }
+    }
+
+    @Override
+    public void exceptionDuringInit(M model, Throwable exception) {
+      if (logger != null) {
+        logger.exceptionDuringInit(model, exception);
+      }
+      onFailure(entry, generation, model, exception);
+    }
+
+    @Override
+    public void beforeUpdate(M model, E event) {
+      entry.eventProcessed();
+      if (logger != null) {
+        logger.beforeUpdate(model, event);
+      }
+    }
+
+    @Override
+    public void afterUpdate(M model, E event, Next<M, F> result) {
+      if (logger != null) {
+        logger.afterUpdate(model, event, result);
+      }
+    }
+
+    @Override
+    public void exceptionDuringUpdate(M model, E event, Throwable exception) {
+      if (logger != null) {
+        logger.exceptionDuringUpdate(model, event, exception);
+      }
+      onFailure(entry, generation, model, exception);
+    }
+  }
+
+  /** Forwards models to the observers of an entry, as long as the loop hasn't been replaced. */
+  private final class Forwarder implements Consumer<M> {
+
+    private final Entry entry;
+    private final int generation;
+
+    private Forwarder(Entry entry, int generation) {
+      this.entry = entry;
+      this.generation = generation;
+    }
+
+    @Override
+    public void accept(M model) {
+      if (entry.generation != generation) {
+        return;
+      }
+      for (Consumer<M> observer : entry.observers) {
+        observer.accept(model);
+      }
+    }
+  }
+
+  private static final class NoopListener<K, M> implements Listener<K, M> {
+    @Override
+    public void onEvicted(K key, M model) {}
+
+    @Override
+    public void onRestarted(K key, M model, Throwable cause) {}
+
+    @Override
+    public void onStopped(K key, M model, Throwable cause) {}
+  }
+}
@@ -0,0 +1,34 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.supervisor;
+
+/**
+ * Estimates the memory used by a loop, based on its model.
+ *
+ * @param <M> the model type
+ */
+public interface MemoryEstimator<M> {
+
+  /**
+   * @param model the most recent model of the loop
+   * @return the estimated number of bytes retained by the loop, or a negative number if unknown
+   */
+  long estimateBytes(M model);
+}
@@ -0,0 +1,50 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.supervisor;
+
+/**
+ * Holds on to the model of a passivated loop until the loop is reactivated.
+ *
+ * @param <M> the model type
+ */
+public interface ModelStore<M> {
+
+  /**
+   * Store the supplied model.
+   *
+   * @param model the most recent model of a loop that is being passivated
+   * @return a handle from which the model can be restored
+   */
+  Stored<M> store(M model);
+
+  /**
+   * A model held by a {@link ModelStore}.
+   *
+   * @param <M> the model type
+   */
+  interface Stored<M> {
+
+    /** @return the stored model; this may be called more than once */
+    M restore();
+
+    /** @return the number of bytes used to store the model, or a negative number if unknown */
+    long sizeBytes();
+  }
+}
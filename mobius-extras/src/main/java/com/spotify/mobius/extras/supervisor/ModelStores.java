@@ -0,0 +1,86 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.supervisor;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import java.nio.ByteBuffer;
+
+/** Factory methods for common {@link ModelStore} instances. */
+public final class ModelStores {
+
+  private ModelStores() {
+    // prevent instantiation
+  }
+
+  /**
+   * @return a store that keeps models on the heap as they are. This frees the resources of a
+   *     passivated loop, but not the memory used by its model.
+   */
+  public static <M> ModelStore<M> onHeap() {
+    return new ModelStore<M>() {
+      @Override
+      public Stored<M> store(final M model) {
+        return new Stored<M>() {
+          @Override
+          public M restore() {
+            return model;
+          }
+
+          @Override
+          public long sizeBytes() {
+            return -1;
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * @param codec the codec used to serialize and deserialize models
+   * @return a store that serializes models into direct buffers, outside the Java heap
+   */
+  public static <M> ModelStore<M> offHeap(final ModelCodec<M> codec) {
+    checkNotNull(codec);
+
+    return new ModelStore<M>() {
+      @Override
+      public Stored<M> store(M model) {
+        byte[] bytes = codec.encode(model);
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+
+        return new Stored<M>() {
+          @Override
+          public M restore() {
+            byte[] bytes = new byte[buffer.capacity()];
+            ((ByteBuffer) buffer.duplicate().clear()).get(bytes);
+            return codec.decode(bytes);
+          }
+
+          @Override
+          public long sizeBytes() {
+            return buffer.capacity();
+          }
+        };
+      }
+    };
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.supervisor;
+
+/** Factory methods for common {@link RestartStrategy} instances. */
+public final class RestartStrategies {
+
+  private static final RestartStrategy NEVER =
+      new RestartStrategy() {
+        @Override
+        public boolean shouldRestart(int restarts, Throwable cause) {
+          return false;
+        }
+      };
+
+  private static final RestartStrategy ALWAYS =
+      new RestartStrategy() {
+        @Override
+        public boolean shouldRestart(int restarts, Throwable cause) {
+          return true;
+        }
+      };
+
+  private RestartStrategies() {
+    // prevent instantiation
+  }
+
+  /** @return a strategy that stops a loop the first time it fails */
+  public static RestartStrategy never() {
+    return NEVER;
+  }
+
+  /** @return a strategy that restarts a loop every time it fails */
+  public static RestartStrategy always() {
+    return ALWAYS;
+  }
+
+  /**
+   * @param maxRestarts the maximum number of times to restart a loop
+   * @return a strategy that restarts a loop at most the supplied number of times, and then stops it
+   */
+  public static RestartStrategy limited(final int maxRestarts) {
+    if (maxRestarts < 0) {
+      throw new IllegalArgumentException("maxRestarts must not be negative: " + maxRestarts);
+    }
+
+    return new RestartStrategy() {
+      @Override
+      public boolean shouldRestart(int restarts, Throwable cause) {
+        return restarts < maxRestarts;
+      }
+    };
+  }
+}
@@ -0,0 +1,36 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.supervisor;
+
+/**
+ * Decides whether a supervised loop should be restarted after its {@link com.spotify.mobius.Update}
+ * or {@link com.spotify.mobius.Init} function threw an exception.
+ *
+ * @see RestartStrategies
+ */
+public interface RestartStrategy {
+
+  /**
+   * @param restarts the number of times the loop has already been restarted
+   * @param cause the exception thrown by the update or init function
+   * @return true if the loop should be restarted, false if it should be stopped
+   */
+  boolean shouldRestart(int restarts, Throwable cause);
+}
@@ -0,0 +1,337 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras;
+
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.spotify.mobius.First;
+import com.spotify.mobius.Mobius;
+import com.spotify.mobius.MobiusLoop;
+import com.spotify.mobius.Next;
+import com.spotify.mobius.test.SimpleConnection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsyncLoggerTest {
+
+  private List<String> logged;
+  private List<Runnable> pending;
+  private Executor queueingExecutor;
+  private MobiusLoop.Logger<String, Object, String> delegate;
+
+  @Before
+  public void setUp() throws Exception {
+    logged = new ArrayList<>();
+    pending = new ArrayList<>();
+    queueingExecutor = pending::add;
+    delegate = new StringLogger();
+  }
+
+  @Test
+  public void shouldPassCallsToDelegateInOrder() throws Exception {
+    AsyncLogger<String, Object, String> logger =
+        AsyncLogger.builder(delegate).executor(Runnable::run).build();
+
+    logger.beforeInit("m0");
+    logger.afterInit("m0", First.first("m1"));
+    logger.beforeUpdate("m1", 1);
+    logger.afterUpdate("m1", 1, Next.next("m2"));
+
+    assertThat(
+        logged,
+        contains(
+            "beforeInit m0", "afterInit m0 -> m1", "beforeUpdate m1 1", "afterUpdate 1 -> m2"));
+  }
+
+  @Test
+  public void shouldDeferCallsToExecutor() throws Exception {
+    AsyncLogger<String, Object, String> logger =
+        AsyncLogger.builder(delegate).executor(queueingExecutor).build();
+
+    logger.beforeUpdate("m1", 1);
+    logger.afterUpdate("m1", 1, Next.next("m2"));
+
+    assertThat(logged, is(empty()));
+    assertThat(pending.size(), is(1));
+
+    runPending();
+
+    assertThat(logged, contains("beforeUpdate m1 1", "afterUpdate 1 -> m2"));
+  }
+
+  @Test
+  public void shouldDropAndCountCallsWhenBufferIsFull() throws Exception {
+    AsyncLogger<String, Object, String> logger =
+        AsyncLogger.builder(delegate).executor(queueingExecutor).capacity(4).build();
+
+    logger.beforeInit("m0");
+    logger.afterInit("m0", First.first("m1"));
+    logger.beforeInit("m2");
+    logger.beforeInit("m3");
+
+    // one of the four slots is reserved for exceptions
+    assertThat(logger.droppedCount(), is(1L));
+
+    runPending();
+    logger.beforeInit("m4");
+    runPending();
+
+    assertThat(
+        logged, contains("beforeInit m0", "afterInit m0 -> m1", "beforeInit m2", "beforeInit m4"));
+  }
+
+  @Test
+  public void shouldDropUpdateCallsInPairs() throws Exception {
+    AsyncLogger<String, Object, String> logger =
+        AsyncLogger.builder(delegate).executor(queueingExecutor).capacity(4).build();
+
+    logger.beforeUpdate("m1", 1);
+    logger.afterUpdate("m1", 1, Next.next("m2"));
+    logger.beforeUpdate("m2", 2);
+    logger.afterUpdate("m2", 2, Next.next("m3"));
+
+    assertThat(logger.droppedCount(), is(2L));
+
+    runPending();
+
+    assertThat(logged, contains("beforeUpdate m1 1", "afterUpdate 1 -> m2"));
+  }
+
+  @Test
+  public void shouldRecordBeforeUpdateOnceTheUpdateHasFinished() throws Exception {
+    AsyncLogger<String, Object, String> logger =
+        AsyncLogger.builder(delegate).executor(queueingExecutor).build();
+
+    logger.beforeUpdate("m1", 1);
+
+    assertThat(pending, is(empty()));
+
+    logger.exceptionDuringUpdate("m1", 1, new RuntimeException("boom"));
+    runPending();
+
+    assertThat(logged, contains("beforeUpdate m1 1", "exceptionDuringUpdate m1 1 boom"));
+  }
+
+  @Test
+  public void shouldLogExceptionsOnExecutorWhenBufferIsFull() throws Exception {
+    AsyncLogger<String, Object, String> logger =
+        AsyncLogger.builder(delegate).executor(queueingExecutor).capacity(4).build();
+
+    logger.beforeUpdate("m1", 1);
+    logger.afterUpdate("m1", 1, Next.next("m2"));
+    logger.exceptionDuringInit("m0", new RuntimeException("init"));
+    logger.exceptionDuringUpdate("m2", 2, new RuntimeException("reserved"));
+    logger.exceptionDuringUpdate("m2", 3, new RuntimeException("overflow"));
+
+    assertThat(logged, is(empty()));
+    // only the beforeUpdate calls that would have been logged with the exceptions are dropped
+    assertThat(logger.droppedCount(), is(2L));
+
+    runPending();
+
+    assertThat(
+        logged,
+        contains(
+            "beforeUpdate m1 1",
+            "afterUpdate 1 -> m2",
+            "exceptionDuringInit m0 init",
+            "exceptionDuringUpdate m2 2 reserved",
+            "exceptionDuringUpdate m2 3 overflow"));
+  }
+
+  @Test
+  public void shouldKeepPairsTogetherWhenSharedByConcurrentLoops() throws Exception {
+    logged = Collections.synchronizedList(new ArrayList<>());
+    ExecutorService drainer = Executors.newSingleThreadExecutor();
+    AsyncLogger<String, Object, String> logger =
+        AsyncLogger.builder(delegate).executor(drainer).capacity(16).build();
+    MobiusLoop.Factory<String, Object, String> factory =
+        Mobius.<String, Object, String>loop(
+                (model, event) -> {
+                  // give the other loop time to update concurrently
+                  LockSupport.parkNanos(20_000);
+                  return Next.next(String.valueOf(Integer.parseInt(model) + 1));
+                },
+                output ->
+                    new SimpleConnection<String>() {
+                      @Override
+                      public void accept(String effect) {}
+                    })
+            .logger(logger);
+
+    MobiusLoop<String, Object, String> first = factory.startFrom("0");
+    MobiusLoop<String, Object, String> second = factory.startFrom("0");
+
+    try {
+      for (int i = 0; i < 1000; i++) {
+        first.dispatchEvent("a" + i);
+        second.dispatchEvent("b" + i);
+      }
+
+      await()
+          .atMost(5, TimeUnit.SECONDS)
+          .until(() -> updateCalls().size() + logger.droppedCount() == 4000);
+
+      List<String> updateCalls = updateCalls();
+      for (int i = 0; i < updateCalls.size(); i += 2) {
+        String[] before = updateCalls.get(i).split(" ");
+        String[] after = updateCalls.get(i + 1).split(" ");
+        assertThat(before[0], is("beforeUpdate"));
+        assertThat(after[0], is("afterUpdate"));
+        assertThat(after[1], is(before[2]));
+      }
+
+      // the logger keeps going after the buffer has wrapped around and overflowed
+      int loggedBefore = logged.size();
+      first.dispatchEvent("last");
+      await().atMost(1, TimeUnit.SECONDS).until(() -> logged.size() == loggedBefore + 2);
+    } finally {
+      first.dispose();
+      second.dispose();
+      drainer.shutdown();
+    }
+  }
+
+  @Test
+  public void shouldSampleEveryNthEvent() throws Exception {
+    AsyncLogger<String, Object, String> logger =
+        AsyncLogger.builder(delegate).executor(Runnable::run).sampleEvery(3).build();
+
+    for (int i = 0; i < 6; i++) {
+      logger.beforeUpdate("m", i);
+      logger.afterUpdate("m", i, Next.noChange());
+    }
+
+    assertThat(
+        logged,
+        contains(
+            "beforeUpdate m 0", "afterUpdate 0 -> -", "beforeUpdate m 3", "afterUpdate 3 -> -"));
+  }
+
+  @Test
+  public void shouldSamplePerEventType() throws Exception {
+    AsyncLogger<String, Object, String> logger =
+        AsyncLogger.builder(delegate).executor(Runnable::run).sampleEvery(Integer.class, 2).build();
+
+    for (Object event : new Object[] {1, "a", 2, "b", 3}) {
+      logger.beforeUpdate("m", event);
+      logger.afterUpdate("m", event, Next.noChange());
+    }
+
+    assertThat(
+        logged,
+        contains(
+            "beforeUpdate m 1",
+            "afterUpdate 1 -> -",
+            "beforeUpdate m a",
+            "afterUpdate a -> -",
+            "beforeUpdate m b",
+            "afterUpdate b -> -",
+            "beforeUpdate m 3",
+            "afterUpdate 3 -> -"));
+  }
+
+  @Test
+  public void shouldKeepLoggingIfDelegateThrows() throws Exception {
+    AsyncLogger<String, Object, String> logger =
+        AsyncLogger.builder(
+                new StringLogger() {
+                  @Override
+                  public void beforeInit(String model) {
+                    throw new IllegalStateException("broken delegate");
+                  }
+                })
+            .executor(Runnable::run)
+            .build();
+
+    logger.beforeInit("m0");
+    logger.beforeUpdate("m0", 1);
+    logger.afterUpdate("m0", 1, Next.noChange());
+
+    assertThat(logged, contains("beforeUpdate m0 1", "afterUpdate 1 -> -"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectSampleRateBelowOne() throws Exception {
+    AsyncLogger.builder(delegate).sampleEvery(0);
+  }
+
+  private List<String> updateCalls() {
+    List<String> updateCalls = new ArrayList<>();
+    synchronized (logged) {
+      for (String call : logged) {
+        if (!call.contains("Init")) {
+          updateCalls.add(call);
+        }
+      }
+    }
+    return updateCalls;
+  }
+
+  private void runPending() {
+    while (!pending.isEmpty()) {
+      pending.remove(0).run();
+    }
+  }
+
+  private class StringLogger implements MobiusLoop.Logger<String, Object, String> {
+    @Override
+    public void beforeInit(String model) {
+      logged.add("beforeInit " + model);
+    }
+
+    @Override
+    public void afterInit(String model, First<String, String> result) {
+      logged.add("afterInit " + model + " -> " + result.model());
+    }
+
+    @Override
+    public void exceptionDuringInit(String model, Throwable exception) {
+      logged.add("exceptionDuringInit " + model + " " + exception.getMessage());
+    }
+
+    @Override
+    public void beforeUpdate(String model, Object event) {
+      logged.add("beforeUpdate " + model + " " + event);
+    }
+
+    @Override
+    public void afterUpdate(String model, Object event, Next<String, String> result) {
+      logged.add("afterUpdate " + event + " -> " + result.modelOrElse("-"));
+    }
+
+    @Override
+    public void exceptionDuringUpdate(String model, Object event, Throwable exception) {
+      logged.add("exceptionDuringUpdate " + model + " " + event + " " + exception.getMessage());
+    }
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras;
+
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.spotify.mobius.BatchConnection;
+import com.spotify.mobius.Connection;
+import com.spotify.mobius.test.RecordingConsumer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BatchingConnectablesTest {
+
+  private List<List<Integer>> batches;
+  private RecordingConsumer<String> output;
+  private BatchHandler<Integer, String> handler;
+  private Connection<Integer> connection;
+
+  @Before
+  public void setUp() throws Exception {
+    batches = new CopyOnWriteArrayList<>();
+    output = new RecordingConsumer<>();
+    handler =
+        (effects, eventConsumer) -> {
+          batches.add(new ArrayList<>(effects));
+          eventConsumer.accept("handled " + effects.size());
+        };
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (connection != null) {
+      connection.dispose();
+    }
+  }
+
+  @Test
+  public void shouldCreateBatchConnections() throws Exception {
+    connection = BatchingConnectables.batching(handler, 10).connect(output);
+
+    assertThat(connection instanceof BatchConnection, is(true));
+  }
+
+  @Test
+  public void shouldHandleEachCallAsBatchWithoutLinger() throws Exception {
+    connection = BatchingConnectables.batching(handler, 10).connect(output);
+
+    ((BatchConnection<Integer>) connection).acceptAll(Arrays.asList(1, 2, 3));
+    connection.accept(4);
+
+    assertThat(batches, contains(Arrays.asList(1, 2, 3), Arrays.asList(4)));
+    output.assertValues("handled 3", "handled 1");
+  }
+
+  @Test
+  public void shouldSplitBatchesAtMaxBatchSize() throws Exception {
+    connection = BatchingConnectables.batching(handler, 2).connect(output);
+
+    ((BatchConnection<Integer>) connection).acceptAll(Arrays.asList(1, 2, 3, 4, 5));
+
+    assertThat(batches, contains(Arrays.asList(1, 2), Arrays.asList(3, 4), Arrays.asList(5)));
+  }
+
+  @Test
+  public void shouldHandleBatchesInOrderWhenHandlerAcceptsMoreEffects() throws Exception {
+    handler =
+        (effects, eventConsumer) -> {
+          batches.add(new ArrayList<>(effects));
+          if (effects.contains(1)) {
+            ((BatchConnection<Integer>) connection).acceptAll(Arrays.asList(5, 6));
+          }
+        };
+    connection = BatchingConnectables.batching(handler, 2).connect(output);
+
+    ((BatchConnection<Integer>) connection).acceptAll(Arrays.asList(1, 2, 3, 4));
+
+    assertThat(batches, contains(Arrays.asList(1, 2), Arrays.asList(3, 4), Arrays.asList(5, 6)));
+  }
+
+  @Test
+  public void shouldNotBlockOtherThreadsWhileHandlingABatch() throws Exception {
+    CountDownLatch handling = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    handler =
+        (effects, eventConsumer) -> {
+          batches.add(new ArrayList<>(effects));
+          if (effects.contains(1)) {
+            handling.countDown();
+            Uninterruptibles.awaitUninterruptibly(release, 5, TimeUnit.SECONDS);
+          }
+        };
+    connection = BatchingConnectables.batching(handler, 1).connect(output);
+
+    Thread first = new Thread(() -> connection.accept(1));
+    first.start();
+    assertThat(handling.await(1, TimeUnit.SECONDS), is(true));
+
+    Thread second = new Thread(() -> connection.accept(2));
+    second.start();
+    second.join(1000);
+
+    // the second batch is queued for the thread that is handling the first one
+    assertThat(second.isAlive(), is(false));
+    assertThat(batches, contains(Arrays.asList(1)));
+
+    release.countDown();
+    first.join(1000);
+
+    assertThat(batches, contains(Arrays.asList(1), Arrays.asList(2)));
+  }
+
+  @Test
+  public void shouldHandleFullBatchImmediatelyWhenLingering() throws Exception {
+    connection = BatchingConnectables.batching(handler, 3, 1, TimeUnit.HOURS).connect(output);
+
+    connection.accept(1);
+    connection.accept(2);
+
+    assertThat(batches, is(empty()));
+
+    connection.accept(3);
+
+    assertThat(batches, contains(Arrays.asList(1, 2, 3)));
+  }
+
+  @Test
+  public void shouldHandleLingeringEffectsAfterMaxLinger() throws Exception {
+    connection =
+        BatchingConnectables.batching(handler, 100, 50, TimeUnit.MILLISECONDS).connect(output);
+
+    connection.accept(1);
+    connection.accept(2);
+
+    await().atMost(1, TimeUnit.SECONDS).until(() -> batches.size() == 1);
+    assertThat(batches, contains(Arrays.asList(1, 2)));
+    output.assertValues("handled 2");
+  }
+
+  @Test
+  public void shouldDiscardBufferedEffectsOnDispose() throws Exception {
+    connection =
+        BatchingConnectables.batching(handler, 100, 50, TimeUnit.MILLISECONDS).connect(output);
+
+    connection.accept(1);
+    connection.dispose();
+    connection.accept(2);
+
+    Thread.sleep(150);
+    assertThat(batches, is(empty()));
+  }
+}
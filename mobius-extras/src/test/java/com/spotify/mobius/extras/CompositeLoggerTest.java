@@ -97,6 +97,18 @@ public class CompositeLoggerTest {
     assertTestCaseLogged(testCase);
   }
 
+  @Test
+  public void flattensNestedCompositesPreservingOrder() {
+    RecordingLogger<String, Integer, String> logger4 = new RecordingLogger<>();
+    underTest = CompositeLogger.from(CompositeLogger.from(logger1, logger2), logger3, logger4);
+
+    BeforeUpdate<String, Integer> testCase = BeforeUpdate.create("Hello", 5);
+    underTest.beforeUpdate(testCase.model(), testCase.event());
+
+    assertTestCaseLogged(testCase);
+    logger4.assertLogEvents(testCase);
+  }
+
   private void assertTestCaseLogged(LogEvent testCase) {
     logger1.assertLogEvents(testCase);
     logger2.assertLogEvents(testCase);
@@ -0,0 +1,184 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import com.spotify.mobius.Connection;
+import com.spotify.mobius.functions.Consumer;
+import com.spotify.mobius.test.RecordingConsumer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SingleFlightConnectableTest {
+
+  private List<String> calls;
+  private Map<String, Consumer<String>> pending;
+  private AtomicLong now;
+
+  private SingleFlightConnectable<String, String> underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    calls = new ArrayList<>();
+    pending = new HashMap<>();
+    now = new AtomicLong();
+
+    underTest =
+        new SingleFlightConnectable<>(
+            (effect, callback) -> {
+              calls.add(effect);
+              pending.put(effect, callback);
+            },
+            TimeUnit.SECONDS.toNanos(10),
+            2,
+            now::get);
+  }
+
+  @Test
+  public void shouldCollapseIdenticalInFlightEffects() throws Exception {
+    RecordingConsumer<String> output1 = new RecordingConsumer<>();
+    RecordingConsumer<String> output2 = new RecordingConsumer<>();
+
+    underTest.connect(output1).accept("load 1");
+    underTest.connect(output2).accept("load 1");
+
+    assertThat(calls, contains("load 1"));
+    assertThat(underTest.inFlightCount(), is(1));
+
+    pending.get("load 1").accept("loaded 1");
+
+    output1.assertValues("loaded 1");
+    output2.assertValues("loaded 1");
+    assertThat(underTest.inFlightCount(), is(0));
+  }
+
+  @Test
+  public void shouldNotCollapseDifferentEffects() throws Exception {
+    RecordingConsumer<String> output = new RecordingConsumer<>();
+    Connection<String> connection = underTest.connect(output);
+
+    connection.accept("load 1");
+    connection.accept("load 2");
+    pending.get("load 2").accept("loaded 2");
+    pending.get("load 1").accept("loaded 1");
+
+    assertThat(calls, contains("load 1", "load 2"));
+    output.assertValues("loaded 2", "loaded 1");
+  }
+
+  @Test
+  public void shouldServeCachedResultsUntilTtlExpires() throws Exception {
+    RecordingConsumer<String> output = new RecordingConsumer<>();
+    Connection<String> connection = underTest.connect(output);
+
+    connection.accept("load 1");
+    pending.get("load 1").accept("loaded 1");
+    now.addAndGet(TimeUnit.SECONDS.toNanos(9));
+    connection.accept("load 1");
+
+    assertThat(calls, contains("load 1"));
+    output.assertValues("loaded 1", "loaded 1");
+
+    now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    connection.accept("load 1");
+
+    assertThat(calls, contains("load 1", "load 1"));
+  }
+
+  @Test
+  public void shouldEvictLeastRecentlyUsedResults() throws Exception {
+    Connection<String> connection = underTest.connect(new RecordingConsumer<>());
+
+    for (String effect : new String[] {"a", "b"}) {
+      connection.accept(effect);
+      pending.get(effect).accept(effect + "!");
+    }
+    connection.accept("a");
+    connection.accept("c");
+    pending.get("c").accept("c!");
+    calls.clear();
+
+    connection.accept("a");
+    connection.accept("b");
+
+    assertThat(calls, contains("b"));
+  }
+
+  @Test
+  public void shouldNotCacheWithoutTtl() throws Exception {
+    underTest = SingleFlightConnectable.create((effect, callback) -> callback.accept(effect + "!"));
+    RecordingConsumer<String> output = new RecordingConsumer<>();
+    Connection<String> connection = underTest.connect(output);
+
+    connection.accept("a");
+    connection.accept("a");
+
+    output.assertValues("a!", "a!");
+  }
+
+  @Test
+  public void shouldNotDeliverToDisposedConnections() throws Exception {
+    RecordingConsumer<String> output1 = new RecordingConsumer<>();
+    RecordingConsumer<String> output2 = new RecordingConsumer<>();
+    Connection<String> connection1 = underTest.connect(output1);
+
+    connection1.accept("load 1");
+    underTest.connect(output2).accept("load 1");
+    connection1.dispose();
+    pending.get("load 1").accept("loaded 1");
+
+    output1.assertValues();
+    output2.assertValues("loaded 1");
+  }
+
+  @Test
+  public void shouldRetryAfterHandlerThrows() throws Exception {
+    RuntimeException failure = new RuntimeException("expected");
+    underTest =
+        SingleFlightConnectable.create(
+            (effect, callback) -> {
+              calls.add(effect);
+              throw failure;
+            });
+    Connection<String> connection = underTest.connect(new RecordingConsumer<>());
+
+    for (int i = 0; i < 2; i++) {
+      try {
+        connection.accept("a");
+        fail("expected exception");
+      } catch (RuntimeException e) {
+        assertThat(e, is(failure));
+      }
+    }
+
+    assertThat(calls, contains("a", "a"));
+    assertThat(underTest.inFlightCount(), is(0));
+  }
+}
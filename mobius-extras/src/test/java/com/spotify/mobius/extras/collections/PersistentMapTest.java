@@ -0,0 +1,138 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+public class PersistentMapTest {
+
+  @Test
+  public void shouldBehaveLikeHashMapForRandomOperations() throws Exception {
+    Random random = new Random(42);
+    PersistentMap<Integer, Integer> map = PersistentMap.empty();
+    Map<Integer, Integer> expected = new HashMap<>();
+
+    for (int i = 0; i < 100_000; i++) {
+      Integer key = random.nextInt(20_000);
+
+      if (random.nextInt(4) == 0) {
+        map = map.minus(key);
+        expected.remove(key);
+      } else {
+        map = map.plus(key, i);
+        expected.put(key, i);
+      }
+    }
+
+    assertThat(map.size(), is(expected.size()));
+    assertThat(map, is(expected));
+    assertThat(expected, is((Map<Integer, Integer>) map));
+    assertThat(map.hashCode(), is(expected.hashCode()));
+  }
+
+  @Test
+  public void shouldHandleKeysWithCollidingHashCodes() throws Exception {
+    Random random = new Random(42);
+    PersistentMap<CollidingKey, Integer> map = PersistentMap.empty();
+    Map<CollidingKey, Integer> expected = new HashMap<>();
+
+    for (int i = 0; i < 20_000; i++) {
+      CollidingKey key = new CollidingKey(random.nextInt(2_000));
+
+      if (random.nextInt(4) == 0) {
+        map = map.minus(key);
+        expected.remove(key);
+      } else {
+        map = map.plus(key, i);
+        expected.put(key, i);
+      }
+    }
+
+    assertThat(map, is(expected));
+    for (CollidingKey key : expected.keySet()) {
+      assertThat(map.get(key), is(expected.get(key)));
+    }
+  }
+
+  @Test
+  public void shouldNotModifyPreviousVersions() throws Exception {
+    PersistentMap<String, Integer> original = PersistentMap.<String, Integer>empty().plus("a", 1);
+
+    PersistentMap<String, Integer> changed = original.plus("a", 2).plus("b", 3);
+
+    assertThat(original.get("a"), is(1));
+    assertThat(original.get("b"), is(nullValue()));
+    assertThat(changed.get("a"), is(2));
+    assertThat(changed.get("b"), is(3));
+  }
+
+  @Test
+  public void shouldReturnSameInstanceForNoOpChanges() throws Exception {
+    Integer value = 1000;
+    PersistentMap<String, Integer> map = PersistentMap.<String, Integer>empty().plus("a", value);
+
+    assertThat(map.plus("a", value), is(sameInstance(map)));
+    assertThat(map.minus("b"), is(sameInstance(map)));
+  }
+
+  @Test
+  public void shouldUpdateValueWithFunction() throws Exception {
+    PersistentMap<String, Integer> map = PersistentMap.<String, Integer>empty().plus("a", 1);
+
+    assertThat(map.update("a", value -> value + 1).get("a"), is(2));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectUpdateOfMissingKey() throws Exception {
+    PersistentMap.<String, Integer>empty().update("a", value -> value + 1);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void shouldNotSupportMutation() throws Exception {
+    PersistentMap.<String, Integer>empty().put("a", 1);
+  }
+
+  private static final class CollidingKey {
+    private final int id;
+
+    CollidingKey(int id) {
+      this.id = id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof CollidingKey && ((CollidingKey) o).id == id;
+    }
+
+    @Override
+    public int hashCode() {
+      // only 64 distinct hash codes, so most keys collide with others
+      return (id % 64) * 0x9E3779B9;
+    }
+  }
+}
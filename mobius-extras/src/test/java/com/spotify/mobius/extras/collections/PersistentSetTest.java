@@ -0,0 +1,56 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+public class PersistentSetTest {
+
+  @Test
+  public void shouldAddAndRemoveElements() throws Exception {
+    PersistentSet<String> set = PersistentSet.of("a", "b");
+
+    PersistentSet<String> changed = set.plus("c").minus("a");
+
+    assertThat(set, containsInAnyOrder("a", "b"));
+    assertThat(changed, containsInAnyOrder("b", "c"));
+    assertThat(changed.contains("a"), is(false));
+  }
+
+  @Test
+  public void shouldReturnSameInstanceForNoOpChanges() throws Exception {
+    PersistentSet<String> set = PersistentSet.of("a");
+
+    assertThat(set.plus("a"), is(sameInstance(set)));
+    assertThat(set.minus("b"), is(sameInstance(set)));
+  }
+
+  @Test
+  public void shouldBeEqualToOtherSetsWithSameElements() throws Exception {
+    assertThat(PersistentSet.of(1, 2, 3), is(ImmutableSet.of(3, 2, 1)));
+    assertThat(PersistentSet.of(1, 2, 3).hashCode(), is(ImmutableSet.of(3, 2, 1).hashCode()));
+  }
+}
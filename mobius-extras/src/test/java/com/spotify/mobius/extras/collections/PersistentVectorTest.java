@@ -0,0 +1,152 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+public class PersistentVectorTest {
+
+  // large enough for a trie with three levels below the root
+  private static final int LARGE = 40_000;
+
+  @Test
+  public void shouldAppendAndGetElements() throws Exception {
+    PersistentVector<Integer> vector = PersistentVector.empty();
+    List<Integer> expected = new ArrayList<>();
+
+    for (int i = 0; i < LARGE; i++) {
+      vector = vector.plus(i);
+      expected.add(i);
+    }
+
+    assertThat(vector.size(), is(LARGE));
+    for (int i = 0; i < LARGE; i++) {
+      assertThat(vector.get(i), is(i));
+    }
+    assertThat(vector, is(expected));
+  }
+
+  @Test
+  public void shouldPopBackToEmpty() throws Exception {
+    PersistentVector<Integer> vector = PersistentVector.empty();
+    for (int i = 0; i < LARGE; i++) {
+      vector = vector.plus(i);
+    }
+
+    for (int i = LARGE - 1; i >= 0; i--) {
+      assertThat(vector.get(i), is(i));
+      vector = vector.pop();
+      assertThat(vector.size(), is(i));
+    }
+
+    assertThat(vector, is(PersistentVector.<Integer>empty()));
+  }
+
+  @Test
+  public void shouldBehaveLikeArrayListForRandomOperations() throws Exception {
+    Random random = new Random(42);
+    PersistentVector<Integer> vector = PersistentVector.empty();
+    List<Integer> expected = new ArrayList<>();
+
+    for (int i = 0; i < 100_000; i++) {
+      int operation = random.nextInt(10);
+
+      if (operation < 6 || expected.isEmpty()) {
+        vector = vector.plus(i);
+        expected.add(i);
+      } else if (operation < 9) {
+        int index = random.nextInt(expected.size());
+        vector = vector.with(index, -i);
+        expected.set(index, -i);
+      } else {
+        vector = vector.pop();
+        expected.remove(expected.size() - 1);
+      }
+    }
+
+    assertThat(vector, is(expected));
+    assertThat(vector.hashCode(), is(expected.hashCode()));
+  }
+
+  @Test
+  public void shouldNotModifyPreviousVersions() throws Exception {
+    PersistentVector<String> original = PersistentVector.copyOf(Arrays.asList("a", "b", "c"));
+
+    PersistentVector<String> changed = original.with(1, "x").plus("d");
+
+    assertThat(original, contains("a", "b", "c"));
+    assertThat(changed, contains("a", "x", "c", "d"));
+  }
+
+  @Test
+  public void shouldReturnSameInstanceWhenElementIsUnchanged() throws Exception {
+    String element = "b";
+    PersistentVector<String> vector = PersistentVector.of("a", element);
+
+    assertThat(vector.with(1, element), is(sameInstance(vector)));
+  }
+
+  @Test
+  public void shouldUpdateElementWithFunction() throws Exception {
+    PersistentVector<Integer> vector = PersistentVector.of(1, 2, 3);
+
+    assertThat(vector.update(1, value -> value * 10), contains(1, 20, 3));
+  }
+
+  @Test
+  public void shouldAppendWhenSettingIndexEqualToSize() throws Exception {
+    assertThat(PersistentVector.of(1).with(1, 2), contains(1, 2));
+  }
+
+  @Test
+  public void shouldRejectIndexOutOfRange() throws Exception {
+    try {
+      PersistentVector.of(1).get(1);
+      fail("expected an exception");
+    } catch (IndexOutOfBoundsException expected) {
+    }
+
+    try {
+      PersistentVector.of(1).with(2, 2);
+      fail("expected an exception");
+    } catch (IndexOutOfBoundsException expected) {
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void shouldRejectPopOnEmptyVector() throws Exception {
+    PersistentVector.empty().pop();
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void shouldNotSupportMutation() throws Exception {
+    PersistentVector.of(1).add(2);
+  }
+}
@@ -0,0 +1,234 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.hedging;
+
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.spotify.mobius.Connection;
+import com.spotify.mobius.functions.Consumer;
+import com.spotify.mobius.test.RecordingConsumer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HedgingConnectableTest {
+
+  private ScheduledExecutorService scheduler;
+  private List<String> calls;
+  private List<Consumer<String>> callbacks;
+  private List<String> cancelled;
+  private RecordingConsumer<String> output;
+
+  @Before
+  public void setUp() throws Exception {
+    scheduler = Executors.newSingleThreadScheduledExecutor();
+    calls = new CopyOnWriteArrayList<>();
+    callbacks = new CopyOnWriteArrayList<>();
+    cancelled = new CopyOnWriteArrayList<>();
+    output = new RecordingConsumer<>();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    scheduler.shutdownNow();
+  }
+
+  @Test
+  public void shouldEmitResultOfCall() throws Exception {
+    Connection<String> connection = connect(HedgingPolicy.<String, String>builder().build());
+
+    connection.accept("load");
+    callbacks.get(0).accept("loaded");
+
+    output.assertValues("loaded");
+    assertThat(cancelled, contains("load 1"));
+  }
+
+  @Test
+  public void shouldEmitTimeoutEventAndCancelCallAfterDeadline() throws Exception {
+    Connection<String> connection =
+        connect(
+            HedgingPolicy.<String, String>builder()
+                .timeout(50, TimeUnit.MILLISECONDS, effect -> effect + " timed out")
+                .build());
+
+    connection.accept("load");
+
+    await().atMost(5, TimeUnit.SECONDS).until(() -> output.valueCount() == 1);
+    output.assertValues("load timed out");
+    assertThat(cancelled, contains("load 1"));
+
+    callbacks.get(0).accept("loaded");
+    output.assertValues("load timed out");
+  }
+
+  @Test
+  public void shouldRecordDeadlineAsLatencyOfTimedOutCall() throws Exception {
+    LatencyWindow latencies = new LatencyWindow(1, TimeUnit.MINUTES);
+    Connection<String> connection =
+        connect(
+            HedgingPolicy.<String, String>builder()
+                .timeout(50, TimeUnit.MILLISECONDS, effect -> effect + " timed out")
+                .latencies(latencies)
+                .build());
+
+    connection.accept("load");
+
+    await().atMost(5, TimeUnit.SECONDS).until(() -> output.valueCount() == 1);
+    assertThat(latencies.count(), is(1L));
+    assertThat(latencies.percentile(1, TimeUnit.MILLISECONDS), is(greaterThanOrEqualTo(50L)));
+  }
+
+  @Test
+  public void shouldNotHedgeBeforeEnoughSamples() throws Exception {
+    LatencyWindow latencies = new LatencyWindow(1, TimeUnit.MINUTES);
+    latencies.record(1, TimeUnit.MILLISECONDS);
+
+    Connection<String> connection =
+        connect(
+            HedgingPolicy.<String, String>builder()
+                .hedgeAfterPercentile(0.5)
+                .minSamples(2)
+                .latencies(latencies)
+                .build());
+
+    connection.accept("load");
+    Thread.sleep(50);
+
+    assertThat(calls, contains("load 1"));
+  }
+
+  @Test
+  public void shouldSendHedgedCallAndKeepFirstResult() throws Exception {
+    LatencyWindow latencies = new LatencyWindow(1, TimeUnit.MINUTES);
+    for (int i = 0; i < 10; i++) {
+      latencies.record(10, TimeUnit.MILLISECONDS);
+    }
+
+    Connection<String> connection =
+        connect(
+            HedgingPolicy.<String, String>builder()
+                .hedgeAfterPercentile(0.5)
+                .minSamples(10)
+                .latencies(latencies)
+                .build());
+
+    connection.accept("load");
+
+    await().atMost(5, TimeUnit.SECONDS).until(() -> calls.size() == 2);
+    assertThat(calls, contains("load 1", "load 2"));
+
+    callbacks.get(1).accept("loaded by hedge");
+    callbacks.get(0).accept("loaded");
+
+    output.assertValues("loaded by hedge");
+    assertThat(cancelled.contains("load 1"), is(true));
+    assertThat(latencies.count(), is(11L));
+  }
+
+  @Test
+  public void shouldKeepFirstCallWhenHedgedCallFailsToStart() throws Exception {
+    LatencyWindow latencies = new LatencyWindow(1, TimeUnit.MINUTES);
+    for (int i = 0; i < 10; i++) {
+      latencies.record(10, TimeUnit.MILLISECONDS);
+    }
+
+    Connection<String> connection =
+        HedgingConnectable.create(
+                (String effect, Consumer<String> callback) -> {
+                  final String name = effect + " " + (calls.size() + 1);
+                  calls.add(name);
+                  if (calls.size() > 1) {
+                    throw new RuntimeException("expected");
+                  }
+                  callbacks.add(callback);
+                  return () -> cancelled.add(name);
+                },
+                HedgingPolicy.<String, String>builder()
+                    .hedgeAfterPercentile(0.5)
+                    .minSamples(10)
+                    .latencies(latencies)
+                    .timeout(5, TimeUnit.SECONDS, effect -> effect + " timed out")
+                    .build(),
+                scheduler)
+            .connect(output);
+
+    connection.accept("load");
+
+    await().atMost(5, TimeUnit.SECONDS).until(() -> calls.size() == 2);
+    Thread.sleep(50);
+    assertThat(cancelled, is(empty()));
+
+    callbacks.get(0).accept("loaded");
+
+    output.assertValues("loaded");
+  }
+
+  @Test
+  public void shouldCancelPendingCallsOnDispose() throws Exception {
+    Connection<String> connection =
+        connect(
+            HedgingPolicy.<String, String>builder()
+                .timeout(50, TimeUnit.MILLISECONDS, effect -> effect + " timed out")
+                .build());
+
+    connection.accept("load");
+    connection.dispose();
+
+    assertThat(cancelled, contains("load 1"));
+
+    Thread.sleep(100);
+    callbacks.get(0).accept("loaded");
+    assertThat(output.valueCount(), is(0));
+  }
+
+  @Test
+  public void shouldIgnoreEffectsAfterDispose() throws Exception {
+    Connection<String> connection = connect(HedgingPolicy.<String, String>builder().build());
+
+    connection.dispose();
+    connection.accept("load");
+
+    assertThat(calls, is(empty()));
+  }
+
+  private Connection<String> connect(HedgingPolicy<String, String> policy) {
+    return HedgingConnectable.create(
+            (String effect, Consumer<String> callback) -> {
+              final String name = effect + " " + (calls.size() + 1);
+              calls.add(name);
+              callbacks.add(callback);
+              return () -> cancelled.add(name);
+            },
+            policy,
+            scheduler)
+        .connect(output);
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.hedging;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LatencyWindowTest {
+
+  private AtomicLong now;
+  private LatencyWindow underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    now = new AtomicLong();
+    underTest = new LatencyWindow(TimeUnit.SECONDS.toNanos(10), now::get);
+  }
+
+  @Test
+  public void shouldReportNoPercentileWhenEmpty() throws Exception {
+    assertThat(underTest.count(), is(0L));
+    assertThat(underTest.percentile(0.5, TimeUnit.MILLISECONDS), is(-1L));
+  }
+
+  @Test
+  public void shouldComputePercentilesWithinBucketAccuracy() throws Exception {
+    for (int i = 1; i <= 100; i++) {
+      underTest.record(i, TimeUnit.MILLISECONDS);
+    }
+
+    assertThat(underTest.count(), is(100L));
+    assertThat(
+        underTest.percentile(0.5, TimeUnit.MILLISECONDS),
+        is(allOf(greaterThanOrEqualTo(50L), lessThanOrEqualTo(57L))));
+    assertThat(
+        underTest.percentile(0.99, TimeUnit.MILLISECONDS),
+        is(allOf(greaterThanOrEqualTo(99L), lessThanOrEqualTo(112L))));
+  }
+
+  @Test
+  public void shouldDropLatenciesOutsideTheWindow() throws Exception {
+    underTest.record(1, TimeUnit.SECONDS);
+    now.addAndGet(TimeUnit.SECONDS.toNanos(5));
+    underTest.record(10, TimeUnit.MILLISECONDS);
+
+    assertThat(underTest.count(), is(2L));
+
+    now.addAndGet(TimeUnit.SECONDS.toNanos(6));
+
+    assertThat(underTest.count(), is(1L));
+    assertThat(
+        underTest.percentile(0.99, TimeUnit.MILLISECONDS),
+        is(allOf(greaterThanOrEqualTo(10L), lessThanOrEqualTo(12L))));
+  }
+
+  @Test
+  public void shouldRecomputeCachedPercentileWhenNewSlotStarts() throws Exception {
+    underTest.record(10, TimeUnit.MILLISECONDS);
+    assertThat(underTest.percentile(0.5, TimeUnit.MILLISECONDS), is(lessThanOrEqualTo(12L)));
+
+    now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    underTest.record(1, TimeUnit.SECONDS);
+    underTest.record(1, TimeUnit.SECONDS);
+
+    assertThat(underTest.percentile(0.5, TimeUnit.MILLISECONDS), is(greaterThanOrEqualTo(1000L)));
+  }
+
+  @Test
+  public void shouldRecordWhenClockIsNegative() throws Exception {
+    now.set(-TimeUnit.SECONDS.toNanos(25));
+
+    underTest.record(10, TimeUnit.MILLISECONDS);
+    now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    underTest.record(20, TimeUnit.MILLISECONDS);
+
+    assertThat(underTest.count(), is(2L));
+    assertThat(
+        underTest.percentile(0.99, TimeUnit.MILLISECONDS),
+        is(allOf(greaterThanOrEqualTo(20L), lessThanOrEqualTo(24L))));
+  }
+}
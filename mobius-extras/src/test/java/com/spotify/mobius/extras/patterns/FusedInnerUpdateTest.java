@@ -0,0 +1,131 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.patterns;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import com.google.common.collect.ImmutableSet;
+import com.spotify.mobius.Next;
+import com.spotify.mobius.Update;
+import com.spotify.mobius.test.NextMatchers;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class FusedInnerUpdateTest {
+
+  // the model is a list of strings, each layer focusing on the rest of the list
+  private static final Lens<List<String>, List<String>> TAIL =
+      Lens.of(
+          list -> list.subList(1, list.size()),
+          (list, tail) -> {
+            List<String> result = new ArrayList<>();
+            result.add(list.get(0));
+            result.addAll(tail);
+            return result;
+          });
+
+  private static final Update<List<String>, String, String> LEAF =
+      (model, event) -> {
+        switch (event) {
+          case "append":
+            return Next.next(Arrays.asList(model.get(0) + "!"), ImmutableSet.of("appended"));
+          case "effect":
+            return Next.dispatch(ImmutableSet.of("e1", "e2"));
+          default:
+            return Next.noChange();
+        }
+      };
+
+  @Test
+  public void shouldFuseNestedLayers() throws Exception {
+    Update<List<String>, String, String> update = layers(3);
+
+    assertThat(update instanceof FusedInnerUpdate, is(true));
+    assertThat(((FusedInnerUpdate<?, ?, ?, ?, ?, ?>) update).depth(), is(3));
+  }
+
+  @Test
+  public void shouldUpdateInnermostModel() throws Exception {
+    Next<List<String>, String> next = layers(3).update(Arrays.asList("a", "b", "c", "d"), "append");
+
+    assertThat(next, NextMatchers.hasModel(Arrays.asList("a", "b", "c", "d!")));
+  }
+
+  @Test
+  public void shouldMapEffectsThroughEveryLayer() throws Exception {
+    Next<List<String>, String> next = layers(3).update(Arrays.asList("a", "b", "c", "d"), "effect");
+
+    assertThat(next, NextMatchers.<List<String>, String>hasNoModel());
+    assertThat(next, NextMatchers.hasEffects("3:2:1:e1", "3:2:1:e2"));
+  }
+
+  @Test
+  public void shouldExtractEventsThroughEveryLayer() throws Exception {
+    Update<List<String>, String, String> update =
+        FusedInnerUpdate.create(
+            FusedInnerUpdate.create(LEAF, TAIL, (String e) -> e.substring(1), f -> f),
+            TAIL,
+            (String e) -> e.substring(1),
+            f -> f);
+
+    assertThat(
+        update.update(Arrays.asList("a", "b", "c"), "__append"),
+        NextMatchers.hasModel(Arrays.asList("a", "b", "c!")));
+  }
+
+  @Test
+  public void shouldReturnNoChangeWhenInnerUpdateDoesNothing() throws Exception {
+    assertThat(
+        layers(3).update(Arrays.asList("a", "b", "c", "d"), "nothing"),
+        is(Next.<List<String>, String>noChange()));
+  }
+
+  @Test
+  public void shouldBehaveLikeNestedInnerUpdates() throws Exception {
+    Update<List<String>, String, String> nested = LEAF;
+    for (int i = 1; i <= 3; i++) {
+      final int layer = i;
+      nested =
+          InnerUpdate.<List<String>, String, String, List<String>, String, String>builder()
+              .innerUpdate(nested)
+              .lens(TAIL)
+              .eventExtractor(e -> e)
+              .innerEffectHandler(InnerEffectHandlers.mapEffects(f -> layer + ":" + f))
+              .build();
+    }
+
+    for (String event : Arrays.asList("append", "effect", "nothing")) {
+      List<String> model = Arrays.asList("a", "b", "c", "d");
+      assertThat(layers(3).update(model, event), is(nested.update(model, event)));
+    }
+  }
+
+  private static Update<List<String>, String, String> layers(int depth) {
+    Update<List<String>, String, String> update = LEAF;
+    for (int i = 1; i <= depth; i++) {
+      final int layer = i;
+      update = FusedInnerUpdate.create(update, TAIL, e -> e, f -> layer + ":" + f);
+    }
+    return update;
+  }
+}
@@ -27,6 +27,7 @@ import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
 import com.spotify.mobius.Next;
+import com.spotify.mobius.extras.collections.PersistentVector;
 import com.spotify.mobius.test.NextMatchers;
 import org.junit.Test;
 
@@ -235,4 +236,23 @@ public class InnerUpdateTest {
     assertThat(next, NextMatchers.<String, String>hasModel("effect_handler"));
     assertThat(next, NextMatchers.<String, String>hasNoEffects());
   }
+
+  @Test
+  public void canUseLensToUpdateSingleVectorElement() throws Exception {
+    InnerUpdate<PersistentVector<String>, String, String, String, String, String> innerUpdate =
+        InnerUpdate.<PersistentVector<String>, String, String, String, String, String>builder()
+            .lens(Lens.<String>vectorElement(1))
+            .eventExtractor(e -> e)
+            .innerUpdate((model, event) -> Next.next(model + event))
+            .innerEffectHandler(ignoreEffects())
+            .build();
+
+    Next<PersistentVector<String>, String> next =
+        innerUpdate.update(PersistentVector.of("a", "b", "c"), "!");
+
+    assertThat(
+        next,
+        NextMatchers.<PersistentVector<String>, String>hasModel(
+            PersistentVector.of("a", "b!", "c")));
+  }
 }
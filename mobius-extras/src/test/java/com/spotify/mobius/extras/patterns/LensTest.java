@@ -0,0 +1,69 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.patterns;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+import com.spotify.mobius.extras.collections.PersistentMap;
+import com.spotify.mobius.extras.collections.PersistentVector;
+import org.junit.Test;
+
+public class LensTest {
+
+  private final Lens<PersistentMap<String, PersistentVector<Integer>>, Integer> secondOfA =
+      Lens.<String, PersistentVector<Integer>>mapValue("a").andThen(Lens.<Integer>vectorElement(1));
+
+  private final PersistentMap<String, PersistentVector<Integer>> model =
+      PersistentMap.<String, PersistentVector<Integer>>empty()
+          .plus("a", PersistentVector.of(1, 2, 3))
+          .plus("b", PersistentVector.of(4));
+
+  @Test
+  public void shouldGetNestedElement() throws Exception {
+    assertThat(secondOfA.get(model), is(2));
+  }
+
+  @Test
+  public void shouldSetNestedElement() throws Exception {
+    PersistentMap<String, PersistentVector<Integer>> updated = secondOfA.set(model, 20);
+
+    assertThat(updated.get("a"), contains(1, 20, 3));
+    assertThat(updated.get("b"), is(sameInstance(model.get("b"))));
+    assertThat(model.get("a"), contains(1, 2, 3));
+  }
+
+  @Test
+  public void shouldModifyNestedElement() throws Exception {
+    assertThat(secondOfA.modify(model, value -> value + 1).get("a"), contains(1, 3, 3));
+  }
+
+  @Test
+  public void shouldReturnSameInstanceWhenNothingChanges() throws Exception {
+    assertThat(secondOfA.set(model, secondOfA.get(model)), is(sameInstance(model)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldFailToGetMissingMapValue() throws Exception {
+    Lens.<String, Integer>mapValue("missing").get(PersistentMap.<String, Integer>empty());
+  }
+}
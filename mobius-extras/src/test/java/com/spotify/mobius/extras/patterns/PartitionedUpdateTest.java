@@ -0,0 +1,158 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.patterns;
+
+import static com.spotify.mobius.extras.patterns.InnerEffectHandlers.ignoreEffects;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+import com.spotify.mobius.Next;
+import com.spotify.mobius.Update;
+import com.spotify.mobius.extras.collections.PersistentMap;
+import com.spotify.mobius.test.NextMatchers;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PartitionedUpdateTest {
+
+  // events are "key:amount"; each partition is a counter
+  private static final Update<Integer, String, String> COUNTER =
+      (model, event) -> {
+        int amount = Integer.parseInt(event.substring(event.indexOf(':') + 1));
+        return amount == 0 ? Next.noChange() : Next.next(model + amount, effects(event));
+      };
+
+  private final Lens<PersistentMap<String, Integer>, PersistentMap<String, Integer>> identity =
+      Lens.of(model -> model, (model, partitions) -> partitions);
+
+  private ForkJoinPool pool;
+  private List<Thread> threads;
+
+  @Before
+  public void setUp() throws Exception {
+    pool = new ForkJoinPool(4);
+    threads = new CopyOnWriteArrayList<>();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    pool.shutdown();
+  }
+
+  @Test
+  public void shouldApplyEventsToTheirPartitions() throws Exception {
+    Next<PersistentMap<String, Integer>, String> next =
+        update(ignoreEffects(), 2).update(model(), Arrays.asList("a:1", "b:2", "a:3"));
+
+    assertThat(next, NextMatchers.hasModel(model().plus("a", 4).plus("b", 2)));
+  }
+
+  @Test
+  public void shouldUpdatePartitionsInParallelWhenSeveralAreTouched() throws Exception {
+    update(ignoreEffects(), 2).update(model(), Arrays.asList("a:1", "b:2", "c:3"));
+
+    assertThat(threads.size(), is(3));
+    assertThat(threads, everyItem(instanceOf(ForkJoinWorkerThread.class)));
+  }
+
+  @Test
+  public void shouldUpdateSeriallyBelowThreshold() throws Exception {
+    update(ignoreEffects(), 3).update(model(), Arrays.asList("a:1", "b:2", "a:3"));
+
+    assertThat(threads, everyItem(is(sameInstance(Thread.currentThread()))));
+  }
+
+  @Test
+  public void shouldMergeEffectsInOrderOfFirstTouchedPartition() throws Exception {
+    List<String> effects = new ArrayList<>();
+
+    update(
+            (model, updated, innerEffects) -> {
+              effects.addAll(innerEffects);
+              return Next.noChange();
+            },
+            2)
+        .update(model(), Arrays.asList("c:1", "a:2", "c:3", "b:4"));
+
+    assertThat(effects, contains("c:1", "c:3", "a:2", "b:4"));
+  }
+
+  @Test
+  public void shouldReportNoChangeWhenNoPartitionChanges() throws Exception {
+    Next<PersistentMap<String, Integer>, String> next =
+        update(ignoreEffects(), 2).update(model(), Arrays.asList("a:0", "b:0"));
+
+    assertThat(next, NextMatchers.hasNoModel());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectEventsForMissingPartitions() throws Exception {
+    update(ignoreEffects(), 2).update(model(), Collections.singletonList("x:1"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectThresholdBelowOne() throws Exception {
+    update(ignoreEffects(), 0);
+  }
+
+  private PersistentMap<String, Integer> model() {
+    return PersistentMap.<String, Integer>empty().plus("a", 0).plus("b", 0).plus("c", 0);
+  }
+
+  private PartitionedUpdate<
+          PersistentMap<String, Integer>, List<String>, String, String, Integer, String, String>
+      update(
+          InnerEffectHandler<PersistentMap<String, Integer>, String, String> effectHandler,
+          int threshold) {
+    return PartitionedUpdate
+        .<PersistentMap<String, Integer>, List<String>, String, String, Integer, String, String>
+            builder()
+        .innerUpdate(
+            (model, event) -> {
+              threads.add(Thread.currentThread());
+              return COUNTER.update(model, event);
+            })
+        .partitions(identity)
+        .eventExtractor(events -> events)
+        .keyExtractor(event -> event.substring(0, event.indexOf(':')))
+        .innerEffectHandler(effectHandler)
+        .pool(pool)
+        .parallelismThreshold(threshold)
+        .build();
+  }
+
+  private static Set<String> effects(String... effects) {
+    return new LinkedHashSet<>(Arrays.asList(effects));
+  }
+}
@@ -0,0 +1,454 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.extras.supervisor;
+
+import static com.spotify.mobius.Effects.effects;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import com.spotify.mobius.Mobius;
+import com.spotify.mobius.MobiusLoop;
+import com.spotify.mobius.Next;
+import com.spotify.mobius.runners.WorkRunners;
+import com.spotify.mobius.test.RecordingConsumer;
+import com.spotify.mobius.test.SimpleConnection;
+import com.spotify.mobius.test.TestWorkRunner;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LoopSupervisorTest {
+
+  private MobiusLoop.Builder<String, String, String> loopBuilder;
+  private FakeClock clock;
+  private RecordingListener listener;
+  private LoopSupervisor.Builder<String, String, String, String> supervisorBuilder;
+  private LoopSupervisor<String, String, String, String> supervisor;
+
+  @Before
+  public void setUp() throws Exception {
+    loopBuilder =
+        Mobius.<String, String, String>loop(
+            (model, event) -> {
+              if (event.equals("crash")) {
+                throw new RuntimeException("crashing!");
+              }
+              return Next.next(model + event);
+            },
+            eventConsumer ->
+                new SimpleConnection<String>() {
+                  @Override
+                  public void accept(String value) {}
+                });
+
+    clock = new FakeClock();
+    listener = new RecordingListener();
+
+    supervisorBuilder =
+        LoopSupervisor.<String, String, String, String>builder(loopBuilder)
+            .eventRunner(WorkRunners::immediate)
+            .effectRunner(WorkRunners::immediate)
+            .supervisionRunner(WorkRunners::immediate)
+            .listener(listener)
+            .clock(clock);
+
+    supervisor = supervisorBuilder.build();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    supervisor.dispose();
+  }
+
+  @Test
+  public void shouldDispatchEventsToLoopForKey() throws Exception {
+    supervisor.start("a", "a:");
+    supervisor.start("b", "b:");
+
+    supervisor.dispatchEvent("a", "1");
+    supervisor.dispatchEvent("b", "2");
+    supervisor.dispatchEvent("a", "3");
+
+    assertThat(supervisor.getMostRecentModel("a"), is("a:13"));
+    assertThat(supervisor.getMostRecentModel("b"), is("b:2"));
+    assertThat(supervisor.size(), is(2));
+  }
+
+  @Test
+  public void shouldNotAllowStartingSameKeyTwice() throws Exception {
+    supervisor.start("a", "");
+
+    assertThatThrownBy(() -> supervisor.start("a", "")).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void shouldRejectEventsForUnknownKey() throws Exception {
+    assertThatThrownBy(() -> supervisor.dispatchEvent("unknown", "event"))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void shouldStopLoopAndReturnModel() throws Exception {
+    supervisor.start("a", "a:");
+    supervisor.dispatchEvent("a", "1");
+
+    assertThat(supervisor.stop("a"), is("a:1"));
+    assertThat(supervisor.isRunning("a"), is(false));
+    assertThat(listener.evicted, is(empty()));
+  }
+
+  @Test
+  public void shouldReportQueueDepth() throws Exception {
+    TestWorkRunner runner = new TestWorkRunner();
+    supervisor = supervisorBuilder.eventRunner(() -> runner).build();
+
+    supervisor.start("a", "a:");
+    supervisor.dispatchEvent("a", "1");
+    supervisor.dispatchEvent("a", "2");
+
+    assertThat(supervisor.stats("a").queueDepth(), is(3L));
+
+    runner.runAll();
+
+    assertThat(supervisor.stats("a").queueDepth(), is(0L));
+    assertThat(supervisor.stats("a").eventsProcessed(), is(2L));
+  }
+
+  @Test
+  public void shouldReportEventRateIdleTimeAndMemory() throws Exception {
+    supervisor = supervisorBuilder.memoryEstimator(model -> model.length() * 2L).build();
+
+    supervisor.start("a", "a:");
+    for (int i = 0; i < 5; i++) {
+      supervisor.dispatchEvent("a", "x");
+    }
+    clock.advance(1000);
+
+    LoopStats<String> stats = supervisor.stats("a");
+
+    assertThat(stats.key(), is("a"));
+    assertThat(stats.eventsProcessed(), is(5L));
+    assertThat(stats.eventsPerSecond(), is(5.0));
+    assertThat(stats.idleMillis(), is(1000L));
+    assertThat(stats.estimatedMemoryBytes(), is(14L));
+    assertThat(stats.restarts(), is(0));
+  }
+
+  @Test
+  public void shouldReportStatsForAllLoopsLeastRecentlyUsedFirst() throws Exception {
+    supervisor.start("a", "");
+    supervisor.start("b", "");
+    supervisor.dispatchEvent("a", "1");
+
+    List<String> keys =
+        supervisor.stats().stream().map(LoopStats::key).collect(Collectors.toList());
+
+    assertThat(keys, contains("b", "a"));
+    assertThat(supervisor.stats("unknown"), is(nullValue()));
+  }
+
+  @Test
+  public void shouldEvictLeastRecentlyUsedLoopWhenFull() throws Exception {
+    supervisor = supervisorBuilder.maxLoops(2).build();
+
+    supervisor.start("a", "a:");
+    supervisor.start("b", "b:");
+    supervisor.dispatchEvent("a", "1");
+    supervisor.start("c", "c:");
+
+    assertThat(supervisor.isRunning("a"), is(true));
+    assertThat(supervisor.isRunning("b"), is(false));
+    assertThat(supervisor.isRunning("c"), is(true));
+    assertThat(listener.evicted, contains("b=b:"));
+  }
+
+  @Test
+  public void shouldEvictIdleLoops() throws Exception {
+    supervisor = supervisorBuilder.idleTimeout(10, TimeUnit.SECONDS).build();
+
+    supervisor.start("a", "a:");
+    supervisor.start("b", "b:");
+    clock.advance(6000);
+    supervisor.dispatchEvent("b", "1");
+    clock.advance(6000);
+
+    assertThat(supervisor.evictIdle(), is(1));
+    assertThat(supervisor.isRunning("a"), is(false));
+    assertThat(supervisor.isRunning("b"), is(true));
+    assertThat(listener.evicted, contains("a=a:"));
+  }
+
+  @Test
+  public void shouldNotEvictLoopsWithPendingWork() throws Exception {
+    TestWorkRunner runner = new TestWorkRunner();
+    supervisor =
+        supervisorBuilder.eventRunner(() -> runner).idleTimeout(0, TimeUnit.SECONDS).build();
+
+    supervisor.start("a", "a:");
+
+    assertThat(supervisor.evictIdle(), is(0));
+
+    runner.runAll();
+
+    assertThat(supervisor.evictIdle(), is(1));
+  }
+
+  @Test
+  public void shouldRestartFailedLoopFromMostRecentModel() throws Exception {
+    supervisor = supervisorBuilder.restartStrategy(RestartStrategies.always()).build();
+    RecordingConsumer<String> observer = new RecordingConsumer<>();
+
+    supervisor.start("a", "a:");
+    supervisor.observe("a", observer);
+    supervisor.dispatchEvent("a", "1");
+    supervisor.dispatchEvent("a", "crash");
+    supervisor.dispatchEvent("a", "2");
+
+    assertThat(listener.restarted, contains("a=a:1"));
+    assertThat(supervisor.getMostRecentModel("a"), is("a:12"));
+    assertThat(supervisor.stats("a").restarts(), is(1));
+    observer.assertValues("a:", "a:1", "a:1", "a:12");
+  }
+
+  @Test
+  public void shouldStopFailedLoopWhenStrategySaysSo() throws Exception {
+    supervisor = supervisorBuilder.restartStrategy(RestartStrategies.limited(1)).build();
+
+    supervisor.start("a", "a:");
+    supervisor.dispatchEvent("a", "crash");
+    supervisor.dispatchEvent("a", "crash");
+
+    assertThat(listener.restarted, contains("a=a:"));
+    assertThat(listener.stopped, contains("a=a:"));
+    assertThat(supervisor.isRunning("a"), is(false));
+  }
+
+  @Test
+  public void shouldPassivateIdleLoops() throws Exception {
+    supervisor = supervisorBuilder.passivateAfter(10, TimeUnit.SECONDS).build();
+
+    supervisor.start("a", "a:");
+    supervisor.start("b", "b:");
+    supervisor.dispatchEvent("a", "1");
+    clock.advance(6000);
+    supervisor.dispatchEvent("b", "2");
+    clock.advance(6000);
+
+    assertThat(supervisor.passivateIdle(), is(1));
+    assertThat(supervisor.isActive("a"), is(false));
+    assertThat(supervisor.isRunning("a"), is(true));
+    assertThat(supervisor.isActive("b"), is(true));
+    assertThat(supervisor.activeCount(), is(1));
+    assertThat(supervisor.size(), is(2));
+    assertThat(supervisor.getMostRecentModel("a"), is("a:1"));
+    assertThat(supervisor.stats("a").passivated(), is(true));
+  }
+
+  @Test
+  public void shouldReactivatePassivatedLoopOnEvent() throws Exception {
+    supervisor = supervisorBuilder.passivateAfter(0, TimeUnit.SECONDS).build();
+    RecordingConsumer<String> observer = new RecordingConsumer<>();
+
+    supervisor.start("a", "a:");
+    supervisor.observe("a", observer);
+    supervisor.dispatchEvent("a", "1");
+    supervisor.passivateIdle();
+    supervisor.dispatchEvent("a", "2");
+
+    assertThat(supervisor.isActive("a"), is(true));
+    assertThat(supervisor.getMostRecentModel("a"), is("a:12"));
+    assertThat(supervisor.stats("a").eventsProcessed(), is(2L));
+    observer.assertValues("a:", "a:1", "a:1", "a:12");
+  }
+
+  @Test
+  public void shouldStorePassivatedModelsInModelStore() throws Exception {
+    ModelCodec<String> codec =
+        new ModelCodec<String>() {
+          @Override
+          public byte[] encode(String model) {
+            return model.getBytes(StandardCharsets.UTF_8);
+          }
+
+          @Override
+          public String decode(byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+          }
+        };
+
+    supervisor =
+        supervisorBuilder
+            .passivateAfter(0, TimeUnit.SECONDS)
+            .modelStore(ModelStores.offHeap(codec))
+            .build();
+
+    supervisor.start("a", "a:");
+    supervisor.dispatchEvent("a", "123");
+    supervisor.passivateIdle();
+
+    assertThat(supervisor.stats("a").estimatedMemoryBytes(), is(5L));
+
+    supervisor.dispatchEvent("a", "4");
+
+    assertThat(supervisor.getMostRecentModel("a"), is("a:1234"));
+  }
+
+  @Test
+  public void shouldPassivateLeastRecentlyUsedLoopWhenTooManyAreActive() throws Exception {
+    supervisor = supervisorBuilder.maxActiveLoops(2).build();
+
+    supervisor.start("a", "a:");
+    supervisor.start("b", "b:");
+    supervisor.dispatchEvent("a", "1");
+    supervisor.start("c", "c:");
+
+    assertThat(supervisor.isActive("a"), is(true));
+    assertThat(supervisor.isActive("b"), is(false));
+    assertThat(supervisor.isActive("c"), is(true));
+
+    supervisor.dispatchEvent("b", "2");
+
+    assertThat(supervisor.isActive("a"), is(false));
+    assertThat(supervisor.getMostRecentModel("b"), is("b:2"));
+    assertThat(supervisor.size(), is(3));
+    assertThat(listener.evicted, is(empty()));
+  }
+
+  @Test
+  public void shouldReportModelOfEvictedPassivatedLoop() throws Exception {
+    supervisor =
+        supervisorBuilder
+            .passivateAfter(0, TimeUnit.SECONDS)
+            .idleTimeout(0, TimeUnit.SECONDS)
+            .build();
+
+    supervisor.start("a", "a:");
+    supervisor.passivateIdle();
+
+    assertThat(supervisor.evictIdle(), is(1));
+    assertThat(listener.evicted, contains("a=a:"));
+    assertThatThrownBy(() -> supervisor.dispatchEvent("a", "1"))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void shouldNotPassivateLoopsWithPendingWork() throws Exception {
+    TestWorkRunner runner = new TestWorkRunner();
+    supervisor =
+        supervisorBuilder.eventRunner(() -> runner).passivateAfter(0, TimeUnit.SECONDS).build();
+
+    supervisor.start("a", "a:");
+
+    assertThat(supervisor.passivateIdle(), is(0));
+
+    runner.runAll();
+
+    assertThat(supervisor.passivateIdle(), is(1));
+  }
+
+  @Test
+  public void shouldNotPassivateLoopsWithRunningEffects() throws Exception {
+    TestWorkRunner effectRunner = new TestWorkRunner();
+    supervisor =
+        LoopSupervisor.<String, String, String, String>builder(
+                Mobius.<String, String, String>loop(
+                    (model, event) ->
+                        event.equals("1")
+                            ? Next.next(model + event, effects("effect"))
+                            : Next.next(model + event),
+                    eventConsumer ->
+                        new SimpleConnection<String>() {
+                          @Override
+                          public void accept(String value) {
+                            eventConsumer.accept("!");
+                          }
+                        }))
+            .eventRunner(WorkRunners::immediate)
+            .effectRunner(() -> effectRunner)
+            .supervisionRunner(WorkRunners::immediate)
+            .clock(clock)
+            .passivateAfter(0, TimeUnit.SECONDS)
+            .build();
+
+    supervisor.start("a", "a:");
+    supervisor.dispatchEvent("a", "1");
+
+    assertThat(supervisor.passivateIdle(), is(0));
+
+    effectRunner.runAll();
+
+    assertThat(supervisor.getMostRecentModel("a"), is("a:1!"));
+  }
+
+  @Test
+  public void shouldNotAllowStartingAfterDispose() throws Exception {
+    supervisor.start("a", "");
+    supervisor.dispose();
+
+    assertThat(supervisor.isRunning("a"), is(false));
+    assertThatThrownBy(() -> supervisor.start("b", "")).isInstanceOf(IllegalStateException.class);
+  }
+
+  private static <T> org.hamcrest.Matcher<java.util.Collection<? extends T>> empty() {
+    return org.hamcrest.Matchers.empty();
+  }
+
+  private static class FakeClock implements Clock {
+    private long now = 1_000_000;
+
+    void advance(long millis) {
+      now += millis;
+    }
+
+    @Override
+    public long millis() {
+      return now;
+    }
+  }
+
+  private static class RecordingListener implements LoopSupervisor.Listener<String, String> {
+    final List<String> evicted = new ArrayList<>();
+    final List<String> restarted = new ArrayList<>();
+    final List<String> stopped = new ArrayList<>();
+
+    @Override
+    public void onEvicted(String key, String model) {
+      evicted.add(key + "=" + model);
+    }
+
+    @Override
+    public void onRestarted(String key, String model, Throwable cause) {
+      restarted.add(key + "=" + model);
+    }
+
+    @Override
+    public void onStopped(String key, String model, Throwable cause) {
+      stopped.add(key + "=" + model);
+    }
+  }
+}
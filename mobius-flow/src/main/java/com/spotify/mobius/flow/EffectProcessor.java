@@ -0,0 +1,196 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.flow;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.Connectable;
+import com.spotify.mobius.Connection;
+import com.spotify.mobius.ConnectionException;
+import com.spotify.mobius.functions.Consumer;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link Flow.Processor} that handles effects with a {@link Connectable}. Effects are only
+ * requested from upstream while fewer than {@code bufferSize} effects and events are outstanding.
+ */
+final class EffectProcessor<F, E> implements Flow.Processor<F, E> {
+
+  private final Connectable<F, E> connectable;
+  private final int bufferSize;
+  private final Emitter<E> emitter;
+  private final AtomicReference<Flow.Subscription> upstream = new AtomicReference<>();
+
+  // guarded by 'this'
+  @Nullable private Connection<F> connection;
+  private long outstanding;
+  private boolean terminated;
+
+  EffectProcessor(Connectable<F, E> connectable, int bufferSize) {
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+    }
+    this.connectable = checkNotNull(connectable);
+    this.bufferSize = bufferSize;
+    this.emitter =
+        new Emitter<>(
+            bufferSize,
+            false,
+            new Runnable() {
+              @Override
+              public void run() {
+                replenish();
+              }
+            },
+            new Runnable() {
+              @Override
+              public void run() {
+                cancelUpstream();
+                terminate();
+              }
+            });
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super E> subscriber) {
+    emitter.subscribe(subscriber);
+  }
+
+  @Override
+  public void onSubscribe(Flow.Subscription subscription) {
+    checkNotNull(subscription);
+
+    if (!upstream.compareAndSet(null, subscription)) {
+      subscription.cancel();
+      return;
+    }
+
+    Connection<F> newConnection =
+        connectable.connect(
+            new Consumer<E>() {
+              @Override
+              public void accept(E event) {
+                emitter.emit(event);
+              }
+            });
+
+    synchronized (this) {
+      if (!terminated) {
+        connection = newConnection;
+        newConnection = null;
+      }
+    }
+
+    if (newConnection != null) {
+      // cancelled while connecting
+      newConnection.dispose();
+      subscription.cancel();
+      return;
+    }
+
+    replenish();
+  }
+
+  @Override
+  public void onNext(F effect) {
+    checkNotNull(effect);
+
+    Connection<F> current;
+    synchronized (this) {
+      outstanding--;
+      current = connection;
+    }
+
+    if (current == null) {
+      return;
+    }
+
+    try {
+      current.accept(effect);
+    } catch (RuntimeException e) {
+      cancelUpstream();
+      terminate();
+      emitter.error(new ConnectionException(effect, e));
+      return;
+    }
+
+    replenish();
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    checkNotNull(throwable);
+    terminate();
+    emitter.error(throwable);
+  }
+
+  /**
+   * Completes the subscriber once the events waiting for demand have been delivered. Events that
+   * the connection emits after upstream completion are dropped.
+   */
+  @Override
+  public void onComplete() {
+    terminate();
+    emitter.complete();
+  }
+
+  private void replenish() {
+    Flow.Subscription subscription = upstream.get();
+    if (subscription == null) {
+      return;
+    }
+
+    long n;
+    synchronized (this) {
+      if (terminated || connection == null) {
+        return;
+      }
+      n = bufferSize - outstanding - emitter.buffered();
+      if (n <= 0) {
+        return;
+      }
+      outstanding += n;
+    }
+
+    subscription.request(n);
+  }
+
+  private void cancelUpstream() {
+    Flow.Subscription subscription = upstream.get();
+    if (subscription != null) {
+      subscription.cancel();
+    }
+  }
+
+  private void terminate() {
+    Connection<F> toDispose;
+    synchronized (this) {
+      terminated = true;
+      toDispose = connection;
+      connection = null;
+    }
+
+    if (toDispose != null) {
+      toDispose.dispose();
+    }
+  }
+}
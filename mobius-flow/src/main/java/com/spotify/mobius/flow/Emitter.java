@@ -0,0 +1,251 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.flow;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+
+/**
+ * The publishing half of a processor. Values are delivered to a single subscriber as it signals
+ * demand, and signals are serialized with a work-in-progress counter so that they can be emitted
+ * from any thread.
+ *
+ * <p>Values waiting for demand are kept in a queue. If the emitter is conflating, the queue holds
+ * at most {@code capacity} values and the oldest value is dropped when it is full; otherwise the
+ * owner is responsible for bounding the queue through the demand it signals upstream.
+ *
+ * @param <T> the value type
+ */
+final class Emitter<T> implements Flow.Subscription {
+
+  private final int capacity;
+  private final boolean conflating;
+  private final Runnable onDrained;
+  private final Runnable onCancel;
+
+  // guarded by 'queue'
+  private final ArrayDeque<T> queue = new ArrayDeque<>();
+
+  private final AtomicLong requested = new AtomicLong();
+  private final AtomicInteger wip = new AtomicInteger();
+  private final AtomicBoolean subscribed = new AtomicBoolean();
+  private final AtomicBoolean cancelled = new AtomicBoolean();
+
+  @Nullable private volatile Flow.Subscriber<? super T> subscriber;
+  private volatile boolean done;
+  @Nullable private volatile Throwable error;
+  private boolean terminated; // only accessed while draining
+
+  /**
+   * @param capacity the capacity of a conflating emitter
+   * @param conflating whether to drop the oldest value when the queue is full
+   * @param onDrained invoked after values have been delivered, so that the owner can request more
+   * @param onCancel invoked once when the subscriber cancels
+   */
+  Emitter(int capacity, boolean conflating, Runnable onDrained, Runnable onCancel) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive: " + capacity);
+    }
+    this.capacity = capacity;
+    this.conflating = conflating;
+    this.onDrained = checkNotNull(onDrained);
+    this.onCancel = checkNotNull(onCancel);
+  }
+
+  void subscribe(Flow.Subscriber<? super T> s) {
+    checkNotNull(s);
+
+    if (!subscribed.compareAndSet(false, true)) {
+      s.onSubscribe(NoopSubscription.INSTANCE);
+      s.onError(new IllegalStateException("Only a single subscriber is supported"));
+      return;
+    }
+
+    s.onSubscribe(this);
+    // publish the subscriber only after onSubscribe has returned, so that it can't receive other
+    // signals before that
+    if (!cancelled.get() || error != null) {
+      subscriber = s;
+    }
+    drain();
+  }
+
+  void emit(T value) {
+    synchronized (queue) {
+      if (conflating && queue.size() >= capacity) {
+        queue.pollFirst();
+      }
+      queue.addLast(value);
+    }
+    drain();
+  }
+
+  void complete() {
+    done = true;
+    drain();
+  }
+
+  void error(Throwable throwable) {
+    if (cancelled.get()) {
+      return;
+    }
+    error = throwable;
+    done = true;
+    drain();
+  }
+
+  /** @return the number of values waiting for demand */
+  int buffered() {
+    synchronized (queue) {
+      return queue.size();
+    }
+  }
+
+  boolean isCancelled() {
+    return cancelled.get();
+  }
+
+  @Override
+  public void request(long n) {
+    if (n <= 0) {
+      error = new IllegalArgumentException("§3.9: non-positive subscription request: " + n);
+      done = true;
+      cancel();
+      drain();
+      return;
+    }
+
+    while (true) {
+      long current = requested.get();
+      long next = current + n < 0 ? Long.MAX_VALUE : current + n;
+      if (requested.compareAndSet(current, next)) {
+        break;
+      }
+    }
+
+    drain();
+  }
+
+  @Override
+  public void cancel() {
+    if (cancelled.compareAndSet(false, true)) {
+      if (error == null) {
+        // §3.13: drop the reference to the subscriber
+        subscriber = null;
+      }
+      onCancel.run();
+      drain();
+    }
+  }
+
+  private void drain() {
+    if (wip.getAndIncrement() != 0) {
+      return;
+    }
+
+    int missed = 1;
+    while (true) {
+      Flow.Subscriber<? super T> s = subscriber;
+
+      if (s != null && !terminated) {
+        long emitted = drainTo(s);
+
+        if (emitted > 0) {
+          onDrained.run();
+        }
+      }
+
+      if (cancelled.get() && error == null) {
+        synchronized (queue) {
+          queue.clear();
+        }
+      }
+
+      missed = wip.addAndGet(-missed);
+      if (missed == 0) {
+        return;
+      }
+    }
+  }
+
+  private long drainTo(Flow.Subscriber<? super T> s) {
+    long emitted = 0;
+    long demand = requested.get();
+
+    while (true) {
+      Throwable throwable = error;
+      if (throwable != null) {
+        terminated = true;
+        synchronized (queue) {
+          queue.clear();
+        }
+        subscriber = null;
+        s.onError(throwable);
+        return emitted;
+      }
+
+      if (cancelled.get()) {
+        return emitted;
+      }
+
+      T value = null;
+      boolean empty;
+      synchronized (queue) {
+        if (emitted != demand) {
+          value = queue.pollFirst();
+        }
+        empty = queue.isEmpty();
+      }
+
+      if (value == null) {
+        if (empty && done) {
+          terminated = true;
+          subscriber = null;
+          s.onComplete();
+        }
+        break;
+      }
+
+      s.onNext(value);
+      emitted++;
+    }
+
+    if (emitted > 0 && demand != Long.MAX_VALUE) {
+      requested.addAndGet(-emitted);
+    }
+    return emitted;
+  }
+
+  private enum NoopSubscription implements Flow.Subscription {
+    INSTANCE;
+
+    @Override
+    public void request(long n) {}
+
+    @Override
+    public void cancel() {}
+  }
+}
@@ -0,0 +1,257 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.flow;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.MobiusLoop;
+import com.spotify.mobius.Next;
+import com.spotify.mobius.Update;
+import com.spotify.mobius.functions.Consumer;
+import com.spotify.mobius.functions.Function;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link Flow.Processor} that runs a {@link MobiusLoop}, dispatching the events it receives to
+ * the loop and publishing the models of the loop. The loop is started when the processor is first
+ * subscribed to, or subscribes to an upstream publisher, and disposed when the subscriber cancels
+ * or the upstream publisher fails.
+ *
+ * <p>Events are requested from upstream in batches, and a batch is only replenished once the loop
+ * has run the update function for most of the previous one, so that the events waiting on the event
+ * runner stay bounded. To find out when that happens, the processor wraps the loop's update
+ * function.
+ */
+final class LoopProcessor<M, E, F> implements Flow.Processor<E, M> {
+
+  private final MobiusLoop.Factory<M, E, F> loopFactory;
+  private final M startModel;
+  private final int requestSize;
+  private final int replenishThreshold;
+  private final Emitter<M> emitter;
+  private final AtomicReference<Flow.Subscription> upstream = new AtomicReference<>();
+
+  // events received from upstream that the update function hasn't processed yet, in order
+  private final Queue<E> inFlight = new ConcurrentLinkedQueue<>();
+
+  // upstream requests and cancellation are serialized through a work-in-progress counter, since
+  // they are signalled both from upstream and from the event runner
+  private final AtomicLong pendingRequests = new AtomicLong();
+  private final AtomicBoolean upstreamCancelled = new AtomicBoolean();
+  private final AtomicInteger upstreamWip = new AtomicInteger();
+  private boolean upstreamTerminated; // only accessed while draining upstream signals
+
+  // guarded by 'this'
+  @Nullable private MobiusLoop<M, E, F> loop;
+  private boolean disposed;
+
+  // only accessed from the update function, which the loop never runs concurrently
+  private int processed;
+
+  LoopProcessor(
+      final Update<M, E, F> update,
+      Function<Update<M, E, F>, ? extends MobiusLoop.Factory<M, E, F>> loopFactory,
+      M startModel,
+      int requestSize) {
+    checkNotNull(update);
+    if (requestSize <= 0) {
+      throw new IllegalArgumentException("requestSize must be positive: " + requestSize);
+    }
+    this.loopFactory =
+        checkNotNull(
+            loopFactory.apply(
+                new Update<M, E, F>() {
+                  @Nonnull
+                  @Override
+                  public Next<M, F> update(M model, E event) {
+                    try {
+                      return update.update(model, event);
+                    } finally {
+                      onUpdated(event);
+                    }
+                  }
+                }));
+    this.startModel = checkNotNull(startModel);
+    this.requestSize = requestSize;
+    this.replenishThreshold = requestSize - (requestSize >> 2);
+    this.emitter =
+        new Emitter<>(
+            1,
+            true,
+            new Runnable() {
+              @Override
+              public void run() {}
+            },
+            new Runnable() {
+              @Override
+              public void run() {
+                cancelUpstream();
+                dispose();
+              }
+            });
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super M> subscriber) {
+    checkNotNull(subscriber);
+    start();
+    emitter.subscribe(subscriber);
+  }
+
+  @Override
+  public void onSubscribe(Flow.Subscription subscription) {
+    checkNotNull(subscription);
+
+    if (!upstream.compareAndSet(null, subscription)) {
+      subscription.cancel();
+      return;
+    }
+
+    if (!start()) {
+      cancelUpstream();
+      return;
+    }
+
+    requestUpstream(requestSize);
+  }
+
+  @Override
+  public void onNext(E event) {
+    checkNotNull(event);
+
+    synchronized (this) {
+      if (loop == null) {
+        return;
+      }
+      inFlight.add(event);
+      loop.dispatchEvent(event);
+    }
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    checkNotNull(throwable);
+    dispose();
+    emitter.error(throwable);
+  }
+
+  /**
+   * Upstream completion doesn't stop the loop, since effects may still produce events and models.
+   * The loop runs until the subscriber cancels.
+   */
+  @Override
+  public void onComplete() {}
+
+  private void onUpdated(E event) {
+    // Events from upstream are processed in the order they were received, so only the oldest one
+    // in flight can be the event that was just processed. Anything else came from an effect
+    // handler or an event source.
+    if (inFlight.peek() != event) {
+      return;
+    }
+    inFlight.poll();
+
+    // request more events in batches, once most of the previous batch has been processed
+    if (++processed == replenishThreshold) {
+      processed = 0;
+      requestUpstream(replenishThreshold);
+    }
+  }
+
+  private void requestUpstream(long n) {
+    while (true) {
+      long current = pendingRequests.get();
+      long next = current + n < 0 ? Long.MAX_VALUE : current + n;
+      if (pendingRequests.compareAndSet(current, next)) {
+        break;
+      }
+    }
+    drainUpstream();
+  }
+
+  private void cancelUpstream() {
+    upstreamCancelled.set(true);
+    drainUpstream();
+  }
+
+  private void drainUpstream() {
+    if (upstreamWip.getAndIncrement() != 0) {
+      return;
+    }
+
+    int missed = 1;
+    while (true) {
+      Flow.Subscription subscription = upstream.get();
+      if (subscription != null && !upstreamTerminated) {
+        if (upstreamCancelled.get()) {
+          upstreamTerminated = true;
+          pendingRequests.set(0);
+          subscription.cancel();
+        } else {
+          long n = pendingRequests.getAndSet(0);
+          if (n > 0) {
+            subscription.request(n);
+          }
+        }
+      }
+
+      missed = upstreamWip.addAndGet(-missed);
+      if (missed == 0) {
+        return;
+      }
+    }
+  }
+
+  private synchronized boolean start() {
+    if (disposed) {
+      return false;
+    }
+
+    if (loop == null) {
+      loop = loopFactory.startFrom(startModel);
+      loop.observe(
+          new Consumer<M>() {
+            @Override
+            public void accept(M model) {
+              emitter.emit(model);
+            }
+          });
+    }
+
+    return true;
+  }
+
+  private synchronized void dispose() {
+    disposed = true;
+    if (loop != null) {
+      loop.dispose();
+      loop = null;
+    }
+    inFlight.clear();
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.flow;
+
+import com.spotify.mobius.Connectable;
+import com.spotify.mobius.MobiusLoop;
+import com.spotify.mobius.Update;
+import com.spotify.mobius.functions.Function;
+import java.util.concurrent.Flow;
+
+/**
+ * Factory methods for adapting Mobius loops and effect handlers to {@link Flow} processors. The
+ * processors honour the demand of their subscribers and only request as much from upstream as their
+ * configured buffers can hold, which makes them usable with any Reactive Streams library that
+ * interoperates with {@link Flow}, such as Reactor.
+ *
+ * <p>The processors support a single subscriber; further subscribers are rejected with an {@link
+ * IllegalStateException}.
+ */
+public final class MobiusFlow {
+  private MobiusFlow() {
+    // prevent instantiation
+  }
+
+  /**
+   * Create a processor that runs a {@link MobiusLoop}.
+   *
+   * <p>Events received by the processor are dispatched to the loop, and the models of the loop are
+   * published to the subscriber. Models are states rather than messages, so a subscriber that
+   * signals less demand than the loop produces models will receive the latest model once it
+   * requests more; earlier models that it didn't request are dropped.
+   *
+   * <p>Events are requested from upstream in batches of {@code eventRequestSize}, and more events
+   * are only requested once the loop has run its update function for most of the previous batch.
+   * The processor finds out when that happens by wrapping {@code update} before passing it to
+   * {@code loopFactory}, which should configure the loop as usual:
+   *
+   * <pre>{@code
+   * MobiusFlow.loopProcessor(update, u -> Mobius.loop(u, effectHandler).init(init), model, 16);
+   * }</pre>
+   *
+   * <p>A new loop is started from {@code startModel} when the processor is first subscribed to or
+   * subscribes to an upstream publisher. The loop is disposed when the subscriber cancels or the
+   * upstream publisher fails; upstream completion doesn't stop the loop.
+   *
+   * @param update the update function of the loop
+   * @param loopFactory a function creating the loop factory from the wrapped update function
+   * @param startModel the model to start the loop from
+   * @param eventRequestSize the number of events to request from upstream at a time
+   * @param <M> the model type
+   * @param <E> the event type
+   * @param <F> the effect type
+   * @return a processor from events to models
+   */
+  public static <M, E, F> Flow.Processor<E, M> loopProcessor(
+      Update<M, E, F> update,
+      Function<Update<M, E, F>, ? extends MobiusLoop.Factory<M, E, F>> loopFactory,
+      M startModel,
+      int eventRequestSize) {
+    return new LoopProcessor<>(update, loopFactory, startModel, eventRequestSize);
+  }
+
+  /**
+   * Create a processor that handles effects with a {@link Connectable}.
+   *
+   * <p>Effects received by the processor are dispatched to a connection, and the events it emits
+   * are published to the subscriber as it signals demand. Effects are only requested from upstream
+   * while fewer than {@code bufferSize} effects have been requested and events are waiting for
+   * demand; a connection that emits several events for one effect may briefly exceed that.
+   *
+   * <p>The connection is created when the processor subscribes to an upstream publisher, and
+   * disposed when the subscriber cancels or the upstream publisher terminates. Upstream completion
+   * is forwarded to the subscriber once the waiting events have been delivered.
+   *
+   * @param connectable the effect handler
+   * @param bufferSize the maximum number of effects and events outstanding
+   * @param <F> the effect type
+   * @param <E> the event type
+   * @return a processor from effects to events
+   */
+  public static <F, E> Flow.Processor<F, E> effectProcessor(
+      Connectable<F, E> connectable, int bufferSize) {
+    return new EffectProcessor<>(connectable, bufferSize);
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.flow;
+
+import com.spotify.mobius.Connectable;
+import com.spotify.mobius.Connection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import org.reactivestreams.tck.TestEnvironment;
+import org.reactivestreams.tck.flow.IdentityFlowProcessorVerification;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+
+/** Runs the Reactive Streams TCK against an effect processor with an identity effect handler. */
+public class EffectProcessorTckTest extends IdentityFlowProcessorVerification<Integer> {
+
+  private ExecutorService executor;
+
+  public EffectProcessorTckTest() {
+    super(new TestEnvironment());
+  }
+
+  @BeforeClass
+  public void startExecutor() {
+    executor = Executors.newFixedThreadPool(4);
+  }
+
+  @AfterClass
+  public void stopExecutor() {
+    executor.shutdownNow();
+  }
+
+  @Override
+  public Flow.Processor<Integer, Integer> createIdentityFlowProcessor(int bufferSize) {
+    Connectable<Integer, Integer> identity =
+        output ->
+            new Connection<Integer>() {
+              @Override
+              public void accept(Integer value) {
+                output.accept(value);
+              }
+
+              @Override
+              public void dispose() {}
+            };
+
+    return MobiusFlow.effectProcessor(identity, bufferSize);
+  }
+
+  @Override
+  public Flow.Publisher<Integer> createFailedFlowPublisher() {
+    Flow.Processor<Integer, Integer> processor = createIdentityFlowProcessor(1);
+    processor.onSubscribe(
+        new Flow.Subscription() {
+          @Override
+          public void request(long n) {}
+
+          @Override
+          public void cancel() {}
+        });
+    processor.onError(new RuntimeException("failed"));
+    return processor;
+  }
+
+  @Override
+  public ExecutorService publisherExecutorService() {
+    return executor;
+  }
+
+  @Override
+  public Integer createElement(int element) {
+    return element;
+  }
+
+  @Override
+  public long maxSupportedSubscribers() {
+    return 1;
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.flow;
+
+import com.spotify.mobius.Connection;
+import com.spotify.mobius.Mobius;
+import com.spotify.mobius.Next;
+import com.spotify.mobius.runners.WorkRunners;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import org.reactivestreams.tck.TestEnvironment;
+import org.reactivestreams.tck.flow.IdentityFlowProcessorVerification;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Runs the Reactive Streams TCK against a loop processor whose models are its latest event.
+ *
+ * <p>A loop processor publishes a stream of states rather than an identity stream: it publishes the
+ * start model before any events, conflates models that the subscriber hasn't requested yet, and
+ * doesn't complete when upstream completes, since effects may still produce models. The rules that
+ * depend on identity behaviour are skipped below; the rest of the TCK runs as usual.
+ */
+public class LoopProcessorTckTest extends IdentityFlowProcessorVerification<Integer> {
+
+  private ExecutorService executor;
+
+  public LoopProcessorTckTest() {
+    super(new TestEnvironment());
+  }
+
+  @BeforeClass
+  public void startExecutor() {
+    executor = Executors.newFixedThreadPool(4);
+  }
+
+  @AfterClass
+  public void stopExecutor() {
+    executor.shutdownNow();
+  }
+
+  @Override
+  public Flow.Processor<Integer, Integer> createIdentityFlowProcessor(int bufferSize) {
+    return MobiusFlow.loopProcessor(
+        (Integer model, Integer event) -> Next.<Integer, Integer>next(event),
+        update ->
+            Mobius.loop(
+                    update,
+                    output ->
+                        new Connection<Integer>() {
+                          @Override
+                          public void accept(Integer value) {}
+
+                          @Override
+                          public void dispose() {}
+                        })
+                .eventRunner(WorkRunners::immediate)
+                .effectRunner(WorkRunners::immediate),
+        -1,
+        bufferSize);
+  }
+
+  @Override
+  public Flow.Publisher<Integer> createFailedFlowPublisher() {
+    Flow.Processor<Integer, Integer> processor = createIdentityFlowProcessor(1);
+    processor.onSubscribe(
+        new Flow.Subscription() {
+          @Override
+          public void request(long n) {}
+
+          @Override
+          public void cancel() {}
+        });
+    processor.onError(new RuntimeException("failed"));
+    return processor;
+  }
+
+  @Override
+  public ExecutorService publisherExecutorService() {
+    return executor;
+  }
+
+  @Override
+  public Integer createElement(int element) {
+    return element;
+  }
+
+  @Override
+  public long maxSupportedSubscribers() {
+    return 1;
+  }
+
+  @Override
+  @Test
+  public void required_createPublisher1MustProduceAStreamOfExactly1Element() throws Throwable {
+    notVerified("the model stream doesn't complete when upstream completes");
+  }
+
+  @Override
+  @Test
+  public void required_createPublisher3MustProduceAStreamOfExactly3Elements() throws Throwable {
+    notVerified("the model stream doesn't complete when upstream completes");
+  }
+
+  @Override
+  @Test
+  public void required_spec102_maySignalLessThanRequestedAndTerminateSubscription()
+      throws Throwable {
+    notVerified("the model stream doesn't complete when upstream completes");
+  }
+
+  @Override
+  @Test
+  public void required_spec105_mustSignalOnCompleteWhenFiniteStreamTerminates() throws Throwable {
+    notVerified("the model stream doesn't complete when upstream completes");
+  }
+
+  @Override
+  @Test
+  public void required_spec107_mustNotEmitFurtherSignalsOnceOnCompleteHasBeenSignalled()
+      throws Throwable {
+    notVerified("the model stream doesn't complete when upstream completes");
+  }
+
+  @Override
+  @Test
+  public void required_spec209_mustBePreparedToReceiveAnOnCompleteSignalWithPrecedingRequestCall()
+      throws Throwable {
+    notVerified("the model stream doesn't complete when upstream completes");
+  }
+
+  @Override
+  @Test
+  public void
+      required_spec209_mustBePreparedToReceiveAnOnCompleteSignalWithoutPrecedingRequestCall()
+          throws Throwable {
+    notVerified("the model stream doesn't complete when upstream completes");
+  }
+
+  @Override
+  @Test
+  public void required_spec303_mustNotAllowUnboundedRecursion() throws Throwable {
+    notVerified("the model stream doesn't complete when upstream completes");
+  }
+
+  @Override
+  @Test
+  public void required_spec317_mustSupportACumulativePendingElementCountUpToLongMaxValue()
+      throws Throwable {
+    notVerified("the model stream doesn't complete when upstream completes");
+  }
+
+  @Override
+  @Test
+  public void required_spec317_mustSupportAPendingElementCountUpToLongMaxValue() throws Throwable {
+    notVerified("the model stream doesn't complete when upstream completes");
+  }
+
+  @Override
+  @Test
+  public void stochastic_spec103_mustSignalOnMethodsSequentially() throws Throwable {
+    notVerified("the model stream doesn't complete when upstream completes");
+  }
+
+  @Override
+  @Test
+  public void required_exerciseWhiteboxHappyPath() throws Throwable {
+    notVerified("the start model is published before any events");
+  }
+
+  @Override
+  @Test
+  public void required_spec308_requestMustRegisterGivenNumberElementsToBeProduced()
+      throws Throwable {
+    notVerified("the start model is published before any events");
+  }
+
+  @Override
+  @Test
+  public void required_spec101_subscriptionRequestMustResultInTheCorrectNumberOfProducedElements()
+      throws Throwable {
+    notVerified("models that haven't been requested are conflated");
+  }
+}
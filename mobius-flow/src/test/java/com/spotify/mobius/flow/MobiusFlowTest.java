@@ -0,0 +1,315 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.flow;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.spotify.mobius.Connectable;
+import com.spotify.mobius.Connection;
+import com.spotify.mobius.Mobius;
+import com.spotify.mobius.Next;
+import com.spotify.mobius.functions.Consumer;
+import com.spotify.mobius.runners.WorkRunner;
+import com.spotify.mobius.runners.WorkRunners;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MobiusFlowTest {
+
+  private Connectable<String, String> connectable;
+  private WorkRunner eventRunner;
+  private List<String> effects;
+  private Consumer<String> effectOutput;
+  private boolean connectionDisposed;
+
+  @Before
+  public void setUp() throws Exception {
+    effects = new ArrayList<>();
+
+    eventRunner = WorkRunners.immediate();
+    connectable =
+        output -> {
+          effectOutput = output;
+          return new Connection<String>() {
+            @Override
+            public void accept(String value) {
+              effects.add(value);
+            }
+
+            @Override
+            public void dispose() {
+              connectionDisposed = true;
+            }
+          };
+        };
+  }
+
+  @Test
+  public void loopProcessorShouldPublishModelsOnDemand() throws Exception {
+    Flow.Processor<String, String> processor = loopProcessor();
+    RecordingSubscriber<String> subscriber = new RecordingSubscriber<>();
+    processor.subscribe(subscriber);
+
+    assertThat(subscriber.values, is(empty()));
+
+    subscriber.request(1);
+    assertThat(subscriber.values, contains("init"));
+
+    TestSubscription upstream = new TestSubscription();
+    processor.onSubscribe(upstream);
+    processor.onNext("a");
+    subscriber.request(1);
+
+    assertThat(subscriber.values, contains("init", "init->a"));
+  }
+
+  @Test
+  public void loopProcessorShouldConflateModelsWithoutDemand() throws Exception {
+    Flow.Processor<String, String> processor = loopProcessor();
+    RecordingSubscriber<String> subscriber = new RecordingSubscriber<>();
+    processor.subscribe(subscriber);
+    processor.onSubscribe(new TestSubscription());
+
+    processor.onNext("a");
+    processor.onNext("b");
+    subscriber.request(5);
+
+    assertThat(subscriber.values, contains("init->a->b"));
+  }
+
+  @Test
+  public void loopProcessorShouldRequestEventsInBatches() throws Exception {
+    Flow.Processor<String, String> processor = loopProcessor();
+    TestSubscription upstream = new TestSubscription();
+    processor.onSubscribe(upstream);
+
+    assertThat(upstream.requested, is(4L));
+
+    processor.onNext("a");
+    processor.onNext("b");
+    assertThat(upstream.requested, is(4L));
+
+    processor.onNext("c");
+    assertThat(upstream.requested, is(7L));
+  }
+
+  @Test
+  public void loopProcessorShouldOnlyRequestEventsAfterUpdating() throws Exception {
+    List<Runnable> posted = new ArrayList<>();
+    eventRunner =
+        new WorkRunner() {
+          @Override
+          public void post(Runnable runnable) {
+            posted.add(runnable);
+          }
+
+          @Override
+          public void dispose() {}
+        };
+
+    Flow.Processor<String, String> processor = loopProcessor();
+    TestSubscription upstream = new TestSubscription();
+    processor.onSubscribe(upstream);
+
+    processor.onNext("a");
+    processor.onNext("b");
+    processor.onNext("c");
+    assertThat(upstream.requested, is(4L));
+
+    runAll(posted);
+    assertThat(upstream.requested, is(7L));
+  }
+
+  @Test
+  public void loopProcessorShouldNotCountEventsFromEffects() throws Exception {
+    Flow.Processor<String, String> processor = loopProcessor();
+    TestSubscription upstream = new TestSubscription();
+    processor.onSubscribe(upstream);
+
+    effectOutput.accept("x");
+    effectOutput.accept("y");
+    effectOutput.accept("z");
+
+    assertThat(upstream.requested, is(4L));
+  }
+
+  @Test
+  public void loopProcessorShouldCancelUpstreamOnCancel() throws Exception {
+    Flow.Processor<String, String> processor = loopProcessor();
+    RecordingSubscriber<String> subscriber = new RecordingSubscriber<>();
+    TestSubscription upstream = new TestSubscription();
+    processor.subscribe(subscriber);
+    processor.onSubscribe(upstream);
+
+    subscriber.subscription.cancel();
+
+    assertThat(upstream.cancelled, is(true));
+    assertThat(connectionDisposed, is(true));
+  }
+
+  @Test
+  public void effectProcessorShouldOnlyRequestEffectsThatFitInBuffer() throws Exception {
+    Flow.Processor<String, String> processor = MobiusFlow.effectProcessor(handlingConnectable(), 2);
+    RecordingSubscriber<String> subscriber = new RecordingSubscriber<>();
+    TestSubscription upstream = new TestSubscription();
+    processor.subscribe(subscriber);
+    processor.onSubscribe(upstream);
+
+    assertThat(upstream.requested, is(2L));
+
+    processor.onNext("a");
+    processor.onNext("b");
+
+    // both events are waiting for demand, so no more effects are requested
+    assertThat(upstream.requested, is(2L));
+    assertThat(subscriber.values, is(empty()));
+
+    subscriber.request(1);
+
+    assertThat(subscriber.values, contains("a handled"));
+    assertThat(upstream.requested, is(3L));
+  }
+
+  @Test
+  public void effectProcessorShouldCompleteAfterDeliveringEvents() throws Exception {
+    Flow.Processor<String, String> processor = MobiusFlow.effectProcessor(handlingConnectable(), 2);
+    RecordingSubscriber<String> subscriber = new RecordingSubscriber<>();
+    processor.subscribe(subscriber);
+    processor.onSubscribe(new TestSubscription());
+
+    processor.onNext("a");
+    processor.onComplete();
+
+    assertThat(subscriber.completed, is(false));
+
+    subscriber.request(1);
+
+    assertThat(subscriber.values, contains("a handled"));
+    assertThat(subscriber.completed, is(true));
+  }
+
+  @Test
+  public void effectProcessorShouldRejectSecondSubscriber() throws Exception {
+    Flow.Processor<String, String> processor = MobiusFlow.effectProcessor(handlingConnectable(), 2);
+    RecordingSubscriber<String> second = new RecordingSubscriber<>();
+    processor.subscribe(new RecordingSubscriber<>());
+
+    processor.subscribe(second);
+
+    assertThat(second.error, is(instanceOf(IllegalStateException.class)));
+  }
+
+  @Test
+  public void shouldSignalErrorForNonPositiveRequests() throws Exception {
+    Flow.Processor<String, String> processor = MobiusFlow.effectProcessor(handlingConnectable(), 2);
+    RecordingSubscriber<String> subscriber = new RecordingSubscriber<>();
+    TestSubscription upstream = new TestSubscription();
+    processor.subscribe(subscriber);
+    processor.onSubscribe(upstream);
+
+    subscriber.request(0);
+
+    assertThat(subscriber.error, is(instanceOf(IllegalArgumentException.class)));
+    assertThat(upstream.cancelled, is(true));
+  }
+
+  private Flow.Processor<String, String> loopProcessor() {
+    return MobiusFlow.loopProcessor(
+        (String model, String event) -> Next.<String, String>next(model + "->" + event),
+        update ->
+            Mobius.loop(update, connectable)
+                .eventRunner(() -> eventRunner)
+                .effectRunner(WorkRunners::immediate),
+        "init",
+        4);
+  }
+
+  private static void runAll(List<Runnable> posted) {
+    while (!posted.isEmpty()) {
+      posted.remove(0).run();
+    }
+  }
+
+  private static Connectable<String, String> handlingConnectable() {
+    return output ->
+        new Connection<String>() {
+          @Override
+          public void accept(String value) {
+            output.accept(value + " handled");
+          }
+
+          @Override
+          public void dispose() {}
+        };
+  }
+
+  private static class TestSubscription implements Flow.Subscription {
+    private long requested;
+    private boolean cancelled;
+
+    @Override
+    public void request(long n) {
+      requested += n;
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+    }
+  }
+
+  private static class RecordingSubscriber<T> implements Flow.Subscriber<T> {
+    private final List<T> values = new ArrayList<>();
+    private Flow.Subscription subscription;
+    private Throwable error;
+    private boolean completed;
+
+    void request(long n) {
+      subscription.request(n);
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(T item) {
+      values.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error = throwable;
+    }
+
+    @Override
+    public void onComplete() {
+      completed = true;
+    }
+  }
+}
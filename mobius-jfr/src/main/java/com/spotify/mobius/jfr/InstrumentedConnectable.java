@@ -0,0 +1,70 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.jfr;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.Connectable;
+import com.spotify.mobius.Connection;
+import com.spotify.mobius.functions.Consumer;
+import javax.annotation.Nonnull;
+
+class InstrumentedConnectable<F, E> implements Connectable<F, E> {
+
+  private final Connectable<F, E> actualConnectable;
+  private final MobiusJfr loop;
+
+  InstrumentedConnectable(Connectable<F, E> actualConnectable, MobiusJfr loop) {
+    this.actualConnectable = checkNotNull(actualConnectable);
+    this.loop = checkNotNull(loop);
+  }
+
+  @Nonnull
+  @Override
+  public Connection<F> connect(Consumer<E> output) {
+    final Connection<F> connection = checkNotNull(actualConnectable.connect(output));
+
+    return new Connection<F>() {
+      @Override
+      public void accept(F effect) {
+        EffectEvent jfrEvent = new EffectEvent();
+        if (!jfrEvent.isEnabled()) {
+          connection.accept(effect);
+          return;
+        }
+
+        jfrEvent.begin();
+        connection.accept(effect);
+        jfrEvent.end();
+
+        if (jfrEvent.shouldCommit()) {
+          jfrEvent.setLoop(loop);
+          jfrEvent.effectType = effect.getClass().getName();
+          jfrEvent.commit();
+        }
+      }
+
+      @Override
+      public void dispose() {
+        connection.dispose();
+      }
+    };
+  }
+}
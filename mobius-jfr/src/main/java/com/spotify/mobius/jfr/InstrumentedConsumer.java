@@ -0,0 +1,54 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.jfr;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.functions.Consumer;
+
+class InstrumentedConsumer<M> implements Consumer<M> {
+
+  private final Consumer<M> actualConsumer;
+  private final MobiusJfr loop;
+
+  InstrumentedConsumer(Consumer<M> actualConsumer, MobiusJfr loop) {
+    this.actualConsumer = checkNotNull(actualConsumer);
+    this.loop = checkNotNull(loop);
+  }
+
+  @Override
+  public void accept(M model) {
+    ModelEmissionEvent jfrEvent = new ModelEmissionEvent();
+    if (!jfrEvent.isEnabled()) {
+      actualConsumer.accept(model);
+      return;
+    }
+
+    jfrEvent.begin();
+    actualConsumer.accept(model);
+    jfrEvent.end();
+
+    if (jfrEvent.shouldCommit()) {
+      jfrEvent.setLoop(loop);
+      jfrEvent.modelType = model.getClass().getName();
+      jfrEvent.commit();
+    }
+  }
+}
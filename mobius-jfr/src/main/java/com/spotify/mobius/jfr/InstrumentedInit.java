@@ -0,0 +1,59 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.jfr;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.First;
+import com.spotify.mobius.Init;
+import javax.annotation.Nonnull;
+
+class InstrumentedInit<M, F> implements Init<M, F> {
+
+  private final Init<M, F> actualInit;
+  private final MobiusJfr loop;
+
+  InstrumentedInit(Init<M, F> actualInit, MobiusJfr loop) {
+    this.actualInit = checkNotNull(actualInit);
+    this.loop = checkNotNull(loop);
+  }
+
+  @Nonnull
+  @Override
+  public First<M, F> init(M model) {
+    InitEvent jfrEvent = new InitEvent();
+    if (!jfrEvent.isEnabled()) {
+      return actualInit.init(model);
+    }
+
+    jfrEvent.begin();
+    First<M, F> first = actualInit.init(model);
+    jfrEvent.end();
+
+    if (jfrEvent.shouldCommit()) {
+      jfrEvent.setLoop(loop);
+      jfrEvent.modelType = model.getClass().getName();
+      jfrEvent.effectCount = first.effects().size();
+      jfrEvent.commit();
+    }
+
+    return first;
+  }
+}
@@ -17,38 +17,45 @@
  * limitations under the License.
  * -/-/-
  */
-package com.spotify.mobius;
+package com.spotify.mobius.jfr;
 
 import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
 
-import com.spotify.mobius.internal_util.Throwables;
+import com.spotify.mobius.Next;
+import com.spotify.mobius.Update;
 import javax.annotation.Nonnull;
 
-class LoggingUpdate<M, E, F> implements Update<M, E, F> {
+class InstrumentedUpdate<M, E, F> implements Update<M, E, F> {
 
   private final Update<M, E, F> actualUpdate;
-  private final MobiusLoop.Logger<M, E, F> logger;
+  private final MobiusJfr loop;
 
-  LoggingUpdate(Update<M, E, F> actualUpdate, MobiusLoop.Logger<M, E, F> logger) {
+  InstrumentedUpdate(Update<M, E, F> actualUpdate, MobiusJfr loop) {
     this.actualUpdate = checkNotNull(actualUpdate);
-    this.logger = checkNotNull(logger);
+    this.loop = checkNotNull(loop);
   }
 
   @Nonnull
   @Override
   public Next<M, F> update(M model, E event) {
-    logger.beforeUpdate(model, event);
-    Next<M, F> result = safeInvokeUpdate(model, event);
-    logger.afterUpdate(model, event, result);
-    return result;
-  }
-
-  private Next<M, F> safeInvokeUpdate(M model, E event) {
-    try {
+    // the JFR event doesn't escape, so when it is disabled the JIT can remove it altogether
+    UpdateEvent jfrEvent = new UpdateEvent();
+    if (!jfrEvent.isEnabled()) {
       return actualUpdate.update(model, event);
-    } catch (Exception e) {
-      logger.exceptionDuringUpdate(model, event, e);
-      throw Throwables.propagate(e);
     }
+
+    jfrEvent.begin();
+    Next<M, F> next = actualUpdate.update(model, event);
+    jfrEvent.end();
+
+    if (jfrEvent.shouldCommit()) {
+      jfrEvent.setLoop(loop);
+      jfrEvent.eventType = event.getClass().getName();
+      jfrEvent.modelChanged = next.hasModel();
+      jfrEvent.effectCount = next.effects().size();
+      jfrEvent.commit();
+    }
+
+    return next;
   }
 }
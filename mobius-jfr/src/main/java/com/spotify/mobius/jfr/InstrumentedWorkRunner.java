@@ -0,0 +1,75 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.jfr;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.runners.WorkRunner;
+
+class InstrumentedWorkRunner implements WorkRunner {
+
+  private final WorkRunner actualRunner;
+  private final MobiusJfr loop;
+  private final String runnerName;
+
+  InstrumentedWorkRunner(WorkRunner actualRunner, MobiusJfr loop, String runnerName) {
+    this.actualRunner = checkNotNull(actualRunner);
+    this.loop = checkNotNull(loop);
+    this.runnerName = checkNotNull(runnerName);
+  }
+
+  @Override
+  public void post(final Runnable runnable) {
+    if (!isQueueWaitEnabled()) {
+      actualRunner.post(runnable);
+      return;
+    }
+
+    final QueueWaitEvent jfrEvent = new QueueWaitEvent();
+    jfrEvent.begin();
+
+    actualRunner.post(
+        new Runnable() {
+          @Override
+          public void run() {
+            jfrEvent.end();
+
+            if (jfrEvent.shouldCommit()) {
+              jfrEvent.setLoop(loop);
+              jfrEvent.runner = runnerName;
+              jfrEvent.commit();
+            }
+
+            runnable.run();
+          }
+        });
+  }
+
+  @Override
+  public void dispose() {
+    actualRunner.dispose();
+  }
+
+  // the event posted along with the runnable escapes, so enablement is checked with an instance
+  // that doesn't; that way a disabled recording doesn't allocate anything per post
+  private static boolean isQueueWaitEnabled() {
+    return new QueueWaitEvent().isEnabled();
+  }
+}
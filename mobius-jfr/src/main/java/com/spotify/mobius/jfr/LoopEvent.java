@@ -0,0 +1,38 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.jfr;
+
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/** Base class of all Mobius events, identifying the loop that an event belongs to. */
+abstract class LoopEvent extends Event {
+
+  @Label("Loop Name")
+  String loopName;
+
+  @Label("Loop Id")
+  long loopId;
+
+  void setLoop(MobiusJfr loop) {
+    loopName = loop.name();
+    loopId = loop.id();
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.jfr;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.Connectable;
+import com.spotify.mobius.Init;
+import com.spotify.mobius.Mobius;
+import com.spotify.mobius.MobiusLoop;
+import com.spotify.mobius.Update;
+import com.spotify.mobius.functions.Consumer;
+import com.spotify.mobius.runners.WorkRunner;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Emits Java Flight Recorder events describing the activity of a Mobius loop, so that slow updates
+ * and effect hotspots can be found in JDK Mission Control.
+ *
+ * <p>An instance identifies one loop by a name and a unique id, which are recorded with every
+ * event. Its methods wrap the parts of the loop that should be recorded:
+ *
+ * <pre>{@code
+ * MobiusJfr jfr = MobiusJfr.forLoop("search");
+ *
+ * MobiusLoop<M, E, F> loop =
+ *     jfr.loop(update, effectHandler)
+ *         .init(jfr.init(init))
+ *         .eventRunner(() -> jfr.eventRunner(WorkRunners.singleThread()))
+ *         .effectRunner(() -> jfr.effectRunner(WorkRunners.cachedThreadPool()))
+ *         .startFrom(startModel);
+ *
+ * loop.observe(jfr.modelObserver(view));
+ * }</pre>
+ *
+ * <p>The events are in the "Mobius" category. Whether an event is enabled is checked before
+ * anything else is done, so the wrappers cost close to nothing while no recording is enabling them.
+ */
+public final class MobiusJfr {
+
+  private static final AtomicLong LOOP_IDS = new AtomicLong();
+
+  private final String name;
+  private final long id;
+
+  private MobiusJfr(String name, long id) {
+    this.name = checkNotNull(name);
+    this.id = id;
+  }
+
+  /**
+   * Create an instance recording events for a loop with the given name. Each instance gets a unique
+   * id, so several loops with the same name can be told apart in a recording.
+   */
+  public static MobiusJfr forLoop(String name) {
+    return new MobiusJfr(name, LOOP_IDS.incrementAndGet());
+  }
+
+  /** The name of the loop, as recorded with every event. */
+  public String name() {
+    return name;
+  }
+
+  /** The unique id of the loop, as recorded with every event. */
+  public long id() {
+    return id;
+  }
+
+  /**
+   * Create a loop builder whose update function and effect handler are both recorded. This is
+   * equivalent to {@code Mobius.loop(jfr.update(update), jfr.effectHandler(effectHandler))}.
+   */
+  public <M, E, F> MobiusLoop.Builder<M, E, F> loop(
+      Update<M, E, F> update, Connectable<F, E> effectHandler) {
+    return Mobius.loop(update(update), effectHandler(effectHandler));
+  }
+
+  /** Record an Init event with the duration and number of effects of every call to {@code init}. */
+  public <M, F> Init<M, F> init(Init<M, F> init) {
+    return new InstrumentedInit<>(init, this);
+  }
+
+  /**
+   * Record an Update event with the duration, event type and outcome of every call to {@code
+   * update}.
+   */
+  public <M, E, F> Update<M, E, F> update(Update<M, E, F> update) {
+    return new InstrumentedUpdate<>(update, this);
+  }
+
+  /**
+   * Record an Effect event with the effect type for every effect dispatched to the handler, lasting
+   * until the handler's connection returns. For handlers that complete their work asynchronously,
+   * this covers only the dispatch.
+   */
+  public <F, E> Connectable<F, E> effectHandler(Connectable<F, E> effectHandler) {
+    return new InstrumentedConnectable<>(effectHandler, this);
+  }
+
+  /**
+   * Record a Queue Wait event for every runnable posted to the loop's event runner, lasting from
+   * when it is posted until it starts running.
+   */
+  public WorkRunner eventRunner(WorkRunner eventRunner) {
+    return new InstrumentedWorkRunner(eventRunner, this, "events");
+  }
+
+  /**
+   * Record a Queue Wait event for every runnable posted to the loop's effect runner, lasting from
+   * when it is posted until it starts running.
+   */
+  public WorkRunner effectRunner(WorkRunner effectRunner) {
+    return new InstrumentedWorkRunner(effectRunner, this, "effects");
+  }
+
+  /**
+   * Record a Model Emission event with the model type for every model delivered to {@code
+   * observer}, lasting until the observer returns.
+   */
+  public <M> Consumer<M> modelObserver(Consumer<M> observer) {
+    return new InstrumentedConsumer<>(observer, this);
+  }
+}
@@ -0,0 +1,228 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.jfr;
+
+import static com.spotify.mobius.Effects.effects;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import com.spotify.mobius.Connectable;
+import com.spotify.mobius.Connection;
+import com.spotify.mobius.First;
+import com.spotify.mobius.MobiusLoop;
+import com.spotify.mobius.Next;
+import com.spotify.mobius.Update;
+import com.spotify.mobius.functions.Consumer;
+import com.spotify.mobius.runners.ImmediateWorkRunner;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import javax.annotation.Nonnull;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MobiusJfrTest {
+
+  private static final String[] EVENT_NAMES = {
+    "com.spotify.mobius.Init",
+    "com.spotify.mobius.Update",
+    "com.spotify.mobius.Effect",
+    "com.spotify.mobius.QueueWait",
+    "com.spotify.mobius.ModelEmission",
+  };
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private MobiusJfr jfr;
+  private List<Long> handledEffects;
+  private List<String> observedModels;
+
+  @Before
+  public void setUp() throws Exception {
+    jfr = MobiusJfr.forLoop("counter");
+    handledEffects = new CopyOnWriteArrayList<>();
+    observedModels = new CopyOnWriteArrayList<>();
+  }
+
+  @Test
+  public void shouldRecordInitEvents() throws Exception {
+    List<RecordedEvent> events = recordLoop("com.spotify.mobius.Init");
+
+    assertThat(events, hasSize(1));
+    assertThat(events.get(0).getString("modelType"), is(String.class.getName()));
+    assertThat(events.get(0).getInt("effectCount"), is(0));
+  }
+
+  @Test
+  public void shouldRecordUpdateEventsWithEventType() throws Exception {
+    List<RecordedEvent> events = recordLoop("com.spotify.mobius.Update");
+
+    assertThat(events, hasSize(2));
+    assertThat(
+        events.stream().map(e -> e.getString("eventType")).collect(Collectors.toList()),
+        contains(Integer.class.getName(), Integer.class.getName()));
+    assertThat(
+        events.stream().map(e -> e.getInt("effectCount")).collect(Collectors.toList()),
+        contains(1, 1));
+    assertThat(events.get(0).getBoolean("modelChanged"), is(true));
+  }
+
+  @Test
+  public void shouldRecordEffectEventsWithEffectType() throws Exception {
+    List<RecordedEvent> events = recordLoop("com.spotify.mobius.Effect");
+
+    assertThat(events, hasSize(2));
+    assertThat(
+        events.stream().map(e -> e.getString("effectType")).collect(Collectors.toList()),
+        everyItem(is(Long.class.getName())));
+    assertThat(handledEffects, contains(1L, 3L));
+  }
+
+  @Test
+  public void shouldRecordQueueWaitForEventAndEffectRunners() throws Exception {
+    List<RecordedEvent> events = recordLoop("com.spotify.mobius.QueueWait");
+
+    List<String> runners =
+        events.stream().map(e -> e.getString("runner")).collect(Collectors.toList());
+    assertThat(runners, not(empty()));
+    assertThat(runners.contains("events"), is(true));
+    assertThat(runners.contains("effects"), is(true));
+  }
+
+  @Test
+  public void shouldRecordModelEmissions() throws Exception {
+    List<RecordedEvent> events = recordLoop("com.spotify.mobius.ModelEmission");
+
+    assertThat(events, hasSize(observedModels.size()));
+    assertThat(
+        events.stream().map(e -> e.getString("modelType")).collect(Collectors.toList()),
+        everyItem(is(String.class.getName())));
+  }
+
+  @Test
+  public void shouldRecordLoopIdentityWithEveryEvent() throws Exception {
+    List<RecordedEvent> events = recordLoop(EVENT_NAMES);
+
+    assertThat(events, not(empty()));
+    assertThat(
+        events.stream().map(e -> e.getString("loopName")).collect(Collectors.toList()),
+        everyItem(is("counter")));
+    assertThat(
+        events.stream().map(e -> e.getLong("loopId")).collect(Collectors.toList()),
+        everyItem(is(jfr.id())));
+  }
+
+  @Test
+  public void shouldAssignUniqueIdsToLoops() throws Exception {
+    MobiusJfr other = MobiusJfr.forLoop("counter");
+
+    assertThat(other.id(), is(not(jfr.id())));
+    assertThat(other.name(), is(jfr.name()));
+  }
+
+  @Test
+  public void shouldBehaveTheSameWithoutRecording() throws Exception {
+    runLoop();
+
+    assertThat(handledEffects, contains(1L, 3L));
+    assertThat(observedModels, containsInAnyOrder("0", "1", "3"));
+  }
+
+  private List<RecordedEvent> recordLoop(String... eventNames) throws Exception {
+    Path file = temporaryFolder.newFile("recording.jfr").toPath();
+
+    try (Recording recording = new Recording()) {
+      for (String eventName : EVENT_NAMES) {
+        recording.disable(eventName);
+      }
+      for (String eventName : eventNames) {
+        recording.enable(eventName).withThreshold(Duration.ZERO);
+      }
+
+      recording.start();
+      runLoop();
+      recording.stop();
+      recording.dump(file);
+    }
+
+    List<RecordedEvent> events = new ArrayList<>();
+    for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+      if (event.getEventType().getName().startsWith("com.spotify.mobius.")) {
+        events.add(event);
+      }
+    }
+    return events;
+  }
+
+  private void runLoop() {
+    Update<String, Integer, Long> update =
+        new Update<String, Integer, Long>() {
+          @Nonnull
+          @Override
+          public Next<String, Long> update(String model, Integer event) {
+            long value = Long.parseLong(model) + event;
+            return Next.next(String.valueOf(value), effects(value));
+          }
+        };
+
+    Connectable<Long, Integer> effectHandler =
+        new Connectable<Long, Integer>() {
+          @Nonnull
+          @Override
+          public Connection<Long> connect(Consumer<Integer> output) {
+            return new Connection<Long>() {
+              @Override
+              public void accept(Long value) {
+                handledEffects.add(value);
+              }
+
+              @Override
+              public void dispose() {}
+            };
+          }
+        };
+
+    MobiusLoop<String, Integer, Long> loop =
+        jfr.loop(update, effectHandler)
+            .init(jfr.init(First::first))
+            .eventRunner(() -> jfr.eventRunner(new ImmediateWorkRunner()))
+            .effectRunner(() -> jfr.effectRunner(new ImmediateWorkRunner()))
+            .startFrom("0");
+
+    loop.observe(jfr.modelObserver(observedModels::add));
+    loop.dispatchEvent(1);
+    loop.dispatchEvent(2);
+    loop.dispose();
+  }
+}
@@ -0,0 +1,352 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.processor;
+
+import java.util.List;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+
+/**
+ * Writes the source of the {@code <Type>Dispatch} class for a {@link SealedHierarchy}.
+ *
+ * <p>All type names in the generated code are fully qualified, so that it can't clash with types
+ * that happen to be declared in the same package as the annotated type.
+ */
+class DispatchWriter {
+
+  private static final String CONNECTABLE = "com.spotify.mobius.Connectable";
+  private static final String CONNECTION = "com.spotify.mobius.Connection";
+  private static final String CONSUMER = "com.spotify.mobius.functions.Consumer";
+  private static final String UPDATE = "com.spotify.mobius.Update";
+  private static final String NEXT = "com.spotify.mobius.Next";
+
+  private final String packageName;
+  private final String className;
+  private final boolean isPublic;
+  private final String base;
+  private final String baseSimpleName;
+  private final List<TypeElement> subtypes;
+
+  private final StringBuilder out = new StringBuilder();
+  private int indent;
+
+  DispatchWriter(Elements elements, TypeElement base, List<TypeElement> subtypes) {
+    this.packageName = elements.getPackageOf(base).getQualifiedName().toString();
+    this.className = flatName(base) + "Dispatch";
+    this.isPublic = base.getModifiers().contains(Modifier.PUBLIC);
+    this.base = base.getQualifiedName().toString();
+    this.baseSimpleName = base.getSimpleName().toString();
+    this.subtypes = subtypes;
+  }
+
+  String qualifiedClassName() {
+    return packageName.isEmpty() ? className : packageName + "." + className;
+  }
+
+  String source() {
+    out.setLength(0);
+
+    if (!packageName.isEmpty()) {
+      line("package %s;", packageName);
+      line("");
+    }
+
+    line("/**");
+    line(
+        " * Tag-based dispatch for {@link %s}, generated from its {@code @SealedHierarchy}.", base);
+    line(" * Do not edit.");
+    line(" */");
+    open("%sfinal class %s", isPublic ? "public " : "", className);
+    line("");
+    line("private static final java.util.concurrent.ConcurrentMap<Class<?>, Tag> TAGS =");
+    line("    new java.util.concurrent.ConcurrentHashMap<Class<?>, Tag>();");
+    line("");
+    line("private %s() {}", className);
+
+    writeTag();
+    writeTagOf();
+    writeRouter();
+    writeUpdateDispatcher();
+
+    close();
+    return out.toString();
+  }
+
+  private void writeTag() {
+    line("");
+    line("/** Identifies the permitted subtype of a {@link %s}. */", base);
+    open("public enum Tag");
+    for (int i = 0; i < subtypes.size(); i++) {
+      line("%s%s", tagName(subtypes.get(i)), i < subtypes.size() - 1 ? "," : "");
+    }
+    close();
+  }
+
+  private void writeTagOf() {
+    line("");
+    line("/**");
+    line(
+        " * Returns the tag of a value. The tag is cached per runtime class, so that subclasses of the");
+    line(
+        " * permitted subtypes (such as AutoValue implementations) only need to be resolved once.");
+    line(" *");
+    line(
+        " * @throws IllegalArgumentException if the value isn't an instance of a permitted subtype");
+    line(" */");
+    open("public static Tag tagOf(%s value)", base);
+    line("Class<?> type = value.getClass();");
+    line("Tag tag = TAGS.get(type);");
+    open("if (tag == null)");
+    line("tag = resolveTag(value);");
+    line("TAGS.put(type, tag);");
+    close();
+    line("return tag;");
+    close();
+
+    line("");
+    open("private static Tag resolveTag(%s value)", base);
+    for (TypeElement subtype : subtypes) {
+      open("if (value instanceof %s)", subtype.getQualifiedName());
+      line("return Tag.%s;", tagName(subtype));
+      close();
+    }
+    line("throw new IllegalArgumentException(");
+    line("    \"Not a permitted subtype of %s: \" + value.getClass().getName());", baseSimpleName);
+    close();
+  }
+
+  private void writeRouter() {
+    line("");
+    line("/**");
+    line(
+        " * Creates a builder for a connectable that routes each {@link %s} to the connectable",
+        base);
+    line(" * registered for its subtype. All subtypes must have a connectable.");
+    line(" */");
+    open("public static <E> RouterBuilder<E> router()");
+    line("return new RouterBuilder<E>();");
+    close();
+
+    line("");
+    line("/** Builder for a tag-based effect router. */");
+    open("public static final class RouterBuilder<E>");
+    line("private final %s<?, E>[] handlers = newHandlers();", CONNECTABLE);
+    line("");
+    line("private RouterBuilder() {}");
+
+    for (int i = 0; i < subtypes.size(); i++) {
+      TypeElement subtype = subtypes.get(i);
+      line("");
+      line(
+          "/** Sets the connectable for {@link %s}, replacing any previous one. */",
+          subtype.getQualifiedName());
+      open(
+          "public RouterBuilder<E> %s(%s<%s, E> connectable)",
+          methodName(subtype), CONNECTABLE, subtype.getQualifiedName());
+      open("if (connectable == null)");
+      line("throw new NullPointerException(\"connectable\");");
+      close();
+      line("handlers[%d] = connectable;", i);
+      line("return this;");
+      close();
+    }
+
+    line("");
+    line("/**");
+    line(" * Creates the router.");
+    line(" *");
+    line(" * @throws IllegalStateException if a subtype has no connectable");
+    line(" */");
+    open("public %s<%s, E> build()", CONNECTABLE, base);
+    line("StringBuilder missing = new StringBuilder();");
+    open("for (int i = 0; i < handlers.length; i++)");
+    open("if (handlers[i] == null)");
+    line("missing.append(missing.length() == 0 ? \"\" : \", \").append(Tag.values()[i]);");
+    close();
+    close();
+    open("if (missing.length() > 0)");
+    line("throw new IllegalStateException(");
+    line("    \"No connectable for %s subtypes: \" + missing);", baseSimpleName);
+    close();
+    line("return new Router<E>(handlers.clone());");
+    close();
+
+    line("");
+    line("@SuppressWarnings(\"unchecked\")");
+    open("private static <E> %s<?, E>[] newHandlers()", CONNECTABLE);
+    line("return new %s[%d];", CONNECTABLE, subtypes.size());
+    close();
+    close();
+
+    line("");
+    open("private static final class Router<E> implements %s<%s, E>", CONNECTABLE, base);
+    line("private final %s<?, E>[] handlers;", CONNECTABLE);
+    line("");
+    open("Router(%s<?, E>[] handlers)", CONNECTABLE);
+    line("this.handlers = handlers;");
+    close();
+    line("");
+    line("@Override");
+    open("public %s<%s> connect(%s<E> output)", CONNECTION, base, CONSUMER);
+    line("final %s<?>[] connections = new %s<?>[handlers.length];", CONNECTION, CONNECTION);
+    open("try");
+    open("for (int i = 0; i < handlers.length; i++)");
+    line("connections[i] = handlers[i].connect(output);");
+    close();
+    closeOpen("catch (RuntimeException e)");
+    line("disposeAll(connections);");
+    line("throw e;");
+    close();
+    line("");
+    open("return new %s<%s>()", CONNECTION, base);
+    line("@Override");
+    open("public void accept(%s value)", base);
+    open("switch (tagOf(value))");
+    for (int i = 0; i < subtypes.size(); i++) {
+      TypeElement subtype = subtypes.get(i);
+      line("case %s:", tagName(subtype));
+      indent++;
+      line(
+          "%s.<%s>cast(connections[%d]).accept((%s) value);",
+          className, subtype.getQualifiedName(), i, subtype.getQualifiedName());
+      line("return;");
+      indent--;
+    }
+    close();
+    close();
+    line("");
+    line("@Override");
+    open("public void dispose()");
+    line("disposeAll(connections);");
+    close();
+    indent--;
+    line("};");
+    close();
+    close();
+
+    line("");
+    open("private static void disposeAll(%s<?>[] connections)", CONNECTION);
+    open("for (%s<?> connection : connections)", CONNECTION);
+    open("if (connection != null)");
+    line("connection.dispose();");
+    close();
+    close();
+    close();
+
+    line("");
+    line("@SuppressWarnings(\"unchecked\")");
+    open("private static <T> %s<T> cast(%s<?> connection)", CONNECTION, CONNECTION);
+    line("return (%s<T>) connection;", CONNECTION);
+    close();
+  }
+
+  private void writeUpdateDispatcher() {
+    line("");
+    line("/**");
+    line(
+        " * An {@link %s} that dispatches each {@link %s} to the method for its subtype.",
+        UPDATE, base);
+    line(" */");
+    open(
+        "public abstract static class UpdateDispatcher<M, F> implements %s<M, %s, F>",
+        UPDATE, base);
+    line("@Override");
+    open("public final %s<M, F> update(M model, %s event)", NEXT, base);
+    open("switch (tagOf(event))");
+    for (TypeElement subtype : subtypes) {
+      line("case %s:", tagName(subtype));
+      indent++;
+      line("return %s(model, (%s) event);", methodName(subtype), subtype.getQualifiedName());
+      indent--;
+    }
+    close();
+    line("throw new AssertionError(event);");
+    close();
+
+    for (TypeElement subtype : subtypes) {
+      line("");
+      line(
+          "protected abstract %s<M, F> %s(M model, %s event);",
+          NEXT, methodName(subtype), subtype.getQualifiedName());
+    }
+    close();
+  }
+
+  private static String flatName(TypeElement type) {
+    StringBuilder name = new StringBuilder(type.getSimpleName());
+    Element enclosing = type.getEnclosingElement();
+
+    while (enclosing.getKind() != ElementKind.PACKAGE) {
+      name.insert(0, enclosing.getSimpleName() + "_");
+      enclosing = enclosing.getEnclosingElement();
+    }
+
+    return name.toString();
+  }
+
+  private static String methodName(TypeElement subtype) {
+    return "on" + subtype.getSimpleName();
+  }
+
+  // ButtonClicked -> BUTTON_CLICKED
+  private static String tagName(TypeElement subtype) {
+    String name = subtype.getSimpleName().toString();
+    StringBuilder tag = new StringBuilder();
+
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (i > 0 && Character.isUpperCase(c) && !Character.isUpperCase(name.charAt(i - 1))) {
+        tag.append('_');
+      }
+      tag.append(Character.toUpperCase(c));
+    }
+
+    return tag.toString();
+  }
+
+  private void open(String format, Object... args) {
+    line(format + " {", args);
+    indent++;
+  }
+
+  private void closeOpen(String format, Object... args) {
+    indent--;
+    line("} " + format + " {", args);
+    indent++;
+  }
+
+  private void close() {
+    indent--;
+    line("}");
+  }
+
+  private void line(String format, Object... args) {
+    String text = args.length == 0 ? format : String.format(format, args);
+    if (!text.isEmpty()) {
+      for (int i = 0; i < indent; i++) {
+        out.append("  ");
+      }
+    }
+    out.append(text).append('\n');
+  }
+}
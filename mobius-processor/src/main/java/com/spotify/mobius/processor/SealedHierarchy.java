@@ -0,0 +1,63 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.processor;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares a closed set of subtypes for an effect or event type, and makes the {@link
+ * SealedHierarchyProcessor} generate a {@code <Type>Dispatch} class for it in the same package.
+ *
+ * <p>The generated class contains:
+ *
+ * <ul>
+ *   <li>a {@code Tag} enum with one constant per subtype, and a {@code tagOf} method that resolves
+ *       the tag of a value, caching the result per runtime class;
+ *   <li>a {@code router()} builder for a {@link com.spotify.mobius.Connectable} that forwards each
+ *       effect to the connectable registered for its subtype, using a switch on the tag;
+ *   <li>an abstract {@code UpdateDispatcher} implementing {@link com.spotify.mobius.Update}, with
+ *       one abstract {@code on<Subtype>} method per subtype.
+ * </ul>
+ *
+ * <p>The annotated type may be a class or an interface, and may not have type parameters. The
+ * listed subtypes must be non-generic subtypes of the annotated type, and no subtype may extend
+ * another one, so that every value has exactly one tag. Values of other implementations of the
+ * annotated type are rejected at runtime with an {@link IllegalArgumentException}.
+ *
+ * <pre>
+ * &#64;SealedHierarchy({Effect.Load.class, Effect.Show.class})
+ * interface Effect { ... }
+ *
+ * Connectable&lt;Effect, Event&gt; handler =
+ *     EffectDispatch.&lt;Event&gt;router().onLoad(loader).onShow(shower).build();
+ * </pre>
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface SealedHierarchy {
+
+  /** The permitted subtypes of the annotated type. */
+  Class<?>[] value();
+}
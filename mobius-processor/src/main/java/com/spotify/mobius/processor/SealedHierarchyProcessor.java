@@ -0,0 +1,235 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Annotation processor that generates tag-based dispatch code for types annotated with {@link
+ * SealedHierarchy}. See {@link SealedHierarchy} for a description of the generated class.
+ *
+ * <p>All validation happens at compile time, so the generated code needs no reflection: effects and
+ * events are routed with an {@code instanceof} check the first time a runtime class is seen, and
+ * with a cached tag and a {@code switch} from then on.
+ */
+public class SealedHierarchyProcessor extends AbstractProcessor {
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    return Collections.singleton(SealedHierarchy.class.getCanonicalName());
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    for (Element element : roundEnv.getElementsAnnotatedWith(SealedHierarchy.class)) {
+      if (element.getKind() != ElementKind.CLASS && element.getKind() != ElementKind.INTERFACE) {
+        error("@SealedHierarchy can only be applied to classes and interfaces", element, null);
+        continue;
+      }
+
+      TypeElement base = (TypeElement) element;
+      AnnotationMirror annotation = findAnnotation(base);
+      List<TypeElement> subtypes = validate(base, annotation);
+
+      if (subtypes != null) {
+        write(base, subtypes, annotation);
+      }
+    }
+
+    return true;
+  }
+
+  @Nullable
+  private List<TypeElement> validate(TypeElement base, AnnotationMirror annotation) {
+    boolean valid = true;
+
+    if (!base.getTypeParameters().isEmpty()) {
+      error("@SealedHierarchy does not support generic types", base, annotation);
+      valid = false;
+    }
+
+    if (!isAccessible(base)) {
+      error("@SealedHierarchy types must not be private", base, annotation);
+      valid = false;
+    }
+
+    Types types = processingEnv.getTypeUtils();
+    TypeMirror baseType = types.erasure(base.asType());
+    List<TypeElement> subtypes = new ArrayList<>();
+    Set<String> names = new HashSet<>();
+
+    for (TypeMirror subtypeMirror : permittedSubtypes(annotation)) {
+      if (subtypeMirror.getKind() != TypeKind.DECLARED) {
+        error(
+            "Permitted subtype " + subtypeMirror + " is not a class or interface",
+            base,
+            annotation);
+        valid = false;
+        continue;
+      }
+
+      TypeElement subtype = (TypeElement) ((DeclaredType) subtypeMirror).asElement();
+      String name = subtype.getQualifiedName().toString();
+
+      if (types.isSameType(types.erasure(subtype.asType()), baseType)
+          || !types.isAssignable(types.erasure(subtype.asType()), baseType)) {
+        error(name + " is not a subtype of " + base.getQualifiedName(), base, annotation);
+        valid = false;
+      } else if (!subtype.getTypeParameters().isEmpty()) {
+        error("Permitted subtype " + name + " must not be generic", base, annotation);
+        valid = false;
+      } else if (!isAccessible(subtype)) {
+        error("Permitted subtype " + name + " must not be private", base, annotation);
+        valid = false;
+      } else if (!names.add(subtype.getSimpleName().toString())) {
+        error(
+            "Permitted subtypes must have distinct simple names, but "
+                + subtype.getSimpleName()
+                + " is used more than once",
+            base,
+            annotation);
+        valid = false;
+      }
+
+      subtypes.add(subtype);
+    }
+
+    if (subtypes.isEmpty()) {
+      error("@SealedHierarchy must list at least one subtype", base, annotation);
+      valid = false;
+    }
+
+    for (TypeElement a : subtypes) {
+      for (TypeElement b : subtypes) {
+        if (a != b && types.isAssignable(types.erasure(a.asType()), types.erasure(b.asType()))) {
+          error(
+              "Permitted subtypes must be disjoint, but "
+                  + a.getQualifiedName()
+                  + " is a subtype of "
+                  + b.getQualifiedName(),
+              base,
+              annotation);
+          valid = false;
+        }
+      }
+    }
+
+    return valid ? subtypes : null;
+  }
+
+  private void write(TypeElement base, List<TypeElement> subtypes, AnnotationMirror annotation) {
+    DispatchWriter writer = new DispatchWriter(processingEnv.getElementUtils(), base, subtypes);
+
+    try {
+      JavaFileObject file =
+          processingEnv.getFiler().createSourceFile(writer.qualifiedClassName(), base);
+
+      try (Writer out = file.openWriter()) {
+        out.write(writer.source());
+      }
+    } catch (IOException e) {
+      error("Could not write " + writer.qualifiedClassName() + ": " + e, base, annotation);
+    }
+  }
+
+  private AnnotationMirror findAnnotation(TypeElement base) {
+    String name = SealedHierarchy.class.getCanonicalName();
+
+    for (AnnotationMirror mirror : base.getAnnotationMirrors()) {
+      TypeElement type = (TypeElement) mirror.getAnnotationType().asElement();
+      if (type.getQualifiedName().contentEquals(name)) {
+        return mirror;
+      }
+    }
+
+    throw new IllegalStateException("No @SealedHierarchy annotation found on " + base);
+  }
+
+  // read through the mirror API, since the Class objects of types being compiled are unavailable
+  private static List<TypeMirror> permittedSubtypes(AnnotationMirror annotation) {
+    List<TypeMirror> result = new ArrayList<>();
+
+    for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+        annotation.getElementValues().entrySet()) {
+      if (!entry.getKey().getSimpleName().contentEquals("value")) {
+        continue;
+      }
+
+      Object value = entry.getValue().getValue();
+      if (value instanceof List) {
+        for (Object item : (List<?>) value) {
+          result.add((TypeMirror) ((AnnotationValue) item).getValue());
+        }
+      } else {
+        result.add((TypeMirror) value);
+      }
+    }
+
+    return result;
+  }
+
+  private static boolean isAccessible(TypeElement type) {
+    Element current = type;
+
+    while (current != null && current.getKind() != ElementKind.PACKAGE) {
+      if (current.getModifiers().contains(Modifier.PRIVATE)) {
+        return false;
+      }
+      current = current.getEnclosingElement();
+    }
+
+    return true;
+  }
+
+  private void error(String message, Element element, @Nullable AnnotationMirror annotation) {
+    Messager messager = processingEnv.getMessager();
+    messager.printMessage(Diagnostic.Kind.ERROR, message, element, annotation);
+  }
+}
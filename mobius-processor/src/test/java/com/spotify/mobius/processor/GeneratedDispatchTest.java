@@ -0,0 +1,183 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.processor;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+
+import com.spotify.mobius.Connectable;
+import com.spotify.mobius.Connection;
+import com.spotify.mobius.Next;
+import com.spotify.mobius.functions.Consumer;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GeneratedDispatchTest {
+
+  private List<String> handled;
+  private List<String> disposed;
+  private List<TestEvent> events;
+
+  @Before
+  public void setUp() throws Exception {
+    handled = new ArrayList<>();
+    disposed = new ArrayList<>();
+    events = new ArrayList<>();
+  }
+
+  @Test
+  public void shouldAssignOneTagPerSubtype() throws Exception {
+    assertThat(TestEffectDispatch.tagOf(new TestEffect.Load("1")), is(TestEffectDispatch.Tag.LOAD));
+    assertThat(
+        TestEffectDispatch.tagOf(new TestEffect.ShowError("oops")),
+        is(TestEffectDispatch.Tag.SHOW_ERROR));
+  }
+
+  @Test
+  public void shouldResolveTagOfSubclassesOfPermittedSubtypes() throws Exception {
+    TestEffect effect = new TestEffect.Load("1") {};
+
+    assertThat(TestEffectDispatch.tagOf(effect), is(TestEffectDispatch.Tag.LOAD));
+    assertThat(TestEffectDispatch.tagOf(effect), is(TestEffectDispatch.Tag.LOAD));
+  }
+
+  @Test
+  public void shouldRejectValuesOfOtherImplementations() throws Exception {
+    try {
+      TestEffectDispatch.tagOf(new TestEffect() {});
+      fail("expected an exception");
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getMessage(), containsString("Not a permitted subtype of TestEffect"));
+    }
+  }
+
+  @Test
+  public void routerShouldForwardEffectsToConnectableForSubtype() throws Exception {
+    Connection<TestEffect> connection =
+        TestEffectDispatch.<TestEvent>router()
+            .onLoad(
+                recording(
+                    "load",
+                    (effect, output) -> output.accept(new TestEvent.Increment(effect.id.length()))))
+            .onShowError(recording("error", (effect, output) -> {}))
+            .build()
+            .connect(events::add);
+
+    connection.accept(new TestEffect.Load("12"));
+    connection.accept(new TestEffect.ShowError("oops"));
+    connection.accept(new TestEffect.Load("345"));
+
+    assertThat(handled, contains("load", "error", "load"));
+    assertThat(events.size(), is(2));
+    assertThat(((TestEvent.Increment) events.get(1)).amount, is(3));
+  }
+
+  @Test
+  public void routerShouldDisposeAllConnections() throws Exception {
+    Connection<TestEffect> connection =
+        TestEffectDispatch.<TestEvent>router()
+            .onLoad(recording("load", (effect, output) -> {}))
+            .onShowError(recording("error", (effect, output) -> {}))
+            .build()
+            .connect(events::add);
+
+    connection.dispose();
+
+    assertThat(disposed, contains("load", "error"));
+  }
+
+  @Test
+  public void routerShouldDisposeConnectionsIfConnectingFails() throws Exception {
+    Connectable<TestEffect, TestEvent> router =
+        TestEffectDispatch.<TestEvent>router()
+            .onLoad(recording("load", (effect, output) -> {}))
+            .onShowError(
+                output -> {
+                  throw new IllegalStateException("boom");
+                })
+            .build();
+
+    try {
+      router.connect(events::add);
+      fail("expected an exception");
+    } catch (IllegalStateException e) {
+      assertThat(e.getMessage(), is("boom"));
+    }
+
+    assertThat(disposed, contains("load"));
+  }
+
+  @Test
+  public void buildShouldFailIfSubtypeHasNoConnectable() throws Exception {
+    try {
+      TestEffectDispatch.<TestEvent>router()
+          .onLoad(recording("load", (effect, output) -> {}))
+          .build();
+      fail("expected an exception");
+    } catch (IllegalStateException e) {
+      assertThat(e.getMessage(), is("No connectable for TestEffect subtypes: SHOW_ERROR"));
+    }
+  }
+
+  @Test
+  public void updateDispatcherShouldCallMethodForSubtype() throws Exception {
+    TestEventDispatch.UpdateDispatcher<Integer, TestEffect> update =
+        new TestEventDispatch.UpdateDispatcher<Integer, TestEffect>() {
+          @Override
+          protected Next<Integer, TestEffect> onIncrement(
+              Integer model, TestEvent.Increment event) {
+            return Next.next(model + event.amount);
+          }
+
+          @Override
+          protected Next<Integer, TestEffect> onReset(Integer model, TestEvent.Reset event) {
+            return Next.next(0);
+          }
+        };
+
+    assertThat(update.update(1, new TestEvent.Increment(2)).modelUnsafe(), is(3));
+    assertThat(update.update(3, new TestEvent.Reset()).modelUnsafe(), is(0));
+  }
+
+  private <F> Connectable<F, TestEvent> recording(String name, Handler<F> handler) {
+    return output ->
+        new Connection<F>() {
+          @Override
+          public void accept(F value) {
+            handled.add(name);
+            handler.handle(value, output);
+          }
+
+          @Override
+          public void dispose() {
+            disposed.add(name);
+          }
+        };
+  }
+
+  private interface Handler<F> {
+    void handle(F effect, Consumer<TestEvent> output);
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.processor;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SealedHierarchyProcessorTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private JavaCompiler compiler;
+
+  @Before
+  public void setUp() throws Exception {
+    compiler = ToolProvider.getSystemJavaCompiler();
+    assumeTrue(compiler != null);
+  }
+
+  @Test
+  public void shouldGenerateDispatchForNestedTypes() throws Exception {
+    String errors =
+        compile(
+            "Outer",
+            "class Outer {",
+            "  @SealedHierarchy({Effect.A.class, Effect.B.class})",
+            "  interface Effect {",
+            "    final class A implements Effect {}",
+            "    final class B implements Effect {}",
+            "  }",
+            "}");
+
+    assertThat(errors, is(""));
+    assertThat(
+        new File(folder.getRoot(), "out/test/Outer_EffectDispatch.class").exists(), is(true));
+  }
+
+  @Test
+  public void shouldRejectTypesThatAreNotSubtypes() throws Exception {
+    String errors =
+        compile(
+            "Effect",
+            "@SealedHierarchy({Effect.A.class, String.class})",
+            "interface Effect {",
+            "  final class A implements Effect {}",
+            "}");
+
+    assertThat(errors, containsString("java.lang.String is not a subtype of test.Effect"));
+  }
+
+  @Test
+  public void shouldRejectOverlappingSubtypes() throws Exception {
+    String errors =
+        compile(
+            "Effect",
+            "@SealedHierarchy({Effect.A.class, Effect.B.class})",
+            "interface Effect {",
+            "  class A implements Effect {}",
+            "  class B extends A {}",
+            "}");
+
+    assertThat(
+        errors,
+        containsString("must be disjoint, but test.Effect.B is a subtype of test.Effect.A"));
+  }
+
+  @Test
+  public void shouldRejectGenericTypes() throws Exception {
+    String errors =
+        compile(
+            "Effect",
+            "@SealedHierarchy({Effect.A.class})",
+            "interface Effect<T> {",
+            "  final class A implements Effect<String> {}",
+            "}");
+
+    assertThat(errors, containsString("@SealedHierarchy does not support generic types"));
+  }
+
+  @Test
+  public void shouldRejectSubtypesWithSameSimpleName() throws Exception {
+    String errors =
+        compile(
+            "Effect",
+            "@SealedHierarchy({Effect.One.A.class, Effect.Two.A.class})",
+            "interface Effect {",
+            "  interface One { final class A implements Effect {} }",
+            "  interface Two { final class A implements Effect {} }",
+            "}");
+
+    assertThat(errors, containsString("A is used more than once"));
+  }
+
+  private String compile(String className, String... lines) throws IOException {
+    File src = folder.newFolder("src", "test");
+    File out = folder.newFolder("out");
+    File file = new File(src, className + ".java");
+
+    String source =
+        "package test;\n"
+            + "import com.spotify.mobius.processor.SealedHierarchy;\n"
+            + String.join("\n", lines);
+    Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    try (StandardJavaFileManager files = compiler.getStandardFileManager(null, null, null)) {
+      compiler
+          .getTask(
+              null,
+              files,
+              diagnostics,
+              Arrays.asList(
+                  "-classpath",
+                  System.getProperty("java.class.path"),
+                  "-processor",
+                  SealedHierarchyProcessor.class.getName(),
+                  "-d",
+                  out.getPath(),
+                  "-s",
+                  out.getPath()),
+              null,
+              files.getJavaFileObjects(file))
+          .call();
+    }
+
+    return diagnostics.getDiagnostics().stream()
+        .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+        .map(d -> d.getMessage(null))
+        .collect(Collectors.joining("\n"));
+  }
+}
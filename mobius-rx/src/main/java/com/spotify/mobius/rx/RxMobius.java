@@ -28,6 +28,7 @@ import com.spotify.mobius.Update;
 import com.spotify.mobius.functions.Function;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import rx.Observable;
 import rx.Observable.Transformer;
 import rx.Scheduler;
@@ -35,6 +36,7 @@ import rx.functions.Action0;
 import rx.functions.Action1;
 import rx.functions.Func1;
 import rx.plugins.RxJavaHooks;
+import rx.schedulers.Schedulers;
 
 /** Factory methods for wrapping Mobius core classes in observable tranformers. */
 public final class RxMobius {
@@ -60,6 +62,47 @@ public final class RxMobius {
     return new RxMobiusLoop<>(loopFactory, startModel);
   }
 
+  /**
+   * Create an observable transformer that shares a single loop between all its subscribers.
+   *
+   * <p>The loop is started from the given model when the resulting observable is first subscribed
+   * to. Later subscribers share the running loop, and start by receiving its most recent model.
+   * Events from all subscribers are dispatched to the shared loop. When the last subscriber
+   * unsubscribes, the loop is disposed after the grace period, unless a new subscriber arrives
+   * before that; the next subscription after disposal starts a new loop from the given model.
+   *
+   * @param loopFactory creates the shared loop
+   * @param startModel the starting point for the shared loop
+   * @param gracePeriod how long to keep the loop running without subscribers
+   * @param unit the unit of {@code gracePeriod}
+   * @param scheduler the scheduler used to dispose the loop after the grace period
+   * @param <M> the model type
+   * @param <E> the event type
+   * @param <F> the effect type
+   * @return a transformer from event to model that you can connect to your UI
+   */
+  public static <M, E, F> Observable.Transformer<E, M> sharedLoopFrom(
+      final MobiusLoop.Factory<M, E, F> loopFactory,
+      final M startModel,
+      long gracePeriod,
+      TimeUnit unit,
+      Scheduler scheduler) {
+    return new SharedRxMobiusLoop<>(loopFactory, startModel, gracePeriod, unit, scheduler);
+  }
+
+  /**
+   * Create an observable transformer that shares a single loop between all its subscribers, using
+   * the computation scheduler to dispose the loop after the grace period. See {@link
+   * #sharedLoopFrom(MobiusLoop.Factory, Object, long, TimeUnit, Scheduler)}.
+   */
+  public static <M, E, F> Observable.Transformer<E, M> sharedLoopFrom(
+      final MobiusLoop.Factory<M, E, F> loopFactory,
+      final M startModel,
+      long gracePeriod,
+      TimeUnit unit) {
+    return sharedLoopFrom(loopFactory, startModel, gracePeriod, unit, Schedulers.computation());
+  }
+
   /**
    * Create a {@link MobiusLoop.Builder} to help you configure a MobiusLoop before starting it.
    *
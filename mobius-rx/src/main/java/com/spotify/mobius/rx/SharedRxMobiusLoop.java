@@ -0,0 +1,177 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.rx;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.MobiusLoop;
+import com.spotify.mobius.disposables.Disposable;
+import com.spotify.mobius.functions.Consumer;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import rx.Emitter;
+import rx.Observable;
+import rx.Observer;
+import rx.Scheduler;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.functions.Cancellable;
+
+/**
+ * Wraps a MobiusLoop into an observable transformer that shares a single loop between all its
+ * subscribers.
+ *
+ * <p>The loop is started on the first subscription, and every subscriber receives the most recent
+ * model of the loop followed by later models. Events from all subscribers are dispatched to the
+ * same loop. Once the last subscriber unsubscribes, the loop is kept running for a grace period, so
+ * that a subscriber that comes back quickly continues with the same loop.
+ */
+class SharedRxMobiusLoop<E, M> implements Observable.Transformer<E, M> {
+
+  private final MobiusLoop.Factory<M, E, ?> loopFactory;
+  private final M loopStart;
+  private final long gracePeriod;
+  private final TimeUnit unit;
+  private final Scheduler scheduler;
+
+  // all guarded by 'this'
+  @Nullable private MobiusLoop<M, E, ?> loop;
+  private int subscribers;
+  @Nullable private Subscription pendingDisposal;
+
+  SharedRxMobiusLoop(
+      MobiusLoop.Factory<M, E, ?> loopFactory,
+      M loopStart,
+      long gracePeriod,
+      TimeUnit unit,
+      Scheduler scheduler) {
+    if (gracePeriod < 0) {
+      throw new IllegalArgumentException("gracePeriod may not be negative: " + gracePeriod);
+    }
+    this.loopFactory = checkNotNull(loopFactory);
+    this.loopStart = checkNotNull(loopStart);
+    this.gracePeriod = gracePeriod;
+    this.unit = checkNotNull(unit);
+    this.scheduler = checkNotNull(scheduler);
+  }
+
+  @Override
+  public Observable<M> call(final Observable<E> events) {
+    return Observable.create(
+        new Action1<Emitter<M>>() {
+          @Override
+          public void call(final Emitter<M> emitter) {
+            final MobiusLoop<M, E, ?> sharedLoop = acquire();
+
+            final Disposable modelObservation =
+                sharedLoop.observe(
+                    new Consumer<M>() {
+                      @Override
+                      public void accept(M newModel) {
+                        emitter.onNext(newModel);
+                      }
+                    });
+
+            final Subscription eventSubscription =
+                events.subscribe(
+                    new Observer<E>() {
+                      @Override
+                      public void onCompleted() {
+                        // TODO: complain loudly! shouldn't ever complete
+                      }
+
+                      @Override
+                      public void onError(Throwable e) {
+                        emitter.onError(new UnrecoverableIncomingException(e));
+                      }
+
+                      @Override
+                      public void onNext(E event) {
+                        sharedLoop.dispatchEvent(event);
+                      }
+                    });
+
+            emitter.setCancellation(
+                new Cancellable() {
+                  @Override
+                  public void cancel() throws Exception {
+                    eventSubscription.unsubscribe();
+                    modelObservation.dispose();
+                    release(sharedLoop);
+                  }
+                });
+          }
+        },
+        Emitter.BackpressureMode.NONE);
+  }
+
+  private synchronized MobiusLoop<M, E, ?> acquire() {
+    if (pendingDisposal != null) {
+      pendingDisposal.unsubscribe();
+      pendingDisposal = null;
+    }
+
+    if (loop == null) {
+      loop = loopFactory.startFrom(loopStart);
+    }
+
+    subscribers++;
+    return loop;
+  }
+
+  private synchronized void release(final MobiusLoop<M, E, ?> released) {
+    if (released != loop || --subscribers > 0) {
+      return;
+    }
+
+    if (gracePeriod == 0) {
+      disposeLoop();
+      return;
+    }
+
+    final Scheduler.Worker worker = scheduler.createWorker();
+    worker.schedule(
+        new Action0() {
+          @Override
+          public void call() {
+            worker.unsubscribe();
+            disposeIfUnused(released);
+          }
+        },
+        gracePeriod,
+        unit);
+    pendingDisposal = worker;
+  }
+
+  private synchronized void disposeIfUnused(MobiusLoop<M, E, ?> candidate) {
+    if (candidate == loop && subscribers == 0) {
+      disposeLoop();
+    }
+  }
+
+  // must be called while holding the lock
+  private void disposeLoop() {
+    //noinspection ConstantConditions
+    loop.dispose();
+    loop = null;
+    pendingDisposal = null;
+  }
+}
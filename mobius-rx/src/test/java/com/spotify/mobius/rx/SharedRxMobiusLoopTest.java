@@ -0,0 +1,130 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.rx;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import com.spotify.mobius.Connection;
+import com.spotify.mobius.Mobius;
+import com.spotify.mobius.MobiusLoop;
+import com.spotify.mobius.Next;
+import com.spotify.mobius.runners.WorkRunners;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+import rx.observers.AssertableSubscriber;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+public class SharedRxMobiusLoopTest {
+
+  private AtomicInteger loopsStarted;
+  private AtomicInteger connectionsDisposed;
+  private TestScheduler scheduler;
+  private SharedRxMobiusLoop<Integer, String> loop;
+
+  @Before
+  public void setUp() throws Exception {
+    loopsStarted = new AtomicInteger();
+    connectionsDisposed = new AtomicInteger();
+    scheduler = new TestScheduler();
+
+    MobiusLoop.Builder<String, Integer, Boolean> builder =
+        Mobius.<String, Integer, Boolean>loop(
+                (model, event) -> Next.next(model + event),
+                output -> {
+                  loopsStarted.incrementAndGet();
+                  return new Connection<Boolean>() {
+                    @Override
+                    public void accept(Boolean value) {}
+
+                    @Override
+                    public void dispose() {
+                      connectionsDisposed.incrementAndGet();
+                    }
+                  };
+                })
+            .eventRunner(WorkRunners::immediate)
+            .effectRunner(WorkRunners::immediate);
+
+    loop = new SharedRxMobiusLoop<>(builder, "", 5, TimeUnit.SECONDS, scheduler);
+  }
+
+  @Test
+  public void shouldShareOneLoopBetweenSubscribers() throws Exception {
+    PublishSubject<Integer> input1 = PublishSubject.create();
+    PublishSubject<Integer> input2 = PublishSubject.create();
+
+    AssertableSubscriber<String> subscriber1 = input1.compose(loop).test();
+    AssertableSubscriber<String> subscriber2 = input2.compose(loop).test();
+
+    input1.onNext(1);
+    input2.onNext(2);
+
+    assertThat(loopsStarted.get(), is(1));
+    subscriber1.assertValues("", "1", "12");
+    subscriber2.assertValues("", "1", "12");
+  }
+
+  @Test
+  public void shouldReplayLatestModelToLateSubscribers() throws Exception {
+    PublishSubject<Integer> input = PublishSubject.create();
+    input.compose(loop).test();
+    input.onNext(1);
+    input.onNext(2);
+
+    AssertableSubscriber<String> late = PublishSubject.<Integer>create().compose(loop).test();
+
+    late.assertValues("12");
+  }
+
+  @Test
+  public void shouldDisposeLoopAfterGracePeriod() throws Exception {
+    AssertableSubscriber<String> subscriber = PublishSubject.<Integer>create().compose(loop).test();
+    subscriber.unsubscribe();
+
+    scheduler.advanceTimeBy(4, TimeUnit.SECONDS);
+    assertThat(connectionsDisposed.get(), is(0));
+
+    scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+    assertThat(connectionsDisposed.get(), is(1));
+
+    PublishSubject.<Integer>create().compose(loop).test();
+    assertThat(loopsStarted.get(), is(2));
+  }
+
+  @Test
+  public void shouldKeepLoopWhenResubscribedWithinGracePeriod() throws Exception {
+    PublishSubject<Integer> input = PublishSubject.create();
+    AssertableSubscriber<String> subscriber = input.compose(loop).test();
+    input.onNext(1);
+    subscriber.unsubscribe();
+
+    scheduler.advanceTimeBy(4, TimeUnit.SECONDS);
+    AssertableSubscriber<String> resubscribed = input.compose(loop).test();
+    scheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+
+    resubscribed.assertValues("1");
+    assertThat(loopsStarted.get(), is(1));
+    assertThat(connectionsDisposed.get(), is(0));
+  }
+}
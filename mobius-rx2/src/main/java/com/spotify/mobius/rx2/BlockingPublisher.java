@@ -0,0 +1,190 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.rx2;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.Nullable;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * A {@link Publisher} that bridges pushed values into a backpressured stream. At most {@code
+ * bufferSize} values are kept waiting for downstream demand; once the buffer is full, {@link
+ * #offer(Object)} blocks the calling thread until the subscriber requests more values or cancels.
+ * Since every blocked caller ties up a thread, values should be offered from a bounded number of
+ * threads. Only a single subscriber is supported.
+ *
+ * @param <T> the value type
+ */
+class BlockingPublisher<T> implements Publisher<T>, Subscription {
+
+  private final int bufferSize;
+  private final Lock lock = new ReentrantLock();
+  private final Condition notFull = lock.newCondition();
+  private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+  private final AtomicLong requested = new AtomicLong();
+  private final AtomicInteger wip = new AtomicInteger();
+  private final AtomicBoolean subscribed = new AtomicBoolean();
+
+  @Nullable private volatile Subscriber<? super T> subscriber;
+  private volatile boolean cancelled;
+
+  // guarded by lock
+  private int buffered;
+
+  BlockingPublisher(int bufferSize) {
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+    }
+    this.bufferSize = bufferSize;
+  }
+
+  @Override
+  public void subscribe(Subscriber<? super T> s) {
+    if (!subscribed.compareAndSet(false, true)) {
+      throw new IllegalStateException("BlockingPublisher only supports a single subscriber");
+    }
+    subscriber = s;
+    s.onSubscribe(this);
+    drain();
+  }
+
+  /**
+   * Offer a value to the subscriber, blocking while the buffer is full. Values offered after the
+   * subscription is cancelled are dropped, and so are values whose thread is interrupted while
+   * waiting, since that means the thread is being shut down.
+   */
+  void offer(T value) {
+    if (cancelled) {
+      return;
+    }
+
+    lock.lock();
+    try {
+      while (!cancelled && buffered >= bufferSize) {
+        try {
+          notFull.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+
+      if (cancelled) {
+        return;
+      }
+
+      buffered++;
+    } finally {
+      lock.unlock();
+    }
+
+    queue.add(value);
+    drain();
+  }
+
+  @Override
+  public void request(long n) {
+    if (n <= 0) {
+      return;
+    }
+
+    while (true) {
+      long current = requested.get();
+      long next = current + n < 0 ? Long.MAX_VALUE : current + n;
+      if (requested.compareAndSet(current, next)) {
+        break;
+      }
+    }
+
+    drain();
+  }
+
+  @Override
+  public void cancel() {
+    lock.lock();
+    try {
+      cancelled = true;
+      // threads blocked in offer see the flag and return without buffering their values
+      notFull.signalAll();
+    } finally {
+      lock.unlock();
+    }
+
+    drain();
+  }
+
+  private void drain() {
+    if (wip.getAndIncrement() != 0) {
+      return;
+    }
+
+    int missed = 1;
+    while (true) {
+      Subscriber<? super T> s = subscriber;
+      if (cancelled) {
+        queue.clear();
+      } else if (s != null) {
+        long emitted = 0;
+        long demand = requested.get();
+
+        while (emitted != demand && !cancelled) {
+          T value = queue.poll();
+          if (value == null) {
+            break;
+          }
+          s.onNext(value);
+          emitted++;
+        }
+
+        if (emitted != 0) {
+          release(emitted);
+        }
+
+        if (emitted != 0 && demand != Long.MAX_VALUE) {
+          requested.addAndGet(-emitted);
+        }
+      }
+
+      missed = wip.addAndGet(-missed);
+      if (missed == 0) {
+        return;
+      }
+    }
+  }
+
+  private void release(long count) {
+    lock.lock();
+    try {
+      buffered -= count;
+      notFull.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.rx2;
+
+import io.reactivex.Flowable;
+import io.reactivex.FlowableTransformer;
+import io.reactivex.functions.Function;
+import io.reactivex.functions.Predicate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.reactivestreams.Publisher;
+
+/**
+ * Backpressure-aware transformer that routes each incoming Effect descriptor to a sub-transformer
+ * associated with the Effect descriptor class. Effects are requested from upstream at the pace of
+ * the slowest sub-transformer.
+ */
+class FlowableEffectRouter<F, E> implements FlowableTransformer<F, E> {
+
+  private final Set<Class<?>> effectClasses;
+  private final List<FlowableTransformer<F, E>> effectPerformers;
+
+  FlowableEffectRouter(
+      Set<Class<?>> handledEffectClasses, Collection<FlowableTransformer<F, E>> effectPerformers) {
+    this.effectClasses = new HashSet<>(handledEffectClasses);
+    this.effectPerformers = new ArrayList<>(effectPerformers);
+  }
+
+  @Override
+  public Publisher<E> apply(Flowable<F> effects) {
+    return effects.publish(
+        new Function<Flowable<F>, Publisher<E>>() {
+          @Override
+          public Publisher<E> apply(Flowable<F> innerEffects) {
+            final List<Publisher<E>> transformed = new ArrayList<>();
+            for (FlowableTransformer<F, E> performer : effectPerformers) {
+              transformed.add(innerEffects.compose(performer));
+            }
+            transformed.add(
+                innerEffects.filter(unhandled()).map(FlowableEffectRouter.<F, E>fail()));
+            return Flowable.merge(transformed);
+          }
+        });
+  }
+
+  private Predicate<F> unhandled() {
+    return new Predicate<F>() {
+      @Override
+      public boolean test(F e) {
+        for (Class<?> effectClass : effectClasses) {
+          if (effectClass.isAssignableFrom(e.getClass())) {
+            return false;
+          }
+        }
+        return true;
+      }
+    };
+  }
+
+  private static <F, E> Function<F, E> fail() {
+    return new Function<F, E>() {
+      @Override
+      public E apply(F e) {
+        throw new UnknownEffectException(e);
+      }
+    };
+  }
+}
@@ -0,0 +1,306 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.rx2;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.Observer;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.exceptions.Exceptions;
+import io.reactivex.plugins.RxJavaPlugins;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nullable;
+
+/**
+ * An observable that handles each effect from its source with a synchronous {@link EffectBody},
+ * without creating an inner observable and subscription per effect like {@code flatMap} does.
+ *
+ * <p>Without a scheduler, effects are handled inline on the thread that emits them. With a
+ * scheduler, each effect is handed to {@link Scheduler#scheduleDirect(Runnable)}, so effects are
+ * handled concurrently as they would be with {@code subscribeOn} inside {@code flatMap}. In both
+ * cases, the observable completes once its source has completed and all effects have been handled,
+ * and fails as soon as handling an effect fails. Effects that are still waiting for the scheduler
+ * are cancelled when the observable fails or is disposed.
+ *
+ * @param <F> the effect type
+ * @param <E> the event type
+ */
+final class FusedEffectObservable<F, E> extends Observable<E> {
+
+  /** Handles a single effect, returning the resulting event or null if there is none. */
+  interface EffectBody<F, E> {
+    @Nullable
+    E handle(F effect) throws Exception;
+  }
+
+  private final ObservableSource<F> source;
+  private final EffectBody<F, E> body;
+  @Nullable private final Scheduler scheduler;
+
+  FusedEffectObservable(
+      ObservableSource<F> source, EffectBody<F, E> body, @Nullable Scheduler scheduler) {
+    this.source = source;
+    this.body = body;
+    this.scheduler = scheduler;
+  }
+
+  @Override
+  protected void subscribeActual(Observer<? super E> observer) {
+    source.subscribe(new FusedObserver<>(observer, body, scheduler));
+  }
+
+  private static final class FusedObserver<F, E> implements Observer<F>, Disposable {
+
+    private final Observer<? super E> downstream;
+    private final EffectBody<F, E> body;
+    @Nullable private final Scheduler scheduler;
+
+    // counts the source plus the effects being handled on the scheduler; whoever brings it to
+    // zero completes the downstream observer
+    private final AtomicInteger active = new AtomicInteger(1);
+
+    // the effects that have been handed to the scheduler but not handled yet
+    private final CompositeDisposable tasks = new CompositeDisposable();
+
+    // signals to the downstream observer are serialized through a work-in-progress counter, since
+    // events can be produced on several scheduler threads at once
+    private final Queue<E> events = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final AtomicReference<Throwable> error = new AtomicReference<>();
+    private volatile boolean done;
+    private boolean terminated; // only accessed while draining
+
+    private Disposable upstream;
+    private volatile boolean cancelled;
+
+    FusedObserver(
+        Observer<? super E> downstream, EffectBody<F, E> body, @Nullable Scheduler scheduler) {
+      this.downstream = downstream;
+      this.body = body;
+      this.scheduler = scheduler;
+    }
+
+    @Override
+    public void onSubscribe(Disposable d) {
+      upstream = d;
+      downstream.onSubscribe(this);
+    }
+
+    @Override
+    public void onNext(F effect) {
+      if (isStopped()) {
+        return;
+      }
+
+      if (scheduler == null) {
+        handle(effect);
+        return;
+      }
+
+      active.incrementAndGet();
+
+      ScheduledEffect task = new ScheduledEffect(effect);
+      tasks.add(task);
+      task.setScheduled(scheduler.scheduleDirect(task));
+    }
+
+    private void handle(F effect) {
+      if (isStopped()) {
+        return;
+      }
+
+      E event;
+      try {
+        event = body.handle(effect);
+      } catch (Throwable t) {
+        Exceptions.throwIfFatal(t);
+        onError(t);
+        return;
+      }
+
+      if (event != null) {
+        emit(event);
+      }
+    }
+
+    private void emit(E event) {
+      // fast path: deliver directly if no other thread is emitting, without queueing the event
+      if (wip.get() == 0 && wip.compareAndSet(0, 1)) {
+        if (!terminated && !isStopped()) {
+          downstream.onNext(event);
+        }
+        if (wip.decrementAndGet() == 0) {
+          return;
+        }
+      } else {
+        events.offer(event);
+        if (wip.getAndIncrement() != 0) {
+          return;
+        }
+      }
+
+      drainLoop();
+    }
+
+    @Override
+    public void onError(Throwable e) {
+      if (cancelled || !error.compareAndSet(null, e)) {
+        RxJavaPlugins.onError(e);
+        return;
+      }
+
+      upstream.dispose();
+      tasks.dispose();
+      drain();
+    }
+
+    @Override
+    public void onComplete() {
+      if (active.decrementAndGet() == 0) {
+        complete();
+      }
+    }
+
+    private void complete() {
+      done = true;
+      drain();
+    }
+
+    private boolean isStopped() {
+      return cancelled || error.get() != null;
+    }
+
+    private void drain() {
+      if (wip.getAndIncrement() != 0) {
+        return;
+      }
+
+      drainLoop();
+    }
+
+    // must only be called by the thread that incremented the work-in-progress counter from zero
+    private void drainLoop() {
+      int missed = 1;
+      while (true) {
+        if (!terminated) {
+          drainEvents();
+        }
+
+        missed = wip.addAndGet(-missed);
+        if (missed == 0) {
+          return;
+        }
+      }
+    }
+
+    private void drainEvents() {
+      while (true) {
+        if (cancelled) {
+          events.clear();
+          return;
+        }
+
+        Throwable throwable = error.get();
+        if (throwable != null) {
+          terminated = true;
+          events.clear();
+          downstream.onError(throwable);
+          return;
+        }
+
+        boolean isDone = done;
+        E event = events.poll();
+
+        if (event == null) {
+          if (isDone) {
+            terminated = true;
+            downstream.onComplete();
+          }
+          return;
+        }
+
+        downstream.onNext(event);
+      }
+    }
+
+    @Override
+    public void dispose() {
+      cancelled = true;
+      upstream.dispose();
+      tasks.dispose();
+      drain();
+    }
+
+    @Override
+    public boolean isDisposed() {
+      return cancelled;
+    }
+
+    /** An effect handed to the scheduler, which can be cancelled until it has been handled. */
+    private final class ScheduledEffect extends AtomicReference<Disposable>
+        implements Runnable, Disposable {
+
+      private final F effect;
+      private volatile boolean disposed;
+
+      ScheduledEffect(F effect) {
+        this.effect = effect;
+      }
+
+      void setScheduled(Disposable scheduled) {
+        if (!compareAndSet(null, scheduled) || disposed) {
+          scheduled.dispose();
+        }
+      }
+
+      @Override
+      public void run() {
+        try {
+          handle(effect);
+        } finally {
+          tasks.delete(this);
+        }
+
+        if (active.decrementAndGet() == 0) {
+          complete();
+        }
+      }
+
+      @Override
+      public void dispose() {
+        disposed = true;
+        Disposable scheduled = get();
+        if (scheduled != null) {
+          scheduled.dispose();
+        }
+      }
+
+      @Override
+      public boolean isDisposed() {
+        return disposed;
+      }
+    }
+  }
+}
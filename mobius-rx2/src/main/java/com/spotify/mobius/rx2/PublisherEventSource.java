@@ -0,0 +1,259 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.rx2;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.EventSource;
+import com.spotify.mobius.Next;
+import com.spotify.mobius.Update;
+import com.spotify.mobius.disposables.Disposable;
+import com.spotify.mobius.functions.Consumer;
+import io.reactivex.plugins.RxJavaPlugins;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nonnull;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * An {@link EventSource} that requests events from Reactive Streams publishers only as fast as the
+ * loop processes them. Create one with {@link RxEventSources#fromPublishers(int, Publisher[])}.
+ *
+ * <p>Each publisher is asked for {@code requestSize} events at first, and more are requested once
+ * the loop has run the update function for most of them, so no publisher ever has more than {@code
+ * requestSize} events waiting for the loop. To find out when that happens, the loop's update
+ * function must be wrapped with {@link #trackUpdates(Update)}; without it, only the first {@code
+ * requestSize} events of each publisher are ever requested.
+ *
+ * <pre>{@code
+ * PublisherEventSource<Event> events = RxEventSources.fromPublishers(16, publisher);
+ * Mobius.loop(events.trackUpdates(update), effectHandler).eventSource(events);
+ * }</pre>
+ *
+ * @param <E> the event type
+ */
+public final class PublisherEventSource<E> implements EventSource<E> {
+
+  private final Publisher<? extends E>[] sources;
+  private final int requestSize;
+  private final int replenishThreshold;
+  private final Set<EventSubscriber> subscribers = new CopyOnWriteArraySet<>();
+
+  PublisherEventSource(int requestSize, Publisher<? extends E>[] sources) {
+    if (requestSize <= 0) {
+      throw new IllegalArgumentException("requestSize must be positive: " + requestSize);
+    }
+    for (Publisher<? extends E> source : sources) {
+      checkNotNull(source);
+    }
+    this.sources = sources.clone();
+    this.requestSize = requestSize;
+    this.replenishThreshold = requestSize - (requestSize >> 2);
+  }
+
+  /**
+   * Wrap an update function so that events are requested from the publishers as the update function
+   * processes them. The wrapped function must be the one used by the loops this event source is
+   * passed to.
+   */
+  public <M, F> Update<M, E, F> trackUpdates(final Update<M, E, F> update) {
+    checkNotNull(update);
+
+    return new Update<M, E, F>() {
+      @Nonnull
+      @Override
+      public Next<M, F> update(M model, E event) {
+        try {
+          return update.update(model, event);
+        } finally {
+          onUpdated(event);
+        }
+      }
+    };
+  }
+
+  @Nonnull
+  @Override
+  public Disposable subscribe(Consumer<E> eventConsumer) {
+    checkNotNull(eventConsumer);
+
+    final List<EventSubscriber> subscribed = new ArrayList<>(sources.length);
+
+    for (Publisher<? extends E> source : sources) {
+      EventSubscriber subscriber = new EventSubscriber(eventConsumer);
+      subscribers.add(subscriber);
+      subscribed.add(subscriber);
+      source.subscribe(subscriber);
+    }
+
+    return new Disposable() {
+      @Override
+      public void dispose() {
+        for (EventSubscriber subscriber : subscribed) {
+          subscriber.cancel();
+        }
+      }
+    };
+  }
+
+  private void onUpdated(E event) {
+    for (EventSubscriber subscriber : subscribers) {
+      if (subscriber.onUpdated(event)) {
+        return;
+      }
+    }
+  }
+
+  private final class EventSubscriber implements Subscriber<E> {
+    private final Consumer<E> eventConsumer;
+    private final AtomicReference<Subscription> upstream = new AtomicReference<>();
+
+    // events received from the publisher that the update function hasn't processed yet, in order
+    private final Queue<E> inFlight = new ConcurrentLinkedQueue<>();
+
+    // requests and cancellation are serialized through a work-in-progress counter, since they are
+    // signalled both from the publisher and from the event runner
+    private final AtomicLong pendingRequests = new AtomicLong();
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final AtomicInteger wip = new AtomicInteger();
+    private boolean terminated; // only accessed while draining
+
+    // guarded by 'this'
+    private int processed;
+
+    EventSubscriber(Consumer<E> eventConsumer) {
+      this.eventConsumer = eventConsumer;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      if (!upstream.compareAndSet(null, subscription)) {
+        subscription.cancel();
+        return;
+      }
+
+      request(requestSize);
+    }
+
+    @Override
+    public void onNext(E event) {
+      if (cancelled.get()) {
+        return;
+      }
+
+      inFlight.add(event);
+      eventConsumer.accept(event);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      subscribers.remove(this);
+      inFlight.clear();
+      RxJavaPlugins.onError(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+      subscribers.remove(this);
+      inFlight.clear();
+    }
+
+    boolean onUpdated(E event) {
+      boolean replenish;
+
+      synchronized (this) {
+        // Events from the publisher are processed in the order they were received, so only the
+        // oldest one in flight can be the event that was just processed. Anything else came from
+        // another publisher, an effect handler or another event source.
+        if (inFlight.peek() != event) {
+          return false;
+        }
+        inFlight.poll();
+
+        // request more events in batches, once most of the previous batch has been processed
+        replenish = ++processed == replenishThreshold;
+        if (replenish) {
+          processed = 0;
+        }
+      }
+
+      if (replenish) {
+        request(replenishThreshold);
+      }
+      return true;
+    }
+
+    void cancel() {
+      subscribers.remove(this);
+      cancelled.set(true);
+      inFlight.clear();
+      drain();
+    }
+
+    private void request(long n) {
+      while (true) {
+        long current = pendingRequests.get();
+        long next = current + n < 0 ? Long.MAX_VALUE : current + n;
+        if (pendingRequests.compareAndSet(current, next)) {
+          break;
+        }
+      }
+      drain();
+    }
+
+    private void drain() {
+      if (wip.getAndIncrement() != 0) {
+        return;
+      }
+
+      int missed = 1;
+      while (true) {
+        Subscription subscription = upstream.get();
+        if (subscription != null && !terminated) {
+          if (cancelled.get()) {
+            terminated = true;
+            pendingRequests.set(0);
+            subscription.cancel();
+          } else {
+            long n = pendingRequests.getAndSet(0);
+            if (n > 0) {
+              subscription.request(n);
+            }
+          }
+        }
+
+        missed = wip.addAndGet(-missed);
+        if (missed == 0) {
+          return;
+        }
+      }
+    }
+  }
+}
@@ -24,6 +24,8 @@ import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
 import com.spotify.mobius.Connectable;
 import com.spotify.mobius.Connection;
 import com.spotify.mobius.functions.Consumer;
+import io.reactivex.Flowable;
+import io.reactivex.FlowableTransformer;
 import io.reactivex.Observable;
 import io.reactivex.ObservableEmitter;
 import io.reactivex.ObservableOnSubscribe;
@@ -38,7 +40,7 @@ import javax.annotation.Nonnull;
 
 /**
  * Contains utility methods for converting back and forth between {@link ObservableTransformer}s and
- * {@link Connectable}s.
+ * {@link Connectable}s, and for converting {@link FlowableTransformer}s to {@link Connectable}s.
  */
 public final class RxConnectables {
   private RxConnectables() {}
@@ -90,6 +92,70 @@ public final class RxConnectables {
     };
   }
 
+  /**
+   * Create a {@link Connectable} from a {@link FlowableTransformer}, propagating the transformer's
+   * backpressure to the code dispatching effects.
+   *
+   * <p>At most {@code bufferSize} effects are kept waiting for the transformer to request them.
+   * When the buffer is full, {@link Connection#accept(Object)} blocks until the transformer
+   * requests more effects, so a slow transformer slows down the effect runner instead of growing
+   * the heap.
+   *
+   * <p>Since a blocked effect ties up the thread that dispatched it, the loop must use an effect
+   * runner with a bounded number of threads, such as {@link
+   * com.spotify.mobius.runners.WorkRunners#singleThread()}; the default cached thread pool would
+   * start a new thread for every effect dispatched while the buffer is full. The effect runner must
+   * not be shared with the event runner. {@link RxMobius#loop(com.spotify.mobius.Update,
+   * FlowableTransformer, int)} sets up a suitable effect runner.
+   *
+   * @param transformer the transformer handling effects
+   * @param bufferSize the maximum number of effects waiting to be requested
+   */
+  public static <I, O> Connectable<I, O> fromFlowableTransformer(
+      final FlowableTransformer<I, O> transformer, final int bufferSize) {
+    checkNotNull(transformer);
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+    }
+
+    return new Connectable<I, O>() {
+      @Nonnull
+      @Override
+      public Connection<I> connect(final Consumer<O> output) {
+        final BlockingPublisher<I> publisher = new BlockingPublisher<>(bufferSize);
+
+        final Disposable disposable =
+            Flowable.fromPublisher(publisher)
+                .compose(transformer)
+                .subscribe(
+                    new io.reactivex.functions.Consumer<O>() {
+                      @Override
+                      public void accept(O e) {
+                        output.accept(e);
+                      }
+                    },
+                    new io.reactivex.functions.Consumer<Throwable>() {
+                      @Override
+                      public void accept(Throwable throwable) throws Exception {
+                        RxJavaPlugins.getErrorHandler().accept(throwable);
+                      }
+                    });
+
+        return new Connection<I>() {
+          @Override
+          public void accept(I effect) {
+            publisher.offer(effect);
+          }
+
+          @Override
+          public void dispose() {
+            disposable.dispose();
+          }
+        };
+      }
+    };
+  }
+
   public static <I, O> ObservableTransformer<I, O> toTransformer(
       final Connectable<I, O> connectable) {
     return new ObservableTransformer<I, O>() {
@@ -29,6 +29,7 @@ import io.reactivex.ObservableSource;
 import io.reactivex.functions.Cancellable;
 import io.reactivex.plugins.RxJavaPlugins;
 import javax.annotation.Nonnull;
+import org.reactivestreams.Publisher;
 
 /**
  * Contains utility methods for converting back and forth between {@link Observable}s and {@link
@@ -80,6 +81,29 @@ public final class RxEventSources {
     };
   }
 
+  /**
+   * Create an event source from the given Reactive Streams publishers, honouring their
+   * backpressure.
+   *
+   * <p>Events are requested from each publisher in batches of {@code requestSize}, and a new batch
+   * is only requested once the loop has run its update function for most of the previous one.
+   * Publishers that produce on demand, such as ones reading from a file or a paged API, therefore
+   * never have more than {@code requestSize} events waiting for the loop. For this to work, the
+   * loop's update function must be wrapped with {@link PublisherEventSource#trackUpdates}.
+   *
+   * <p>All streams must be mapped to your event type.
+   *
+   * @param requestSize the number of events to request from a publisher at a time
+   * @param sources the publishers you want to include in this event source
+   * @param <E> the event type
+   * @return an EventSource based on the provided publishers
+   */
+  @SafeVarargs
+  public static <E> PublisherEventSource<E> fromPublishers(
+      int requestSize, Publisher<? extends E>... sources) {
+    return new PublisherEventSource<>(requestSize, sources);
+  }
+
   /**
    * Create an observable from the given event source.
    *
@@ -25,6 +25,11 @@ import com.spotify.mobius.ConnectionException;
 import com.spotify.mobius.Mobius;
 import com.spotify.mobius.MobiusLoop;
 import com.spotify.mobius.Update;
+import com.spotify.mobius.functions.Producer;
+import com.spotify.mobius.runners.WorkRunner;
+import com.spotify.mobius.runners.WorkRunners;
+import io.reactivex.Flowable;
+import io.reactivex.FlowableTransformer;
 import io.reactivex.Observable;
 import io.reactivex.ObservableTransformer;
 import io.reactivex.Scheduler;
@@ -32,8 +37,11 @@ import io.reactivex.functions.Action;
 import io.reactivex.functions.Consumer;
 import io.reactivex.functions.Function;
 import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.Schedulers;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
 
 /** Factory methods for wrapping Mobius core classes in observable tranformers. */
 public final class RxMobius {
@@ -59,6 +67,47 @@ public final class RxMobius {
     return new RxMobiusLoop<>(loopFactory, startModel);
   }
 
+  /**
+   * Create an observable transformer that shares a single loop between all its subscribers.
+   *
+   * <p>The loop is started from the given model when the resulting observable is first subscribed
+   * to. Later subscribers share the running loop, and start by receiving its most recent model.
+   * Events from all subscribers are dispatched to the shared loop. When the last subscriber
+   * unsubscribes, the loop is disposed after the grace period, unless a new subscriber arrives
+   * before that; the next subscription after disposal starts a new loop from the given model.
+   *
+   * @param loopFactory creates the shared loop
+   * @param startModel the starting point for the shared loop
+   * @param gracePeriod how long to keep the loop running without subscribers
+   * @param unit the unit of {@code gracePeriod}
+   * @param scheduler the scheduler used to dispose the loop after the grace period
+   * @param <M> the model type
+   * @param <E> the event type
+   * @param <F> the effect type
+   * @return a transformer from event to model that you can connect to your UI
+   */
+  public static <M, E, F> ObservableTransformer<E, M> sharedLoopFrom(
+      final MobiusLoop.Factory<M, E, F> loopFactory,
+      final M startModel,
+      long gracePeriod,
+      TimeUnit unit,
+      Scheduler scheduler) {
+    return new SharedRxMobiusLoop<>(loopFactory, startModel, gracePeriod, unit, scheduler);
+  }
+
+  /**
+   * Create an observable transformer that shares a single loop between all its subscribers, using
+   * the computation scheduler to dispose the loop after the grace period. See {@link
+   * #sharedLoopFrom(MobiusLoop.Factory, Object, long, TimeUnit, Scheduler)}.
+   */
+  public static <M, E, F> ObservableTransformer<E, M> sharedLoopFrom(
+      final MobiusLoop.Factory<M, E, F> loopFactory,
+      final M startModel,
+      long gracePeriod,
+      TimeUnit unit) {
+    return sharedLoopFrom(loopFactory, startModel, gracePeriod, unit, Schedulers.computation());
+  }
+
   /**
    * Create a {@link MobiusLoop.Builder} to help you configure a MobiusLoop before starting it.
    *
@@ -78,6 +127,39 @@ public final class RxMobius {
     return Mobius.loop(update, RxConnectables.fromTransformer(effectHandler));
   }
 
+  /**
+   * Create a {@link MobiusLoop.Builder} with a backpressure-aware effect handler.
+   *
+   * <p>At most {@code bufferSize} effects are kept waiting for the effect handler to request them;
+   * beyond that, dispatching effects blocks the effect runner. See {@link
+   * RxConnectables#fromFlowableTransformer(FlowableTransformer, int)}.
+   *
+   * <p>The returned builder runs effects on a single thread, so that a blocked effect runner holds
+   * back further effects instead of starting new threads. If you replace the effect runner, make
+   * sure it has a bounded number of threads too.
+   *
+   * @param update the {@link Update} function of the loop
+   * @param effectHandler the {@link FlowableTransformer} effect handler of the loop
+   * @param bufferSize the maximum number of effects waiting to be requested by the effect handler
+   * @param <M> the model type
+   * @param <E> the event type
+   * @param <F> the effect type
+   * @return a {@link MobiusLoop.Builder} instance that you can further configure before starting
+   *     the loop
+   */
+  public static <M, E, F> MobiusLoop.Builder<M, E, F> loop(
+      Update<M, E, F> update, FlowableTransformer<F, E> effectHandler, int bufferSize) {
+    return Mobius.loop(update, RxConnectables.fromFlowableTransformer(effectHandler, bufferSize))
+        .effectRunner(
+            new Producer<WorkRunner>() {
+              @Nonnull
+              @Override
+              public WorkRunner get() {
+                return WorkRunners.singleThread();
+              }
+            });
+  }
+
   /**
    * Create an {@link SubtypeEffectHandlerBuilder} for handling effects based on their type.
    *
@@ -88,6 +170,17 @@ public final class RxMobius {
     return new SubtypeEffectHandlerBuilder<>();
   }
 
+  /**
+   * Create a {@link FlowableSubtypeEffectHandlerBuilder} for handling effects based on their type
+   * with backpressure.
+   *
+   * @param <F> the effect type
+   * @param <E> the event type
+   */
+  public static <F, E> FlowableSubtypeEffectHandlerBuilder<F, E> subtypeFlowableEffectHandler() {
+    return new FlowableSubtypeEffectHandlerBuilder<>();
+  }
+
   /**
    * Builder for a type-routing effect handler.
    *
@@ -455,8 +548,7 @@ public final class RxMobius {
       return new MobiusEffectRouter<>(effectPerformerMap.keySet(), effectPerformerMap.values());
     }
 
-    private static <F, E> Consumer<Throwable> defaultOnError(
-        final ObservableTransformer<? extends F, E> effectHandler) {
+    private static Consumer<Throwable> defaultOnError(final Object effectHandler) {
       return new Consumer<Throwable>() {
         @Override
         public void accept(Throwable throwable) throws Exception {
@@ -472,4 +564,145 @@ public final class RxMobius {
       R apply(T t);
     }
   }
+
+  /**
+   * Builder for a backpressure-aware type-routing effect handler.
+   *
+   * <p>This works like {@link SubtypeEffectHandlerBuilder}, but builds a {@link
+   * FlowableTransformer} that only requests effects as fast as its handlers can process them. Use
+   * it with {@link #loop(Update, FlowableTransformer, int)}. Note that instances of the builder are
+   * mutable and not thread-safe.
+   */
+  public static class FlowableSubtypeEffectHandlerBuilder<F, E> {
+
+    private final Map<Class<?>, FlowableTransformer<F, E>> effectPerformerMap = new HashMap<>();
+
+    private FlowableSubtypeEffectHandlerBuilder() {}
+
+    /**
+     * Add a {@link FlowableTransformer} for handling effects of a given type. The handler will
+     * receive all effect objects that extend the given class.
+     *
+     * <p>Adding handlers for two effect classes where one is a super-class of the other is
+     * considered a collision and is not allowed. Registering the same class twice is also
+     * considered a collision.
+     *
+     * @param effectClass the class to handle
+     * @param effectHandler the effect handler for the given effect class
+     * @param <G> the effect class as a type parameter
+     * @return this builder
+     * @throws IllegalArgumentException if there is a handler collision
+     */
+    public <G extends F> FlowableSubtypeEffectHandlerBuilder<F, E> addTransformer(
+        final Class<G> effectClass, final FlowableTransformer<G, E> effectHandler) {
+      //noinspection ResultOfMethodCallIgnored
+      checkNotNull(effectClass);
+      //noinspection ResultOfMethodCallIgnored
+      checkNotNull(effectHandler);
+
+      for (Class<?> cls : effectPerformerMap.keySet()) {
+        if (cls.isAssignableFrom(effectClass) || effectClass.isAssignableFrom(cls)) {
+          throw new IllegalArgumentException(
+              "Effect classes may not be assignable to each other, collision found: "
+                  + effectClass.getSimpleName()
+                  + " <-> "
+                  + cls.getSimpleName());
+        }
+      }
+
+      effectPerformerMap.put(
+          effectClass,
+          new FlowableTransformer<F, E>() {
+            @Override
+            public Flowable<E> apply(Flowable<F> effects) {
+              return effects
+                  .ofType(effectClass)
+                  .compose(effectHandler)
+                  .doOnError(SubtypeEffectHandlerBuilder.defaultOnError(effectHandler));
+            }
+          });
+
+      return this;
+    }
+
+    /**
+     * Add a {@link Function} for handling effects of a given type. The function will be invoked
+     * once for every received effect object that extends the given class. The returned event will
+     * be forwarded to the Mobius loop.
+     *
+     * @param effectClass the class to handle
+     * @param function the function that should be invoked for the effect
+     * @param <G> the effect class as a type parameter
+     * @return this builder
+     * @throws IllegalArgumentException if there is a handler collision
+     */
+    public <G extends F> FlowableSubtypeEffectHandlerBuilder<F, E> addFunction(
+        final Class<G> effectClass, final Function<G, E> function) {
+      //noinspection ResultOfMethodCallIgnored
+      checkNotNull(function);
+
+      return addTransformer(effectClass, Transformers.flowableFromFunction(function, null));
+    }
+
+    /**
+     * Add a {@link Function} for handling effects of a given type, invoked on the given scheduler.
+     * The returned event will be forwarded to the Mobius loop.
+     *
+     * @param effectClass the class to handle
+     * @param function the function that should be invoked for the effect
+     * @param scheduler the scheduler that should be used when invoking the function
+     * @param <G> the effect class as a type parameter
+     * @return this builder
+     * @throws IllegalArgumentException if there is a handler collision
+     */
+    public <G extends F> FlowableSubtypeEffectHandlerBuilder<F, E> addFunction(
+        final Class<G> effectClass, final Function<G, E> function, Scheduler scheduler) {
+      //noinspection ResultOfMethodCallIgnored
+      checkNotNull(function);
+
+      return addTransformer(
+          effectClass, Transformers.flowableFromFunction(function, checkNotNull(scheduler)));
+    }
+
+    /**
+     * Add a {@link Consumer} for handling effects of a given type. The consumer will be invoked
+     * once for every received effect object that extends the given class.
+     *
+     * @param effectClass the class to handle
+     * @param consumer the consumer that should be invoked for the effect
+     * @param <G> the effect class as a type parameter
+     * @return this builder
+     * @throws IllegalArgumentException if there is a handler collision
+     */
+    public <G extends F> FlowableSubtypeEffectHandlerBuilder<F, E> addConsumer(
+        final Class<G> effectClass, final Consumer<G> consumer) {
+      //noinspection ResultOfMethodCallIgnored
+      checkNotNull(consumer);
+
+      return addTransformer(effectClass, Transformers.<G, E>flowableFromConsumer(consumer, null));
+    }
+
+    /**
+     * Add a {@link Consumer} for handling effects of a given type, invoked on the given scheduler.
+     *
+     * @param effectClass the class to handle
+     * @param consumer the consumer that should be invoked for the effect
+     * @param scheduler the scheduler that should be used to invoke the consumer
+     * @param <G> the effect class as a type parameter
+     * @return this builder
+     * @throws IllegalArgumentException if there is a handler collision
+     */
+    public <G extends F> FlowableSubtypeEffectHandlerBuilder<F, E> addConsumer(
+        final Class<G> effectClass, final Consumer<G> consumer, Scheduler scheduler) {
+      //noinspection ResultOfMethodCallIgnored
+      checkNotNull(consumer);
+
+      return addTransformer(
+          effectClass, Transformers.<G, E>flowableFromConsumer(consumer, checkNotNull(scheduler)));
+    }
+
+    public FlowableTransformer<F, E> build() {
+      return new FlowableEffectRouter<>(effectPerformerMap.keySet(), effectPerformerMap.values());
+    }
+  }
 }
@@ -0,0 +1,170 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.rx2;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.MobiusLoop;
+import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
+import io.reactivex.ObservableOnSubscribe;
+import io.reactivex.ObservableSource;
+import io.reactivex.ObservableTransformer;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Cancellable;
+import io.reactivex.functions.Consumer;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Wraps a MobiusLoop into an observable transformer that shares a single loop between all its
+ * subscribers.
+ *
+ * <p>The loop is started on the first subscription, and every subscriber receives the most recent
+ * model of the loop followed by later models. Events from all subscribers are dispatched to the
+ * same loop. Once the last subscriber unsubscribes, the loop is kept running for a grace period, so
+ * that a subscriber that comes back quickly - for instance after a configuration change - continues
+ * with the same loop.
+ */
+class SharedRxMobiusLoop<E, M> implements ObservableTransformer<E, M> {
+
+  private final MobiusLoop.Factory<M, E, ?> loopFactory;
+  private final M startModel;
+  private final long gracePeriod;
+  private final TimeUnit unit;
+  private final Scheduler scheduler;
+
+  // all guarded by 'this'
+  @Nullable private MobiusLoop<M, E, ?> loop;
+  private int subscribers;
+  @Nullable private Disposable pendingDisposal;
+
+  SharedRxMobiusLoop(
+      MobiusLoop.Factory<M, E, ?> loopFactory,
+      M startModel,
+      long gracePeriod,
+      TimeUnit unit,
+      Scheduler scheduler) {
+    if (gracePeriod < 0) {
+      throw new IllegalArgumentException("gracePeriod may not be negative: " + gracePeriod);
+    }
+    this.loopFactory = checkNotNull(loopFactory);
+    this.startModel = checkNotNull(startModel);
+    this.gracePeriod = gracePeriod;
+    this.unit = checkNotNull(unit);
+    this.scheduler = checkNotNull(scheduler);
+  }
+
+  @Override
+  public ObservableSource<M> apply(final Observable<E> events) {
+    return Observable.create(
+        new ObservableOnSubscribe<M>() {
+          @Override
+          public void subscribe(final ObservableEmitter<M> emitter) throws Exception {
+            final MobiusLoop<M, E, ?> sharedLoop = acquire();
+
+            final com.spotify.mobius.disposables.Disposable modelObservation =
+                sharedLoop.observe(
+                    new com.spotify.mobius.functions.Consumer<M>() {
+                      @Override
+                      public void accept(M newModel) {
+                        emitter.onNext(newModel);
+                      }
+                    });
+
+            final Disposable eventsDisposable =
+                events.subscribe(
+                    new Consumer<E>() {
+                      @Override
+                      public void accept(E event) throws Exception {
+                        sharedLoop.dispatchEvent(event);
+                      }
+                    },
+                    new Consumer<Throwable>() {
+                      @Override
+                      public void accept(Throwable throwable) throws Exception {
+                        emitter.onError(new UnrecoverableIncomingException(throwable));
+                      }
+                    });
+
+            emitter.setCancellable(
+                new Cancellable() {
+                  @Override
+                  public void cancel() throws Exception {
+                    eventsDisposable.dispose();
+                    modelObservation.dispose();
+                    release(sharedLoop);
+                  }
+                });
+          }
+        });
+  }
+
+  private synchronized MobiusLoop<M, E, ?> acquire() {
+    if (pendingDisposal != null) {
+      pendingDisposal.dispose();
+      pendingDisposal = null;
+    }
+
+    if (loop == null) {
+      loop = loopFactory.startFrom(startModel);
+    }
+
+    subscribers++;
+    return loop;
+  }
+
+  private synchronized void release(final MobiusLoop<M, E, ?> released) {
+    if (released != loop || --subscribers > 0) {
+      return;
+    }
+
+    if (gracePeriod == 0) {
+      disposeLoop();
+      return;
+    }
+
+    pendingDisposal =
+        scheduler.scheduleDirect(
+            new Runnable() {
+              @Override
+              public void run() {
+                disposeIfUnused(released);
+              }
+            },
+            gracePeriod,
+            unit);
+  }
+
+  private synchronized void disposeIfUnused(MobiusLoop<M, E, ?> candidate) {
+    if (candidate == loop && subscribers == 0) {
+      disposeLoop();
+    }
+  }
+
+  // must be called while holding the lock
+  private void disposeLoop() {
+    //noinspection ConstantConditions
+    loop.dispose();
+    loop = null;
+    pendingDisposal = null;
+  }
+}
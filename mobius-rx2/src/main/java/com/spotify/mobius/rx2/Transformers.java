@@ -19,9 +19,13 @@
  */
 package com.spotify.mobius.rx2;
 
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
 import com.spotify.mobius.rx2.RxMobius.SubtypeEffectHandlerBuilder;
 import io.reactivex.Completable;
 import io.reactivex.CompletableSource;
+import io.reactivex.Flowable;
+import io.reactivex.FlowableTransformer;
 import io.reactivex.Observable;
 import io.reactivex.ObservableSource;
 import io.reactivex.ObservableTransformer;
@@ -31,6 +35,7 @@ import io.reactivex.functions.Consumer;
 import io.reactivex.functions.Function;
 import java.util.concurrent.Callable;
 import javax.annotation.Nullable;
+import org.reactivestreams.Publisher;
 
 /**
  * An {@link ObservableTransformer} factory to that creates transformers from {@link Action}, {@link
@@ -42,10 +47,8 @@ class Transformers {
   private Transformers() {}
 
   /**
-   * Creates an {@link ObservableTransformer} that will flatten the provided {@link Action} into the
-   * stream as a {@link Completable} every time it receives an effect from the upstream effects
-   * observable. This will result in calling the provided Action every time an effect is dispatched
-   * to the created effect transformer.
+   * Creates an {@link ObservableTransformer} that will run the provided {@link Action} inline every
+   * time it receives an effect from the upstream effects observable.
    *
    * @param doEffect the {@link Action} to be run every time the effect is requested
    * @param <F> the type of Effect this transformer handles
@@ -59,11 +62,10 @@ class Transformers {
   }
 
   /**
-   * Creates an {@link ObservableTransformer} that will flatten the provided {@link Action} into the
-   * stream as a {@link Completable} every time it receives an effect from the upstream effects
-   * observable. This Completable will be subscribed on the specified {@link Scheduler}. This will
-   * result in calling the provided Action on the specified scheduler every time an effect is
-   * dispatched to the created effect transformer.
+   * Creates an {@link ObservableTransformer} that will run the provided {@link Action} every time
+   * it receives an effect from the upstream effects observable, on the specified {@link Scheduler}.
+   * The action is handed directly to the scheduler without creating a {@link Completable} per
+   * effect.
    *
    * @param doEffect the {@link Action} to be run every time the effect is requested
    * @param scheduler the {@link Scheduler} that the action should be run on
@@ -75,29 +77,21 @@ class Transformers {
    */
   static <F, E> ObservableTransformer<F, E> fromAction(
       final Action doEffect, @Nullable final Scheduler scheduler) {
-    return new ObservableTransformer<F, E>() {
-      @Override
-      public ObservableSource<E> apply(Observable<F> effectStream) {
-        return effectStream
-            .flatMapCompletable(
-                new Function<F, CompletableSource>() {
-                  @Override
-                  public CompletableSource apply(F f) throws Exception {
-                    return scheduler == null
-                        ? Completable.fromAction(doEffect)
-                        : Completable.fromAction(doEffect).subscribeOn(scheduler);
-                  }
-                })
-            .toObservable();
-      }
-    };
+    return fused(
+        new FusedEffectObservable.EffectBody<F, E>() {
+          @Nullable
+          @Override
+          public E handle(F effect) throws Exception {
+            doEffect.run();
+            return null;
+          }
+        },
+        scheduler);
   }
 
   /**
-   * Creates an {@link ObservableTransformer} that will flatten the provided {@link Consumer} into
-   * the stream as a {@link Completable} every time it receives an effect from the upstream effects
-   * observable. This will result in calling the consumer and and passing it the requested effect
-   * object.
+   * Creates an {@link ObservableTransformer} that will call the provided {@link Consumer} inline
+   * with every effect it receives from the upstream effects observable.
    *
    * @param doEffect the {@link Consumer} to be run every time the effect is requested
    * @param <F> the type of Effect this transformer handles
@@ -111,10 +105,9 @@ class Transformers {
   }
 
   /**
-   * Creates an {@link ObservableTransformer} that will flatten the provided {@link Consumer} into
-   * the stream as a {@link Completable} every time it receives an effect from the upstream effects
-   * observable. This will result in calling the consumer on the specified scheduler, and passing it
-   * the requested effect object.
+   * Creates an {@link ObservableTransformer} that will call the provided {@link Consumer} with
+   * every effect it receives from the upstream effects observable, on the specified scheduler. The
+   * effect is handed directly to the scheduler without creating a {@link Completable} per effect.
    *
    * @param doEffect the {@link Consumer} to be run every time the effect is requested
    * @param scheduler the {@link Scheduler} to be used when invoking the consumer
@@ -126,9 +119,86 @@ class Transformers {
    */
   static <F, E> ObservableTransformer<F, E> fromConsumer(
       final Consumer<F> doEffect, @Nullable final Scheduler scheduler) {
+    return fused(
+        new FusedEffectObservable.EffectBody<F, E>() {
+          @Nullable
+          @Override
+          public E handle(F effect) throws Exception {
+            doEffect.accept(effect);
+            return null;
+          }
+        },
+        scheduler);
+  }
+
+  /**
+   * Creates an {@link ObservableTransformer} that will call the provided {@link Function} with
+   * every effect it receives from the upstream effects observable, on the specified scheduler, and
+   * emit its returned value. The effect is handed directly to the scheduler without creating an
+   * {@link Observable} per effect.
+   *
+   * @param function the {@link Function} to be invoked every time the effect is requested
+   * @param scheduler the {@link Scheduler} to be used when invoking the function
+   * @param <F> the type of Effect this transformer handles
+   * @param <E> the type of Event this transformer emits
+   * @return an {@link ObservableTransformer} that can be used with a {@link
+   *     SubtypeEffectHandlerBuilder}.
+   */
+  static <F, E> ObservableTransformer<F, E> fromFunction(
+      final Function<F, E> function, @Nullable final Scheduler scheduler) {
+    return fused(
+        new FusedEffectObservable.EffectBody<F, E>() {
+          @Override
+          public E handle(F effect) throws Exception {
+            return checkNotNull(function.apply(effect));
+          }
+        },
+        scheduler);
+  }
+
+  private static <F, E> ObservableTransformer<F, E> fused(
+      final FusedEffectObservable.EffectBody<F, E> body, @Nullable final Scheduler scheduler) {
     return new ObservableTransformer<F, E>() {
       @Override
       public ObservableSource<E> apply(Observable<F> effectStream) {
+        return new FusedEffectObservable<>(effectStream, body, scheduler);
+      }
+    };
+  }
+
+  /**
+   * Creates an {@link ObservableTransformer} that will call the provided {@link Function} inline
+   * with every effect it receives from the upstream effects observable, and emit its returned
+   * value.
+   *
+   * @param function {@link Function} to be invoked every time the effect is requested
+   * @param <F> the type of Effect this transformer handles
+   * @param <E> the type of Event this transformer emits
+   * @return an {@link ObservableTransformer} that can be used with a {@link
+   *     SubtypeEffectHandlerBuilder}.
+   */
+  static <F, E> ObservableTransformer<F, E> fromFunction(final Function<F, E> function) {
+    return fromFunction(function, null);
+  }
+
+  /**
+   * Creates a {@link FlowableTransformer} that calls the provided {@link Consumer} for every effect
+   * it receives, optionally on the specified scheduler. At most {@link Flowable#bufferSize()}
+   * effects are handled concurrently; further effects are requested as earlier ones complete.
+   *
+   * @param doEffect the {@link Consumer} to be run every time the effect is requested
+   * @param scheduler the {@link Scheduler} to be used when invoking the consumer, or null
+   * @param <F> the type of Effect this transformer handles
+   * @param <E> these transformers are for effects that do not result in any events; however, they
+   *     still need to share the same Event type
+   * @return a {@link FlowableTransformer} that can be used with a {@link
+   *     RxMobius.FlowableSubtypeEffectHandlerBuilder}.
+   */
+  static <F, E> FlowableTransformer<F, E> flowableFromConsumer(
+      final Consumer<F> doEffect, @Nullable final Scheduler scheduler) {
+    return new FlowableTransformer<F, E>() {
+      @Override
+      public Publisher<E> apply(Flowable<F> effectStream) {
         return effectStream
             .flatMapCompletable(
                 new Function<F, CompletableSource>() {
@@ -144,62 +214,49 @@ class Transformers {
                             });
                     return scheduler == null ? completable : completable.subscribeOn(scheduler);
                   }
-                })
-            .toObservable();
+                },
+                false,
+                Flowable.bufferSize())
+            .toFlowable();
       }
     };
   }
 
   /**
-   * Creates an {@link ObservableTransformer} that will flatten the provided {@link Function} into
-   * the stream as an {@link Observable} every time it receives an effect from the upstream effects
-   * observable. This will result in calling the function on the specified scheduler, and passing it
-   * the requested effect object then emitting its returned value.
+   * Creates a {@link FlowableTransformer} that calls the provided {@link Function} for every effect
+   * it receives, optionally on the specified scheduler, and emits its returned value. At most
+   * {@link Flowable#bufferSize()} effects are handled concurrently; further effects are requested
+   * as earlier ones complete.
    *
    * @param function the {@link Function} to be invoked every time the effect is requested
-   * @param scheduler the {@link Scheduler} to be used when invoking the function
+   * @param scheduler the {@link Scheduler} to be used when invoking the function, or null
    * @param <F> the type of Effect this transformer handles
    * @param <E> the type of Event this transformer emits
-   * @return an {@link ObservableTransformer} that can be used with a {@link
-   *     SubtypeEffectHandlerBuilder}.
+   * @return a {@link FlowableTransformer} that can be used with a {@link
+   *     RxMobius.FlowableSubtypeEffectHandlerBuilder}.
    */
-  static <F, E> ObservableTransformer<F, E> fromFunction(
+  static <F, E> FlowableTransformer<F, E> flowableFromFunction(
       final Function<F, E> function, @Nullable final Scheduler scheduler) {
-    return new ObservableTransformer<F, E>() {
+    return new FlowableTransformer<F, E>() {
       @Override
-      public ObservableSource<E> apply(Observable<F> effectStream) {
+      public Publisher<E> apply(Flowable<F> effectStream) {
         return effectStream.flatMap(
-            new Function<F, ObservableSource<E>>() {
+            new Function<F, Publisher<E>>() {
               @Override
-              public ObservableSource<E> apply(final F f) {
-                Observable<E> eventObservable =
-                    Observable.fromCallable(
+              public Publisher<E> apply(final F f) {
+                Flowable<E> eventFlowable =
+                    Flowable.fromCallable(
                         new Callable<E>() {
                           @Override
                           public E call() throws Exception {
                             return function.apply(f);
                           }
                         });
-                return scheduler == null ? eventObservable : eventObservable.subscribeOn(scheduler);
+                return scheduler == null ? eventFlowable : eventFlowable.subscribeOn(scheduler);
               }
-            });
+            },
+            Flowable.bufferSize());
       }
     };
   }
-
-  /**
-   * Creates an {@link ObservableTransformer} that will flatten the provided {@link Function} into
-   * the stream as an {@link Observable} every time it receives an effect from the upstream effects
-   * observable. This will result in calling the function on the immediate scheduler, and passing it
-   * the requested effect object then emitting its returned value.
-   *
-   * @param function {@link Function} to be invoked every time the effect is requested
-   * @param <F> the type of Effect this transformer handles
-   * @param <E> the type of Event this transformer emits
-   * @return an {@link ObservableTransformer} that can be used with a {@link
-   *     SubtypeEffectHandlerBuilder}.
-   */
-  static <F, E> ObservableTransformer<F, E> fromFunction(final Function<F, E> function) {
-    return fromFunction(function, null);
-  }
 }
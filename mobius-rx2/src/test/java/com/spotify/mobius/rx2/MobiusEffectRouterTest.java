@@ -21,16 +21,22 @@ package com.spotify.mobius.rx2;
 
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.junit.Assert.assertThat;
 
 import com.google.auto.value.AutoValue;
 import com.spotify.mobius.rx2.RxMobius.SubtypeEffectHandlerBuilder;
+import io.reactivex.Flowable;
+import io.reactivex.FlowableTransformer;
 import io.reactivex.Observable;
 import io.reactivex.ObservableTransformer;
 import io.reactivex.functions.Consumer;
 import io.reactivex.functions.Function;
 import io.reactivex.observers.TestObserver;
 import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subscribers.TestSubscriber;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.junit.Assert;
 import org.junit.Before;
@@ -114,6 +120,59 @@ public class MobiusEffectRouterTest {
     testSubscriber.assertError(new UnknownEffectException(unhandled));
   }
 
+  @Test
+  public void flowableRouterShouldRouteEffectsByType() throws Exception {
+    FlowableTransformer<TestEffect, TestEvent> router =
+        RxMobius.<TestEffect, TestEvent>subtypeFlowableEffectHandler()
+            .addTransformer(A.class, (Flowable<A> as) -> as.map(a -> AEvent.create(a.id())))
+            .addConsumer(C.class, cConsumer)
+            .addFunction(E.class, e -> BEvent.create(e.id()))
+            .build();
+
+    TestSubscriber<TestEvent> subscriber =
+        Flowable.just(A.create(1), C.create(2), E.create(3)).compose(router).test();
+
+    subscriber.awaitTerminalEvent();
+    subscriber.assertValues(AEvent.create(1), BEvent.create(3));
+    assertThat(cConsumer.getCurrentValue(), is(equalTo(C.create(2))));
+  }
+
+  @Test
+  public void flowableRouterShouldFailForUnhandledEffect() throws Exception {
+    FlowableTransformer<TestEffect, TestEvent> router =
+        RxMobius.<TestEffect, TestEvent>subtypeFlowableEffectHandler()
+            .addFunction(E.class, e -> BEvent.create(e.id()))
+            .build();
+    Unhandled unhandled = Unhandled.create();
+
+    TestSubscriber<TestEvent> subscriber =
+        Flowable.<TestEffect>just(unhandled).compose(router).test();
+
+    subscriber.awaitTerminalEvent();
+    subscriber.assertError(new UnknownEffectException(unhandled));
+  }
+
+  @Test
+  public void flowableRouterShouldOnlyRequestAsManyEffectsAsItCanHandle() throws Exception {
+    List<Long> requests = new ArrayList<>();
+    FlowableTransformer<TestEffect, TestEvent> router =
+        RxMobius.<TestEffect, TestEvent>subtypeFlowableEffectHandler()
+            .addTransformer(A.class, (Flowable<A> as) -> as.map(a -> AEvent.create(a.id())))
+            .build();
+
+    TestSubscriber<TestEvent> subscriber =
+        Flowable.range(0, 1000)
+            .<TestEffect>map(A::create)
+            .doOnRequest(requests::add)
+            .compose(router)
+            .test(0);
+
+    subscriber.request(1);
+
+    subscriber.assertValueCount(1);
+    assertThat(requests.get(0), is(lessThanOrEqualTo((long) Flowable.bufferSize())));
+  }
+
   @Test
   public void shouldReportEffectClassCollisionWhenAddingSuperclass() throws Exception {
     SubtypeEffectHandlerBuilder<TestEffect, TestEvent> builder =
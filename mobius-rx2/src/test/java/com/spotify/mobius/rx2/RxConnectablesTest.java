@@ -19,16 +19,24 @@
  */
 package com.spotify.mobius.rx2;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
 import com.spotify.mobius.Connectable;
 import com.spotify.mobius.Connection;
 import com.spotify.mobius.ConnectionLimitExceededException;
 import com.spotify.mobius.functions.Consumer;
+import com.spotify.mobius.test.RecordingConsumer;
+import io.reactivex.FlowableSubscriber;
+import io.reactivex.FlowableTransformer;
 import io.reactivex.observers.TestObserver;
 import io.reactivex.subjects.PublishSubject;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.annotation.Nonnull;
 import org.junit.Before;
 import org.junit.Test;
+import org.reactivestreams.Subscription;
 
 /** TODO: document! */
 public class RxConnectablesTest {
@@ -97,4 +105,100 @@ public class RxConnectablesTest {
     observer.awaitTerminalEvent(1, TimeUnit.SECONDS);
     observer.assertError(expected);
   }
+
+  @Test
+  public void flowableTransformerShouldHandleEffects() throws Exception {
+    FlowableTransformer<String, Integer> transformer = effects -> effects.map(String::length);
+    RecordingConsumer<Integer> output = new RecordingConsumer<>();
+
+    Connection<String> connection =
+        RxConnectables.fromFlowableTransformer(transformer, 2).connect(output);
+    connection.accept("hi");
+    connection.accept("hello");
+
+    output.assertValues(2, 5);
+  }
+
+  @Test
+  public void flowableTransformerShouldBlockEffectsBeyondBufferSize() throws Exception {
+    AtomicReference<Subscription> upstream = new AtomicReference<>();
+    RecordingConsumer<Integer> output = new RecordingConsumer<>();
+    Connection<String> connection =
+        RxConnectables.fromFlowableTransformer(manuallyRequesting(upstream), 2).connect(output);
+
+    connection.accept("a");
+    connection.accept("bb");
+
+    Thread blocked = new Thread(() -> connection.accept("ccc"));
+    blocked.start();
+    blocked.join(100);
+    assertThat(blocked.isAlive(), is(true));
+
+    upstream.get().request(1);
+    blocked.join(1000);
+    assertThat(blocked.isAlive(), is(false));
+    output.assertValues(1);
+
+    upstream.get().request(2);
+    output.assertValues(1, 2, 3);
+  }
+
+  @Test
+  public void flowableTransformerShouldReleaseBlockedEffectsOnDispose() throws Exception {
+    AtomicReference<Subscription> upstream = new AtomicReference<>();
+    RecordingConsumer<Integer> output = new RecordingConsumer<>();
+    Connection<String> connection =
+        RxConnectables.fromFlowableTransformer(manuallyRequesting(upstream), 1).connect(output);
+
+    connection.accept("a");
+    Thread blocked = new Thread(() -> connection.accept("bb"));
+    blocked.start();
+    blocked.join(100);
+    assertThat(blocked.isAlive(), is(true));
+
+    connection.dispose();
+    blocked.join(1000);
+
+    assertThat(blocked.isAlive(), is(false));
+    output.assertValues();
+  }
+
+  // a transformer that only requests effects when the test asks it to
+  private static FlowableTransformer<String, Integer> manuallyRequesting(
+      AtomicReference<Subscription> upstream) {
+    return effects ->
+        downstream ->
+            effects.subscribe(
+                new FlowableSubscriber<String>() {
+                  @Override
+                  public void onSubscribe(Subscription s) {
+                    upstream.set(s);
+                    downstream.onSubscribe(
+                        new Subscription() {
+                          @Override
+                          public void request(long n) {}
+
+                          @Override
+                          public void cancel() {
+                            s.cancel();
+                          }
+                        });
+                  }
+
+                  @Override
+                  public void onNext(String value) {
+                    downstream.onNext(value.length());
+                  }
+
+                  @Override
+                  public void onError(Throwable t) {
+                    downstream.onError(t);
+                  }
+
+                  @Override
+                  public void onComplete() {
+                    downstream.onComplete();
+                  }
+                });
+  }
 }
@@ -19,11 +19,25 @@
  */
 package com.spotify.mobius.rx2;
 
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
 import com.spotify.mobius.EventSource;
+import com.spotify.mobius.MobiusLoop;
+import com.spotify.mobius.Next;
+import com.spotify.mobius.Update;
 import com.spotify.mobius.disposables.Disposable;
 import com.spotify.mobius.test.RecordingConsumer;
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
 import io.reactivex.subjects.PublishSubject;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 import org.junit.Test;
 
 public class RxEventSourcesTest {
@@ -55,4 +69,81 @@ public class RxEventSourcesTest {
     consumer.waitForChange(50);
     consumer.assertValues(1, 2);
   }
+
+  @Test
+  public void publisherEventsAreForwardedInOrder() throws Exception {
+    EventSource<Integer> source = RxEventSources.fromPublishers(4, Flowable.just(1, 2, 3));
+    RecordingConsumer<Integer> consumer = new RecordingConsumer<>();
+
+    source.subscribe(consumer);
+
+    consumer.waitForChange(50);
+    consumer.assertValues(1, 2, 3);
+  }
+
+  @Test
+  public void publishersAreOnlyRequestedOnceWithoutTrackedUpdates() throws Exception {
+    EventSource<Integer> source = RxEventSources.fromPublishers(2, Flowable.just(1, 2, 3));
+    RecordingConsumer<Integer> consumer = new RecordingConsumer<>();
+
+    source.subscribe(consumer);
+
+    consumer.waitForChange(50);
+    consumer.assertValues(1, 2);
+  }
+
+  @Test
+  public void publishersAreRequestedInBatches() throws Exception {
+    List<Long> requests = new CopyOnWriteArrayList<>();
+    PublisherEventSource<Integer> source =
+        RxEventSources.fromPublishers(4, Flowable.range(0, 20).doOnRequest(requests::add));
+
+    MobiusLoop<Integer, Integer, Boolean> loop =
+        startCounting(source, source.trackUpdates((model, event) -> Next.next(model + 1)));
+
+    try {
+      await().atMost(1, TimeUnit.SECONDS).until(() -> loop.getMostRecentModel() == 20);
+      assertThat(requests, everyItem(lessThanOrEqualTo(4L)));
+    } finally {
+      loop.dispose();
+    }
+  }
+
+  @Test
+  public void slowUpdatesKeepOutstandingEventsWithinRequestSize() throws Exception {
+    AtomicInteger emitted = new AtomicInteger();
+    AtomicInteger processed = new AtomicInteger();
+    AtomicInteger maxOutstanding = new AtomicInteger();
+    PublisherEventSource<Integer> source =
+        RxEventSources.fromPublishers(
+            4,
+            Flowable.range(0, 20).doOnNext(i -> emitted.incrementAndGet()),
+            Flowable.range(0, 20).doOnNext(i -> emitted.incrementAndGet()));
+
+    MobiusLoop<Integer, Integer, Boolean> loop =
+        startCounting(
+            source,
+            source.trackUpdates(
+                (model, event) -> {
+                  maxOutstanding.accumulateAndGet(emitted.get() - processed.get(), Math::max);
+                  LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(2));
+                  processed.incrementAndGet();
+                  return Next.next(model + 1);
+                }));
+
+    try {
+      await().atMost(5, TimeUnit.SECONDS).until(() -> loop.getMostRecentModel() == 40);
+      assertThat(maxOutstanding.get(), lessThanOrEqualTo(8));
+    } finally {
+      loop.dispose();
+    }
+  }
+
+  private static MobiusLoop<Integer, Integer, Boolean> startCounting(
+      PublisherEventSource<Integer> source, Update<Integer, Integer, Boolean> update) {
+    return RxMobius.<Integer, Integer, Boolean>loop(
+            update, effects -> effects.filter(effect -> false).map(effect -> 0))
+        .eventSource(source)
+        .startFrom(0);
+  }
 }
@@ -19,17 +19,26 @@
  */
 package com.spotify.mobius.rx2;
 
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
 import com.spotify.mobius.Connectable;
 import com.spotify.mobius.Connection;
 import com.spotify.mobius.ConnectionLimitExceededException;
+import com.spotify.mobius.Effects;
 import com.spotify.mobius.Mobius;
 import com.spotify.mobius.MobiusLoop;
 import com.spotify.mobius.Next;
 import com.spotify.mobius.Update;
 import com.spotify.mobius.functions.Consumer;
 import com.spotify.mobius.test.SimpleConnection;
+import io.reactivex.Flowable;
 import io.reactivex.observers.TestObserver;
 import io.reactivex.subjects.PublishSubject;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nonnull;
 import org.junit.Before;
@@ -79,4 +88,55 @@ public class RxMobiusLoopTest {
     subscriber.awaitTerminalEvent(1, TimeUnit.SECONDS);
     subscriber.assertError(new UnrecoverableIncomingException(expected));
   }
+
+  @Test
+  public void shouldRunBackpressuredEffectsOnABoundedEffectRunner() throws Exception {
+    Set<String> effectThreads = ConcurrentHashMap.newKeySet();
+
+    MobiusLoop<String, Integer, Boolean> loop =
+        RxMobius.<String, Integer, Boolean>loop(
+                (model, event) -> Next.next(model + event, Effects.effects(true)),
+                effects ->
+                    effects
+                        .doOnNext(effect -> effectThreads.add(Thread.currentThread().getName()))
+                        .filter(effect -> false)
+                        .map(effect -> 0),
+                1)
+            .startFrom("");
+
+    try {
+      for (int i = 0; i < 20; i++) {
+        loop.dispatchEvent(i);
+      }
+
+      await().atMost(1, TimeUnit.SECONDS).until(() -> loop.getMostRecentModel().length() == 30);
+      assertThat(effectThreads, hasSize(1));
+    } finally {
+      loop.dispose();
+    }
+  }
+
+  @Test
+  public void shouldDisposePromptlyWhileBackpressuredEffectsAreBlocked() throws Exception {
+    MobiusLoop<String, Integer, Boolean> loop =
+        RxMobius.<String, Integer, Boolean>loop(
+                (model, event) -> Next.next(model + event, Effects.effects(true)),
+                effects -> effects.flatMap(effect -> Flowable.<Integer>never(), 1),
+                1)
+            .startFrom("");
+
+    // the first effect is requested, the second fills the buffer and the third blocks
+    for (int i = 0; i < 3; i++) {
+      loop.dispatchEvent(i);
+    }
+    await().atMost(1, TimeUnit.SECONDS).until(() -> loop.getMostRecentModel().length() == 3);
+    Thread.sleep(50);
+
+    long start = System.nanoTime();
+    loop.dispose();
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    // the effect runner waits up to 100ms for blocked threads before giving up
+    assertThat(elapsedMillis, lessThan(100L));
+  }
 }
@@ -0,0 +1,106 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.rx2;
+
+import static com.spotify.mobius.test.AllocationMeter.bytesPerRun;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+
+import io.reactivex.Completable;
+import io.reactivex.Observable;
+import io.reactivex.ObservableTransformer;
+import io.reactivex.Scheduler;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import io.reactivex.observers.DisposableObserver;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.PublishSubject;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Measures the bytes allocated per effect by the fused transformers, compared to the {@code
+ * flatMap}/{@code subscribeOn}-based implementation they replace. The trampoline scheduler runs
+ * scheduled work on the calling thread, so every allocation is attributed to the measuring thread.
+ * Effects and events are preallocated so that only the allocations of the transformer itself are
+ * counted.
+ */
+public class TransformersAllocationTest {
+
+  private static final String[] EFFECT_VALUES = {"a", "b", "c", "d"};
+
+  private Scheduler scheduler;
+  private int emitted;
+
+  @Before
+  public void setUp() throws Exception {
+    scheduler = Schedulers.trampoline();
+  }
+
+  @Test
+  public void fusedFunctionShouldAllocateLessPerEffectThanFlatMap() throws Exception {
+    Function<String, Integer> function = String::length;
+
+    double fused = bytesPerEffect(Transformers.fromFunction(function, scheduler));
+    double flatMapped =
+        bytesPerEffect(
+            effects ->
+                effects.flatMap(
+                    e -> Observable.fromCallable(() -> function.apply(e)).subscribeOn(scheduler)));
+
+    assertThat(fused, lessThan(flatMapped / 4));
+  }
+
+  @Test
+  public void fusedConsumerShouldAllocateLessPerEffectThanFlatMapCompletable() throws Exception {
+    Consumer<String> consumer = e -> {};
+
+    double fused = bytesPerEffect(Transformers.<String, Integer>fromConsumer(consumer, scheduler));
+    double flatMapped =
+        bytesPerEffect(
+            effects ->
+                effects
+                    .flatMapCompletable(
+                        e ->
+                            Completable.fromAction(() -> consumer.accept(e)).subscribeOn(scheduler))
+                    .<Integer>toObservable());
+
+    assertThat(fused, lessThan(flatMapped / 4));
+  }
+
+  private double bytesPerEffect(ObservableTransformer<String, Integer> transformer) {
+    PublishSubject<String> effects = PublishSubject.create();
+    effects
+        .compose(transformer)
+        .subscribe(
+            new DisposableObserver<Integer>() {
+              @Override
+              public void onNext(Integer value) {}
+
+              @Override
+              public void onError(Throwable e) {}
+
+              @Override
+              public void onComplete() {}
+            });
+
+    return bytesPerRun(() -> effects.onNext(EFFECT_VALUES[emitted++ & 3]));
+  }
+}
@@ -121,6 +121,42 @@ public class TransformersTest {
     observer.assertError(RuntimeException.class);
   }
 
+  @Test
+  public void effectPerformerCancelsScheduledEffectsOnDispose() {
+    PublishSubject<String> upstream = PublishSubject.create();
+    TestScheduler scheduler = new TestScheduler();
+    TestConsumer<String> consumer = new TestConsumer<>();
+    TestObserver<Integer> observer =
+        upstream.compose(Transformers.<String, Integer>fromConsumer(consumer, scheduler)).test();
+
+    upstream.onNext("Hello");
+    observer.dispose();
+    scheduler.triggerActions();
+
+    assertThat(consumer.getCurrentValue(), is(equalTo(null)));
+  }
+
+  @Test
+  public void effectPerformerCancelsScheduledEffectsOnError() {
+    PublishSubject<String> upstream = PublishSubject.create();
+    TestScheduler scheduler = new TestScheduler();
+    List<String> handled = new ArrayList<>();
+    Function<String, Integer> function =
+        s -> {
+          handled.add(s);
+          throw new RuntimeException("Something bad happened");
+        };
+    TestObserver<Integer> observer =
+        upstream.compose(Transformers.fromFunction(function, scheduler)).test();
+
+    upstream.onNext("Hello");
+    upstream.onNext("World");
+    scheduler.triggerActions();
+
+    observer.assertError(RuntimeException.class);
+    assertThat(handled, is(Arrays.asList("Hello")));
+  }
+
   @Test
   public void processingLongEffectsDoesNotBlockProcessingShorterEffects() {
     final List<String> effects = Arrays.asList("Hello", "Rx2");
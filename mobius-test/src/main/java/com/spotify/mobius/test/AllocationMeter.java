@@ -0,0 +1,70 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.test;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures how many bytes the current thread allocates while running an operation, for tests that
+ * check that a code path allocates no more than an alternative does.
+ *
+ * <p>Relies on the allocation counters of HotSpot's {@link com.sun.management.ThreadMXBean}, which
+ * all JVMs that run these tests provide.
+ */
+public final class AllocationMeter {
+
+  private static final int WARMUP_RUNS = 50_000;
+  private static final int MEASURED_RUNS = 200_000;
+
+  private static final com.sun.management.ThreadMXBean THREADS =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  static {
+    THREADS.setThreadAllocatedMemoryEnabled(true);
+  }
+
+  private AllocationMeter() {
+    // prevent instantiation
+  }
+
+  /**
+   * Runs an operation enough times for the JIT to compile it, and then returns the average number
+   * of bytes that the current thread allocates per run. Work that the operation hands off to other
+   * threads isn't counted.
+   */
+  public static double bytesPerRun(Runnable operation) {
+    checkNotNull(operation);
+
+    for (int i = 0; i < WARMUP_RUNS; i++) {
+      operation.run();
+    }
+
+    long threadId = Thread.currentThread().getId();
+    long before = THREADS.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < MEASURED_RUNS; i++) {
+      operation.run();
+    }
+    long after = THREADS.getThreadAllocatedBytes(threadId);
+
+    return (after - before) / (double) MEASURED_RUNS;
+  }
+}
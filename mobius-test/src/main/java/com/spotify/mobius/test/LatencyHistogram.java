@@ -0,0 +1,84 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.test;
+
+import com.spotify.mobius.internal_util.LogLinearBuckets;
+
+/**
+ * Records latencies in nanoseconds into log-linear buckets, giving percentiles with a relative
+ * error of at most 1/32 while using a fixed amount of memory regardless of how many values are
+ * recorded.
+ *
+ * <p>Not thread-safe.
+ */
+final class LatencyHistogram {
+
+  private static final LogLinearBuckets BUCKETING = new LogLinearBuckets(5);
+
+  private final long[] counts = new long[BUCKETING.bucketCount()];
+  private long totalCount;
+  private long min = Long.MAX_VALUE;
+  private long max;
+
+  void record(long nanos) {
+    long value = Math.max(0, nanos);
+    counts[BUCKETING.indexOf(value)]++;
+    totalCount++;
+    min = Math.min(min, value);
+    max = Math.max(max, value);
+  }
+
+  long count() {
+    return totalCount;
+  }
+
+  long min() {
+    return totalCount == 0 ? 0 : min;
+  }
+
+  long max() {
+    return max;
+  }
+
+  /**
+   * Returns an upper bound for the value at the given percentile, or 0 if nothing has been
+   * recorded.
+   *
+   * @param percentile a value in the range [0, 100]
+   */
+  long percentile(double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("percentile must be in [0, 100]: " + percentile);
+    }
+    if (totalCount == 0) {
+      return 0;
+    }
+
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * totalCount));
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(max, Math.max(min, BUCKETING.highestValueIn(i)));
+      }
+    }
+    return max;
+  }
+}
@@ -19,6 +19,7 @@
  */
 package com.spotify.mobius.test;
 
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.junit.Assert.assertThat;
@@ -27,55 +28,211 @@ import com.spotify.mobius.functions.Consumer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
+/**
+ * A {@link Consumer} that records all values it receives, for use in tests.
+ *
+ * <p>Values are appended to a lock-free queue, so recording from many threads concurrently doesn't
+ * serialise the producers. Tests can wait for values to arrive using {@link #waitForValueCount(int,
+ * long)} and {@link #waitForValue(Predicate, long)}, or get a {@link CompletableFuture} that
+ * completes when they have, using {@link #whenValueCount(int)} and {@link #whenValue(Predicate)}.
+ *
+ * @param <V> the type of the recorded values
+ */
 public class RecordingConsumer<V> implements Consumer<V> {
 
-  private final List<V> values = new ArrayList<>();
-  private final Object lock = new Object();
+  private final Queue<V> values = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger count = new AtomicInteger();
+  private final Queue<Waiter<V, ?>> waiters = new ConcurrentLinkedQueue<>();
 
   @Override
   public void accept(V value) {
-    synchronized (lock) {
-      values.add(value);
-      lock.notify();
+    values.add(value);
+    int newCount = count.incrementAndGet();
+
+    for (Waiter<V, ?> waiter : waiters) {
+      waiter.offer(value, newCount);
     }
   }
 
+  /**
+   * Waits until a value is received, or the timeout expires.
+   *
+   * @param timeoutMs the maximum time to wait, in milliseconds
+   * @return false if the waiting thread was interrupted, true otherwise
+   */
   public boolean waitForChange(long timeoutMs) {
-    synchronized (lock) {
-      try {
-        lock.wait(timeoutMs);
-        return true;
-
-      } catch (InterruptedException e) {
-        return false;
-      }
+    try {
+      await(whenValueCount(valueCount() + 1), timeoutMs);
+      return true;
+
+    } catch (TimeoutException e) {
+      return true;
+
+    } catch (InterruptedException e) {
+      return false;
     }
   }
 
+  /**
+   * Waits until at least the supplied number of values have been received, or the timeout expires.
+   *
+   * @param count the number of values to wait for, counting values that have already been received
+   * @param timeoutMs the maximum time to wait, in milliseconds
+   * @return true if the values were received, false if the timeout expired first or the waiting
+   *     thread was interrupted
+   */
+  public boolean waitForValueCount(int count, long timeoutMs) {
+    return awaitQuietly(whenValueCount(count), timeoutMs);
+  }
+
+  /**
+   * Waits until a value matching the supplied predicate has been received, or the timeout expires.
+   *
+   * @param predicate the predicate to match values against, including values that have already been
+   *     received
+   * @param timeoutMs the maximum time to wait, in milliseconds
+   * @return true if a matching value was received, false if the timeout expired first or the
+   *     waiting thread was interrupted
+   */
+  public boolean waitForValue(Predicate<? super V> predicate, long timeoutMs) {
+    return awaitQuietly(whenValue(predicate), timeoutMs);
+  }
+
+  /**
+   * Returns a future that completes once at least the supplied number of values have been received.
+   * The future is completed on the thread that delivers the last value needed, or immediately if
+   * enough values have already been received.
+   *
+   * @param count the number of values to wait for, counting values that have already been received
+   * @return a future with the values received at the time it was completed
+   */
+  public CompletableFuture<List<V>> whenValueCount(final int count) {
+    return register(
+        new Waiter<V, List<V>>() {
+          @Override
+          void offer(V value, int valueCount) {
+            if (valueCount >= count) {
+              complete(snapshot());
+            }
+          }
+
+          @Override
+          void check() {
+            if (valueCount() >= count) {
+              complete(snapshot());
+            }
+          }
+        });
+  }
+
+  /**
+   * Returns a future that completes with the first value matching the supplied predicate. The
+   * future is completed on the thread that delivers the matching value, or immediately if a
+   * matching value has already been received.
+   *
+   * @param predicate the predicate to match values against, including values that have already been
+   *     received
+   * @return a future with the first matching value
+   */
+  public CompletableFuture<V> whenValue(final Predicate<? super V> predicate) {
+    checkNotNull(predicate);
+    return register(
+        new Waiter<V, V>() {
+          @Override
+          void offer(V value, int valueCount) {
+            if (predicate.test(value)) {
+              complete(value);
+            }
+          }
+
+          @Override
+          void check() {
+            for (V value : values) {
+              if (predicate.test(value)) {
+                complete(value);
+                return;
+              }
+            }
+          }
+        });
+  }
+
   public int valueCount() {
-    synchronized (lock) {
-      return values.size();
-    }
+    return count.get();
   }
 
   @SafeVarargs
   public final void assertValues(V... expectedValues) {
-    synchronized (lock) {
-      assertThat(values, equalTo(Arrays.asList(expectedValues)));
-    }
+    assertThat(snapshot(), equalTo(Arrays.asList(expectedValues)));
   }
 
   @SafeVarargs
   public final void assertValuesInAnyOrder(V... expectedValues) {
-    synchronized (lock) {
-      assertThat(values, containsInAnyOrder(expectedValues));
-    }
+    assertThat(snapshot(), containsInAnyOrder(expectedValues));
   }
 
+  /**
+   * Clears the recorded values. This shouldn't be called concurrently with values being received,
+   * as those values may or may not be cleared.
+   */
   public void clearValues() {
-    synchronized (lock) {
-      values.clear();
+    values.clear();
+    count.set(0);
+  }
+
+  private List<V> snapshot() {
+    return new ArrayList<>(values);
+  }
+
+  private <T> CompletableFuture<T> register(Waiter<V, T> waiter) {
+    // concurrency note: the waiter must be registered before checking existing values; a value
+    // that arrives concurrently is then guaranteed to be seen either by the check or by accept().
+    waiters.add(waiter);
+    waiter.whenComplete((result, throwable) -> waiters.remove(waiter));
+    waiter.check();
+    return waiter;
+  }
+
+  private static <T> void await(CompletableFuture<T> future, long timeoutMs)
+      throws InterruptedException, TimeoutException {
+    try {
+      future.get(timeoutMs, TimeUnit.MILLISECONDS);
+
+    } catch (ExecutionException e) {
+      throw new AssertionError("waiting for values failed", e.getCause());
+
+    } finally {
+      // don't leave the waiter registered if we gave up on it
+      future.cancel(false);
     }
   }
+
+  private static boolean awaitQuietly(CompletableFuture<?> future, long timeoutMs) {
+    try {
+      await(future, timeoutMs);
+      return true;
+
+    } catch (TimeoutException | InterruptedException e) {
+      return false;
+    }
+  }
+
+  /** A future that is completed when a condition on the received values holds. */
+  private abstract static class Waiter<V, T> extends CompletableFuture<T> {
+
+    /** Called for every new value, and should complete the future if the condition holds. */
+    abstract void offer(V value, int valueCount);
+
+    /** Called once after registering, and should complete the future if the condition holds. */
+    abstract void check();
+  }
 }
@@ -20,6 +20,9 @@
 package com.spotify.mobius.test;
 
 import com.spotify.mobius.functions.Consumer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
 
 public class RecordingModelObserver<S> implements Consumer<S> {
 
@@ -34,6 +37,26 @@ public class RecordingModelObserver<S> implements Consumer<S> {
     return recorder.waitForChange(timeoutMs);
   }
 
+  /** @see RecordingConsumer#waitForValueCount(int, long) */
+  public boolean waitForValueCount(int count, long timeoutMs) {
+    return recorder.waitForValueCount(count, timeoutMs);
+  }
+
+  /** @see RecordingConsumer#waitForValue(Predicate, long) */
+  public boolean waitForState(Predicate<? super S> predicate, long timeoutMs) {
+    return recorder.waitForValue(predicate, timeoutMs);
+  }
+
+  /** @see RecordingConsumer#whenValueCount(int) */
+  public CompletableFuture<List<S>> whenValueCount(int count) {
+    return recorder.whenValueCount(count);
+  }
+
+  /** @see RecordingConsumer#whenValue(Predicate) */
+  public CompletableFuture<S> whenState(Predicate<? super S> predicate) {
+    return recorder.whenValue(predicate);
+  }
+
   public int valueCount() {
     return recorder.valueCount();
   }
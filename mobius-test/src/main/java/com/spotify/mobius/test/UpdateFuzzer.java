@@ -0,0 +1,640 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.test;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import com.spotify.mobius.Init;
+import com.spotify.mobius.Next;
+import com.spotify.mobius.Update;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.hamcrest.Matcher;
+
+/**
+ * A class to help with property-based testing of the {@link Update} function (and optionally the
+ * {@link Init} function) of a Mobius program.
+ *
+ * <p>Where {@link UpdateSpec} verifies a single, hand-written sequence of events, this class
+ * generates a large number of random event sequences, runs them through the update function, and
+ * verifies that a set of invariants hold for every model along the way. If an invariant is violated
+ * or the update function throws, the failing sequence is shrunk to a minimal sequence that still
+ * fails, and an {@link AssertionError} describing it is thrown.
+ *
+ * <p>While running, the latency and (where the JVM supports it) the allocation of every update
+ * invocation is measured, and summarised in the returned {@link Report}. This can be used to find
+ * update paths that are unexpectedly slow or allocate a lot of memory.
+ *
+ * <pre>
+ * new UpdateFuzzer&lt;&gt;(update)
+ *     .startFrom(Model.DEFAULT)
+ *     .events(random -&gt; random.nextBoolean() ? Event.increment() : Event.decrement())
+ *     .invariant(model -&gt; assertThat(model.count(), greaterThanOrEqualTo(0)))
+ *     .run();
+ * </pre>
+ *
+ * <p>Generators must be deterministic with respect to the {@link Random} they are given, since the
+ * sequences are regenerated from their seeds when reporting failures. Instances of this class are
+ * immutable.
+ *
+ * @param <M> model type
+ * @param <E> events type
+ * @param <F> effects type
+ */
+public final class UpdateFuzzer<M, E, F> {
+
+  private static final int DEFAULT_ITERATIONS = 10_000;
+  private static final int DEFAULT_MAX_EVENTS = 20;
+
+  private final Update<M, E, F> update;
+  @Nullable private final Init<M, F> init;
+  @Nullable private final Generator<M> models;
+  @Nullable private final Generator<E> events;
+  private final List<Invariant<M>> invariants;
+  private final int iterations;
+  private final int maxEvents;
+  @Nullable private final Long seed;
+
+  public UpdateFuzzer(Update<M, E, F> update) {
+    this(
+        update,
+        null,
+        null,
+        null,
+        Collections.<Invariant<M>>emptyList(),
+        DEFAULT_ITERATIONS,
+        DEFAULT_MAX_EVENTS,
+        null);
+  }
+
+  private UpdateFuzzer(
+      Update<M, E, F> update,
+      @Nullable Init<M, F> init,
+      @Nullable Generator<M> models,
+      @Nullable Generator<E> events,
+      List<Invariant<M>> invariants,
+      int iterations,
+      int maxEvents,
+      @Nullable Long seed) {
+    this.update = checkNotNull(update);
+    this.init = init;
+    this.models = models;
+    this.events = events;
+    this.invariants = invariants;
+    this.iterations = iterations;
+    this.maxEvents = maxEvents;
+    this.seed = seed;
+  }
+
+  /**
+   * @return a new {@link UpdateFuzzer} that runs the supplied {@link Init} on every start model
+   *     before dispatching any events
+   */
+  public UpdateFuzzer<M, E, F> init(Init<M, F> init) {
+    return new UpdateFuzzer<>(
+        update, checkNotNull(init), models, events, invariants, iterations, maxEvents, seed);
+  }
+
+  /** @return a new {@link UpdateFuzzer} that starts every sequence from the supplied model */
+  public UpdateFuzzer<M, E, F> startFrom(final M model) {
+    checkNotNull(model);
+    return startFrom(random -> model);
+  }
+
+  /** @return a new {@link UpdateFuzzer} that starts every sequence from a generated model */
+  public UpdateFuzzer<M, E, F> startFrom(Generator<M> models) {
+    return new UpdateFuzzer<>(
+        update, init, checkNotNull(models), events, invariants, iterations, maxEvents, seed);
+  }
+
+  /** @return a new {@link UpdateFuzzer} that uses the supplied generator to create events */
+  public UpdateFuzzer<M, E, F> events(Generator<E> events) {
+    return new UpdateFuzzer<>(
+        update, init, models, checkNotNull(events), invariants, iterations, maxEvents, seed);
+  }
+
+  /**
+   * @return a new {@link UpdateFuzzer} that additionally checks the supplied invariant against the
+   *     start model and every model produced by the update function
+   */
+  public UpdateFuzzer<M, E, F> invariant(Invariant<M> invariant) {
+    List<Invariant<M>> newInvariants = new ArrayList<>(invariants);
+    newInvariants.add(checkNotNull(invariant));
+    return new UpdateFuzzer<>(
+        update,
+        init,
+        models,
+        events,
+        Collections.unmodifiableList(newInvariants),
+        iterations,
+        maxEvents,
+        seed);
+  }
+
+  /**
+   * @return a new {@link UpdateFuzzer} that additionally checks that the supplied matcher matches
+   *     the start model and every model produced by the update function
+   */
+  public UpdateFuzzer<M, E, F> invariant(final Matcher<? super M> matcher) {
+    checkNotNull(matcher);
+    return invariant(model -> assertThat(model, matcher));
+  }
+
+  /** @return a new {@link UpdateFuzzer} that runs the supplied number of event sequences */
+  public UpdateFuzzer<M, E, F> iterations(int iterations) {
+    if (iterations < 1) {
+      throw new IllegalArgumentException("iterations must be positive: " + iterations);
+    }
+    return new UpdateFuzzer<>(
+        update, init, models, events, invariants, iterations, maxEvents, seed);
+  }
+
+  /**
+   * @return a new {@link UpdateFuzzer} that generates sequences with between 1 and the supplied
+   *     number of events
+   */
+  public UpdateFuzzer<M, E, F> maxEvents(int maxEvents) {
+    if (maxEvents < 1) {
+      throw new IllegalArgumentException("maxEvents must be positive: " + maxEvents);
+    }
+    return new UpdateFuzzer<>(
+        update, init, models, events, invariants, iterations, maxEvents, seed);
+  }
+
+  /**
+   * @return a new {@link UpdateFuzzer} using a fixed seed, for instance to reproduce a failure
+   *     reported by an earlier run. If no seed is set, a random one is chosen for every run.
+   */
+  public UpdateFuzzer<M, E, F> seed(long seed) {
+    return new UpdateFuzzer<>(
+        update, init, models, events, invariants, iterations, maxEvents, seed);
+  }
+
+  /**
+   * Runs the configured number of random event sequences through the update function.
+   *
+   * @return a {@link Report} with performance statistics for the run
+   * @throws AssertionError if an invariant was violated or the init or update function threw an
+   *     exception; the message describes the shrunk sequence of events that caused it
+   * @throws IllegalStateException if no start model or event generator has been configured
+   */
+  public Report<E> run() {
+    if (models == null) {
+      throw new IllegalStateException("no start model configured, please call startFrom()");
+    }
+    if (events == null) {
+      throw new IllegalStateException("no event generator configured, please call events()");
+    }
+
+    final long runSeed = seed != null ? seed : new Random().nextLong();
+    final Random caseSeeds = new Random(runSeed);
+    final Recorder<E> recorder = new Recorder<>();
+
+    final long startNanos = System.nanoTime();
+
+    for (int i = 0; i < iterations; i++) {
+      long caseSeed = caseSeeds.nextLong();
+      Random random = new Random(caseSeed);
+
+      Throwable failure = runCase(random, recorder);
+
+      if (failure != null) {
+        throw describeFailure(runSeed, caseSeed, failure);
+      }
+    }
+
+    return recorder.report(iterations, System.nanoTime() - startNanos);
+  }
+
+  @Nullable
+  private Throwable runCase(Random random, Recorder<E> recorder) {
+    M model = checkNotNull(models).generate(random);
+    int length = 1 + random.nextInt(maxEvents);
+
+    try {
+      model = initialise(model);
+
+      for (int i = 0; i < length; i++) {
+        E event = checkNotNull(events).generate(random);
+
+        recorder.beforeUpdate();
+        Next<M, F> next = update.update(model, event);
+        recorder.afterUpdate(event);
+
+        model = next.modelOrElse(model);
+        checkInvariants(model);
+      }
+
+    } catch (Exception | AssertionError e) {
+      return e;
+    }
+
+    return null;
+  }
+
+  private M initialise(M model) {
+    if (init != null) {
+      model = init.init(model).model();
+    }
+    checkInvariants(model);
+    return model;
+  }
+
+  private void checkInvariants(M model) {
+    for (Invariant<M> invariant : invariants) {
+      invariant.check(model);
+    }
+  }
+
+  private AssertionError describeFailure(long runSeed, long caseSeed, Throwable failure) {
+    // regenerate the failing sequence from its seed, so that we don't have to keep every sequence
+    // in memory while running.
+    Random random = new Random(caseSeed);
+    M startModel = checkNotNull(models).generate(random);
+    int length = 1 + random.nextInt(maxEvents);
+    List<E> sequence = new ArrayList<>(length);
+    for (int i = 0; i < length; i++) {
+      sequence.add(checkNotNull(events).generate(random));
+    }
+
+    List<E> shrunk = shrink(startModel, sequence);
+    Throwable shrunkFailure = replay(startModel, shrunk);
+    Throwable cause = shrunkFailure != null ? shrunkFailure : failure;
+
+    String message =
+        String.format(
+            Locale.ENGLISH,
+            "Sequence of %d event(s) (shrunk from %d) failed: %s%n"
+                + "  start model: %s%n"
+                + "  events: %s%n"
+                + "  use seed(%dL) to reproduce this run",
+            shrunk.size(),
+            sequence.size(),
+            cause,
+            startModel,
+            shrunk,
+            runSeed);
+
+    return new AssertionError(message, cause);
+  }
+
+  /**
+   * Shrinks a failing sequence by repeatedly removing chunks of events, keeping each removal that
+   * still leads to a failure and halving the chunk size when no chunk of the current size can be
+   * removed.
+   */
+  private List<E> shrink(M startModel, List<E> sequence) {
+    List<E> current = sequence;
+    int chunkSize = Math.max(1, current.size() / 2);
+
+    while (true) {
+      boolean removedAny = false;
+
+      for (int from = 0; from < current.size(); ) {
+        int to = Math.min(current.size(), from + chunkSize);
+
+        List<E> candidate = new ArrayList<>(current.size() - (to - from));
+        candidate.addAll(current.subList(0, from));
+        candidate.addAll(current.subList(to, current.size()));
+
+        if (replay(startModel, candidate) != null) {
+          current = candidate;
+          removedAny = true;
+        } else {
+          from = to;
+        }
+      }
+
+      if (!removedAny) {
+        if (chunkSize == 1) {
+          return current;
+        }
+        chunkSize = chunkSize / 2;
+      }
+    }
+  }
+
+  @Nullable
+  private Throwable replay(M startModel, List<E> sequence) {
+    try {
+      M model = initialise(startModel);
+
+      for (E event : sequence) {
+        model = update.update(model, event).modelOrElse(model);
+        checkInvariants(model);
+      }
+
+    } catch (Exception | AssertionError e) {
+      return e;
+    }
+
+    return null;
+  }
+
+  /**
+   * Returns a generator that picks one of the supplied values with equal probability.
+   *
+   * @param first the first value
+   * @param rest the remaining values, possibly none
+   * @param <T> the type of the values
+   */
+  @SafeVarargs
+  public static <T> Generator<T> oneOf(T first, T... rest) {
+    final List<T> values = new ArrayList<>(rest.length + 1);
+    values.add(checkNotNull(first));
+    values.addAll(Arrays.asList(rest));
+    return random -> values.get(random.nextInt(values.size()));
+  }
+
+  /**
+   * Returns a generator that delegates to one of the supplied generators with equal probability.
+   *
+   * @param first the first generator
+   * @param rest the remaining generators, possibly none
+   * @param <T> the type of the generated values
+   */
+  @SafeVarargs
+  public static <T> Generator<T> oneOf(
+      Generator<? extends T> first, Generator<? extends T>... rest) {
+    final List<Generator<? extends T>> generators = new ArrayList<>(rest.length + 1);
+    generators.add(checkNotNull(first));
+    generators.addAll(Arrays.asList(rest));
+    return random -> generators.get(random.nextInt(generators.size())).generate(random);
+  }
+
+  /** Interface for generating random values, typically events or start models. */
+  public interface Generator<T> {
+
+    /**
+     * @param random the source of randomness; the same sequence of random values must lead to the
+     *     same generated value
+     * @return a non-null generated value
+     */
+    T generate(Random random);
+  }
+
+  /** Interface for defining invariants that must hold for every model. */
+  public interface Invariant<M> {
+
+    /**
+     * Checks the invariant for the supplied model.
+     *
+     * @param model the model to check
+     * @throws AssertionError if the invariant doesn't hold
+     */
+    void check(M model);
+  }
+
+  /**
+   * Summarises the performance of the update function during a run.
+   *
+   * @param <E> the event type
+   */
+  public static final class Report<E> {
+
+    private final long sequences;
+    private final long elapsedNanos;
+    private final LatencyHistogram latencies;
+    @Nullable private final E slowestEvent;
+    private final long totalAllocatedBytes;
+    private final long maxAllocatedBytes;
+    @Nullable private final E mostAllocatingEvent;
+
+    private Report(
+        long sequences,
+        long elapsedNanos,
+        LatencyHistogram latencies,
+        @Nullable E slowestEvent,
+        long totalAllocatedBytes,
+        long maxAllocatedBytes,
+        @Nullable E mostAllocatingEvent) {
+      this.sequences = sequences;
+      this.elapsedNanos = elapsedNanos;
+      this.latencies = latencies;
+      this.slowestEvent = slowestEvent;
+      this.totalAllocatedBytes = totalAllocatedBytes;
+      this.maxAllocatedBytes = maxAllocatedBytes;
+      this.mostAllocatingEvent = mostAllocatingEvent;
+    }
+
+    /** @return the number of event sequences that were run */
+    public long sequences() {
+      return sequences;
+    }
+
+    /** @return the total number of update invocations */
+    public long updates() {
+      return latencies.count();
+    }
+
+    /**
+     * @return the wall clock time of the run, including generating events and checking invariants
+     */
+    public long elapsedNanos() {
+      return elapsedNanos;
+    }
+
+    /** @return the number of update invocations per second of wall clock time */
+    public double updatesPerSecond() {
+      return elapsedNanos == 0
+          ? 0
+          : updates() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    /**
+     * Returns the latency of a single update invocation at the supplied percentile. The value is
+     * accurate to within about 3%.
+     *
+     * @param percentile a value in the range [0, 100], for instance 99.9
+     * @return the latency in nanoseconds
+     */
+    public long latencyNanos(double percentile) {
+      return latencies.percentile(percentile);
+    }
+
+    /** @return the latency of the slowest update invocation, in nanoseconds */
+    public long maxLatencyNanos() {
+      return latencies.max();
+    }
+
+    /** @return the event that led to the slowest update invocation */
+    @Nullable
+    public E slowestEvent() {
+      return slowestEvent;
+    }
+
+    /** @return whether allocations were measured; this depends on support from the JVM */
+    public boolean allocationsMeasured() {
+      return totalAllocatedBytes >= 0;
+    }
+
+    /**
+     * @return the average number of bytes allocated per update invocation, or -1 if allocations
+     *     weren't measured
+     */
+    public double allocatedBytesPerUpdate() {
+      if (!allocationsMeasured()) {
+        return -1;
+      }
+      return updates() == 0 ? 0 : totalAllocatedBytes / (double) updates();
+    }
+
+    /**
+     * @return the largest number of bytes allocated by a single update invocation, or -1 if
+     *     allocations weren't measured
+     */
+    public long maxAllocatedBytes() {
+      return allocationsMeasured() ? maxAllocatedBytes : -1;
+    }
+
+    /** @return the event that led to the update invocation that allocated the most memory */
+    @Nullable
+    public E mostAllocatingEvent() {
+      return mostAllocatingEvent;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          Locale.ENGLISH,
+          "%d sequences, %d updates in %d ms (%.0f updates/s)%n"
+              + "  latency ns: p50=%d p90=%d p99=%d p99.9=%d max=%d (event: %s)%n"
+              + "  allocated bytes/update: mean=%.1f max=%d (event: %s)",
+          sequences,
+          updates(),
+          TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+          updatesPerSecond(),
+          latencyNanos(50),
+          latencyNanos(90),
+          latencyNanos(99),
+          latencyNanos(99.9),
+          maxLatencyNanos(),
+          slowestEvent,
+          allocatedBytesPerUpdate(),
+          maxAllocatedBytes(),
+          mostAllocatingEvent);
+    }
+  }
+
+  /** Measures individual update invocations. Not thread-safe. */
+  private static final class Recorder<E> {
+
+    @Nullable private final com.sun.management.ThreadMXBean allocations;
+    private final long threadId = Thread.currentThread().getId();
+    private final long allocationOverhead;
+
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    @Nullable private E slowestEvent;
+    private long totalAllocatedBytes;
+    private long maxAllocatedBytes = -1;
+    @Nullable private E mostAllocatingEvent;
+
+    private long startNanos;
+    private long startBytes;
+
+    private Recorder() {
+      allocations = allocationBean();
+      allocationOverhead = allocations != null ? measureAllocationOverhead() : 0;
+      if (allocations == null) {
+        totalAllocatedBytes = -1;
+      }
+    }
+
+    void beforeUpdate() {
+      if (allocations != null) {
+        startBytes = allocations.getThreadAllocatedBytes(threadId);
+      }
+      startNanos = System.nanoTime();
+    }
+
+    void afterUpdate(E event) {
+      long nanos = System.nanoTime() - startNanos;
+
+      if (nanos > latencies.max() || slowestEvent == null) {
+        slowestEvent = event;
+      }
+      latencies.record(nanos);
+
+      if (allocations != null) {
+        long bytes =
+            Math.max(
+                0, allocations.getThreadAllocatedBytes(threadId) - startBytes - allocationOverhead);
+        totalAllocatedBytes += bytes;
+        if (bytes > maxAllocatedBytes) {
+          maxAllocatedBytes = bytes;
+          mostAllocatingEvent = event;
+        }
+      }
+    }
+
+    Report<E> report(long sequences, long elapsedNanos) {
+      return new Report<>(
+          sequences,
+          elapsedNanos,
+          latencies,
+          slowestEvent,
+          totalAllocatedBytes,
+          maxAllocatedBytes,
+          mostAllocatingEvent);
+    }
+
+    // The allocation counter may itself allocate on some JVMs; measure how much so that it can be
+    // subtracted from the per-update figures.
+    private long measureAllocationOverhead() {
+      long overhead = Long.MAX_VALUE;
+      for (int i = 0; i < 10; i++) {
+        long before = checkNotNull(allocations).getThreadAllocatedBytes(threadId);
+        long after = allocations.getThreadAllocatedBytes(threadId);
+        overhead = Math.min(overhead, after - before);
+      }
+      return overhead;
+    }
+
+    @Nullable
+    private static com.sun.management.ThreadMXBean allocationBean() {
+      try {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+          return null;
+        }
+
+        com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+        if (!sunBean.isThreadAllocatedMemorySupported()
+            || !sunBean.isThreadAllocatedMemoryEnabled()) {
+          return null;
+        }
+        return sunBean;
+
+      } catch (LinkageError | UnsupportedOperationException e) {
+        // not available on this JVM
+        return null;
+      }
+    }
+  }
+}
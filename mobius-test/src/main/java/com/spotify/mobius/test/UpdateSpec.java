@@ -27,6 +27,7 @@ import com.spotify.mobius.Update;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import javax.annotation.Nullable;
 import org.hamcrest.Matcher;
 
 /**
@@ -165,34 +166,12 @@ public class UpdateSpec<M, E, F> {
 
     @Override
     public void then(Assert<M, F> assertion) {
-      Next<M, F> last = null;
-      M lastModel = model;
-
-      for (E event : events) {
-        last = update.update(lastModel, event);
-        lastModel = last.modelOrElse(lastModel);
-      }
-
-      assertion.apply(Result.of(lastModel, checkNotNull(last)));
+      assertion.apply(play(update, model, events));
     }
 
     @Override
     public void thenError(AssertError assertion) {
-      Exception error = null;
-
-      M lastModel = model;
-
-      // play all events up to the last one
-      for (int i = 0; i < events.size() - 1; i++) {
-        lastModel = update.update(lastModel, events.get(i)).modelOrElse(lastModel);
-      }
-
-      // then, do the assertion on the final event
-      try {
-        update.update(model, events.get(events.size() - 1));
-      } catch (Exception e) {
-        error = e;
-      }
+      Exception error = playExpectingError(update, model, events);
 
       if (error == null) {
         throw new AssertionError("An exception was expected but was not thrown");
@@ -200,4 +179,41 @@ public class UpdateSpec<M, E, F> {
       assertion.assertError(error);
     }
   }
+
+  /** Plays the supplied events in order, starting from the supplied model. */
+  static <M, E, F> Result<M, F> play(Update<M, E, F> update, M model, List<E> events) {
+    Next<M, F> last = null;
+    M lastModel = model;
+
+    for (E event : events) {
+      last = update.update(lastModel, event);
+      lastModel = last.modelOrElse(lastModel);
+    }
+
+    return Result.of(lastModel, checkNotNull(last));
+  }
+
+  /**
+   * Plays all but the last of the supplied events, and then returns the exception thrown when
+   * playing the last event, or null if none was thrown. Exceptions thrown by earlier events are
+   * propagated.
+   */
+  @Nullable
+  static <M, E, F> Exception playExpectingError(Update<M, E, F> update, M model, List<E> events) {
+    M lastModel = model;
+
+    // play all events up to the last one
+    for (int i = 0; i < events.size() - 1; i++) {
+      lastModel = update.update(lastModel, events.get(i)).modelOrElse(lastModel);
+    }
+
+    // then, do the assertion on the final event
+    try {
+      update.update(model, events.get(events.size() - 1));
+    } catch (Exception e) {
+      return e;
+    }
+
+    return null;
+  }
 }
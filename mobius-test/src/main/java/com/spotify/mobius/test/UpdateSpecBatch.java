@@ -0,0 +1,369 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.test;
+
+import static com.spotify.mobius.internal_util.Preconditions.checkNotNull;
+
+import com.spotify.mobius.Next;
+import com.spotify.mobius.Update;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+import javax.annotation.Nullable;
+
+/**
+ * A batch version of {@link UpdateSpec} that records scenarios instead of running them immediately,
+ * and then runs all of them in parallel on a {@link ForkJoinPool}. This relies on the {@link
+ * Update} function being pure, which is what it should be; {@link #checkPurity(int)} can be used to
+ * detect update functions that aren't.
+ *
+ * <p>Scenarios are recorded using the same given/when/then syntax as {@link UpdateSpec}:
+ *
+ * <pre>
+ * UpdateSpecBatch&lt;Model, Event, Effect&gt; batch = new UpdateSpecBatch&lt;&gt;(update);
+ *
+ * for (TestCase testCase : testCases) {
+ *   batch.given(testCase.model()).when(testCase.event()).then(testCase.assertion());
+ * }
+ *
+ * batch.run();
+ * </pre>
+ *
+ * <p>Rather than stopping at the first failing scenario, {@link #run()} runs all the scenarios and
+ * throws a single {@link AssertionError} that describes every failure.
+ *
+ * @param <M> model type
+ * @param <E> events type
+ * @param <F> effects type
+ */
+public class UpdateSpecBatch<M, E, F> {
+
+  private static final int SCENARIOS_PER_TASK = 32;
+  private static final int MAX_DESCRIBED_FAILURES = 50;
+
+  private final Update<M, E, F> update;
+  private final List<Scenario<M, E, F>> scenarios = new ArrayList<>();
+
+  public UpdateSpecBatch(Update<M, E, F> update) {
+    this.update = checkNotNull(update);
+  }
+
+  public When given(M model) {
+    return new When(model);
+  }
+
+  /** @return the number of scenarios recorded so far */
+  public synchronized int size() {
+    return scenarios.size();
+  }
+
+  /**
+   * Runs all recorded scenarios on the {@link ForkJoinPool#commonPool() common pool}.
+   *
+   * @throws AssertionError if one or more scenarios failed
+   */
+  public void run() {
+    run(ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Runs all recorded scenarios on the supplied pool.
+   *
+   * @param pool the pool to run the scenarios on
+   * @throws AssertionError if one or more scenarios failed
+   */
+  public void run(ForkJoinPool pool) {
+    final List<Scenario<M, E, F>> toRun = snapshot();
+    final Throwable[] failures = new Throwable[toRun.size()];
+
+    forEachIndex(
+        pool,
+        toRun.size(),
+        index -> {
+          try {
+            toRun.get(index).verify(update);
+          } catch (Exception | AssertionError e) {
+            failures[index] = e;
+          }
+        });
+
+    List<String> descriptions = new ArrayList<>();
+    List<Throwable> causes = new ArrayList<>();
+
+    for (int i = 0; i < failures.length; i++) {
+      if (failures[i] != null) {
+        descriptions.add(toRun.get(i).describe(i) + ": " + failures[i]);
+        causes.add(failures[i]);
+      }
+    }
+
+    if (causes.isEmpty()) {
+      return;
+    }
+
+    AssertionError error =
+        new AssertionError(
+            String.format(
+                Locale.ENGLISH,
+                "%d of %d scenarios failed:%n%s",
+                causes.size(),
+                toRun.size(),
+                summarise(descriptions)),
+            causes.get(0));
+
+    for (Throwable suppressed : causes.subList(1, causes.size())) {
+      error.addSuppressed(suppressed);
+    }
+
+    throw error;
+  }
+
+  /**
+   * Checks that the update function is pure by running a sample of the recorded scenarios twice and
+   * verifying that every step produces equal {@link Next} instances both times. Exceptions are
+   * considered equal if they are of the same type. The assertions of the scenarios are not applied.
+   *
+   * <p>This relies on models and effects implementing {@link Object#equals(Object)}.
+   *
+   * @param sampleSize the maximum number of scenarios to check; the sample is evenly spread over
+   *     the recorded scenarios
+   * @throws AssertionError if any of the sampled scenarios gave different results
+   */
+  public void checkPurity(int sampleSize) {
+    checkPurity(sampleSize, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Same as {@link #checkPurity(int)}, but running the scenarios on the supplied pool.
+   *
+   * @param sampleSize the maximum number of scenarios to check
+   * @param pool the pool to run the scenarios on
+   * @throws AssertionError if any of the sampled scenarios gave different results
+   */
+  public void checkPurity(int sampleSize, ForkJoinPool pool) {
+    if (sampleSize < 1) {
+      throw new IllegalArgumentException("sampleSize must be positive: " + sampleSize);
+    }
+    List<Scenario<M, E, F>> all = snapshot();
+    final List<Scenario<M, E, F>> sample = new ArrayList<>();
+    final List<Integer> sampleIndices = new ArrayList<>();
+    int step = Math.max(1, all.size() / sampleSize);
+    for (int i = 0; i < all.size() && sample.size() < sampleSize; i += step) {
+      sample.add(all.get(i));
+      sampleIndices.add(i);
+    }
+
+    final List<?>[] first = new List<?>[sample.size()];
+    final List<?>[] second = new List<?>[sample.size()];
+
+    forEachIndex(pool, sample.size(), index -> first[index] = sample.get(index).trace(update));
+
+    // run the second pass in the reverse order, so that scenarios are likely to execute on
+    // different threads and interleave differently with each other.
+    forEachIndex(
+        pool,
+        sample.size(),
+        index -> {
+          int reversed = sample.size() - 1 - index;
+          second[reversed] = sample.get(reversed).trace(update);
+        });
+
+    List<String> descriptions = new ArrayList<>();
+    for (int i = 0; i < sample.size(); i++) {
+      if (!first[i].equals(second[i])) {
+        descriptions.add(
+            String.format(
+                Locale.ENGLISH,
+                "%s: first run %s, second run %s",
+                sample.get(i).describe(sampleIndices.get(i)),
+                first[i],
+                second[i]));
+      }
+    }
+
+    if (!descriptions.isEmpty()) {
+      throw new AssertionError(
+          String.format(
+              Locale.ENGLISH,
+              "%d of %d sampled scenarios gave different results when run twice; "
+                  + "the update function is not pure:%n%s",
+              descriptions.size(),
+              sample.size(),
+              summarise(descriptions)));
+    }
+  }
+
+  private synchronized void add(Scenario<M, E, F> scenario) {
+    scenarios.add(scenario);
+  }
+
+  private synchronized List<Scenario<M, E, F>> snapshot() {
+    return new ArrayList<>(scenarios);
+  }
+
+  private static String summarise(List<String> descriptions) {
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < descriptions.size() && i < MAX_DESCRIBED_FAILURES; i++) {
+      result.append("  ").append(descriptions.get(i)).append(String.format("%n"));
+    }
+    if (descriptions.size() > MAX_DESCRIBED_FAILURES) {
+      result.append(
+          String.format(
+              Locale.ENGLISH, "  ... and %d more", descriptions.size() - MAX_DESCRIBED_FAILURES));
+    }
+    return result.toString();
+  }
+
+  private static void forEachIndex(ForkJoinPool pool, int size, IntConsumer action) {
+    checkNotNull(pool).invoke(new ForEachIndex(action, 0, size));
+  }
+
+  public final class When {
+
+    private final M model;
+
+    private When(M model) {
+      this.model = checkNotNull(model);
+    }
+
+    /**
+     * Defines the event(s) of the scenario. Events are executed in the order supplied.
+     *
+     * @param event the first events
+     * @param events the following events, possibly none
+     * @return a {@link UpdateSpec.Then} instance that records the scenario when called
+     */
+    @SafeVarargs
+    public final UpdateSpec.Then<M, F> when(E event, E... events) {
+      final List<E> allEvents = new ArrayList<>(events.length + 1);
+      allEvents.add(event);
+      allEvents.addAll(Arrays.asList(events));
+
+      return new UpdateSpec.Then<M, F>() {
+        @Override
+        public void then(UpdateSpec.Assert<M, F> assertion) {
+          add(new Scenario<M, E, F>(model, allEvents, checkNotNull(assertion), null));
+        }
+
+        @Override
+        public void thenError(UpdateSpec.AssertError assertion) {
+          add(new Scenario<M, E, F>(model, allEvents, null, checkNotNull(assertion)));
+        }
+      };
+    }
+
+    /** An alias for {@link #when(Object, Object[])} for use with Kotlin. */
+    public final UpdateSpec.Then<M, F> whenEvent(E event) {
+      return when(event);
+    }
+
+    /** An alias for {@link #when(Object, Object[])} for use with Kotlin. */
+    @SafeVarargs
+    public final UpdateSpec.Then<M, F> whenEvents(E event, E... events) {
+      return when(event, events);
+    }
+  }
+
+  private static final class Scenario<M, E, F> {
+
+    private final M model;
+    private final List<E> events;
+    @Nullable private final UpdateSpec.Assert<M, F> assertion;
+    @Nullable private final UpdateSpec.AssertError errorAssertion;
+
+    private Scenario(
+        M model,
+        List<E> events,
+        @Nullable UpdateSpec.Assert<M, F> assertion,
+        @Nullable UpdateSpec.AssertError errorAssertion) {
+      this.model = model;
+      this.events = Collections.unmodifiableList(events);
+      this.assertion = assertion;
+      this.errorAssertion = errorAssertion;
+    }
+
+    void verify(Update<M, E, F> update) {
+      if (assertion != null) {
+        assertion.apply(UpdateSpec.play(update, model, events));
+        return;
+      }
+
+      Exception error = UpdateSpec.playExpectingError(update, model, events);
+      if (error == null) {
+        throw new AssertionError("An exception was expected but was not thrown");
+      }
+      checkNotNull(errorAssertion).assertError(error);
+    }
+
+    /** Plays the events, recording every step's Next, or the type of exception that stopped it. */
+    List<Object> trace(Update<M, E, F> update) {
+      List<Object> result = new ArrayList<>(events.size());
+      M lastModel = model;
+
+      try {
+        for (E event : events) {
+          Next<M, F> next = update.update(lastModel, event);
+          result.add(next);
+          lastModel = next.modelOrElse(lastModel);
+        }
+      } catch (Exception e) {
+        result.add("threw " + e.getClass().getName());
+      }
+
+      return result;
+    }
+
+    String describe(int index) {
+      return String.format(Locale.ENGLISH, "#%d given %s when %s", index, model, events);
+    }
+  }
+
+  /** Runs an action for every index in a range, splitting the range over the pool. */
+  private static final class ForEachIndex extends RecursiveAction {
+
+    private final IntConsumer action;
+    private final int from;
+    private final int to;
+
+    private ForEachIndex(IntConsumer action, int from, int to) {
+      this.action = action;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= SCENARIOS_PER_TASK) {
+        for (int i = from; i < to; i++) {
+          action.accept(i);
+        }
+        return;
+      }
+
+      int middle = (from + to) >>> 1;
+      invokeAll(new ForEachIndex(action, from, middle), new ForEachIndex(action, middle, to));
+    }
+  }
+}
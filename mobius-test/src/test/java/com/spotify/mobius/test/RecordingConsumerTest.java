@@ -24,6 +24,12 @@ import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 
 import java.lang.Thread.State;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import org.awaitility.Duration;
 import org.junit.Before;
@@ -77,4 +83,95 @@ public class RecordingConsumerTest {
   public void shouldReturnTrueForNoChange() throws Exception {
     assertThat(consumer.waitForChange(50), is(true));
   }
+
+  @Test
+  public void shouldWaitForValueCount() throws Exception {
+    consumer.accept("one");
+
+    new Thread(
+            () -> {
+              consumer.accept("two");
+              consumer.accept("three");
+            })
+        .start();
+
+    assertThat(consumer.waitForValueCount(3, 10_000), is(true));
+    consumer.assertValues("one", "two", "three");
+  }
+
+  @Test
+  public void shouldReturnFalseIfValueCountNotReachedInTime() throws Exception {
+    consumer.accept("one");
+
+    assertThat(consumer.waitForValueCount(2, 50), is(false));
+  }
+
+  @Test
+  public void shouldWaitForMatchingValue() throws Exception {
+    new Thread(
+            () -> {
+              consumer.accept("no");
+              consumer.accept("yes");
+            })
+        .start();
+
+    assertThat(consumer.waitForValue("yes"::equals, 10_000), is(true));
+  }
+
+  @Test
+  public void shouldMatchValuesReceivedBeforeWaiting() throws Exception {
+    consumer.accept("yes");
+    consumer.accept("no");
+
+    assertThat(consumer.waitForValue("yes"::equals, 0), is(true));
+    assertThat(consumer.whenValue("yes"::equals).isDone(), is(true));
+  }
+
+  @Test
+  public void shouldCompleteFutureWhenValueCountReached() throws Exception {
+    CompletableFuture<List<String>> future = consumer.whenValueCount(2);
+
+    consumer.accept("one");
+    assertThat(future.isDone(), is(false));
+
+    consumer.accept("two");
+    assertThat(future.get(), is(Arrays.asList("one", "two")));
+  }
+
+  @Test
+  public void shouldCompleteFutureWithFirstMatchingValue() throws Exception {
+    CompletableFuture<String> future = consumer.whenValue(value -> value.startsWith("y"));
+
+    consumer.accept("no");
+    consumer.accept("yes");
+    consumer.accept("yeah");
+
+    assertThat(future.get(), is("yes"));
+  }
+
+  @Test
+  public void shouldRecordValuesFromConcurrentProducers() throws Exception {
+    int producers = 8;
+    int valuesPerProducer = 10_000;
+    ExecutorService executor = Executors.newFixedThreadPool(producers);
+
+    try {
+      CompletableFuture<List<String>> all = consumer.whenValueCount(producers * valuesPerProducer);
+
+      for (int p = 0; p < producers; p++) {
+        executor.submit(
+            () -> {
+              for (int i = 0; i < valuesPerProducer; i++) {
+                consumer.accept("value");
+              }
+            });
+      }
+
+      assertThat(all.get(10, TimeUnit.SECONDS).size(), is(producers * valuesPerProducer));
+      assertThat(consumer.valueCount(), is(producers * valuesPerProducer));
+
+    } finally {
+      executor.shutdownNow();
+    }
+  }
 }
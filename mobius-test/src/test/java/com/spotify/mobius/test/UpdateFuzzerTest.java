@@ -0,0 +1,152 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.test;
+
+import static com.spotify.mobius.test.UpdateFuzzer.oneOf;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import com.spotify.mobius.First;
+import com.spotify.mobius.Next;
+import com.spotify.mobius.Update;
+import org.junit.Before;
+import org.junit.Test;
+
+public class UpdateFuzzerTest {
+
+  private static final Update<Integer, String, String> COUNTER =
+      (model, event) -> {
+        switch (event) {
+          case "up":
+            return Next.next(model + 1);
+          case "down":
+            return Next.next(model - 1);
+          default:
+            return Next.noChange();
+        }
+      };
+
+  private UpdateFuzzer<Integer, String, String> fuzzer;
+
+  @Before
+  public void setUp() throws Exception {
+    fuzzer =
+        new UpdateFuzzer<>(COUNTER)
+            .startFrom(0)
+            .events(oneOf("up", "down", "nothing"))
+            .iterations(500)
+            .seed(1234L);
+  }
+
+  @Test
+  public void shouldRunAllSequencesWhenInvariantsHold() throws Exception {
+    UpdateFuzzer.Report<String> report =
+        fuzzer.maxEvents(10).invariant(lessThanOrEqualTo(10)).run();
+
+    assertThat(report.sequences(), is(500L));
+    assertThat(report.updates(), greaterThanOrEqualTo(500L));
+    assertThat(report.updates(), lessThanOrEqualTo(5000L));
+    assertThat(report.updatesPerSecond(), greaterThan(0.0));
+    assertThat(report.latencyNanos(99), lessThanOrEqualTo(report.maxLatencyNanos()));
+    assertThat(report.latencyNanos(50), lessThanOrEqualTo(report.latencyNanos(99)));
+  }
+
+  @Test
+  public void shouldShrinkSequenceViolatingInvariant() throws Exception {
+    assertThatThrownBy(
+            () -> fuzzer.maxEvents(50).invariant(model -> assertThat(model, is(not(3)))).run())
+        .isInstanceOf(AssertionError.class)
+        .hasMessageContaining("Sequence of 3 event(s)")
+        .hasMessageContaining("events: [up, up, up]")
+        .hasMessageContaining("use seed(1234L) to reproduce this run");
+  }
+
+  @Test
+  public void shouldReportExceptionsThrownByUpdate() throws Exception {
+    fuzzer =
+        new UpdateFuzzer<Integer, String, String>(
+                (model, event) -> {
+                  if (model < 0) {
+                    throw new IllegalStateException("negative");
+                  }
+                  return COUNTER.update(model, event);
+                })
+            .startFrom(0)
+            .events(oneOf("up", "down"))
+            .seed(42L);
+
+    assertThatThrownBy(() -> fuzzer.run())
+        .isInstanceOf(AssertionError.class)
+        .hasMessageContaining("Sequence of 2 event(s)")
+        .hasMessageContaining("events: [down, ")
+        .hasCauseInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void shouldCheckInvariantsAfterInit() throws Exception {
+    assertThatThrownBy(
+            () -> fuzzer.init(model -> First.first(-1)).invariant(greaterThanOrEqualTo(0)).run())
+        .isInstanceOf(AssertionError.class)
+        .hasMessageContaining("Sequence of 0 event(s)")
+        .hasMessageContaining("start model: 0");
+  }
+
+  @Test
+  public void shouldSupportGeneratedStartModels() throws Exception {
+    UpdateFuzzer.Report<String> report =
+        fuzzer.startFrom(random -> random.nextInt(100)).invariant(greaterThan(-1000)).run();
+
+    assertThat(report.sequences(), is(500L));
+  }
+
+  @Test
+  public void shouldBeReproducibleWithSameSeed() throws Exception {
+    UpdateFuzzer<Integer, String, String> failing = fuzzer.invariant(lessThanOrEqualTo(4));
+
+    String first = messageOf(failing);
+    String second = messageOf(failing);
+
+    assertThat(first, containsString("use seed(1234L)"));
+    assertThat(first, is(second));
+  }
+
+  @Test
+  public void shouldRequireStartModelAndEvents() throws Exception {
+    assertThatThrownBy(() -> new UpdateFuzzer<>(COUNTER).events(oneOf("up")).run())
+        .isInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(() -> new UpdateFuzzer<>(COUNTER).startFrom(0).run())
+        .isInstanceOf(IllegalStateException.class);
+  }
+
+  private static String messageOf(UpdateFuzzer<?, ?, ?> fuzzer) {
+    try {
+      fuzzer.run();
+    } catch (AssertionError e) {
+      return e.getMessage();
+    }
+    throw new AssertionError("expected the run to fail");
+  }
+}
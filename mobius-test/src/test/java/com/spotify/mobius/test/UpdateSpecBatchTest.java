@@ -0,0 +1,128 @@
+/*
+ * -\-\-
+ * Mobius
+ * --
+ * Copyright (c) 2017-2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+package com.spotify.mobius.test;
+
+import static com.spotify.mobius.test.NextMatchers.hasModel;
+import static com.spotify.mobius.test.UpdateSpec.assertThatNext;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.spotify.mobius.Next;
+import com.spotify.mobius.Update;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+
+public class UpdateSpecBatchTest {
+
+  private static final Update<Integer, Integer, String> ADD =
+      (model, event) -> {
+        if (event < 0) {
+          throw new IllegalArgumentException("negative");
+        }
+        return Next.next(model + event);
+      };
+
+  private UpdateSpecBatch<Integer, Integer, String> batch;
+
+  @Before
+  public void setUp() throws Exception {
+    batch = new UpdateSpecBatch<>(ADD);
+  }
+
+  @Test
+  public void shouldRecordScenariosWithoutRunningThem() throws Exception {
+    batch.given(1).when(2).then(assertThatNext(hasModel(-1)));
+
+    assertThat(batch.size(), is(1));
+  }
+
+  @Test
+  public void shouldRunAllScenarios() throws Exception {
+    AtomicInteger assertions = new AtomicInteger();
+
+    for (int i = 0; i < 10_000; i++) {
+      int expected = i + 1 + 2;
+      batch
+          .given(i)
+          .when(1, 2)
+          .then(
+              result -> {
+                assertThat(result.model(), is(expected));
+                assertions.incrementAndGet();
+              });
+    }
+
+    batch.run(new ForkJoinPool(4));
+
+    assertThat(assertions.get(), is(10_000));
+  }
+
+  @Test
+  public void shouldSupportErrorScenarios() throws Exception {
+    batch.given(0).whenEvents(1, -1).thenError(e -> assertThat(e.getMessage(), is("negative")));
+
+    batch.run();
+  }
+
+  @Test
+  public void shouldAggregateFailures() throws Exception {
+    batch.given(0).when(1).then(assertThatNext(hasModel(1)));
+    batch.given(0).when(1).then(assertThatNext(hasModel(2)));
+    batch.given(5).whenEvent(1).then(assertThatNext(hasModel(7)));
+    batch.given(0).when(1).thenError(e -> {});
+
+    assertThatThrownBy(() -> batch.run())
+        .isInstanceOf(AssertionError.class)
+        .hasMessageContaining("3 of 4 scenarios failed")
+        .hasMessageContaining("#1 given 0 when [1]")
+        .hasMessageContaining("#2 given 5 when [1]")
+        .hasMessageContaining("#3 given 0 when [1]: java.lang.AssertionError: An exception")
+        .satisfies(error -> assertThat(error.getSuppressed().length, is(2)));
+  }
+
+  @Test
+  public void shouldAcceptPureUpdates() throws Exception {
+    for (int i = 0; i < 1000; i++) {
+      batch.given(i).when(i, -1).then(result -> {});
+    }
+
+    batch.checkPurity(100);
+  }
+
+  @Test
+  public void shouldDetectImpureUpdates() throws Exception {
+    AtomicInteger calls = new AtomicInteger();
+    batch =
+        new UpdateSpecBatch<>(
+            (model, event) -> Next.next(event == 3 ? calls.incrementAndGet() : model + event));
+
+    for (int i = 0; i < 10; i++) {
+      batch.given(0).when(i).then(result -> {});
+    }
+
+    assertThatThrownBy(() -> batch.checkPurity(10))
+        .isInstanceOf(AssertionError.class)
+        .hasMessageContaining("1 of 10 sampled scenarios gave different results")
+        .hasMessageContaining("#3 given 0 when [3]");
+  }
+}